@@ -1,7 +1,72 @@
 package com.tuwien.isis.irtask1;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import com.tuwien.isis.irtask1.indexer.BlockPostingsWriter;
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.indexer.DuplicateMode;
+import com.tuwien.isis.irtask1.indexer.ForwardIndexWriter;
+import com.tuwien.isis.irtask1.indexer.IndexFiles;
+import com.tuwien.isis.irtask1.indexer.IndexVariant;
 import com.tuwien.isis.irtask1.indexer.Indexer;
+import com.tuwien.isis.irtask1.indexer.LsiIndexWriter;
+import com.tuwien.isis.irtask1.indexer.PositionalIndexWriter;
+import com.tuwien.isis.irtask1.indexer.Posting;
+import com.tuwien.isis.irtask1.indexer.QuantizedIndexWriter;
+import com.tuwien.isis.irtask1.indexer.RawIndexWriter;
+import com.tuwien.isis.irtask1.indexer.ShardingStrategy;
+import com.tuwien.isis.irtask1.indexer.TermDictionaryWriter;
+import com.tuwien.isis.irtask1.indexer.VariantIndexer;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.DocumentVectorBuilder;
+import com.tuwien.isis.irtask1.search.DuplicateFilter;
+import com.tuwien.isis.irtask1.search.PruningReport;
+import com.tuwien.isis.irtask1.search.QueryPruner;
 import com.tuwien.isis.irtask1.search.SearchEngine;
+import com.tuwien.isis.irtask1.search.TermStatistics;
+import com.tuwien.isis.irtask1.search.bool.BlockPostingList;
+import com.tuwien.isis.irtask1.search.bool.BooleanIndex;
+import com.tuwien.isis.irtask1.search.bool.BooleanQuery;
+import com.tuwien.isis.irtask1.search.bool.BooleanRanker;
+import com.tuwien.isis.irtask1.search.bool.DocIdIterator;
+import com.tuwien.isis.irtask1.search.dictionary.TermDictionaryReport;
+import com.tuwien.isis.irtask1.search.filter.ClassFilter;
+import com.tuwien.isis.irtask1.search.filter.DocIdSet;
+import com.tuwien.isis.irtask1.search.forward.ForwardIndex;
+import com.tuwien.isis.irtask1.search.forward.ForwardIndexSearcher;
+import com.tuwien.isis.irtask1.search.knn.KnnGraph;
+import com.tuwien.isis.irtask1.search.knn.KnnGraphBuilder;
+import com.tuwien.isis.irtask1.search.knn.KnnGraphSearcher;
+import com.tuwien.isis.irtask1.search.lsi.LsiIndex;
+import com.tuwien.isis.irtask1.search.lsi.LsiReport;
+import com.tuwien.isis.irtask1.search.lsi.LsiSearcher;
+import com.tuwien.isis.irtask1.search.output.TrecRunWriter;
+import com.tuwien.isis.irtask1.search.positional.PhraseQuery;
+import com.tuwien.isis.irtask1.search.positional.PositionalIndex;
+import com.tuwien.isis.irtask1.search.positional.PositionalQuery;
+import com.tuwien.isis.irtask1.search.positional.ProximityQuery;
+import com.tuwien.isis.irtask1.search.quantized.QuantizationReport;
+import com.tuwien.isis.irtask1.search.quantized.QuantizedIndex;
+import com.tuwien.isis.irtask1.search.quantized.QuantizedSearcher;
+import com.tuwien.isis.irtask1.search.raw.RawIndex;
+import com.tuwien.isis.irtask1.search.raw.RawIndexSearcher;
+import com.tuwien.isis.irtask1.search.raw.WeightingReport;
+import com.tuwien.isis.irtask1.search.raw.WeightingScheme;
+import com.tuwien.isis.irtask1.search.raw.WeightingSchemes;
+import com.tuwien.isis.irtask1.search.shard.IndexWatcher;
+import com.tuwien.isis.irtask1.search.shard.LocalShardSearcher;
+import com.tuwien.isis.irtask1.search.shard.RemoteShardSearcher;
+import com.tuwien.isis.irtask1.search.shard.ShardCoordinator;
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+import com.tuwien.isis.irtask1.search.shard.ShardServer;
+import com.tuwien.isis.irtask1.search.shard.SwappableSearcher;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -63,6 +128,201 @@ public class RankingEngine {
 
 	private static final String SEARCH_RESULT_NUMBER = "n";
 
+	/**
+	 * CLI option for setting the number of shards the index is partitioned into
+	 */
+	private static final String SHARDS = "shards";
+
+	/**
+	 * CLI option for setting how documents are assigned to shards (hash or class)
+	 */
+	private static final String SHARD_BY = "shardby";
+
+	/**
+	 * CLI option for serving a single shard to coordinators in other JVMs
+	 */
+	private static final String SERVE = "serve";
+
+	/**
+	 * CLI option for selecting the shard to serve
+	 */
+	private static final String SHARD = "shard";
+
+	/**
+	 * CLI option for setting the port a shard is served on
+	 */
+	private static final String PORT = "port";
+
+	/**
+	 * CLI option for recording term positions during the creation of the index
+	 */
+	private static final String POSITIONS = "positions";
+
+	/**
+	 * CLI option for searching a phrase in the positional postings
+	 */
+	private static final String PHRASE = "phrase";
+
+	/**
+	 * CLI option for turning the phrase into a proximity query with the given window size (in words)
+	 */
+	private static final String NEAR = "near";
+
+	/**
+	 * CLI option for storing (index) or searching (search) weights quantized to the given number of bits
+	 */
+	private static final String QUANTIZE = "quantize";
+
+	/**
+	 * CLI option for quantizing with one scale per term instead of one for the whole index
+	 */
+	private static final String TERM_SCALE = "termscale";
+
+	/**
+	 * CLI option for comparing the quantized with the float index instead of writing search results
+	 */
+	private static final String REPORT = "report";
+
+	/**
+	 * CLI option for precomputing the k nearest neighbours of the documents of the index
+	 */
+	private static final String KNN = "knn";
+
+	/**
+	 * CLI option for setting the minimum cosine of a precomputed neighbour
+	 */
+	private static final String THRESHOLD = "threshold";
+
+	/**
+	 * CLI option for setting the number of worker threads
+	 */
+	private static final String THREADS = "threads";
+
+	/**
+	 * CLI option for answering searches from the precomputed k-NN graph
+	 */
+	private static final String GRAPH = "graph";
+
+	/**
+	 * CLI option for writing the results of all topics into a single TREC run file
+	 */
+	private static final String RUN_FILE = "run";
+
+	/**
+	 * CLI option for storing (index) or searching (search) the memory-mapped forward index
+	 */
+	private static final String FORWARD = "forward";
+
+	/**
+	 * CLI option for comparing the term dictionary of the forward index with a HashMap
+	 */
+	private static final String DICTIONARY_REPORT = "dictreport";
+
+	/**
+	 * CLI option for detecting near-duplicates above the given Jaccard similarity during indexing
+	 */
+	private static final String DEDUP = "dedup";
+
+	/**
+	 * CLI option for marking (default) or collapsing the near-duplicates
+	 */
+	private static final String DUP_MODE = "dupmode";
+
+	/**
+	 * CLI option for indexing another collection directory or a tar/tar.gz/zip archive of it
+	 */
+	private static final String COLLECTION = "collection";
+
+	/**
+	 * CLI option for the path of the index to create or search (default index.arff)
+	 */
+	private static final String INDEX = "index";
+
+	/**
+	 * CLI option for creating several named index variants in one pass, e.g.
+	 * "plain:min=2;stem:stem,min=2" for index-plain.arff and index-stem.arff
+	 */
+	private static final String VARIANTS = "variants";
+
+	/**
+	 * CLI option for searching shards served by other JVMs (comma-separated host:port list)
+	 */
+	private static final String REMOTE = "remote";
+
+	/**
+	 * CLI option for searching only the documents of the given comma-separated classes
+	 */
+	private static final String CLASSES = "classes";
+
+	/**
+	 * CLI option for printing the number of matching documents per class for every query
+	 */
+	private static final String FACETS = "facets";
+
+	/**
+	 * CLI option for storing (index) or searching (search) LSI vectors of the given number of dimensions
+	 */
+	private static final String LSI = "lsi";
+
+	/**
+	 * CLI option for the time limit of every query in milliseconds, after which it returns partial results
+	 */
+	private static final String BUDGET_MILLIS = "budgetms";
+
+	/**
+	 * CLI option for the maximum number of documents scored per query
+	 */
+	private static final String BUDGET_DOCUMENTS = "budgetdocs";
+
+	/**
+	 * CLI option for pruning query vectors to the top m terms (whole number) or to a fraction of their
+	 * squared norm (below 1). With -report a comma-separated list of prunings is compared.
+	 */
+	private static final String PRUNE = "prune";
+
+	/**
+	 * CLI option for searching the documents most similar to a free text instead of a topic list
+	 */
+	private static final String TEXT = "text";
+
+	/**
+	 * CLI option for storing the document ids of all posting lists in blocks with skip data
+	 */
+	private static final String POSTINGS = "postings";
+
+	/**
+	 * CLI option for searching the documents matching a Boolean query with AND, OR, NOT and parentheses
+	 */
+	private static final String BOOLEAN = "boolean";
+
+	/**
+	 * CLI option for ranking the documents matching a Boolean query by cosine
+	 */
+	private static final String RANK = "rank";
+
+	/**
+	 * CLI option for storing only the raw term and document frequencies when indexing, and for weighting
+	 * them at search time. The -min and -max thresholds are then applied at search time as well.
+	 */
+	private static final String RAW_TF = "rawtf";
+
+	/**
+	 * CLI option for the weighting scheme of the raw index (ltc, lnc, ntc or bm25[:k1:b], default ltc).
+	 * With -report a comma-separated list of schemes is compared with the weighted index.
+	 */
+	private static final String WEIGHTING = "weighting";
+
+	/**
+	 * CLI option for reloading a served index in the background whenever its file has been written
+	 * again, checking the file every given number of milliseconds
+	 */
+	private static final String WATCH = "watch";
+
+	/**
+	 * CLI option for measuring the peak and retained heap of an index build
+	 */
+	private static final String MEMORY_REPORT = "memreport";
+
 	/**
 	 * Handle user arguments
 	 * 
@@ -76,6 +336,18 @@ public class RankingEngine {
 		options.addOption(SEARCH, false, "run search engine");
 		options.addOption(STEMMING, false, "use stemming during the creation of the index");
 		options.addOption(STOPWORDS, false, "remove stopwords during the creation of the index");
+		options.addOption(SERVE, false, "serve a shard of the index over a socket");
+		options.addOption(POSITIONS, false, "record term positions during the creation of the index");
+		options.addOption(TERM_SCALE, false, "quantize weights with one scale per term");
+		options.addOption(REPORT, false, "compare the quantized with the float index");
+		options.addOption(GRAPH, false, "answer searches from the precomputed k-NN graph");
+		options.addOption(FORWARD, false, "store or search the memory-mapped forward index");
+		options.addOption(DICTIONARY_REPORT, false, "compare the term dictionary with a HashMap");
+		options.addOption(FACETS, false, "print the number of matching documents per class");
+		options.addOption(POSTINGS, false, "store block postings with skip data for Boolean queries");
+		options.addOption(RANK, false, "rank the Boolean matches by cosine on the forward index");
+		options.addOption(RAW_TF, false, "store or search raw term frequencies weighted at search time");
+		options.addOption(MEMORY_REPORT, false, "measure the peak and retained heap of the index build");
 		Option topics = new Option(TOPICS, true, "list of input topics");
 		Option min = new Option(MIN_FREQ, true, "minimum term frequency required to be added to index");
 		Option max = new Option(MAX_FREQ, true, "maximum term frequency allowed to be included in index");
@@ -84,6 +356,32 @@ public class RankingEngine {
 		options.addOption(min);
 		options.addOption(max);
 		options.addOption(nr);
+		options.addOption(new Option(SHARDS, true, "number of shards the index is partitioned into"));
+		options.addOption(new Option(SHARD_BY, true, "assign documents to shards by hash (default) or class"));
+		options.addOption(new Option(SHARD, true, "shard to serve (whole index if not given)"));
+		options.addOption(new Option(PORT, true, "port to serve the shard on"));
+		options.addOption(new Option(PHRASE, true, "search documents containing a phrase"));
+		options.addOption(new Option(NEAR, true, "search documents containing the phrase words within a window"));
+		options.addOption(new Option(QUANTIZE, true, "store or search weights quantized to 8 or 16 bits"));
+		options.addOption(new Option(KNN, true, "precompute the given number of nearest neighbours per document"));
+		options.addOption(new Option(THRESHOLD, true, "minimum cosine of a precomputed neighbour"));
+		options.addOption(new Option(THREADS, true, "number of worker threads"));
+		options.addOption(new Option(RUN_FILE, true, "write all results into a single TREC run file"));
+		options.addOption(new Option(COLLECTION, true, "collection directory or tar/tar.gz/zip archive to index"));
+		options.addOption(new Option(INDEX, true, "path of the index to create or search (default index.arff)"));
+		options.addOption(new Option(VARIANTS, true, "create named index variants in one pass, e.g. a:min=2;b:stem"));
+		options.addOption(new Option(DEDUP, true, "detect near-duplicates above the given Jaccard similarity"));
+		options.addOption(new Option(DUP_MODE, true, "mark (default) or collapse the near-duplicates"));
+		options.addOption(new Option(REMOTE, true, "comma-separated host:port list of shard servers to search"));
+		options.addOption(new Option(LSI, true, "store or search LSI vectors of the given number of dimensions"));
+		options.addOption(new Option(BUDGET_MILLIS, true, "time limit of every query in milliseconds"));
+		options.addOption(new Option(BUDGET_DOCUMENTS, true, "maximum number of documents scored per query"));
+		options.addOption(new Option(PRUNE, true, "keep the top m query terms (m >= 1) or a fraction of the norm"));
+		options.addOption(new Option(BOOLEAN, true, "search documents matching a query with AND, OR and NOT"));
+		options.addOption(new Option(TEXT, true, "search the documents most similar to a free text"));
+		options.addOption(new Option(WEIGHTING, true, "weighting of the raw index: ltc, lnc, ntc or bm25[:k1:b]"));
+		options.addOption(new Option(WATCH, true, "reload the served index when its files change, polling every ms"));
+		options.addOption(new Option(CLASSES, true, "search only the documents of these comma-separated classes"));
 		CommandLineParser parser = new PosixParser();
 
 		try {
@@ -91,26 +389,144 @@ public class RankingEngine {
 			// Parse user arguments
 			CommandLine command = parser.parse(options, args);
 
-			if (command.hasOption(INDEXER)) {
+			String indexPath = getIndexPath(command);
+
+			if (command.hasOption(INDEXER) && command.hasOption(VARIANTS)) {
+
+				// Create the indexes of all variants in one pass over the collection
+				List<IndexVariant> variants = IndexVariant.parseList(command.getOptionValue(VARIANTS));
+				VariantIndexer variantIndexer = new VariantIndexer(variants, command.hasOption(POSITIONS));
+				variantIndexer.setMemoryReport(command.hasOption(MEMORY_REPORT));
+				configureDuplicateDetection(variantIndexer, command);
+				variantIndexer.createIndexes(getCollectionPath(command));
+				for (int i = 0; i < variants.size(); i++) {
+					storeIndexFiles(variantIndexer.getIndexers().get(i), variants.get(i).getIndexPath(), command);
+				}
+			} else if (command.hasOption(INDEXER) && command.hasOption(RAW_TF)) {
+
+				// Keep all terms, the thresholds and the weighting are chosen at search time. Free text is
+				// weighted with the document frequencies of the raw index, so no term statistics are written.
+				rejectOptions(command, RAW_TF, MIN_FREQ, MAX_FREQ, POSITIONS, SHARDS, SHARD_BY, FORWARD, POSTINGS, LSI,
+						QUANTIZE, TERM_SCALE);
+				Indexer indexer = new Indexer(command.hasOption(STEMMING), command.hasOption(STOPWORDS), 0, 0);
+				configureDuplicateDetection(indexer, command);
+				indexer.setMemoryReport(command.hasOption(MEMORY_REPORT));
+				indexer.createIndex(getCollectionPath(command));
+				indexer.storeRawIndex(indexPath);
+				System.out.println("Document frequency thresholds and weighting are applied at search time (-s -"
+						+ RAW_TF + ").");
+			} else if (command.hasOption(INDEXER)) {
 
 				// Retrieve user options to use for index creation
 				boolean useStemming = command.hasOption(STEMMING);
 				boolean removeStopwords = command.hasOption(STOPWORDS);
-				int minFreq = command.hasOption(MIN_FREQ) ? Integer.parseInt(command.getOptionValue(MIN_FREQ)) : 0;
-				int maxFreq = command.hasOption(MAX_FREQ) ? Integer.parseInt(command.getOptionValue(MAX_FREQ)) : 0;
+				boolean recordPositions = command.hasOption(POSITIONS);
 
 				// Create and run indexer
-				Indexer indexer = new Indexer(useStemming, removeStopwords, minFreq, maxFreq);
-				indexer.createIndex(COLLECTION_PATH);
-				indexer.storeIndex(INDEX_PATH);
+				Indexer indexer = new Indexer(useStemming, removeStopwords, getMinFreq(command), getMaxFreq(command),
+						recordPositions);
+				configureDuplicateDetection(indexer, command);
+				indexer.setMemoryReport(command.hasOption(MEMORY_REPORT));
+				indexer.createIndex(getCollectionPath(command));
+				storeIndexFiles(indexer, indexPath, command);
+			} else if (command.hasOption(DICTIONARY_REPORT)) {
+				new TermDictionaryReport(IndexFiles.sidecarPath(indexPath, TermDictionaryWriter.EXTENSION)).run();
+			} else if (command.hasOption(KNN)) {
+				buildKnnGraph(command);
+			} else if (command.hasOption(SEARCH) && command.hasOption(PHRASE)) {
+				searchPhrase(command);
+			} else if (command.hasOption(SEARCH) && command.hasOption(BOOLEAN)) {
+				searchBoolean(command);
+			} else if (command.hasOption(SEARCH) && command.hasOption(QUANTIZE) && command.hasOption(REPORT)) {
+				int n = command.hasOption(SEARCH_RESULT_NUMBER) ? Integer.parseInt(command
+						.getOptionValue(SEARCH_RESULT_NUMBER)) : 10;
+				String quantizedPath = IndexFiles.sidecarPath(indexPath, QuantizedIndexWriter.extension(Integer
+						.parseInt(command.getOptionValue(QUANTIZE))));
+
+				new QuantizationReport(indexPath, quantizedPath, n).run(getTopicList(command));
+			} else if (command.hasOption(SEARCH) && command.hasOption(LSI) && command.hasOption(REPORT)) {
+				int n = command.hasOption(SEARCH_RESULT_NUMBER) ? Integer.parseInt(command
+						.getOptionValue(SEARCH_RESULT_NUMBER)) : 10;
+
+				new LsiReport(indexPath, getLsiPath(command, indexPath), n).run(getTopicList(command));
+			} else if (command.hasOption(SEARCH) && command.hasOption(RAW_TF) && command.hasOption(REPORT)) {
+				int n = command.hasOption(SEARCH_RESULT_NUMBER) ? Integer.parseInt(command
+						.getOptionValue(SEARCH_RESULT_NUMBER)) : 10;
+				ShardSearcher searcher = command.hasOption(FORWARD) ? new ForwardIndexSearcher(ForwardIndex.open(
+						IndexFiles.sidecarPath(indexPath, ForwardIndexWriter.EXTENSION), IndexFiles.sidecarPath(
+								indexPath, TermDictionaryWriter.EXTENSION))) : new LocalShardSearcher(
+						DocumentVectorBuilder.buildDocumentVectors(indexPath));
+				List<WeightingScheme> schemes = WeightingSchemes.parseList(command.hasOption(WEIGHTING) ? command
+						.getOptionValue(WEIGHTING) : "ltc");
+
+				RawIndexSearcher rawSearcher = openRawSearcher(command, indexPath, schemes.get(0));
+
+				new WeightingReport(searcher, rawSearcher, n).run(getTopicList(command), schemes, getMinFreq(command),
+						getMaxFreq(command));
+			} else if (command.hasOption(SEARCH) && command.hasOption(PRUNE) && command.hasOption(REPORT)) {
+				int n = command.hasOption(SEARCH_RESULT_NUMBER) ? Integer.parseInt(command
+						.getOptionValue(SEARCH_RESULT_NUMBER)) : 10;
+				ShardSearcher searcher = command.hasOption(FORWARD) ? new ForwardIndexSearcher(ForwardIndex.open(
+						IndexFiles.sidecarPath(indexPath, ForwardIndexWriter.EXTENSION), IndexFiles.sidecarPath(
+								indexPath, TermDictionaryWriter.EXTENSION))) : new LocalShardSearcher(
+						DocumentVectorBuilder.buildDocumentVectors(indexPath));
+
+				new PruningReport(searcher, n).run(getTopicList(command), QueryPruner.parseList(command
+						.getOptionValue(PRUNE)));
 			} else if (command.hasOption(SEARCH)) {
 				int n = command.hasOption(SEARCH_RESULT_NUMBER) ? Integer.parseInt(command
 						.getOptionValue(SEARCH_RESULT_NUMBER)) : 10;
 
-				SearchEngine search = new SearchEngine(n);
-				search.searchSimilarDocuments(getTopicList(command), INDEX_PATH);
+				SearchEngine search = command.hasOption(RUN_FILE) ? new SearchEngine(n, new TrecRunWriter(command
+						.getOptionValue(RUN_FILE))) : new SearchEngine(n);
+				search.setDuplicateFilter(DuplicateFilter.load(indexPath));
+				if (command.hasOption(CLASSES)) {
+					search.setClassFilter(ClassFilter.parse(command.getOptionValue(CLASSES)));
+				}
+				search.setFacets(command.hasOption(FACETS));
+				if (command.hasOption(PRUNE)) {
+					search.setQueryPruner(QueryPruner.parse(command.getOptionValue(PRUNE)));
+				}
+				search.setQueryBudget(command.hasOption(BUDGET_MILLIS) ? Long.parseLong(command
+						.getOptionValue(BUDGET_MILLIS)) : 0, command.hasOption(BUDGET_DOCUMENTS) ? Long
+						.parseLong(command.getOptionValue(BUDGET_DOCUMENTS)) : 0);
+				ShardSearcher searcher = openSearcher(command, indexPath);
+
+				// a raw index weights free text with its own document frequencies and scheme
+				search.setTermStatistics((searcher instanceof RawIndexSearcher) ? ((RawIndexSearcher) searcher)
+						.getTermStatistics() : TermStatistics.load(indexPath));
+
+				if (command.hasOption(TEXT)) {
+					search.searchText(command.getOptionValue(TEXT), searcher);
+				} else {
+					String topicList = getTopicList(command);
+					search.searchSimilarDocuments(topicList, searcher);
+
+					System.out.println("Search completed. check " + (command.hasOption(RUN_FILE) ? command
+							.getOptionValue(RUN_FILE) : "/output/") + " for results");
+				}
+			} else if (command.hasOption(SERVE)) {
+				if (!command.hasOption(PORT)) {
+					throw new MissingOptionException("Port was not specified. Please use the -" + PORT + " option");
+				}
+				final String servedPath = command.hasOption(SHARD) ? IndexFiles.shardPath(indexPath, Integer
+						.parseInt(command.getOptionValue(SHARD))) : indexPath;
 
-				System.out.println("Search completed. check /output/ for results");
+				ShardSearcher searcher;
+				if (command.hasOption(WATCH)) {
+					final CommandLine servedCommand = command;
+					SwappableSearcher swappableSearcher = new SwappableSearcher(new SwappableSearcher.Loader() {
+						public ShardSearcher load() throws IOException {
+							return openIndexSearcher(servedCommand, servedPath);
+						}
+					});
+					new IndexWatcher(swappableSearcher, getIndexFiles(command, servedPath), Long.parseLong(command
+							.getOptionValue(WATCH))).start();
+					searcher = swappableSearcher;
+				} else {
+					searcher = openIndexSearcher(command, servedPath);
+				}
+				new ShardServer(searcher, Integer.parseInt(command.getOptionValue(PORT))).serve();
 			} else {
 				System.out.println("Invalid usage.");
 			}
@@ -119,6 +535,394 @@ public class RankingEngine {
 		}
 	}
 
+	/**
+	 * Enable the near-duplicate detection of an indexer if it was requested
+	 * 
+	 * @param indexer
+	 * @param command
+	 */
+	private static void configureDuplicateDetection(Indexer indexer, CommandLine command) {
+		if (command.hasOption(DEDUP)) {
+			indexer.detectNearDuplicates(Double.parseDouble(command.getOptionValue(DEDUP)), getDuplicateMode(command));
+		}
+	}
+
+	/**
+	 * Enable the near-duplicate detection shared by all variants if it was requested
+	 * 
+	 * @param variantIndexer
+	 * @param command
+	 */
+	private static void configureDuplicateDetection(VariantIndexer variantIndexer, CommandLine command) {
+		if (command.hasOption(DEDUP)) {
+			variantIndexer.detectNearDuplicates(Double.parseDouble(command.getOptionValue(DEDUP)),
+					getDuplicateMode(command));
+		}
+	}
+
+	private static DuplicateMode getDuplicateMode(CommandLine command) {
+		return command.hasOption(DUP_MODE) ? DuplicateMode.fromName(command.getOptionValue(DUP_MODE))
+				: DuplicateMode.MARK;
+	}
+
+	/**
+	 * Store a created index and all requested files alongside it at the given path
+	 * 
+	 * @param indexer
+	 * @param indexPath
+	 * @param command
+	 * @throws IOException
+	 */
+	private static void storeIndexFiles(Indexer indexer, String indexPath, CommandLine command) throws IOException {
+		int shards = command.hasOption(SHARDS) ? Integer.parseInt(command.getOptionValue(SHARDS)) : 1;
+		if (shards > 1) {
+			ShardingStrategy strategy = command.hasOption(SHARD_BY) ? ShardingStrategy.fromName(command
+					.getOptionValue(SHARD_BY)) : ShardingStrategy.HASH;
+			indexer.storeShardedIndex(indexPath, shards, strategy);
+		} else {
+			indexer.storeIndex(indexPath);
+		}
+		indexer.storeDuplicates(indexPath);
+		indexer.storeTermStatistics(indexPath);
+		if (command.hasOption(FORWARD)) {
+			indexer.storeForwardIndex(indexPath);
+		}
+		if (command.hasOption(POSTINGS)) {
+			indexer.storeBlockPostings(indexPath);
+		}
+		if (command.hasOption(LSI)) {
+			indexer.storeLsiIndex(indexPath, Integer.parseInt(command.getOptionValue(LSI)));
+		}
+		if (command.hasOption(QUANTIZE)) {
+			indexer.storeQuantizedIndex(indexPath, Integer.parseInt(command.getOptionValue(QUANTIZE)),
+					command.hasOption(TERM_SCALE));
+		}
+	}
+
+	/**
+	 * Fail if one of the given options was entered together with an option it cannot be combined with,
+	 * instead of silently ignoring it
+	 * 
+	 * @param command
+	 * @param option
+	 * @param unsupported
+	 */
+	private static void rejectOptions(CommandLine command, String option, String... unsupported) {
+		for (String name : unsupported) {
+			if (command.hasOption(name)) {
+				throw new IllegalArgumentException("-" + name + " cannot be combined with -" + option);
+			}
+		}
+	}
+
+	/**
+	 * Open the searcher selected by the options: a raw, forward, LSI, k-NN graph or quantized index, remote
+	 * shard servers, local shards or the whole index in the heap
+	 * 
+	 * @param command
+	 * @param indexPath
+	 * @return
+	 * @throws IOException
+	 */
+	private static ShardSearcher openSearcher(CommandLine command, String indexPath) throws IOException {
+		int shards = command.hasOption(SHARDS) ? Integer.parseInt(command.getOptionValue(SHARDS)) : 1;
+		if (!hasSidecarIndex(command) && command.hasOption(REMOTE)) {
+			return connectRemoteShards(command.getOptionValue(REMOTE));
+		} else if (!hasSidecarIndex(command) && shards > 1) {
+			List<ShardSearcher> shardSearchers = new ArrayList<ShardSearcher>();
+			for (int shard = 0; shard < shards; shard++) {
+				shardSearchers.add(new LocalShardSearcher(DocumentVectorBuilder.buildDocumentVectors(IndexFiles
+						.shardPath(indexPath, shard))));
+			}
+			return new ShardCoordinator(shardSearchers);
+		}
+		return openIndexSearcher(command, indexPath);
+	}
+
+	/**
+	 * Open the searcher of a single index selected by the options: a raw, forward, LSI, k-NN graph or
+	 * quantized index, or the ARFF in the heap
+	 * 
+	 * @param command
+	 * @param indexPath
+	 * @return
+	 * @throws IOException
+	 */
+	private static ShardSearcher openIndexSearcher(CommandLine command, String indexPath) throws IOException {
+		if (command.hasOption(RAW_TF)) {
+			return openRawSearcher(command, indexPath, command.hasOption(WEIGHTING) ? WeightingSchemes.parse(command
+					.getOptionValue(WEIGHTING)) : WeightingSchemes.LTC);
+		} else if (command.hasOption(FORWARD)) {
+			return new ForwardIndexSearcher(ForwardIndex.open(IndexFiles.sidecarPath(indexPath,
+					ForwardIndexWriter.EXTENSION), IndexFiles.sidecarPath(indexPath, TermDictionaryWriter.EXTENSION)));
+		} else if (command.hasOption(LSI)) {
+			return new LsiSearcher(LsiIndex.load(getLsiPath(command, indexPath)));
+		} else if (command.hasOption(GRAPH)) {
+			KnnGraph graph = KnnGraph.open(IndexFiles.sidecarPath(indexPath, KnnGraph.EXTENSION));
+			int n = command.hasOption(SEARCH_RESULT_NUMBER) ? Integer.parseInt(command
+					.getOptionValue(SEARCH_RESULT_NUMBER)) : 10;
+			if (n > graph.getK()) {
+				System.out.println("The graph only holds " + graph.getK() + " neighbours per document, " + n
+						+ " results requested");
+			}
+			return new KnnGraphSearcher(graph);
+		} else if (command.hasOption(QUANTIZE)) {
+			return new QuantizedSearcher(QuantizedIndex.load(IndexFiles.sidecarPath(indexPath, QuantizedIndexWriter
+					.extension(Integer.parseInt(command.getOptionValue(QUANTIZE))))));
+		}
+		List<DocumentVector> documentVectors = DocumentVectorBuilder.buildDocumentVectors(indexPath);
+		if (documentVectors == null) {
+			throw new IOException("could not read the index " + indexPath);
+		}
+		return new LocalShardSearcher(documentVectors);
+	}
+
+	/**
+	 * Check if the options select an index type which is read from sidecars instead of the ARFF
+	 * 
+	 * @param command
+	 * @return
+	 */
+	private static boolean hasSidecarIndex(CommandLine command) {
+		return command.hasOption(RAW_TF) || command.hasOption(FORWARD) || command.hasOption(LSI)
+				|| command.hasOption(GRAPH) || command.hasOption(QUANTIZE);
+	}
+
+	/**
+	 * List the files {@link #openIndexSearcher(CommandLine, String)} reads for the options
+	 * 
+	 * @param command
+	 * @param indexPath
+	 * @return
+	 */
+	private static List<String> getIndexFiles(CommandLine command, String indexPath) {
+		if (command.hasOption(RAW_TF)) {
+			return Arrays.asList(IndexFiles.sidecarPath(indexPath, RawIndexWriter.EXTENSION));
+		} else if (command.hasOption(FORWARD)) {
+			return Arrays.asList(IndexFiles.sidecarPath(indexPath, ForwardIndexWriter.EXTENSION), IndexFiles
+					.sidecarPath(indexPath, TermDictionaryWriter.EXTENSION));
+		} else if (command.hasOption(LSI)) {
+			return Arrays.asList(getLsiPath(command, indexPath));
+		} else if (command.hasOption(GRAPH)) {
+			return Arrays.asList(IndexFiles.sidecarPath(indexPath, KnnGraph.EXTENSION));
+		} else if (command.hasOption(QUANTIZE)) {
+			return Arrays.asList(IndexFiles.sidecarPath(indexPath, QuantizedIndexWriter.extension(Integer
+					.parseInt(command.getOptionValue(QUANTIZE)))));
+		}
+		return Arrays.asList(indexPath);
+	}
+
+	/**
+	 * Open the raw index and weight it with the given scheme and the document frequency thresholds of the
+	 * options
+	 * 
+	 * @param command
+	 * @param indexPath
+	 * @param scheme
+	 * @return
+	 * @throws IOException
+	 */
+	private static RawIndexSearcher openRawSearcher(CommandLine command, String indexPath, WeightingScheme scheme)
+			throws IOException {
+		RawIndex index = RawIndex.load(IndexFiles.sidecarPath(indexPath, RawIndexWriter.EXTENSION));
+
+		long start = System.nanoTime();
+		RawIndexSearcher searcher = new RawIndexSearcher(index, scheme, getMinFreq(command), getMaxFreq(command));
+		System.out.println(String.format(Locale.ROOT, "Weighted %d of %d terms with %s in %.1f ms", searcher
+				.getNumberOfWeightedTerms(), index.getNumberOfTerms(), scheme, (System.nanoTime() - start) / 1e6));
+		return searcher;
+	}
+
+	/**
+	 * Search the positional postings for a phrase (or for its words within a window) and print the
+	 * matching documents
+	 * 
+	 * @param command
+	 * @throws IOException
+	 */
+	private static void searchPhrase(CommandLine command) throws IOException {
+		PositionalIndex index = PositionalIndex.load(IndexFiles.sidecarPath(getIndexPath(command),
+				PositionalIndexWriter.EXTENSION));
+		String text = command.getOptionValue(PHRASE);
+
+		PositionalQuery query = command.hasOption(NEAR) ? ProximityQuery.parse(index.getAnalyzer(), text,
+				Integer.parseInt(command.getOptionValue(NEAR))) : PhraseQuery.parse(index.getAnalyzer(), text);
+
+		long start = System.nanoTime();
+		List<Posting> matches = query.evaluate(index);
+		long elapsed = System.nanoTime() - start;
+
+		for (Posting match : matches) {
+			Document document = index.getDocument(match.getId());
+			System.out.println(document.getClassAssignment() + "/" + document.getName() + " at position "
+					+ match.getPosition());
+		}
+		System.out.println(matches.size() + " documents match \"" + text + "\" (" + (elapsed / 1000) + " us)");
+	}
+
+	/**
+	 * Evaluate a Boolean query over the block postings and print the matching documents, or the best of
+	 * them by cosine if they are to be ranked
+	 * 
+	 * @param command
+	 * @throws IOException
+	 */
+	private static void searchBoolean(CommandLine command) throws IOException {
+		String indexPath = getIndexPath(command);
+		BooleanIndex index = BooleanIndex.load(IndexFiles.sidecarPath(indexPath, BlockPostingsWriter.EXTENSION));
+		String text = command.getOptionValue(BOOLEAN);
+		BooleanQuery query = BooleanQuery.parse(index.getAnalyzer(), text);
+		if (query == null) {
+			System.out.println("no word of \"" + text + "\" is a term of the index");
+			return;
+		}
+
+		long start = System.nanoTime();
+		DocIdIterator iterator = query.iterator(index);
+		DocIdSet matches = iterator.toDocIdSet();
+		long elapsed = System.nanoTime() - start;
+
+		if (command.hasOption(RANK)) {
+			int n = command.hasOption(SEARCH_RESULT_NUMBER) ? Integer.parseInt(command
+					.getOptionValue(SEARCH_RESULT_NUMBER)) : 10;
+			TermStatistics termStatistics = TermStatistics.load(indexPath);
+			if (termStatistics == null) {
+				System.out.println("ranking needs the term statistics of the index, please rebuild it");
+				return;
+			}
+			BooleanRanker ranker = new BooleanRanker(ForwardIndex.open(IndexFiles.sidecarPath(indexPath,
+					ForwardIndexWriter.EXTENSION), IndexFiles.sidecarPath(indexPath, TermDictionaryWriter.EXTENSION)),
+					termStatistics);
+
+			long rankStart = System.nanoTime();
+			List<DocumentVector> resultList = ranker.rank(query, matches, n);
+			long rankElapsed = System.nanoTime() - rankStart;
+			for (int rank = 0; rank < resultList.size(); rank++) {
+				System.out.println((rank + 1) + ". " + resultList.get(rank).getFullDocName() + " "
+						+ String.format(Locale.ROOT, "%.4f", resultList.get(rank).getCosine()));
+			}
+			System.out.println("ranked in " + (rankElapsed / 1000) + " us");
+		} else {
+			DocIdSet.Iterator docs = matches.iterator();
+			for (int docId = docs.next(); docId != DocIdSet.END; docId = docs.next()) {
+				Document document = index.getDocument(docId);
+				System.out.println(document.getClassAssignment() + "/" + document.getName());
+			}
+		}
+
+		long postings = 0;
+		for (String term : query.getTerms()) {
+			BlockPostingList postingList = index.getPostingList(term);
+			postings += (postingList != null) ? postingList.size() : 0;
+		}
+		System.out.println(matches.cardinality() + " documents match " + query + " (" + (elapsed / 1000) + " us, "
+				+ iterator.decodedPostings() + " of " + postings + " postings decoded)");
+	}
+
+	/**
+	 * Precompute the nearest neighbours of all documents of the index, or of the documents in the topic
+	 * list if one is given, and store them next to the index
+	 * 
+	 * @param command
+	 * @throws IOException
+	 */
+	private static void buildKnnGraph(CommandLine command) throws IOException {
+		int k = Integer.parseInt(command.getOptionValue(KNN));
+		double threshold = command.hasOption(THRESHOLD) ? Double.parseDouble(command.getOptionValue(THRESHOLD)) : 0;
+		int threads = command.hasOption(THREADS) ? Integer.parseInt(command.getOptionValue(THREADS)) : Runtime
+				.getRuntime().availableProcessors();
+
+		List<DocumentVector> documentVectors = DocumentVectorBuilder.buildDocumentVectors(getIndexPath(command));
+
+		int[] rows = null;
+		if (command.hasOption(TOPICS)) {
+			LocalShardSearcher searcher = new LocalShardSearcher(documentVectors);
+			List<Integer> ids = new ArrayList<Integer>();
+			for (String line : Files.readAllLines(Paths.get(command.getOptionValue(TOPICS)), Charset.defaultCharset())) {
+				DocumentVector docVec = searcher.findDocument(line);
+				if (docVec != null) {
+					ids.add(docVec.getDocumentData().getId());
+				} else {
+					System.out.println("doc " + line + " not in collection");
+				}
+			}
+			rows = new int[ids.size()];
+			for (int i = 0; i < rows.length; i++) {
+				rows[i] = ids.get(i);
+			}
+		}
+
+		new KnnGraphBuilder(k, threshold, threads).build(documentVectors, rows, IndexFiles.sidecarPath(
+				getIndexPath(command), KnnGraph.EXTENSION));
+	}
+
+	/**
+	 * Connect to all shard servers of a comma-separated host:port list
+	 * 
+	 * @param addresses
+	 * @return
+	 * @throws IOException
+	 */
+	private static ShardCoordinator connectRemoteShards(String addresses) throws IOException {
+		List<ShardSearcher> shards = new ArrayList<ShardSearcher>();
+		for (String address : addresses.split(",")) {
+			shards.add(RemoteShardSearcher.connect(address.trim()));
+		}
+		return new ShardCoordinator(shards);
+	}
+
+	/**
+	 * Retrieve the path of the index, index.arff unless another one was entered
+	 * 
+	 * @param command
+	 * @return
+	 */
+	private static String getIndexPath(CommandLine command) {
+		return command.hasOption(INDEX) ? command.getOptionValue(INDEX) : INDEX_PATH;
+	}
+
+	/**
+	 * Retrieve the path of the LSI vectors of the requested number of dimensions
+	 * 
+	 * @param command
+	 * @param indexPath
+	 * @return
+	 */
+	private static String getLsiPath(CommandLine command, String indexPath) {
+		return IndexFiles.sidecarPath(indexPath, LsiIndexWriter.extension(Integer.parseInt(command
+				.getOptionValue(LSI))));
+	}
+
+	/**
+	 * Retrieve the path of the collection, collection/ unless another one was entered
+	 * 
+	 * @param command
+	 * @return
+	 */
+	private static String getCollectionPath(CommandLine command) {
+		return command.hasOption(COLLECTION) ? command.getOptionValue(COLLECTION) : COLLECTION_PATH;
+	}
+
+	/**
+	 * Return the minimum document frequency of an indexed term, 0 if not given
+	 * 
+	 * @param command
+	 * @return
+	 */
+	private static int getMinFreq(CommandLine command) {
+		return command.hasOption(MIN_FREQ) ? Integer.parseInt(command.getOptionValue(MIN_FREQ)) : 0;
+	}
+
+	/**
+	 * Return the maximum document frequency of an indexed term, 0 (no limit) if not given
+	 * 
+	 * @param command
+	 * @return
+	 */
+	private static int getMaxFreq(CommandLine command) {
+		return command.hasOption(MAX_FREQ) ? Integer.parseInt(command.getOptionValue(MAX_FREQ)) : 0;
+	}
+
 	/**
 	 * Retrieve the value of the topics option or throw an exception if it was not entered
 	 * 
@@ -0,0 +1,112 @@
+package com.tuwien.isis.irtask1.harness;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.filter.ClassFilter;
+
+/**
+ * Measures the effectiveness of the rankings, counting a result as relevant if it has the same class
+ * assignment as the query document. Reports precision@n and mean average precision (with the average
+ * precision normalized by min(relevant documents, n)), overall and per class. With a class filter only
+ * the documents of the filtered classes can be found, so only they are counted as relevant.
+ */
+public class Effectiveness {
+
+	private final int n;
+
+	/**
+	 * Number of documents of every class in the index which pass the class filter
+	 */
+	private final Map<String, Integer> classSizes = new HashMap<String, Integer>();
+
+	private final Map<String, double[]> sumsByClass = new HashMap<String, double[]>();
+
+	/**
+	 * @param documents
+	 * @param n
+	 * @param classFilter
+	 *            the classes the queries are restricted to, null for all documents
+	 */
+	public Effectiveness(List<Document> documents, int n, ClassFilter classFilter) {
+		this.n = n;
+		for (Document document : documents) {
+			if (classFilter != null && !classFilter.getClasses().contains(document.getClassAssignment())) {
+				continue;
+			}
+			Integer size = classSizes.get(document.getClassAssignment());
+			classSizes.put(document.getClassAssignment(), (size != null) ? size + 1 : 1);
+		}
+	}
+
+	/**
+	 * Add the results of a query
+	 *
+	 * @param query
+	 * @param results
+	 *            the ranking, best first
+	 */
+	public synchronized void add(DocumentVector query, List<DocumentVector> results) {
+		String queryClass = query.getDocumentData().getClassAssignment();
+		Integer classSize = classSizes.get(queryClass);
+
+		// the query document itself is never among the results
+		int relevant = (classSize != null) ? classSize - 1 : 0;
+		if (relevant <= 0) {
+			return;
+		}
+
+		int hits = 0;
+		double precisionSum = 0;
+		for (int rank = 1; rank <= Math.min(n, results.size()); rank++) {
+			if (queryClass.equals(results.get(rank - 1).getDocumentData().getClassAssignment())) {
+				hits++;
+				precisionSum += hits / (double) rank;
+			}
+		}
+
+		double[] sums = sumsByClass.get(queryClass);
+		if (sums == null) {
+			sums = new double[3];
+			sumsByClass.put(queryClass, sums);
+		}
+		sums[0] += hits / (double) n;
+		sums[1] += precisionSum / Math.min(relevant, n);
+		sums[2]++;
+	}
+
+	/**
+	 * Print precision@n and MAP over all queries and for every class
+	 */
+	public synchronized void print() {
+		double[] total = new double[3];
+		List<String> classes = new ArrayList<String>(sumsByClass.keySet());
+		Collections.sort(classes);
+		for (String queryClass : classes) {
+			double[] sums = sumsByClass.get(queryClass);
+			for (int i = 0; i < total.length; i++) {
+				total[i] += sums[i];
+			}
+		}
+		if (total[2] == 0) {
+			System.out.println("no queries with relevant documents");
+			return;
+		}
+
+		System.out.println(format("all classes", total));
+		for (String queryClass : classes) {
+			System.out.println(format("  " + queryClass, sumsByClass.get(queryClass)));
+		}
+	}
+
+	private String format(String label, double[] sums) {
+		return String.format(Locale.ROOT, "%-28s P@%d %.4f  MAP@%d %.4f  (%d queries)", label, n, sums[0] / sums[2],
+				n, sums[1] / sums[2], (int) sums[2]);
+	}
+}
@@ -0,0 +1,62 @@
+package com.tuwien.isis.irtask1.harness;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records the latencies of queries, which may complete on several threads, and reports percentiles
+ */
+public class LatencyRecorder {
+
+	private long[] latencies;
+
+	private int size = 0;
+
+	public LatencyRecorder(int expectedSize) {
+		this.latencies = new long[Math.max(16, expectedSize)];
+	}
+
+	/**
+	 * Record the latency of a query
+	 *
+	 * @param nanos
+	 */
+	public synchronized void record(long nanos) {
+		if (size == latencies.length) {
+			latencies = Arrays.copyOf(latencies, size * 2);
+		}
+		latencies[size++] = nanos;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Return the latency below which the given fraction of the recorded queries completed (nearest
+	 * rank), or 0 if nothing was recorded
+	 *
+	 * @param fraction
+	 *            e.g. 0.99 for the 99th percentile
+	 * @return
+	 */
+	public synchronized long percentile(double fraction) {
+		if (size == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(latencies, size);
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(fraction * size);
+		return sorted[Math.min(size, Math.max(1, rank)) - 1];
+	}
+
+	/**
+	 * Format a latency in milliseconds with two decimals
+	 *
+	 * @param nanos
+	 * @return
+	 */
+	public static String formatMillis(long nanos) {
+		return String.format(Locale.ROOT, "%.2f ms", nanos / 1e6);
+	}
+}
@@ -0,0 +1,297 @@
+package com.tuwien.isis.irtask1.harness;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.QueryBudget;
+import com.tuwien.isis.irtask1.search.QueryContext;
+import com.tuwien.isis.irtask1.search.QueryPruner;
+import com.tuwien.isis.irtask1.search.TermStatistics;
+import com.tuwien.isis.irtask1.search.filter.ClassFilter;
+import com.tuwien.isis.irtask1.search.raw.RawIndexSearcher;
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+import com.tuwien.isis.irtask1.search.shard.SwappableSearcher;
+
+/**
+ * Replays a list of topics against a searcher from a number of concurrent clients. Without a rate
+ * every client sends its next query as soon as the previous one is answered (closed loop). With a rate
+ * the queries are started on a fixed schedule (open loop) and the latency is measured from the
+ * scheduled start, so that queueing behind slow queries is included.
+ */
+public class LoadTest {
+
+	private final ShardSearcher searcher;
+
+	private final int numberOfSearchResults;
+
+	private final int concurrency;
+
+	/**
+	 * Queries per second to send, 0 for as fast as the clients can
+	 */
+	private final double rate;
+
+	/**
+	 * Classes the queries are restricted to, null for all documents
+	 */
+	private ClassFilter classFilter;
+
+	private long budgetMillis;
+
+	private long budgetDocuments;
+
+	/**
+	 * Pruning of the query vectors, null to score all query terms
+	 */
+	private QueryPruner queryPruner;
+
+	/**
+	 * Document frequencies stored with the index for weighting free-text topics, null if all topics name
+	 * documents. A raw index weights free text with its own.
+	 */
+	private TermStatistics termStatistics;
+
+	/**
+	 * Searcher whose index is reloaded during the run, null if the index is not reloaded
+	 */
+	private SwappableSearcher reloadingSearcher;
+
+	/**
+	 * Version of the index of the reloading searcher when the run started
+	 */
+	private long firstVersion;
+
+	private final AtomicInteger partial = new AtomicInteger();
+
+	private final AtomicInteger missing = new AtomicInteger();
+
+	private final AtomicInteger errors = new AtomicInteger();
+
+	private LatencyRecorder latencies;
+
+	/**
+	 * Latencies of the queries which ran while a reload was in progress, and of all others
+	 */
+	private LatencyRecorder reloadLatencies;
+
+	private LatencyRecorder steadyLatencies;
+
+	private long elapsedNanos;
+
+	public LoadTest(ShardSearcher searcher, int numberOfSearchResults, int concurrency, double rate) {
+		this.searcher = searcher;
+		this.numberOfSearchResults = numberOfSearchResults;
+		this.concurrency = concurrency;
+		this.rate = rate;
+	}
+
+	public void setClassFilter(ClassFilter classFilter) {
+		this.classFilter = classFilter;
+	}
+
+	public void setQueryPruner(QueryPruner queryPruner) {
+		this.queryPruner = queryPruner;
+	}
+
+	public void setTermStatistics(TermStatistics termStatistics) {
+		this.termStatistics = termStatistics;
+	}
+
+	/**
+	 * Report the latencies of the queries which run while the index of the given searcher is being
+	 * reloaded separately from the others
+	 *
+	 * @param reloadingSearcher
+	 */
+	public void setReloadingSearcher(SwappableSearcher reloadingSearcher) {
+		this.reloadingSearcher = reloadingSearcher;
+	}
+
+	/**
+	 * Limit the time and number of documents of every query, 0 for no limit
+	 *
+	 * @param budgetMillis
+	 * @param budgetDocuments
+	 */
+	public void setQueryBudget(long budgetMillis, long budgetDocuments) {
+		this.budgetMillis = budgetMillis;
+		this.budgetDocuments = budgetDocuments;
+	}
+
+	/**
+	 * Send every topic the given number of times. The results of the first round are passed to the
+	 * effectiveness measurement (if not null).
+	 *
+	 * @param topics
+	 * @param repetitions
+	 * @param effectiveness
+	 * @throws InterruptedException
+	 */
+	public void run(final List<String> topics, int repetitions, final Effectiveness effectiveness)
+			throws InterruptedException {
+		final int total = topics.size() * repetitions;
+		final AtomicInteger next = new AtomicInteger();
+		latencies = new LatencyRecorder(total);
+		reloadLatencies = new LatencyRecorder(0);
+		steadyLatencies = new LatencyRecorder(total);
+		if (reloadingSearcher != null) {
+			firstVersion = reloadingSearcher.getCurrent().getVersion();
+		}
+		missing.set(0);
+		errors.set(0);
+		partial.set(0);
+
+		final long start = System.nanoTime();
+		ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+		for (int client = 0; client < concurrency; client++) {
+			clients.execute(new Runnable() {
+				public void run() {
+					for (int i = next.getAndIncrement(); i < total; i = next.getAndIncrement()) {
+						long begin = System.nanoTime();
+						if (rate > 0) {
+							begin = start + (long) (i * 1e9 / rate);
+							for (long wait = begin - System.nanoTime(); wait > 0; wait = begin - System.nanoTime()) {
+								LockSupport.parkNanos(wait);
+							}
+						}
+						query(topics.get(i % topics.size()), begin, (i < topics.size()) ? effectiveness : null);
+					}
+				}
+			});
+		}
+		clients.shutdown();
+		clients.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		elapsedNanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * Answer a single topic and record its latency
+	 *
+	 * @param topic
+	 * @param begin
+	 * @param effectiveness
+	 */
+	private void query(String topic, long begin, Effectiveness effectiveness) {
+		try {
+			QueryBudget budget = (budgetMillis > 0 || budgetDocuments > 0) ? new QueryBudget(budgetMillis,
+					budgetDocuments) : null;
+			boolean reloading = reloadingSearcher != null && reloadingSearcher.isReloading();
+			Answer answer = answer(searcher, termStatistics, topic, numberOfSearchResults, new QueryContext(
+					classFilter, null, budget, queryPruner));
+			if (answer == null) {
+				missing.incrementAndGet();
+				return;
+			}
+			long latency = System.nanoTime() - begin;
+			latencies.record(latency);
+			if (reloading || (reloadingSearcher != null && reloadingSearcher.isReloading())) {
+				reloadLatencies.record(latency);
+			} else {
+				steadyLatencies.record(latency);
+			}
+			if (budget != null && budget.isExhausted()) {
+				partial.incrementAndGet();
+			}
+			// free text has no class, so it is left out of the effectiveness
+			if (effectiveness != null && !answer.text) {
+				effectiveness.add(answer.query, answer.results);
+			}
+		} catch (Exception e) {
+			if (errors.incrementAndGet() == 1) {
+				System.err.println("query " + topic + " failed: " + e);
+			}
+		}
+	}
+
+	/**
+	 * Build the query of a topic and search it. On a swappable searcher both happen on the same
+	 * snapshot, so that free text is weighted with the term statistics of the index it is searched on.
+	 *
+	 * @param searcher
+	 * @param indexStatistics
+	 *            the term statistics stored with the index, may be null
+	 * @param topic
+	 * @param n
+	 * @param context
+	 * @return the query and its results, or null if the topic is not in the index
+	 * @throws IOException
+	 */
+	static Answer answer(ShardSearcher searcher, final TermStatistics indexStatistics, final String topic,
+			final int n, final QueryContext context) throws IOException {
+		if (searcher instanceof SwappableSearcher) {
+			return ((SwappableSearcher) searcher).execute(new SwappableSearcher.SnapshotTask<Answer>() {
+				public Answer run(ShardSearcher snapshotSearcher) throws IOException {
+					return answer(snapshotSearcher, indexStatistics, topic, n, context);
+				}
+			});
+		}
+
+		// a raw index weights free text with its own document frequencies and scheme
+		TermStatistics statistics = (searcher instanceof RawIndexSearcher) ? ((RawIndexSearcher) searcher)
+				.getTermStatistics() : indexStatistics;
+		boolean text = statistics != null && TermStatistics.isTextQuery(topic);
+		DocumentVector query = text ? statistics.buildQuery(TermStatistics.getText(topic)) : searcher
+				.findDocument(topic);
+		return (query != null) ? new Answer(query, text, searcher.search(query, n, context)) : null;
+	}
+
+	/**
+	 * Print the throughput and latency percentiles of the last run
+	 */
+	public void printReport() {
+		double seconds = elapsedNanos / 1e9;
+		System.out.println(String.format(Locale.ROOT, "%d queries in %.2f s with %d clients%s: %.1f queries/s",
+				latencies.size(), seconds, concurrency, (rate > 0) ? " at " + rate + " queries/s" : "",
+				latencies.size() / seconds));
+		if (missing.get() > 0 || errors.get() > 0) {
+			System.out.println(missing.get() + " topics not in the index, " + errors.get() + " failed queries");
+		}
+		if (budgetMillis > 0 || budgetDocuments > 0) {
+			System.out.println(partial.get() + " queries ran out of their budget and returned partial results");
+		}
+		System.out.println("latency p50 " + LatencyRecorder.formatMillis(latencies.percentile(0.5)) + ", p95 "
+				+ LatencyRecorder.formatMillis(latencies.percentile(0.95)) + ", p99 "
+				+ LatencyRecorder.formatMillis(latencies.percentile(0.99)) + ", max "
+				+ LatencyRecorder.formatMillis(latencies.percentile(1)));
+		if (reloadingSearcher != null) {
+			System.out.println((reloadingSearcher.getCurrent().getVersion() - firstVersion) + " index versions "
+					+ "published during the run");
+			printLatencies("while reloading", reloadLatencies);
+			printLatencies("otherwise", steadyLatencies);
+		}
+	}
+
+	private static void printLatencies(String name, LatencyRecorder recorder) {
+		System.out.println("latency " + name + " p50 " + LatencyRecorder.formatMillis(recorder.percentile(0.5))
+				+ ", p99 " + LatencyRecorder.formatMillis(recorder.percentile(0.99)) + ", max "
+				+ LatencyRecorder.formatMillis(recorder.percentile(1)) + " (" + recorder.size() + " queries)");
+	}
+
+	/**
+	 * A query built from a topic and its results
+	 */
+	static final class Answer {
+
+		final DocumentVector query;
+
+		/**
+		 * Flag indicating if the query was built from free text
+		 */
+		final boolean text;
+
+		final List<DocumentVector> results;
+
+		Answer(DocumentVector query, boolean text, List<DocumentVector> results) {
+			this.query = query;
+			this.text = text;
+			this.results = results;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package com.tuwien.isis.irtask1.harness;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.QueryBudget;
+import com.tuwien.isis.irtask1.search.QueryContext;
+import com.tuwien.isis.irtask1.search.QueryPruner;
+import com.tuwien.isis.irtask1.search.RankingAgreement;
+import com.tuwien.isis.irtask1.search.TermStatistics;
+import com.tuwien.isis.irtask1.search.filter.ClassFilter;
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+
+/**
+ * Compares the rankings of two search engine configurations topic by topic, e.g. to check that an
+ * optimization does not change the results. Both are searched with the class filter, pruning and budget
+ * of the load test.
+ */
+public class RankingDiff {
+
+	/**
+	 * Number of differing topics which are listed in detail
+	 */
+	private static final int MAX_LISTED = 10;
+
+	private final ShardSearcher expected;
+
+	private final ShardSearcher actual;
+
+	private final int numberOfSearchResults;
+
+	/**
+	 * Classes the queries are restricted to, null for all documents
+	 */
+	private ClassFilter classFilter;
+
+	private long budgetMillis;
+
+	private long budgetDocuments;
+
+	/**
+	 * Pruning of the query vectors, null to score all query terms
+	 */
+	private QueryPruner queryPruner;
+
+	/**
+	 * Document frequencies stored with the index for weighting free-text topics, null if all topics name
+	 * documents
+	 */
+	private TermStatistics termStatistics;
+
+	public RankingDiff(ShardSearcher expected, ShardSearcher actual, int numberOfSearchResults) {
+		this.expected = expected;
+		this.actual = actual;
+		this.numberOfSearchResults = numberOfSearchResults;
+	}
+
+	public void setClassFilter(ClassFilter classFilter) {
+		this.classFilter = classFilter;
+	}
+
+	public void setQueryPruner(QueryPruner queryPruner) {
+		this.queryPruner = queryPruner;
+	}
+
+	public void setTermStatistics(TermStatistics termStatistics) {
+		this.termStatistics = termStatistics;
+	}
+
+	/**
+	 * Limit the time and number of documents of every query, 0 for no limit
+	 *
+	 * @param budgetMillis
+	 * @param budgetDocuments
+	 */
+	public void setQueryBudget(long budgetMillis, long budgetDocuments) {
+		this.budgetMillis = budgetMillis;
+		this.budgetDocuments = budgetDocuments;
+	}
+
+	/**
+	 * Search all topics with both configurations and print where the rankings differ
+	 *
+	 * @param topics
+	 * @throws IOException
+	 */
+	public void run(List<String> topics) throws IOException {
+		int compared = 0;
+		int identical = 0;
+		double overlapSum = 0;
+		double tauSum = 0;
+		int tauCount = 0;
+		int listed = 0;
+
+		for (String topic : topics) {
+			LoadTest.Answer expectedAnswer = LoadTest.answer(expected, termStatistics, topic, numberOfSearchResults,
+					newQueryContext());
+			LoadTest.Answer actualAnswer = LoadTest.answer(actual, termStatistics, topic, numberOfSearchResults,
+					newQueryContext());
+			if (expectedAnswer == null || actualAnswer == null) {
+				continue;
+			}
+			List<DocumentVector> expectedResults = expectedAnswer.results;
+			List<DocumentVector> actualResults = actualAnswer.results;
+			compared++;
+
+			int difference = firstDifference(expectedResults, actualResults);
+			if (difference < 0) {
+				identical++;
+			} else if (listed++ < MAX_LISTED) {
+				System.out.println("  " + topic + ": first difference at rank " + (difference + 1) + " ("
+						+ nameAt(expectedResults, difference) + " vs " + nameAt(actualResults, difference) + ")");
+			}
+
+			overlapSum += RankingAgreement.overlap(expectedResults, actualResults, numberOfSearchResults);
+			double tau = RankingAgreement.kendallTau(expectedResults, actualResults);
+			if (!Double.isNaN(tau)) {
+				tauSum += tau;
+				tauCount++;
+			}
+		}
+
+		if (compared == 0) {
+			System.out.println("no topic found with both configurations");
+			return;
+		}
+		System.out.println(String.format(Locale.ROOT,
+				"%d of %d rankings identical, overlap@%d %.4f, Kendall tau of the common results %s", identical,
+				compared, numberOfSearchResults, overlapSum / compared, (tauCount > 0) ? String.format(Locale.ROOT,
+						"%.4f", tauSum / tauCount) : "n/a"));
+	}
+
+	/**
+	 * Create the context of a query, with a budget of its own
+	 *
+	 * @return
+	 */
+	private QueryContext newQueryContext() {
+		QueryBudget budget = (budgetMillis > 0 || budgetDocuments > 0) ? new QueryBudget(budgetMillis,
+				budgetDocuments) : null;
+		return new QueryContext(classFilter, null, budget, queryPruner);
+	}
+
+	/**
+	 * Return the first rank (from 0) at which the rankings name different documents, or -1 if they
+	 * are equal
+	 *
+	 * @param expected
+	 * @param actual
+	 * @return
+	 */
+	private static int firstDifference(List<DocumentVector> expected, List<DocumentVector> actual) {
+		for (int rank = 0; rank < Math.max(expected.size(), actual.size()); rank++) {
+			if (rank >= expected.size() || rank >= actual.size()
+					|| !expected.get(rank).getFullDocName().equals(actual.get(rank).getFullDocName())) {
+				return rank;
+			}
+		}
+		return -1;
+	}
+
+	private static String nameAt(List<DocumentVector> results, int rank) {
+		return (rank < results.size()) ? results.get(rank).getFullDocName() : "none";
+	}
+}
@@ -0,0 +1,359 @@
+package com.tuwien.isis.irtask1.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.MissingOptionException;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.PosixParser;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.DocumentVectorBuilder;
+import com.tuwien.isis.irtask1.search.QueryContext;
+import com.tuwien.isis.irtask1.search.QueryPruner;
+import com.tuwien.isis.irtask1.search.TermStatistics;
+import com.tuwien.isis.irtask1.search.filter.ClassFilter;
+import com.tuwien.isis.irtask1.search.shard.DocumentListing;
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+import com.tuwien.isis.irtask1.search.shard.SwappableSearcher;
+
+/**
+ * Offline load and effectiveness test of search engine configurations. Replays a topic file (or
+ * topics sampled from the index) against a configuration, reports throughput, latency percentiles,
+ * precision@n and MAP, and optionally compares the rankings with a second configuration.
+ */
+public class SearchHarness {
+
+	/**
+	 * Path to the document index
+	 */
+	private static final String INDEX_PATH = "index.arff";
+
+	/**
+	 * CLI option for the searcher configuration to test, e.g. arff, shards=3, forward, quantize=8
+	 */
+	private static final String CONFIG = "config";
+
+	/**
+	 * CLI option for a second configuration whose load is measured and whose rankings are compared
+	 */
+	private static final String COMPARE = "compare";
+
+	/**
+	 * CLI option for the path of the index
+	 */
+	private static final String INDEX = "index";
+
+	/**
+	 * CLI option for the topic file
+	 */
+	private static final String TOPICS = "t";
+
+	/**
+	 * CLI option for sampling the given number of topics from the index instead of reading a file
+	 */
+	private static final String SAMPLE = "sample";
+
+	/**
+	 * CLI option for the seed of the topic sample
+	 */
+	private static final String SEED = "seed";
+
+	/**
+	 * CLI option for the number of concurrent clients
+	 */
+	private static final String CONCURRENCY = "concurrency";
+
+	/**
+	 * CLI option for the number of queries per second to send (as fast as possible if not given)
+	 */
+	private static final String RATE = "rate";
+
+	/**
+	 * CLI option for the number of times every topic is sent
+	 */
+	private static final String REPEAT = "repeat";
+
+	/**
+	 * CLI option for the number of unmeasured queries sent first to warm up the JVM
+	 */
+	private static final String WARMUP = "warmup";
+
+	/**
+	 * CLI option for the number of search results per query
+	 */
+	private static final String SEARCH_RESULT_NUMBER = "n";
+
+	/**
+	 * CLI option for restricting all queries to the documents of the given comma-separated classes
+	 */
+	private static final String CLASSES = "classes";
+
+	/**
+	 * CLI option for the time limit of every query in milliseconds
+	 */
+	private static final String BUDGET_MILLIS = "budgetms";
+
+	/**
+	 * CLI option for the maximum number of documents scored per query
+	 */
+	private static final String BUDGET_DOCUMENTS = "budgetdocs";
+
+	/**
+	 * CLI option for pruning query vectors to the top m terms (whole number) or a fraction of their norm
+	 */
+	private static final String PRUNE = "prune";
+
+	/**
+	 * CLI option for reloading the index in the background every given number of milliseconds while the
+	 * queries are sent
+	 */
+	private static final String RELOAD = "reload";
+
+	/**
+	 * CLI options for the document frequency range of the terms of a raw index
+	 */
+	private static final String MIN_FREQ = "min";
+
+	private static final String MAX_FREQ = "max";
+
+	/**
+	 * Handle user arguments
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		Options options = new Options();
+		options.addOption(new Option(CONFIG, true, "searcher configuration: arff, shards=n, forward, quantize=bits, "
+				+ "lsi=dimensions, graph, rawtf=scheme or remote=host:port,..."));
+		options.addOption(new Option(COMPARE, true, "second searcher configuration to measure and compare with"));
+		options.addOption(new Option(INDEX, true, "path of the index (default index.arff)"));
+		options.addOption(new Option(TOPICS, true, "list of input topics"));
+		options.addOption(new Option(SAMPLE, true, "number of topics to sample from the index"));
+		options.addOption(new Option(SEED, true, "seed of the topic sample"));
+		options.addOption(new Option(CONCURRENCY, true, "number of concurrent clients (default 1)"));
+		options.addOption(new Option(RATE, true, "queries per second to send (default as fast as possible)"));
+		options.addOption(new Option(REPEAT, true, "number of times every topic is sent (default 1)"));
+		options.addOption(new Option(WARMUP, true, "number of unmeasured warm-up queries (default 0)"));
+		options.addOption(new Option(SEARCH_RESULT_NUMBER, true, "number of similar topic results"));
+		options.addOption(new Option(CLASSES, true, "search only the documents of these comma-separated classes"));
+		options.addOption(new Option(BUDGET_MILLIS, true, "time limit of every query in milliseconds"));
+		options.addOption(new Option(BUDGET_DOCUMENTS, true, "maximum number of documents scored per query"));
+		options.addOption(new Option(PRUNE, true, "keep the top m query terms (m >= 1) or a fraction of the norm"));
+		options.addOption(new Option(RELOAD, true, "reload the index in the background every given number of ms"));
+		options.addOption(new Option(MIN_FREQ, true, "minimum document frequency of a term of a raw index"));
+		options.addOption(new Option(MAX_FREQ, true, "maximum document frequency of a term of a raw index"));
+		CommandLineParser parser = new PosixParser();
+
+		try {
+			CommandLine command = parser.parse(options, args);
+			if (!command.hasOption(CONFIG)) {
+				throw new MissingOptionException("Configuration was not specified. Please use the -" + CONFIG
+						+ " option");
+			}
+			final String indexPath = command.hasOption(INDEX) ? command.getOptionValue(INDEX) : INDEX_PATH;
+			int n = intOption(command, SEARCH_RESULT_NUMBER, 10);
+			ClassFilter classFilter = command.hasOption(CLASSES) ? ClassFilter.parse(command.getOptionValue(CLASSES))
+					: null;
+			QueryPruner queryPruner = command.hasOption(PRUNE) ? QueryPruner.parse(command.getOptionValue(PRUNE))
+					: null;
+
+			TermStatistics termStatistics = TermStatistics.load(indexPath);
+			List<Document> documents = null;
+			List<String> topics = null;
+
+			List<SearcherConfig> configs = new ArrayList<SearcherConfig>();
+			configs.add(SearcherConfig.parse(command.getOptionValue(CONFIG)));
+			if (command.hasOption(COMPARE)) {
+				configs.add(SearcherConfig.parse(command.getOptionValue(COMPARE)));
+			}
+			for (SearcherConfig config : configs) {
+				config.setDocumentFrequencyRange(intOption(command, MIN_FREQ, 0), intOption(command, MAX_FREQ, 0));
+			}
+
+			List<ShardSearcher> searchers = new ArrayList<ShardSearcher>();
+			for (final SearcherConfig config : configs) {
+				System.out.println();
+				System.out.println("=== " + config + " ===");
+				long start = System.nanoTime();
+				ShardSearcher searcher = !command.hasOption(RELOAD) ? config.open(indexPath) : new SwappableSearcher(
+						new SwappableSearcher.Loader() {
+							public ShardSearcher load() throws IOException {
+								return config.open(indexPath);
+							}
+						});
+				System.out.println("opened in " + (System.nanoTime() - start) / 1000000 + " ms");
+				searchers.add(searcher);
+				if (documents == null) {
+
+					// The documents of the index give the classes for the relevance judgements and the sample
+					documents = documentsOf(searcher, indexPath);
+					topics = getTopics(command, documents);
+					System.out.println(topics.size() + " topics, " + documents.size() + " documents in the index");
+				}
+				warmUp(searcher, termStatistics, topics, intOption(command, WARMUP, 0), n);
+				LoadTest loadTest = new LoadTest(searcher, n, intOption(command, CONCURRENCY, 1),
+						command.hasOption(RATE) ? Double.parseDouble(command.getOptionValue(RATE)) : 0);
+				loadTest.setClassFilter(classFilter);
+				loadTest.setTermStatistics(termStatistics);
+				loadTest.setQueryPruner(queryPruner);
+				loadTest.setQueryBudget(intOption(command, BUDGET_MILLIS, 0), intOption(command, BUDGET_DOCUMENTS, 0));
+				Effectiveness effectiveness = new Effectiveness(documents, n, classFilter);
+				Thread reloads = null;
+				if (command.hasOption(RELOAD)) {
+					loadTest.setReloadingSearcher((SwappableSearcher) searcher);
+					reloads = startReloads((SwappableSearcher) searcher, intOption(command, RELOAD, 0));
+				}
+				loadTest.run(topics, intOption(command, REPEAT, 1), effectiveness);
+				if (reloads != null) {
+					reloads.interrupt();
+					reloads.join();
+				}
+				loadTest.printReport();
+				effectiveness.print();
+			}
+
+			if (searchers.size() == 2) {
+				System.out.println();
+				System.out.println("=== rankings of " + configs.get(1) + " compared with " + configs.get(0) + " ===");
+				RankingDiff rankingDiff = new RankingDiff(searchers.get(0), searchers.get(1), n);
+				rankingDiff.setClassFilter(classFilter);
+				rankingDiff.setTermStatistics(termStatistics);
+				rankingDiff.setQueryPruner(queryPruner);
+				rankingDiff.setQueryBudget(intOption(command, BUDGET_MILLIS, 0),
+						intOption(command, BUDGET_DOCUMENTS, 0));
+				rankingDiff.run(topics);
+			}
+			for (ShardSearcher searcher : searchers) {
+				searcher.close();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Reload the index of a searcher over and over on a daemon thread, waiting the given time after every
+	 * reload, until the thread is interrupted
+	 *
+	 * @param searcher
+	 * @param intervalMillis
+	 * @return
+	 */
+	private static Thread startReloads(final SwappableSearcher searcher, final long intervalMillis) {
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while (true) {
+						Thread.sleep(intervalMillis);
+						try {
+							searcher.reload().get();
+						} catch (ExecutionException e) {
+							System.err.println("reload failed: " + e.getCause());
+						}
+					}
+				} catch (InterruptedException e) {
+					// the load test is finished
+				} catch (RejectedExecutionException e) {
+					// the searcher has been closed
+				}
+			}
+		}, "harness-reloads");
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Return the documents of the index a searcher has opened. They are only read from the ARFF index if
+	 * the searcher does not hold them itself, e.g. with remote shards.
+	 *
+	 * @param searcher
+	 * @param indexPath
+	 * @return
+	 * @throws IOException
+	 */
+	private static List<Document> documentsOf(ShardSearcher searcher, String indexPath) throws IOException {
+		if (searcher instanceof SwappableSearcher) {
+			searcher = ((SwappableSearcher) searcher).getCurrent().getSearcher();
+		}
+		List<Document> documents = (searcher instanceof DocumentListing) ? ((DocumentListing) searcher)
+				.getDocuments() : null;
+		if (documents == null) {
+			if (!new File(indexPath).exists()) {
+				throw new IOException("the searcher does not list its documents and there is no index " + indexPath);
+			}
+			documents = new ArrayList<Document>();
+			for (DocumentVector docVec : DocumentVectorBuilder.buildDocumentVectors(indexPath)) {
+				documents.add(docVec.getDocumentData());
+			}
+		}
+		return documents;
+	}
+
+	/**
+	 * Send the first topics without measuring them, so that the measured queries run on compiled code
+	 *
+	 * @param searcher
+	 * @param termStatistics
+	 *            the term statistics stored with the index for weighting free-text topics, may be null
+	 * @param topics
+	 * @param queries
+	 * @param n
+	 * @throws Exception
+	 */
+	private static void warmUp(ShardSearcher searcher, TermStatistics termStatistics, List<String> topics,
+			int queries, int n) throws Exception {
+		for (int i = 0; i < queries && !topics.isEmpty(); i++) {
+			LoadTest.answer(searcher, termStatistics, topics.get(i % topics.size()), n, QueryContext.NONE);
+		}
+	}
+
+	/**
+	 * Read the topic file, or sample topics from the documents of the index
+	 *
+	 * @param command
+	 * @param documents
+	 * @return
+	 * @throws Exception
+	 */
+	private static List<String> getTopics(CommandLine command, List<Document> documents) throws Exception {
+		if (command.hasOption(TOPICS)) {
+			return Files.readAllLines(Paths.get(command.getOptionValue(TOPICS)), Charset.defaultCharset());
+		} else if (command.hasOption(SAMPLE)) {
+			int size = Integer.parseInt(command.getOptionValue(SAMPLE));
+			Random random = command.hasOption(SEED) ? new Random(Long.parseLong(command.getOptionValue(SEED)))
+					: new Random();
+
+			// without replacement as long as the index has enough documents
+			List<Document> shuffled = new ArrayList<Document>(documents);
+			List<String> topics = new ArrayList<String>();
+			while (topics.size() < size && !shuffled.isEmpty()) {
+				Collections.shuffle(shuffled, random);
+				for (int i = 0; i < shuffled.size() && topics.size() < size; i++) {
+					topics.add(shuffled.get(i).getClassAssignment() + "/" + shuffled.get(i).getName());
+				}
+			}
+			return topics;
+		}
+		throw new MissingOptionException("Topics were not specified. Please use the -" + TOPICS + " or -" + SAMPLE
+				+ " option");
+	}
+
+	private static int intOption(CommandLine command, String option, int defaultValue) {
+		return command.hasOption(option) ? Integer.parseInt(command.getOptionValue(option)) : defaultValue;
+	}
+}
@@ -0,0 +1,143 @@
+package com.tuwien.isis.irtask1.harness;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.tuwien.isis.irtask1.indexer.ForwardIndexWriter;
+import com.tuwien.isis.irtask1.indexer.IndexFiles;
+import com.tuwien.isis.irtask1.indexer.LsiIndexWriter;
+import com.tuwien.isis.irtask1.indexer.QuantizedIndexWriter;
+import com.tuwien.isis.irtask1.indexer.RawIndexWriter;
+import com.tuwien.isis.irtask1.indexer.TermDictionaryWriter;
+import com.tuwien.isis.irtask1.search.DocumentVectorBuilder;
+import com.tuwien.isis.irtask1.search.forward.ForwardIndex;
+import com.tuwien.isis.irtask1.search.forward.ForwardIndexSearcher;
+import com.tuwien.isis.irtask1.search.knn.KnnGraph;
+import com.tuwien.isis.irtask1.search.knn.KnnGraphSearcher;
+import com.tuwien.isis.irtask1.search.lsi.LsiIndex;
+import com.tuwien.isis.irtask1.search.lsi.LsiSearcher;
+import com.tuwien.isis.irtask1.search.quantized.QuantizedIndex;
+import com.tuwien.isis.irtask1.search.quantized.QuantizedSearcher;
+import com.tuwien.isis.irtask1.search.raw.RawIndex;
+import com.tuwien.isis.irtask1.search.raw.RawIndexSearcher;
+import com.tuwien.isis.irtask1.search.raw.WeightingSchemes;
+import com.tuwien.isis.irtask1.search.shard.LocalShardSearcher;
+import com.tuwien.isis.irtask1.search.shard.RemoteShardSearcher;
+import com.tuwien.isis.irtask1.search.shard.ShardCoordinator;
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+
+/**
+ * A search engine configuration of the harness, given as type or type=parameter:
+ *
+ * <pre>
+ * arff               document vectors of the ARFF index in the heap
+ * shards=n           the n shards of the index, searched in parallel
+ * forward            the memory-mapped forward index
+ * quantize=bits      the 8 or 16 bit quantized index
+ * graph              the precomputed k-NN graph
+ * lsi=dimensions     the dense LSI vectors
+ * remote=host:port,..  shard servers
+ * rawtf[=scheme]     the raw term frequencies weighted with ltc (default), lnc, ntc or bm25[:k1:b],
+ *                    leaving out the terms outside the document frequency range
+ * </pre>
+ */
+public class SearcherConfig {
+
+	private final String type;
+
+	private final String parameter;
+
+	/**
+	 * Document frequency range of the terms of a raw index, 0 for no limit
+	 */
+	private int minDocumentFrequency;
+
+	private int maxDocumentFrequency;
+
+	public SearcherConfig(String type, String parameter) {
+		this.type = type;
+		this.parameter = parameter;
+	}
+
+	/**
+	 * Leave the terms outside the given document frequency range out of a raw index, like -min and -max
+	 * do when an index is created
+	 *
+	 * @param minDocumentFrequency
+	 * @param maxDocumentFrequency
+	 *            0 for no limit
+	 */
+	public void setDocumentFrequencyRange(int minDocumentFrequency, int maxDocumentFrequency) {
+		this.minDocumentFrequency = minDocumentFrequency;
+		this.maxDocumentFrequency = maxDocumentFrequency;
+	}
+
+	/**
+	 * Parse a configuration such as shards=3
+	 *
+	 * @param spec
+	 * @return
+	 */
+	public static SearcherConfig parse(String spec) {
+		int equals = spec.indexOf('=');
+		if (equals < 0) {
+			return new SearcherConfig(spec.trim(), null);
+		}
+		return new SearcherConfig(spec.substring(0, equals).trim(), spec.substring(equals + 1).trim());
+	}
+
+	/**
+	 * Open a searcher of this configuration over the index at the given path
+	 *
+	 * @param indexPath
+	 * @return
+	 * @throws IOException
+	 */
+	public ShardSearcher open(String indexPath) throws IOException {
+		if (type.equals("arff")) {
+			return new LocalShardSearcher(DocumentVectorBuilder.buildDocumentVectors(indexPath));
+		} else if (type.equals("shards")) {
+			List<ShardSearcher> shards = new ArrayList<ShardSearcher>();
+			for (int shard = 0; shard < Integer.parseInt(requireParameter()); shard++) {
+				shards.add(new LocalShardSearcher(DocumentVectorBuilder.buildDocumentVectors(IndexFiles.shardPath(
+						indexPath, shard))));
+			}
+			return new ShardCoordinator(shards);
+		} else if (type.equals("forward")) {
+			return new ForwardIndexSearcher(ForwardIndex.open(IndexFiles.sidecarPath(indexPath,
+					ForwardIndexWriter.EXTENSION), IndexFiles.sidecarPath(indexPath, TermDictionaryWriter.EXTENSION)));
+		} else if (type.equals("quantize")) {
+			return new QuantizedSearcher(QuantizedIndex.load(IndexFiles.sidecarPath(indexPath, QuantizedIndexWriter
+					.extension(Integer.parseInt(requireParameter())))));
+		} else if (type.equals("graph")) {
+			return new KnnGraphSearcher(KnnGraph.open(IndexFiles.sidecarPath(indexPath, KnnGraph.EXTENSION)));
+		} else if (type.equals("lsi")) {
+			return new LsiSearcher(LsiIndex.load(IndexFiles.sidecarPath(indexPath, LsiIndexWriter.extension(Integer
+					.parseInt(requireParameter())))));
+		} else if (type.equals("remote")) {
+			List<ShardSearcher> shards = new ArrayList<ShardSearcher>();
+			for (String address : requireParameter().split(",")) {
+				shards.add(RemoteShardSearcher.connect(address.trim()));
+			}
+			return new ShardCoordinator(shards);
+		} else if (type.equals("rawtf")) {
+			return new RawIndexSearcher(RawIndex.load(IndexFiles.sidecarPath(indexPath, RawIndexWriter.EXTENSION)),
+					(parameter != null) ? WeightingSchemes.parse(parameter) : WeightingSchemes.LTC,
+					minDocumentFrequency, maxDocumentFrequency);
+		}
+		throw new IllegalArgumentException("unknown searcher configuration: " + this);
+	}
+
+	private String requireParameter() {
+		if (parameter == null || parameter.isEmpty()) {
+			throw new IllegalArgumentException("searcher configuration " + type + " needs a parameter");
+		}
+		return parameter;
+	}
+
+	@Override
+	public String toString() {
+		return (parameter != null) ? type + "=" + parameter : type;
+	}
+}
@@ -0,0 +1,112 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the document ids of every posting list in blocks with skip data, for Boolean queries.
+ * Layout:
+ *
+ * <pre>
+ * int magic, boolean stemming, boolean stopwords
+ * int documentCount, documentCount * (UTF class, UTF name)          -- in document id order
+ * int termCount, termCount * (UTF term, vbyte df, vbyte blockCount,
+ *     blockCount * (vbyte lastDocIdGap, vbyte byteLength), byteLength * byte docIdGaps)
+ * </pre>
+ *
+ * Every block holds up to BLOCK_SIZE variable-byte encoded document id gaps, starting from the last id
+ * of the previous block. The skip data before the blocks gives the last id and the encoded size of each
+ * block, so a reader can jump over whole blocks without decoding them.
+ */
+public class BlockPostingsWriter {
+
+	/**
+	 * Extension of the block postings file next to the index
+	 */
+	public static final String EXTENSION = "postings";
+
+	/**
+	 * Marker at the start of every block postings file
+	 */
+	public static final int MAGIC = 0x424C4B31;
+
+	/**
+	 * Maximum number of document ids per block
+	 */
+	public static final int BLOCK_SIZE = 128;
+
+	private final TokenAnalyzer analyzer;
+
+	private final List<Document> documents;
+
+	private final InvertedIndexBuilder index;
+
+	public BlockPostingsWriter(TokenAnalyzer analyzer, List<Document> documents, InvertedIndexBuilder index) {
+		this.analyzer = analyzer;
+		this.documents = documents;
+		this.index = index;
+	}
+
+	/**
+	 * Write the block postings to the given path
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void write(String path) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeBoolean(analyzer.isUseStemmer());
+			out.writeBoolean(analyzer.isRemoveStopwords());
+
+			out.writeInt(documents.size());
+			for (Document document : documents) {
+				out.writeUTF(document.getClassAssignment());
+				out.writeUTF(document.getName());
+			}
+
+			out.writeInt(index.size());
+			for (int termId = 0; termId < index.size(); termId++) {
+				writePostingList(out, index.getTerm(termId), index.getPostings(termId));
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write the blocks of a single term, preceded by their skip data
+	 *
+	 * @param out
+	 * @param token
+	 * @param postings
+	 * @throws IOException
+	 */
+	private void writePostingList(DataOutputStream out, String token, PostingList postings) throws IOException {
+		int blockCount = (postings.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		out.writeUTF(token);
+		VByte.write(out, postings.size());
+		VByte.write(out, blockCount);
+
+		ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+		DataOutputStream blockOut = new DataOutputStream(blocks);
+		int lastDocId = 0;
+		for (int block = 0; block < blockCount; block++) {
+			int blockStart = blocks.size();
+			int blockLastDocId = lastDocId;
+			for (int index = block * BLOCK_SIZE; index < Math.min(postings.size(), (block + 1) * BLOCK_SIZE); index++) {
+				VByte.write(blockOut, postings.getDocId(index) - blockLastDocId);
+				blockLastDocId = postings.getDocId(index);
+			}
+			VByte.write(out, blockLastDocId - lastDocId);
+			VByte.write(out, blocks.size() - blockStart);
+			lastDocId = blockLastDocId;
+		}
+		blocks.writeTo(out);
+	}
+}
@@ -0,0 +1,40 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Token analyzer which remembers the term of every raw word it has seen, so that the pattern match,
+ * stopword check and stemming run once per distinct word instead of once per occurrence. Not
+ * thread-safe.
+ */
+public class CachingTokenAnalyzer extends TokenAnalyzer {
+
+	/**
+	 * Terms by raw word; words without a term are mapped to null
+	 */
+	private final Map<String, String> terms = new HashMap<String, String>();
+
+	public CachingTokenAnalyzer(boolean useStemmer, boolean removeStopwords) {
+		super(useStemmer, removeStopwords);
+	}
+
+	@Override
+	public String analyze(String word) {
+		String term = terms.get(word);
+		if (term == null && !terms.containsKey(word)) {
+			term = super.analyze(word);
+			terms.put(word, term);
+		}
+		return term;
+	}
+
+	/**
+	 * Return the number of distinct words analyzed so far
+	 *
+	 * @return
+	 */
+	public int size() {
+		return terms.size();
+	}
+}
@@ -0,0 +1,69 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.util.Arrays;
+
+/**
+ * The weights of the index transposed from term -> document into one sparse vector per document, with
+ * term ids ascending within every vector
+ */
+class DocumentMajorWeights {
+
+	private final int[][] termIds;
+
+	private final float[][] weights;
+
+	private final int[] sizes;
+
+	/**
+	 * Transpose the weights
+	 *
+	 * @param numberOfDocuments
+	 * @param index
+	 *            the finished index with its weights
+	 */
+	DocumentMajorWeights(int numberOfDocuments, InvertedIndexBuilder index) {
+		termIds = new int[numberOfDocuments][];
+		weights = new float[numberOfDocuments][];
+		sizes = new int[numberOfDocuments];
+
+		// Terms are visited in id order, so the term ids of every document end up sorted
+		for (int termId = 0; termId < index.size(); termId++) {
+			PostingList postings = index.getPostings(termId);
+			for (int i = 0; i < postings.size(); i++) {
+				float weight = index.getWeight(termId, i);
+				if (weight == 0) {
+					continue;
+				}
+				int docId = postings.getDocId(i);
+				if (termIds[docId] == null) {
+					termIds[docId] = new int[8];
+					weights[docId] = new float[8];
+				} else if (sizes[docId] == termIds[docId].length) {
+					termIds[docId] = Arrays.copyOf(termIds[docId], sizes[docId] * 2);
+					weights[docId] = Arrays.copyOf(weights[docId], sizes[docId] * 2);
+				}
+				termIds[docId][sizes[docId]] = termId;
+				weights[docId][sizes[docId]] = weight;
+				sizes[docId]++;
+			}
+		}
+	}
+
+	/**
+	 * Return the number of terms with a weight in a document
+	 *
+	 * @param docId
+	 * @return
+	 */
+	int size(int docId) {
+		return sizes[docId];
+	}
+
+	int getTermId(int docId, int index) {
+		return termIds[docId][index];
+	}
+
+	float getWeight(int docId, int index) {
+		return weights[docId][index];
+	}
+}
@@ -0,0 +1,27 @@
+package com.tuwien.isis.irtask1.indexer;
+
+/**
+ * What happens to a document which is found to be a near-duplicate of an earlier one
+ */
+public enum DuplicateMode {
+
+	/**
+	 * Index the duplicate, but record it so that search can leave it out of the results
+	 */
+	MARK,
+
+	/**
+	 * Leave the duplicate out of the index; a query for it is answered with its representative
+	 */
+	COLLAPSE;
+
+	/**
+	 * Parse a mode from its (case-insensitive) name
+	 *
+	 * @param name
+	 * @return
+	 */
+	public static DuplicateMode fromName(String name) {
+		return valueOf(name.toUpperCase());
+	}
+}
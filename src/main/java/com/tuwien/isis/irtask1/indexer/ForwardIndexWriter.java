@@ -0,0 +1,103 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a forward index: the vector of every document in a fixed-width binary record, reachable
+ * through an offset table, so that any single vector can be decoded without reading the others.
+ * Layout:
+ *
+ * <pre>
+ * int magic, int documentCount, int termCount, long documentTableOffset
+ * long[documentCount + 1] recordOffsets
+ * double[documentCount] vectorLengths
+ * documentCount * (int nnz, nnz * int termId, nnz * float weight)   -- term ids ascending
+ * documentCount * (UTF class, UTF name)                            -- in document id order
+ * </pre>
+ *
+ * The terms are stored in a separate {@link TermDictionaryWriter term dictionary}, the term id is the
+ * position of a term in it.
+ */
+public class ForwardIndexWriter {
+
+	/**
+	 * Extension of the forward index file next to the index
+	 */
+	public static final String EXTENSION = "fwd";
+
+	/**
+	 * Marker at the start of every forward index file
+	 */
+	public static final int MAGIC = 0x46574431;
+
+	/**
+	 * Size of the fixed header in bytes
+	 */
+	public static final int HEADER_SIZE = 20;
+
+	private final List<Document> documents;
+
+	private final InvertedIndexBuilder index;
+
+	public ForwardIndexWriter(List<Document> documents, InvertedIndexBuilder index) {
+		this.documents = documents;
+		this.index = index;
+	}
+
+	/**
+	 * Write the forward index to the given path
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void write(String path) throws IOException {
+		DocumentMajorWeights vectors = new DocumentMajorWeights(documents.size(), index);
+		int documentCount = documents.size();
+
+		long[] recordOffsets = new long[documentCount + 1];
+		recordOffsets[0] = HEADER_SIZE + 8L * (documentCount + 1) + 8L * documentCount;
+		for (int docId = 0; docId < documentCount; docId++) {
+			recordOffsets[docId + 1] = recordOffsets[docId] + 4 + 8L * vectors.size(docId);
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(documentCount);
+			out.writeInt(index.size());
+			out.writeLong(recordOffsets[documentCount]);
+
+			for (long offset : recordOffsets) {
+				out.writeLong(offset);
+			}
+			for (int docId = 0; docId < documentCount; docId++) {
+				double sum = 0;
+				for (int i = 0; i < vectors.size(docId); i++) {
+					sum += Math.pow(vectors.getWeight(docId, i), 2);
+				}
+				out.writeDouble(Math.sqrt(sum));
+			}
+
+			for (int docId = 0; docId < documentCount; docId++) {
+				out.writeInt(vectors.size(docId));
+				for (int i = 0; i < vectors.size(docId); i++) {
+					out.writeInt(vectors.getTermId(docId, i));
+				}
+				for (int i = 0; i < vectors.size(docId); i++) {
+					out.writeFloat(vectors.getWeight(docId, i));
+				}
+			}
+
+			for (Document document : documents) {
+				out.writeUTF(document.getClassAssignment());
+				out.writeUTF(document.getName());
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.tuwien.isis.irtask1.indexer;
+
+/**
+ * Naming conventions for the files that make up an index on disk
+ */
+public class IndexFiles {
+
+	/**
+	 * Extension of the main index file
+	 */
+	private static final String INDEX_EXTENSION = ".arff";
+
+	private IndexFiles() {
+	}
+
+	/**
+	 * Return the index path without its extension, which is used as the prefix of all files belonging to
+	 * the index
+	 *
+	 * @param indexPath
+	 * @return
+	 */
+	public static String baseName(String indexPath) {
+		if (indexPath.endsWith(INDEX_EXTENSION)) {
+			return indexPath.substring(0, indexPath.length() - INDEX_EXTENSION.length());
+		}
+		return indexPath;
+	}
+
+	/**
+	 * Return the path of the index file of a given shard, e.g. index.shard0.arff for index.arff
+	 *
+	 * @param indexPath
+	 * @param shard
+	 * @return
+	 */
+	public static String shardPath(String indexPath, int shard) {
+		return baseName(indexPath) + ".shard" + shard + INDEX_EXTENSION;
+	}
+
+	/**
+	 * Return the path of a file stored alongside the index, e.g. index.knn for index.arff
+	 *
+	 * @param indexPath
+	 * @param extension
+	 * @return
+	 */
+	public static String sidecarPath(String indexPath, String extension) {
+		return baseName(indexPath) + "." + extension;
+	}
+}
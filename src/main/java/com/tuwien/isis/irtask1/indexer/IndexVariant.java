@@ -0,0 +1,112 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A named analyzer and threshold configuration of an index, which is stored as index-name.arff
+ */
+public class IndexVariant {
+
+	private final String name;
+
+	private final boolean useStemmer;
+
+	private final boolean removeStopwords;
+
+	private final int minFreqThreshold;
+
+	private final int maxFreqThreshold;
+
+	public IndexVariant(String name, boolean useStemmer, boolean removeStopwords, int minFreqThreshold,
+			int maxFreqThreshold) {
+		this.name = name;
+		this.useStemmer = useStemmer;
+		this.removeStopwords = removeStopwords;
+		this.minFreqThreshold = minFreqThreshold;
+		this.maxFreqThreshold = maxFreqThreshold;
+	}
+
+	/**
+	 * Parse a list of variants such as "plain:min=2;stem:stem,min=2;all:stem,stop,min=2,max=100". Every
+	 * variant is a name followed by a colon and a comma-separated list of the settings stem, stop,
+	 * min=n and max=n (all optional).
+	 *
+	 * @param spec
+	 * @return
+	 */
+	public static List<IndexVariant> parseList(String spec) {
+		List<IndexVariant> variants = new ArrayList<IndexVariant>();
+		for (String variantSpec : spec.split(";")) {
+			if (!variantSpec.trim().isEmpty()) {
+				variants.add(parse(variantSpec.trim()));
+			}
+		}
+		return variants;
+	}
+
+	/**
+	 * Parse a single variant such as "stem:stem,min=2"
+	 *
+	 * @param spec
+	 * @return
+	 */
+	public static IndexVariant parse(String spec) {
+		int colon = spec.indexOf(':');
+		String name = (colon >= 0) ? spec.substring(0, colon).trim() : spec.trim();
+		if (!name.matches("[A-Za-z0-9_.-]+")) {
+			throw new IllegalArgumentException("invalid index variant name: '" + name + "'");
+		}
+
+		boolean useStemmer = false;
+		boolean removeStopwords = false;
+		int minFreq = 0;
+		int maxFreq = 0;
+		if (colon >= 0) {
+			for (String setting : spec.substring(colon + 1).split(",")) {
+				setting = setting.trim();
+				if (setting.equals("stem")) {
+					useStemmer = true;
+				} else if (setting.equals("stop")) {
+					removeStopwords = true;
+				} else if (setting.startsWith("min=")) {
+					minFreq = Integer.parseInt(setting.substring(4));
+				} else if (setting.startsWith("max=")) {
+					maxFreq = Integer.parseInt(setting.substring(4));
+				} else if (!setting.isEmpty()) {
+					throw new IllegalArgumentException("unknown setting '" + setting + "' of index variant " + name);
+				}
+			}
+		}
+		return new IndexVariant(name, useStemmer, removeStopwords, minFreq, maxFreq);
+	}
+
+	/**
+	 * Return the path of the index of this variant, e.g. index-stem.arff
+	 *
+	 * @return
+	 */
+	public String getIndexPath() {
+		return "index-" + name + ".arff";
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isUseStemmer() {
+		return useStemmer;
+	}
+
+	public boolean isRemoveStopwords() {
+		return removeStopwords;
+	}
+
+	public int getMinFreqThreshold() {
+		return minFreqThreshold;
+	}
+
+	public int getMaxFreqThreshold() {
+		return maxFreqThreshold;
+	}
+}
@@ -1,28 +1,27 @@
 package com.tuwien.isis.irtask1.indexer;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.charset.Charset;
+import java.io.PrintWriter;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
-import org.tartarus.martin.Stemmer;
+import com.tuwien.isis.irtask1.indexer.collection.CollectionSource;
+import com.tuwien.isis.irtask1.indexer.collection.CollectionSources;
+import com.tuwien.isis.irtask1.util.HeapUsage;
 
 import weka.core.Attribute;
 import weka.core.FastVector;
 import weka.core.Instance;
 import weka.core.Instances;
-import weka.core.Stopwords;
 import weka.core.converters.ArffSaver;
 import weka.core.converters.Saver;
 
@@ -39,19 +38,14 @@ public class Indexer {
 	private static final int DEFAULT_MAX_FREQ_THRESHOLD = 2147483647;
 
 	/**
-	 * Minimum length in characters for a term to be indexed
+	 * Analyzer turning words into terms, applying stemming and stopword removal (if enabled)
 	 */
-	private static final int MIN_TERM_LENGTH = 2;
+	private TokenAnalyzer analyzer;
 
 	/**
-	 * Flag indicating if stemming should be used during the creation of the index
+	 * Flag indicating if term positions should be recorded and stored with the index
 	 */
-	private boolean useStemmer;
-
-	/**
-	 * Flag indicating if stopwords should be removed during the creation of the index
-	 */
-	private boolean removeStopwords;
+	private boolean recordPositions;
 
 	/**
 	 * The minimum number of occurrences a word must have in the collection to be indexed
@@ -74,44 +68,57 @@ public class Indexer {
 	private Set<String> classAssignmentSet = new HashSet<String>();
 
 	/**
-	 * Set of all tokens
+	 * List of documents in the collections
 	 */
-	private Set<String> tokenSet = new HashSet<String>();
+	private List<Document> documentList = new ArrayList<Document>();
 
 	/**
-	 * List of documents in the collections
+	 * Inverted index with the postings (and later the weights) of every term
 	 */
-	private List<Document> documentList = new ArrayList<Document>();
+	private InvertedIndexBuilder index;
 
 	/**
-	 * Data structure to record in which documents terms occur
+	 * Internal counter used to mark the document currently being processed
 	 */
-	private Map<String, ArrayList<Posting>> dictionary = new HashMap<String, ArrayList<Posting>>();
+	private int currentDocumentId = 0;
 
 	/**
-	 * Map of a token's frequency in documents
+	 * Internal counter used to mark the document class currently being processed
 	 */
-	private Map<String, Set<Integer>> tokenDocumentFrequency = new HashMap<String, Set<Integer>>();
+	private String currentDocClassName;
 
 	/**
-	 * Map of the IDFTF score of a token
+	 * Position of the word currently being processed within its document
 	 */
-	private Map<String, Map<Integer, Float>> tokenIdftfMap = new HashMap<String, Map<Integer, Float>>();
+	private int currentPosition = 0;
 
 	/**
-	 * Internal counter used to mark the document currently being processed
+	 * Detector of near-duplicate documents (null if detection is disabled)
 	 */
-	private int currentDocumentId = 0;
+	private NearDuplicateDetector duplicateDetector;
 
 	/**
-	 * Internal counter used to mark the document class currently being processed
+	 * What happens to the near-duplicates which are found
 	 */
-	private String currentDocClassName;
+	private DuplicateMode duplicateMode;
 
 	/**
-	 * Stemming object to transform words into their root form
+	 * Map of the full names of near-duplicates to the full names of their representatives
 	 */
-	private Stemmer stemmer = new Stemmer();
+	private Map<String, String> duplicates = new LinkedHashMap<String, String>();
+
+	/**
+	 * Number of (term, document) postings of all documents and of the near-duplicates among them
+	 */
+	private long totalPostings = 0;
+
+	private long duplicatePostings = 0;
+
+	/**
+	 * Flag indicating if the peak and retained heap of the build should be measured, which forces
+	 * several garbage collections
+	 */
+	private boolean memoryReport = false;
 
 	/**
 	 * Initialize the indexer
@@ -121,12 +128,72 @@ public class Indexer {
 	 * @param maxFreqThreshold
 	 */
 	public Indexer(boolean useStemmer, boolean removeStopwords, int minFreqThreshold, int maxFreqThreshold) {
-		this.useStemmer = useStemmer;
-		this.removeStopwords = removeStopwords;
+		this(useStemmer, removeStopwords, minFreqThreshold, maxFreqThreshold, false);
+	}
+
+	/**
+	 * Initialize the indexer
+	 * 
+	 * @param useStemmer
+	 * @param removeStopwords
+	 * @param minFreqThreshold
+	 * @param maxFreqThreshold
+	 * @param recordPositions
+	 */
+	public Indexer(boolean useStemmer, boolean removeStopwords, int minFreqThreshold, int maxFreqThreshold,
+			boolean recordPositions) {
+		this(new TokenAnalyzer(useStemmer, removeStopwords), minFreqThreshold, maxFreqThreshold, recordPositions);
+	}
+
+	/**
+	 * Initialize the indexer with an analyzer which may be shared with other indexers
+	 * 
+	 * @param analyzer
+	 * @param minFreqThreshold
+	 * @param maxFreqThreshold
+	 * @param recordPositions
+	 */
+	public Indexer(TokenAnalyzer analyzer, int minFreqThreshold, int maxFreqThreshold, boolean recordPositions) {
+		this.analyzer = analyzer;
+		this.recordPositions = recordPositions;
+		this.index = new InvertedIndexBuilder(recordPositions);
 		this.minFreqThreshold = minFreqThreshold;
 		this.maxFreqThreshold = (maxFreqThreshold <= 0) ? DEFAULT_MAX_FREQ_THRESHOLD : maxFreqThreshold;
 	}
 
+	/**
+	 * Detect near-duplicate documents while the collection is read
+	 * 
+	 * @param threshold
+	 *            estimated Jaccard similarity of the word shingles at which a document is a duplicate
+	 * @param mode
+	 *            mark the duplicates or leave them out of the index
+	 */
+	public void detectNearDuplicates(double threshold, DuplicateMode mode) {
+		detectNearDuplicates(new NearDuplicateDetector(threshold), mode);
+	}
+
+	/**
+	 * Record the near-duplicates found by a detector which may be shared with other indexers. If it is
+	 * shared, the documents have to be added with the representative the detector found for them.
+	 * 
+	 * @param detector
+	 * @param mode
+	 */
+	void detectNearDuplicates(NearDuplicateDetector detector, DuplicateMode mode) {
+		this.duplicateDetector = detector;
+		this.duplicateMode = mode;
+	}
+
+	/**
+	 * Measure and print the peak and retained heap of the index build
+	 * 
+	 * @param memoryReport
+	 */
+	public void setMemoryReport(boolean memoryReport) {
+		this.memoryReport = memoryReport;
+	}
+
 	/**
 	 * Create an index as an ARFF file and store it to disk
 	 * 
@@ -136,10 +203,68 @@ public class Indexer {
 	 */
 	public void createIndex(String path) throws IOException {
 		if (!indexGenerated) {
+			long heapBefore = 0;
+			if (memoryReport) {
+				heapBefore = HeapUsage.usedHeap();
+				HeapUsage.resetPeakHeap();
+			}
+			long start = System.nanoTime();
 			readDocumentCollection(path);
+			finishIndex();
+			System.out.println("Indexing took " + (System.nanoTime() - start) / 1000000 + " ms"
+					+ (memoryReport ? ", peak heap: " + HeapUsage.format(HeapUsage.peakHeap()) + ", retained heap: "
+							+ HeapUsage.format(HeapUsage.usedHeap() - heapBefore) : ""));
+		} else {
+			System.err.println("Index has already been generated.");
+		}
+	}
+
+	/**
+	 * Add a document to the index which is being created
+	 * 
+	 * @param className
+	 * @param name
+	 * @param words
+	 *            the raw words of the document as returned by {@link TokenAnalyzer#split(String)}
+	 */
+	public void addDocument(String className, String name, String[] words) {
+		String representative = null;
+		if (duplicateDetector != null) {
+			representative = duplicateDetector.check(className + "/" + name, words);
+		}
+		addDocument(className, name, words, representative);
+	}
+
+	/**
+	 * Add a document to the index whose near-duplicate check has already been done by the caller
+	 * 
+	 * @param className
+	 * @param name
+	 * @param words
+	 * @param representative
+	 *            full name of the document it is a near-duplicate of, null if it is none
+	 */
+	void addDocument(String className, String name, String[] words, String representative) {
+		if (indexGenerated) {
+			throw new IllegalStateException("Index has already been generated.");
+		}
+		currentDocClassName = className;
+		indexDocument(name, words, representative);
+	}
+
+	/**
+	 * Apply the frequency thresholds and calculate the weights once all documents have been added
+	 */
+	public void finishIndex() {
+		if (!indexGenerated) {
+			if (duplicateDetector != null) {
+				printDuplicateReport();
+			}
 			applyTokenThresholds();
 			calculateTfidf();
 			indexGenerated = true;
+			System.out.println("Index of " + documentList.size() + " documents, " + index.size() + " terms and "
+					+ index.numberOfPostings() + " postings created");
 		} else {
 			System.err.println("Index has already been generated.");
 		}
@@ -155,6 +280,7 @@ public class Indexer {
 		if (indexGenerated) {
 			System.out.println("Writing index file to disk...");
 			writeIndexToFile(path);
+			storePositions(path);
 			System.out.println("Indexing and writing finished.");
 		} else {
 			System.err.println("Index has not yet been generated.");
@@ -162,229 +288,352 @@ public class Indexer {
 	}
 
 	/**
-	 * Add all files in the given directory
+	 * Store the analyzer settings and the document frequencies of the index (if it has been generated)
+	 * next to the index at the given path, so that free-text queries can be weighted without loading the
+	 * documents
 	 * 
 	 * @param path
 	 * @throws IOException
 	 */
-	private void readDocumentCollection(String path) throws IOException {
-		File root = new File(path);
-		File[] list = root.listFiles();
-
-		for (File file : list) {
-			if (file.isDirectory()) {
-				System.out.println("Indexing files in directory: " + file.getAbsoluteFile());
-				String directoryPath = file.getAbsoluteFile().getAbsolutePath();
-				currentDocClassName = generateCurrentDocClassName(directoryPath);
-				readDocumentCollection(file.getAbsolutePath());
-			} else {
-				indexFile(file);
-			}
+	public void storeTermStatistics(String path) throws IOException {
+		if (indexGenerated) {
+			String statisticsPath = IndexFiles.sidecarPath(path, TermStatisticsWriter.EXTENSION);
+			System.out.println("Writing term statistics to " + statisticsPath + "...");
+
+			new TermStatisticsWriter(analyzer, documentList.size(), index).write(statisticsPath);
+		} else {
+			System.err.println("Index has not yet been generated.");
 		}
 	}
 
 	/**
-	 * Use the name of a file's parent folder to generate a class name for the current document
+	 * Store the document ids of all posting lists in blocks with skip data for Boolean queries (if the
+	 * index has been generated) next to the index at the given path
 	 * 
-	 * @param directoryPath
-	 * @return
+	 * @param path
+	 * @throws IOException
 	 */
-	private String generateCurrentDocClassName(String directoryPath) {
-		int index = directoryPath.lastIndexOf('\\');
-		return directoryPath.substring(index + 1);
+	public void storeBlockPostings(String path) throws IOException {
+		if (indexGenerated) {
+			String postingsPath = IndexFiles.sidecarPath(path, BlockPostingsWriter.EXTENSION);
+			System.out.println("Writing block postings to " + postingsPath + "...");
+
+			new BlockPostingsWriter(analyzer, documentList, index).write(postingsPath);
+		} else {
+			System.err.println("Index has not yet been generated.");
+		}
 	}
 
 	/**
-	 * Process each document in the collection to be indexed
+	 * Store the raw term frequencies and document frequencies of the index (if it has been generated)
+	 * next to the index at the given path, so that it can be weighted when it is searched
 	 * 
-	 * @param file
+	 * @param path
 	 * @throws IOException
 	 */
-	private void indexFile(File file) throws IOException {
-		String documentString = readDocumentContents(file);
-		String fileName = file.getName();
+	public void storeRawIndex(String path) throws IOException {
+		if (indexGenerated) {
+			String rawPath = IndexFiles.sidecarPath(path, RawIndexWriter.EXTENSION);
+			System.out.println("Writing raw term frequencies to " + rawPath + "...");
 
-		Document data = new Document(fileName, currentDocumentId, currentDocClassName);
-		documentList.add(data);
-		classAssignmentSet.add(currentDocClassName);
+			new RawIndexWriter(analyzer, documentList, index).write(rawPath);
+		} else {
+			System.err.println("Index has not yet been generated.");
+		}
+	}
 
-		// Split the document string on all non-word characters
-		String documentContent[] = documentString.split("\\W");
+	/**
+	 * Store the document vectors of the index (if it has been generated) with their weights quantized
+	 * to the given number of bits, next to the index at the given path
+	 * 
+	 * @param path
+	 * @param bits
+	 * @param perTermScale
+	 *            use a scale per term instead of one for the whole index
+	 * @throws IOException
+	 */
+	public void storeQuantizedIndex(String path, int bits, boolean perTermScale) throws IOException {
+		if (indexGenerated) {
+			String quantizedPath = IndexFiles.sidecarPath(path, QuantizedIndexWriter.extension(bits));
+			System.out.println("Writing " + bits + " bit quantized index to " + quantizedPath + "...");
 
-		for (String currentWordString : documentContent) {
-			processToken(currentWordString.toLowerCase());
+			new QuantizedIndexWriter(documentList, index, bits, perTermScale).write(quantizedPath);
+		} else {
+			System.err.println("Index has not yet been generated.");
 		}
+	}
 
-		currentDocumentId++;
+	/**
+	 * Store the documents as dense vectors of the given number of dimensions in latent semantic space
+	 * (if the index has been generated) next to the index at the given path
+	 * 
+	 * @param path
+	 * @param dimensions
+	 * @throws IOException
+	 */
+	public void storeLsiIndex(String path, int dimensions) throws IOException {
+		if (indexGenerated) {
+			String lsiPath = IndexFiles.sidecarPath(path, LsiIndexWriter.extension(dimensions));
+			System.out.println("Writing " + dimensions + " dimensional LSI vectors to " + lsiPath + "...");
+
+			new LsiIndexWriter(documentList, index, dimensions).write(lsiPath);
+		} else {
+			System.err.println("Index has not yet been generated.");
+		}
 	}
 
 	/**
-	 * Return the contents of a file with a given path in the form of a string
+	 * Store a forward index with random access to every document vector and its term dictionary (if
+	 * the index has been generated) next to the index at the given path
 	 * 
 	 * @param path
-	 * @return
 	 * @throws IOException
 	 */
-	private String readDocumentContents(File file) throws IOException {
-		FileInputStream stream = new FileInputStream(file);
-		try {
-			FileChannel fc = stream.getChannel();
-			MappedByteBuffer bb = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
-			return Charset.defaultCharset().decode(bb).toString();
-		} finally {
-			stream.close();
+	public void storeForwardIndex(String path) throws IOException {
+		if (indexGenerated) {
+			String forwardPath = IndexFiles.sidecarPath(path, ForwardIndexWriter.EXTENSION);
+			System.out.println("Writing forward index to " + forwardPath + "...");
+
+			new ForwardIndexWriter(documentList, index).write(forwardPath);
+
+			String termsPath = IndexFiles.sidecarPath(path, TermDictionaryWriter.EXTENSION);
+			System.out.println("Writing term dictionary to " + termsPath + "...");
+			new TermDictionaryWriter(index.getTerms()).write(termsPath);
+		} else {
+			System.err.println("Index has not yet been generated.");
 		}
 	}
 
 	/**
-	 * Add a given token to the tokens collection if it meets the processing criteria
+	 * Store the list of near-duplicates and their representatives next to the index at the given path.
+	 * A list left over from an earlier index is removed if detection is disabled.
 	 * 
-	 * @param token
+	 * @param path
+	 * @throws IOException
 	 */
-	private void processToken(String token) {
+	public void storeDuplicates(String path) throws IOException {
+		String duplicatesPath = IndexFiles.sidecarPath(path, NearDuplicateDetector.EXTENSION);
+		if (duplicateDetector == null) {
+			new File(duplicatesPath).delete();
+			return;
+		}
+
+		System.out.println("Writing " + duplicates.size() + " near-duplicates to " + duplicatesPath + "...");
+		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(duplicatesPath)));
+		try {
+			writer.println(duplicateMode.name().toLowerCase());
+			for (Entry<String, String> entry : duplicates.entrySet()) {
+				writer.println(entry.getKey() + "\t" + entry.getValue());
+			}
+		} finally {
+			writer.close();
+		}
+	}
 
-		// Check if the token is made up of word characters and meets minimum length requirements
-		if (token.matches("[a-zA-Z]+") && token.length() >= MIN_TERM_LENGTH) {
+	/**
+	 * Print the outcome and the cost of the near-duplicate detection
+	 */
+	private void printDuplicateReport() {
+		int documents = documentList.size() + (duplicateMode == DuplicateMode.COLLAPSE ? duplicates.size() : 0);
+		System.out.println("Near-duplicates (Jaccard >= " + duplicateDetector.getThreshold() + ", "
+				+ duplicateDetector.getBands() + " bands of " + duplicateDetector.getRows() + " rows): "
+				+ duplicates.size() + " of " + documents + " documents, "
+				+ new HashSet<String>(duplicates.values()).size() + " clusters");
+		System.out.println("detection time: " + duplicateDetector.getDetectionMillis() + " ms, memory: ~"
+				+ (duplicateDetector.estimateMemory() / 1024) + " KB");
+		System.out.println("postings of near-duplicates: " + duplicatePostings + " of " + totalPostings + " ("
+				+ (totalPostings > 0 ? Math.round(100.0 * duplicatePostings / totalPostings) : 0) + "%) "
+				+ (duplicateMode == DuplicateMode.COLLAPSE ? "removed" : "marked"));
+	}
 
-			// Check for stopwords (if enabled)
-			if (removeStopwords && Stopwords.isStopword(token)) {
-				return;
+	/**
+	 * Store the index to disk as a number of shards (if it has been generated). Each shard holds a
+	 * partition of the documents, but all weights are calculated from the document frequencies of the
+	 * whole collection, so the shards score exactly like the unsharded index.
+	 * 
+	 * @param path
+	 * @param numberOfShards
+	 * @param strategy
+	 * @throws IOException
+	 */
+	public void storeShardedIndex(String path, int numberOfShards, ShardingStrategy strategy) throws IOException {
+		if (indexGenerated) {
+			List<List<Document>> shards = new ArrayList<List<Document>>();
+			for (int shard = 0; shard < numberOfShards; shard++) {
+				shards.add(new ArrayList<Document>());
+			}
+			for (Document document : documentList) {
+				shards.get(strategy.shardFor(document, numberOfShards)).add(document);
 			}
 
-			// Apply stemming (if enabled)
-			if (useStemmer) {
-				char[] wordChar = token.toCharArray();
-				stemmer.add(wordChar, wordChar.length);
-				stemmer.stem();
-				token = String.valueOf(stemmer.getResultBuffer(), 0, stemmer.getResultLength());
+			// The weights are transposed to document order once for all shards
+			DocumentMajorWeights vectors = new DocumentMajorWeights(documentList.size(), index);
+			for (int shard = 0; shard < numberOfShards; shard++) {
+				String shardPath = IndexFiles.shardPath(path, shard);
+				System.out.println("Writing shard " + shard + " (" + shards.get(shard).size() + " documents) to "
+						+ shardPath + "...");
+				writeIndexToFile(shardPath, shards.get(shard), vectors);
 			}
 
-			addToken(token);
+			// phrase queries are answered over the whole collection, like the other files next to the index
+			storePositions(path);
+			System.out.println("Indexing and writing of " + numberOfShards + " shards finished.");
+		} else {
+			System.err.println("Index has not yet been generated.");
+		}
+	}
+
+	/**
+	 * Store the positional postings of all documents next to the index at the given path, if positions
+	 * were recorded
+	 * 
+	 * @param path
+	 * @throws IOException
+	 */
+	private void storePositions(String path) throws IOException {
+		if (recordPositions) {
+			String positionsPath = IndexFiles.sidecarPath(path, PositionalIndexWriter.EXTENSION);
+			System.out.println("Writing positional postings to " + positionsPath + "...");
+			new PositionalIndexWriter(analyzer, documentList, index).write(positionsPath);
 		}
 	}
 
 	/**
-	 * Record an occurrence of a token in the current document
+	 * Add all documents of the collection at the given path, which is a directory with one subdirectory
+	 * per class or a tar/zip archive of such a directory
 	 * 
-	 * @param token
+	 * @param path
+	 * @throws IOException
 	 */
-	private void addToken(String token) {
-		addToDictionary(token, currentDocumentId);
+	private void readDocumentCollection(String path) throws IOException {
+		CollectionSources.forPath(path).read(new CollectionSource.DocumentHandler() {
+			public void document(String className, String name, String content) throws IOException {
+				if (className == null ? currentDocClassName != null : !className.equals(currentDocClassName)) {
+					System.out.println("Indexing documents of class: " + className);
+				}
+				addDocument(className, name, TokenAnalyzer.split(content));
+			}
+		});
+	}
 
-		// Check if a frequency entry already exists for this token
-		Set<Integer> tokenFrequency = tokenDocumentFrequency.get(token);
-		if (tokenFrequency == null) {
-			tokenFrequency = new HashSet<Integer>();
-			tokenDocumentFrequency.put(token, tokenFrequency);
+	/**
+	 * Process each document in the collection to be indexed
+	 * 
+	 * @param fileName
+	 * @param documentContent
+	 *            the words of the document, split on all non-word characters
+	 * @param representative
+	 *            full name of the document it is a near-duplicate of, null if it is none
+	 */
+	private void indexDocument(String fileName, String[] documentContent, String representative) {
+		// Every word is analyzed once, the terms are used both for the duplicate statistics and the index
+		String[] terms = new String[documentContent.length];
+		for (int i = 0; i < documentContent.length; i++) {
+			terms[i] = documentContent[i].isEmpty() ? null : analyzer.analyze(documentContent[i]);
+		}
+		if (duplicateDetector != null
+				&& recordDuplicate(currentDocClassName + "/" + fileName, terms, representative)
+				&& duplicateMode == DuplicateMode.COLLAPSE) {
+			return;
 		}
 
-		// Record the occurrence of the current token in the current document
-		tokenFrequency.add(currentDocumentId);
+		Document data = new Document(fileName, currentDocumentId, currentDocClassName);
+		documentList.add(data);
+		classAssignmentSet.add(currentDocClassName);
+
+		// Every word counts as a position, even if it is not indexed, so that phrases do not match across
+		// removed words
+		currentPosition = 0;
+		for (int i = 0; i < documentContent.length; i++) {
+			if (!documentContent[i].isEmpty()) {
+				if (terms[i] != null) {
+					addToken(terms[i]);
+				}
+				currentPosition++;
+			}
+		}
+
+		currentDocumentId++;
 	}
 
 	/**
-	 * Record an occurrence of a term in the dictionary
+	 * Count the postings of a document and record it if it is a near-duplicate of an earlier one
 	 * 
-	 * @param token
-	 * @param currentDocumentId
-	 */
-	private void addToDictionary(String token, int currentDocumentId) {
-		Posting posting = new Posting(currentDocumentId, 0);
-
-		// Check if a posting for this token already exists
-		ArrayList<Posting> tokenPosting = dictionary.get(token);
-		if (tokenPosting == null) {
-			tokenPosting = new ArrayList<Posting>();
-			tokenPosting.add(posting);
-			dictionary.put(token, tokenPosting);
-			tokenSet.add(token);
+	 * @param fullDocName
+	 * @param terms
+	 *            the analyzed words of the document, null for the words which are not indexed
+	 * @param representative
+	 * @return true if the document is a near-duplicate
+	 */
+	private boolean recordDuplicate(String fullDocName, String[] terms, String representative) {
+		Set<String> distinctTerms = new HashSet<String>();
+		for (String term : terms) {
+			if (term != null) {
+				distinctTerms.add(term);
+			}
 		}
+		totalPostings += distinctTerms.size();
 
-		// Record the posting for this token
-		tokenPosting.add(posting);
+		if (representative == null) {
+			return false;
+		}
+		duplicates.put(fullDocName, representative);
+		duplicatePostings += distinctTerms.size();
+		return true;
+	}
+
+	/**
+	 * Record an occurrence of a token in the current document
+	 * 
+	 * @param token
+	 */
+	private void addToken(String token) {
+		index.add(token, currentDocumentId, currentPosition);
 	}
 
 	/**
 	 * Remove tokens if their frequency does not fall within the user-defined range
 	 */
 	private void applyTokenThresholds() {
-
-		// Set of tokens to be removed
-		Set<String> toRemove = new HashSet<String>();
-
-		// Check all tokens
-		for (Entry<String, Set<Integer>> entry : tokenDocumentFrequency.entrySet()) {
-			String token = entry.getKey();
-			Set<Integer> currentSet = entry.getValue();
-			int frequencyCount = currentSet.size();
-
-			if (frequencyCount > maxFreqThreshold || frequencyCount < minFreqThreshold) {
-				tokenSet.remove(token);
-				dictionary.remove(token);
-				tokenIdftfMap.remove(token);
-				toRemove.add(token);
-			}
-		}
-
-		// Remove tokens whose frequency was outside of the defined threshold
-		tokenDocumentFrequency.keySet().removeAll(toRemove);
+		index.finish(minFreqThreshold, maxFreqThreshold);
 	}
 
 	/**
 	 * Calculate the term frequency–inverse document frequency for all tokens
 	 */
 	private void calculateTfidf() {
-		for (Entry<String, Set<Integer>> entry : tokenDocumentFrequency.entrySet()) {
-			String token = entry.getKey();
-			int documentFrequency = entry.getValue().size();
-			ArrayList<Posting> postings = dictionary.get(token);
-			calculateTfidfForToken(token, postings, documentFrequency);
+
+		// Round the values to a reasonable amount of precision
+		DecimalFormat formatter = new DecimalFormat("#.###");
+
+		for (int termId = 0; termId < index.size(); termId++) {
+			index.setWeights(termId, calculateTfidfForToken(index.getPostings(termId), formatter));
 		}
 	}
 
 	/**
-	 * Calculate the term frequency–inverse document frequency for a given token
+	 * Calculate the term frequency–inverse document frequency of a token in every document of its
+	 * posting list
 	 * 
-	 * @param token
 	 * @param postings
-	 * @param documentFrequency
+	 * @param formatter
+	 * @return
 	 */
-	private void calculateTfidfForToken(String token, ArrayList<Posting> postings, int documentFrequency) {
+	private float[] calculateTfidfForToken(PostingList postings, DecimalFormat formatter) {
+		float[] weights = new float[postings.size()];
 
-		Map<Integer, Float> currentDocIdftfMap = null;
-
-		for (Document document : documentList) {
-			int documentId = document.getId();
-			int occurancesInDocument = 0;
-			for (Posting posting : postings) {
-				int curDocID = posting.getId();
-				if (curDocID > documentId) {
-					break;
-				} else if (curDocID == documentId) {
-					occurancesInDocument++;
-				}
-			}
-
-			// Calculate term frequency–inverse document frequency
-			float idfValue = (float) Math.log10(documentList.size() / (float) documentFrequency);
+		// Calculate term frequency–inverse document frequency
+		float idfValue = (float) Math.log10(documentList.size() / (float) postings.size());
+		for (int index = 0; index < postings.size(); index++) {
+			int occurancesInDocument = postings.getFrequency(index);
 			float tfValue = (occurancesInDocument != 0) ? (float) (1.0 + Math.log10(occurancesInDocument)) : 0;
 			float tfidfValue = idfValue * tfValue;
 
 			if (tfidfValue > 0) {
-
-				// Round the value to a reasonable amount of precision
-				DecimalFormat formatter = new DecimalFormat("#.###");
-				tfidfValue = Float.parseFloat(formatter.format(tfidfValue));
-
-				// Check if map needs to be created
-				if (currentDocIdftfMap == null) {
-					currentDocIdftfMap = new HashMap<Integer, Float>();
-					tokenIdftfMap.put(token, currentDocIdftfMap);
-				}
-
-				currentDocIdftfMap.put(documentId, tfidfValue);
+				weights[index] = Float.parseFloat(formatter.format(tfidfValue));
 			}
 		}
+		return weights;
 	}
 
 	/**
@@ -394,10 +643,34 @@ public class Indexer {
 	 * @throws IOException
 	 */
 	public void writeIndexToFile(String path) throws IOException {
+		writeIndexToFile(path, documentList, new DocumentMajorWeights(documentList.size(), index));
+	}
 
-		// Sort token set and convert to list
-		List<String> sortedTokenList = new ArrayList<String>(tokenSet);
-		Collections.sort(sortedTokenList);
+	/**
+	 * Write the given documents of the generated index to disk. Only tokens which occur in at least one
+	 * of the documents are included.
+	 * 
+	 * @param path
+	 * @param documents
+	 * @param vectors
+	 *            the weights of all documents of the index in document order
+	 * @throws IOException
+	 */
+	private void writeIndexToFile(String path, List<Document> documents, DocumentMajorWeights vectors)
+			throws IOException {
+
+		// The tokens are sorted already; map their term ids to attribute indexes
+		boolean[] selected = selectedDocuments(documents);
+		List<String> sortedTokenList = new ArrayList<String>();
+		int[] attributeIndexes = new int[index.size()];
+		for (int termId = 0; termId < index.size(); termId++) {
+			if (selected == null || occursInAny(termId, selected)) {
+				attributeIndexes[termId] = sortedTokenList.size() + 3;
+				sortedTokenList.add(index.getTerm(termId));
+			} else {
+				attributeIndexes[termId] = -1;
+			}
+		}
 
 		FastVector attributes = new FastVector();
 		attributes.addElement(new Attribute("filename", (FastVector) null));
@@ -406,7 +679,7 @@ public class Indexer {
 		addAttributesTokens(sortedTokenList, attributes);
 
 		Instances instances = new Instances("Index", attributes, 0);
-		addDocumentData(instances, classAssignmentValues, sortedTokenList.size());
+		addDocumentData(instances, documents, vectors, classAssignmentValues, attributeIndexes);
 
 
 		ArffSaver saver = new ArffSaver();
@@ -422,38 +695,68 @@ public class Indexer {
 
 	}
 
+	/**
+	 * Mark the given documents by their id, or return null if they are all documents of the index
+	 * 
+	 * @param documents
+	 * @return
+	 */
+	private boolean[] selectedDocuments(List<Document> documents) {
+		if (documents == documentList) {
+			return null;
+		}
+		boolean[] selected = new boolean[documentList.size()];
+		for (Document document : documents) {
+			selected[document.getId()] = true;
+		}
+		return selected;
+	}
+
+	/**
+	 * Check if a token has a weight in at least one of the selected documents
+	 * 
+	 * @param termId
+	 * @param selected
+	 * @return
+	 */
+	private boolean occursInAny(int termId, boolean[] selected) {
+		PostingList postings = index.getPostings(termId);
+		for (int i = 0; i < postings.size(); i++) {
+			if (selected[postings.getDocId(i)] && index.getWeight(termId, i) > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Add the document data to the instances
 	 * 
-	 * @param documentsList
 	 * @param instances
+	 * @param documents
+	 * @param vectors
 	 * @param classAssignmentValues
-	 * @param tokenIdftfMap
-	 * @param tokenAttributesCount
+	 * @param attributeIndexes
+	 *            attribute index of every term id, -1 for terms which are left out
 	 */
-	private void addDocumentData(Instances instances, FastVector classAssignmentValues, int tokenAttributesCount) {
-
-		for (Document document : documentList) {
+	private void addDocumentData(Instances instances, List<Document> documents, DocumentMajorWeights vectors,
+			FastVector classAssignmentValues, int[] attributeIndexes) {
+		for (Document document : documents) {
 			double[] dataValues = new double[instances.numAttributes()];
 
 			dataValues[0] = instances.attribute(0).addStringValue(document.getName());
 			dataValues[1] = document.getId();
 			dataValues[2] = classAssignmentValues.indexOf(document.getClassAssignment());
 
-			for (int index = 0; index < tokenAttributesCount; ++index) {
-
-				int attributeIndex = index + 3;
-
-				// Get IDFTF map of the current token
-				Map<Integer, Float> docIdftfMap = tokenIdftfMap.get(instances.attribute(attributeIndex).name());
-
-				if (docIdftfMap != null && docIdftfMap.get(document.getId()) != null) {
-					dataValues[attributeIndex] = docIdftfMap.get(document.getId());
-				} else {
-					dataValues[attributeIndex] = 0;
+			// All other token attributes stay 0
+			int docId = document.getId();
+			for (int i = 0; i < vectors.size(docId); i++) {
+				int attributeIndex = attributeIndexes[vectors.getTermId(docId, i)];
+				if (attributeIndex >= 0) {
+					dataValues[attributeIndex] = vectors.getWeight(docId, i);
 				}
 			}
-			
+
 			instances.add(new Instance(1.0, dataValues));
 		}
 	}
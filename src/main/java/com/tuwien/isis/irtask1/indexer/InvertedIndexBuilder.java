@@ -0,0 +1,168 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the inverted index of a collection in a single pass. Every term gets an id when it is first
+ * seen and owns one {@link PostingList} of primitive (document id, term frequency) arrays, so the
+ * document frequency is the length of the list and every term string is held exactly once. After all
+ * documents have been added, {@link #finish(int, int)} drops the terms outside the frequency range and
+ * renumbers the rest in sorted order, which is the term id used by all index files. The weights are
+ * then stored alongside the postings.
+ */
+public class InvertedIndexBuilder {
+
+	private final boolean recordPositions;
+
+	/**
+	 * Term ids by term, only needed while documents are added
+	 */
+	private Map<String, Integer> termIds = new HashMap<String, Integer>();
+
+	/**
+	 * Terms by id, sorted once the index is finished
+	 */
+	private List<String> terms = new ArrayList<String>();
+
+	private List<PostingList> postingLists = new ArrayList<PostingList>();
+
+	/**
+	 * Weight of every posting, in the order of the posting list of the term (null until calculated)
+	 */
+	private float[][] weights;
+
+	public InvertedIndexBuilder(boolean recordPositions) {
+		this.recordPositions = recordPositions;
+	}
+
+	/**
+	 * Record an occurrence of a term. Documents must be added in ascending id order.
+	 *
+	 * @param term
+	 * @param docId
+	 * @param position
+	 */
+	public void add(String term, int docId, int position) {
+		if (termIds == null) {
+			throw new IllegalStateException("the index has already been finished");
+		}
+		Integer termId = termIds.get(term);
+		if (termId == null) {
+			termId = terms.size();
+			termIds.put(term, termId);
+			terms.add(term);
+			postingLists.add(new PostingList(recordPositions));
+		}
+		postingLists.get(termId).add(docId, position);
+	}
+
+	/**
+	 * Drop all terms whose document frequency is outside the given range and assign the remaining
+	 * terms ids in sorted order. No more occurrences can be added afterwards.
+	 *
+	 * @param minDocumentFrequency
+	 * @param maxDocumentFrequency
+	 */
+	public void finish(int minDocumentFrequency, int maxDocumentFrequency) {
+		List<String> keptTerms = new ArrayList<String>();
+		for (int termId = 0; termId < terms.size(); termId++) {
+			int documentFrequency = postingLists.get(termId).size();
+			if (documentFrequency >= minDocumentFrequency && documentFrequency <= maxDocumentFrequency) {
+				keptTerms.add(terms.get(termId));
+			}
+		}
+		Collections.sort(keptTerms);
+
+		List<PostingList> keptPostingLists = new ArrayList<PostingList>(keptTerms.size());
+		for (String term : keptTerms) {
+			keptPostingLists.add(postingLists.get(termIds.get(term)));
+		}
+		terms = keptTerms;
+		postingLists = keptPostingLists;
+		termIds = null;
+	}
+
+	/**
+	 * Return the number of terms
+	 *
+	 * @return
+	 */
+	public int size() {
+		return terms.size();
+	}
+
+	/**
+	 * Return the term with the given id
+	 *
+	 * @param termId
+	 * @return
+	 */
+	public String getTerm(int termId) {
+		return terms.get(termId);
+	}
+
+	/**
+	 * Return all terms, whose position in the list is their id (sorted once the index is finished)
+	 *
+	 * @return
+	 */
+	public List<String> getTerms() {
+		return Collections.unmodifiableList(terms);
+	}
+
+	public PostingList getPostings(int termId) {
+		return postingLists.get(termId);
+	}
+
+	/**
+	 * Return the number of documents a term occurs in
+	 *
+	 * @param termId
+	 * @return
+	 */
+	public int getDocumentFrequency(int termId) {
+		return postingLists.get(termId).size();
+	}
+
+	/**
+	 * Store the weights of the postings of a term
+	 *
+	 * @param termId
+	 * @param termWeights
+	 *            one weight per entry of the posting list, 0 if the term has no weight in the document
+	 */
+	public void setWeights(int termId, float[] termWeights) {
+		if (weights == null) {
+			weights = new float[terms.size()][];
+		}
+		weights[termId] = termWeights;
+	}
+
+	/**
+	 * Return the weight of the posting at the given index of a term's posting list
+	 *
+	 * @param termId
+	 * @param index
+	 * @return
+	 */
+	public float getWeight(int termId, int index) {
+		return weights[termId][index];
+	}
+
+	/**
+	 * Return the number of (term, document) postings
+	 *
+	 * @return
+	 */
+	public long numberOfPostings() {
+		long postings = 0;
+		for (PostingList postingList : postingLists) {
+			postings += postingList.size();
+		}
+		return postings;
+	}
+}
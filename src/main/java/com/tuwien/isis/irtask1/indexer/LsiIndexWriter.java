@@ -0,0 +1,106 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the documents of an index as dense vectors in a latent semantic space (LSI) of a few hundred
+ * dimensions, computed by a randomized truncated SVD of the term x document weight matrix. The vectors
+ * are scaled to unit length, so their dot product is their cosine. Layout:
+ *
+ * <pre>
+ * int magic, int documentCount, int dimensions, dimensions * float singularValue
+ * documentCount * (UTF class, UTF name)          -- in document id order
+ * documentCount * dimensions * float             -- unit length vectors in document id order
+ * </pre>
+ */
+public class LsiIndexWriter {
+
+	/**
+	 * Marker at the start of every LSI file
+	 */
+	public static final int MAGIC = 0x4C534931;
+
+	/**
+	 * Number of random samples beyond the requested dimensions, which make the leading ones accurate
+	 */
+	private static final int OVERSAMPLING = 10;
+
+	private static final int POWER_ITERATIONS = 2;
+
+	private static final long SEED = 20140419L;
+
+	private final List<Document> documents;
+
+	private final InvertedIndexBuilder index;
+
+	private final int dimensions;
+
+	public LsiIndexWriter(List<Document> documents, InvertedIndexBuilder index, int dimensions) {
+		if (dimensions < 1) {
+			throw new IllegalArgumentException("LSI needs at least one dimension, not " + dimensions);
+		}
+		this.documents = documents;
+		this.index = index;
+		this.dimensions = dimensions;
+	}
+
+	/**
+	 * Return the extension of the LSI file for the given number of dimensions, e.g. lsi128
+	 *
+	 * @param dimensions
+	 * @return
+	 */
+	public static String extension(int dimensions) {
+		return "lsi" + dimensions;
+	}
+
+	/**
+	 * Compute the decomposition and write the document vectors to the given path
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void write(String path) throws IOException {
+		long start = System.nanoTime();
+		RandomizedSvd svd = new RandomizedSvd(dimensions, OVERSAMPLING, POWER_ITERATIONS, SEED);
+		svd.compute(index, documents.size());
+		System.out.println(String.format(Locale.ROOT, "Randomized SVD of the %d x %d matrix took %d ms, "
+				+ "%d dimensions capture %.1f%% of its energy", index.size(), documents.size(),
+				(System.nanoTime() - start) / 1000000, svd.getDimensions(), 100 * svd.capturedEnergy()));
+
+		int stored = svd.getDimensions();
+		float[] vectors = svd.getDocumentVectors();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(documents.size());
+			out.writeInt(stored);
+			for (double singularValue : svd.getSingularValues()) {
+				out.writeFloat((float) singularValue);
+			}
+
+			for (Document document : documents) {
+				out.writeUTF(document.getClassAssignment());
+				out.writeUTF(document.getName());
+			}
+
+			for (int docId = 0; docId < documents.size(); docId++) {
+				double length = 0;
+				for (int i = docId * stored; i < (docId + 1) * stored; i++) {
+					length += vectors[i] * vectors[i];
+				}
+				length = Math.sqrt(length);
+				for (int i = docId * stored; i < (docId + 1) * stored; i++) {
+					out.writeFloat((length > 0) ? (float) (vectors[i] / length) : 0);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
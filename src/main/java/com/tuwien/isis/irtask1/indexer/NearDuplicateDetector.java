@@ -0,0 +1,272 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds near-duplicate documents while the collection is read. Every document is summarized by a
+ * MinHash signature over its word shingles, whose agreement with another signature estimates the
+ * Jaccard similarity of the two shingle sets. The signature is split into bands (locality sensitive
+ * hashing), so that only documents sharing at least one band are compared. A document whose estimated
+ * similarity with an earlier representative reaches the threshold is reported as its duplicate;
+ * every other document becomes a representative itself.
+ */
+public class NearDuplicateDetector {
+
+	/**
+	 * Extension of the file next to the index which lists the duplicates and their representatives
+	 */
+	public static final String EXTENSION = "dups";
+
+	/**
+	 * Default number of hash functions in a signature
+	 */
+	private static final int DEFAULT_SIGNATURE_SIZE = 128;
+
+	/**
+	 * Default number of consecutive words in a shingle
+	 */
+	private static final int DEFAULT_SHINGLE_SIZE = 3;
+
+	private final double threshold;
+
+	private final int signatureSize;
+
+	private final int shingleSize;
+
+	private final int bands;
+
+	private final int rows;
+
+	/**
+	 * Documents with the same hash in a band, one map per band; the values are representative indexes
+	 */
+	private final List<Map<Long, List<Integer>>> bandTables = new ArrayList<Map<Long, List<Integer>>>();
+
+	private final List<String> representativeNames = new ArrayList<String>();
+
+	private final List<int[]> representativeSignatures = new ArrayList<int[]>();
+
+	private long detectionNanos = 0;
+
+	private int bandEntries = 0;
+
+	public NearDuplicateDetector(double threshold) {
+		this(threshold, DEFAULT_SIGNATURE_SIZE, DEFAULT_SHINGLE_SIZE);
+	}
+
+	public NearDuplicateDetector(double threshold, int signatureSize, int shingleSize) {
+		if (threshold <= 0 || threshold > 1) {
+			throw new IllegalArgumentException("the Jaccard threshold must be in (0, 1], not " + threshold);
+		}
+		this.threshold = threshold;
+		this.signatureSize = signatureSize;
+		this.shingleSize = shingleSize;
+		this.rows = rowsPerBand(signatureSize, threshold);
+		this.bands = signatureSize / rows;
+		for (int band = 0; band < bands; band++) {
+			bandTables.add(new HashMap<Long, List<Integer>>());
+		}
+	}
+
+	/**
+	 * Choose the number of rows per band such that the similarity at which a pair becomes a candidate
+	 * with probability 1/2, roughly (1/bands)^(1/rows), is closest to the threshold. The rows must
+	 * divide the signature size.
+	 *
+	 * @param signatureSize
+	 * @param threshold
+	 * @return
+	 */
+	private static int rowsPerBand(int signatureSize, double threshold) {
+		int best = 1;
+		double bestDistance = Double.MAX_VALUE;
+		for (int rows = 1; rows <= signatureSize; rows++) {
+			if (signatureSize % rows == 0) {
+				double distance = Math.abs(Math.pow(1.0 / (signatureSize / rows), 1.0 / rows) - threshold);
+				if (distance < bestDistance) {
+					best = rows;
+					bestDistance = distance;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Check a document against all representatives seen so far. If it is a near-duplicate, the full
+	 * name of its representative is returned; otherwise the document becomes a representative and null
+	 * is returned.
+	 *
+	 * @param fullDocName
+	 * @param words
+	 *            the words of the document in order, empty strings are ignored
+	 * @return
+	 */
+	public String check(String fullDocName, String[] words) {
+		long start = System.nanoTime();
+		try {
+			int[] signature = signature(words);
+			if (signature == null) {
+				return null;
+			}
+
+			// compare with every representative sharing a band, the most similar one (the earliest on ties) wins
+			int bestCandidate = -1;
+			double bestSimilarity = 0;
+			long[] bandHashes = new long[bands];
+			for (int band = 0; band < bands; band++) {
+				bandHashes[band] = bandHash(signature, band);
+				List<Integer> candidates = bandTables.get(band).get(bandHashes[band]);
+				if (candidates == null) {
+					continue;
+				}
+				for (int candidate : candidates) {
+					double similarity = estimateSimilarity(signature, representativeSignatures.get(candidate));
+					if (similarity >= threshold && (similarity > bestSimilarity || (similarity == bestSimilarity
+							&& candidate < bestCandidate))) {
+						bestCandidate = candidate;
+						bestSimilarity = similarity;
+					}
+				}
+			}
+			if (bestCandidate >= 0) {
+				return representativeNames.get(bestCandidate);
+			}
+
+			int representative = representativeNames.size();
+			representativeNames.add(fullDocName);
+			representativeSignatures.add(signature);
+			for (int band = 0; band < bands; band++) {
+				List<Integer> bucket = bandTables.get(band).get(bandHashes[band]);
+				if (bucket == null) {
+					bucket = new ArrayList<Integer>(1);
+					bandTables.get(band).put(bandHashes[band], bucket);
+				}
+				bucket.add(representative);
+				bandEntries++;
+			}
+			return null;
+		} finally {
+			detectionNanos += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Return the MinHash signature of the shingles of the given words, or null if there are no words.
+	 * The hash functions are derived from two hashes of a shingle as h1 + i * h2.
+	 *
+	 * @param words
+	 * @return
+	 */
+	private int[] signature(String[] words) {
+		List<String> nonEmpty = new ArrayList<String>(words.length);
+		for (String word : words) {
+			if (!word.isEmpty()) {
+				nonEmpty.add(word.toLowerCase());
+			}
+		}
+		if (nonEmpty.isEmpty()) {
+			return null;
+		}
+
+		int[] signature = new int[signatureSize];
+		Arrays.fill(signature, Integer.MAX_VALUE);
+		int shingles = Math.max(1, nonEmpty.size() - shingleSize + 1);
+		for (int start = 0; start < shingles; start++) {
+			long shingleHash = 1125899906842597L;
+			for (int i = start; i < Math.min(start + shingleSize, nonEmpty.size()); i++) {
+				shingleHash = 31 * shingleHash + nonEmpty.get(i).hashCode();
+			}
+			long h1 = mix(shingleHash);
+			long h2 = mix(h1) | 1;
+			for (int i = 0; i < signatureSize; i++) {
+				int value = (int) ((h1 + i * h2) >>> 33);
+				if (value < signature[i]) {
+					signature[i] = value;
+				}
+			}
+		}
+		return signature;
+	}
+
+	/**
+	 * Scramble the bits of a hash (the finalizer of SplitMix64)
+	 *
+	 * @param value
+	 * @return
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+
+	/**
+	 * Return the hash of the rows of a signature which make up the given band
+	 *
+	 * @param signature
+	 * @param band
+	 * @return
+	 */
+	private long bandHash(int[] signature, int band) {
+		long hash = band;
+		for (int row = band * rows; row < (band + 1) * rows; row++) {
+			hash = 31 * hash + signature[row];
+		}
+		return mix(hash);
+	}
+
+	/**
+	 * Estimate the Jaccard similarity of two documents as the fraction of equal signature values
+	 *
+	 * @param signature1
+	 * @param signature2
+	 * @return
+	 */
+	private static double estimateSimilarity(int[] signature1, int[] signature2) {
+		int equal = 0;
+		for (int i = 0; i < signature1.length; i++) {
+			if (signature1[i] == signature2[i]) {
+				equal++;
+			}
+		}
+		return equal / (double) signature1.length;
+	}
+
+	public double getThreshold() {
+		return threshold;
+	}
+
+	public int getBands() {
+		return bands;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Return the time spent on computing signatures and looking up candidates in milliseconds
+	 *
+	 * @return
+	 */
+	public long getDetectionMillis() {
+		return detectionNanos / 1000000;
+	}
+
+	/**
+	 * Return an estimate of the memory held by the signatures and band tables in bytes (array and
+	 * entry overheads of a 64 bit JVM with compressed references)
+	 *
+	 * @return
+	 */
+	public long estimateMemory() {
+		long signatures = representativeSignatures.size() * (16L + 4L * signatureSize);
+		long bandTableEntries = bandEntries * (32L + 16L + 24L + 4L);
+		return signatures + bandTableEntries;
+	}
+}
@@ -0,0 +1,98 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the positional postings of an index to a binary file. Layout:
+ *
+ * <pre>
+ * int magic, boolean stemming, boolean stopwords
+ * int documentCount, documentCount * (UTF class, UTF name)          -- in document id order
+ * int termCount, termCount * (UTF term, vbyte df,
+ *     df * (vbyte docIdGap, vbyte tf, vbyte byteLength, byteLength * byte positionGaps))
+ * </pre>
+ *
+ * Terms are sorted, document ids and positions are stored as variable-byte encoded gaps.
+ */
+public class PositionalIndexWriter {
+
+	/**
+	 * Extension of the positional postings file next to the index
+	 */
+	public static final String EXTENSION = "positions";
+
+	/**
+	 * Marker at the start of every positional postings file
+	 */
+	public static final int MAGIC = 0x504F5331;
+
+	private final TokenAnalyzer analyzer;
+
+	private final List<Document> documents;
+
+	private final InvertedIndexBuilder index;
+
+	public PositionalIndexWriter(TokenAnalyzer analyzer, List<Document> documents, InvertedIndexBuilder index) {
+		this.analyzer = analyzer;
+		this.documents = documents;
+		this.index = index;
+	}
+
+	/**
+	 * Write the positional postings to the given path
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void write(String path) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeBoolean(analyzer.isUseStemmer());
+			out.writeBoolean(analyzer.isRemoveStopwords());
+
+			out.writeInt(documents.size());
+			for (Document document : documents) {
+				out.writeUTF(document.getClassAssignment());
+				out.writeUTF(document.getName());
+			}
+
+			out.writeInt(index.size());
+			for (int termId = 0; termId < index.size(); termId++) {
+				writePostingList(out, index.getTerm(termId), index.getPostings(termId));
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write the postings of a single term
+	 *
+	 * @param out
+	 * @param token
+	 * @param postings
+	 * @throws IOException
+	 */
+	private void writePostingList(DataOutputStream out, String token, PostingList postings) throws IOException {
+		out.writeUTF(token);
+		VByte.write(out, postings.size());
+
+		int lastDocId = 0;
+		for (int index = 0; index < postings.size(); index++) {
+			int start = postings.getPositionsStart(index);
+			int end = postings.getPositionsEnd(index);
+
+			VByte.write(out, postings.getDocId(index) - lastDocId);
+			VByte.write(out, postings.getFrequency(index));
+			VByte.write(out, end - start);
+			out.write(postings.getPositions(), start, end - start);
+
+			lastDocId = postings.getDocId(index);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.util.Arrays;
+
+/**
+ * Compact posting list of a term: one (document id, term frequency) entry per document the term
+ * occurs in, kept in growable primitive arrays. Optionally the positions of all occurrences are kept
+ * as variable-byte encoded gaps, restarting at every document.
+ */
+public class PostingList {
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * Ids of the documents containing the term, in ascending order
+	 */
+	private int[] docIds = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Number of occurrences of the term in each document
+	 */
+	private int[] frequencies = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Number of documents in the list
+	 */
+	private int size = 0;
+
+	/**
+	 * Encoded position gaps of all documents (null if positions are not recorded)
+	 */
+	private byte[] positions;
+
+	/**
+	 * Number of used bytes in the positions buffer
+	 */
+	private int positionsLength = 0;
+
+	/**
+	 * Offset of the first position of each document in the positions buffer
+	 */
+	private int[] positionOffsets;
+
+	/**
+	 * Last position recorded for the current document, used to compute the next gap
+	 */
+	private int lastPosition;
+
+	public PostingList(boolean recordPositions) {
+		if (recordPositions) {
+			positions = new byte[INITIAL_CAPACITY * 2];
+			positionOffsets = new int[INITIAL_CAPACITY];
+		}
+	}
+
+	/**
+	 * Record an occurrence of the term. Documents must be added in ascending id order and the
+	 * positions within a document in ascending order.
+	 *
+	 * @param docId
+	 * @param position
+	 */
+	public void add(int docId, int position) {
+		if (size == 0 || docIds[size - 1] != docId) {
+			if (size == docIds.length) {
+				docIds = Arrays.copyOf(docIds, size * 2);
+				frequencies = Arrays.copyOf(frequencies, size * 2);
+				if (positionOffsets != null) {
+					positionOffsets = Arrays.copyOf(positionOffsets, size * 2);
+				}
+			}
+			docIds[size] = docId;
+			frequencies[size] = 0;
+			if (positions != null) {
+				positionOffsets[size] = positionsLength;
+				lastPosition = 0;
+			}
+			size++;
+		}
+		frequencies[size - 1]++;
+
+		if (positions != null) {
+			int gap = position - lastPosition;
+			if (positionsLength + VByte.length(gap) > positions.length) {
+				positions = Arrays.copyOf(positions, positions.length * 2);
+			}
+			positionsLength = VByte.encode(positions, positionsLength, gap);
+			lastPosition = position;
+		}
+	}
+
+	/**
+	 * Return the number of documents in the list, i.e. the document frequency of the term
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getDocId(int index) {
+		return docIds[index];
+	}
+
+	public int getFrequency(int index) {
+		return frequencies[index];
+	}
+
+	public boolean hasPositions() {
+		return positions != null;
+	}
+
+	/**
+	 * Return the encoded position gaps of all documents
+	 *
+	 * @return
+	 */
+	public byte[] getPositions() {
+		return positions;
+	}
+
+	/**
+	 * Return the offset of the first encoded position of the document at the given index
+	 *
+	 * @param index
+	 * @return
+	 */
+	public int getPositionsStart(int index) {
+		return positionOffsets[index];
+	}
+
+	/**
+	 * Return the offset behind the last encoded position of the document at the given index
+	 *
+	 * @param index
+	 * @return
+	 */
+	public int getPositionsEnd(int index) {
+		return (index + 1 < size) ? positionOffsets[index + 1] : positionsLength;
+	}
+}
@@ -0,0 +1,126 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the document vectors of an index with weights quantized to 8 or 16 bit unsigned integers.
+ * A weight w is stored as max(1, round(w / scale)), where the scale maps the largest weight (of the
+ * whole index or of the term) onto the largest integer. Layout:
+ *
+ * <pre>
+ * int magic, byte bits, boolean perTermScale, float globalScale
+ * int documentCount, documentCount * (UTF class, UTF name)          -- in document id order
+ * int termCount, termCount * (UTF term [, float scale])            -- sorted, the term id is the index
+ * documentCount * (vbyte nnz, nnz * vbyte termIdGap, nnz * (byte | short) value)
+ * </pre>
+ */
+public class QuantizedIndexWriter {
+
+	/**
+	 * Marker at the start of every quantized index file
+	 */
+	public static final int MAGIC = 0x51564543;
+
+	private final List<Document> documents;
+
+	private final InvertedIndexBuilder index;
+
+	private final int bits;
+
+	private final boolean perTermScale;
+
+	public QuantizedIndexWriter(List<Document> documents, InvertedIndexBuilder index, int bits,
+			boolean perTermScale) {
+		if (bits != 8 && bits != 16) {
+			throw new IllegalArgumentException("weights can only be quantized to 8 or 16 bits, not " + bits);
+		}
+		this.documents = documents;
+		this.index = index;
+		this.bits = bits;
+		this.perTermScale = perTermScale;
+	}
+
+	/**
+	 * Return the extension of the quantized index file for the given number of bits, e.g. q8
+	 *
+	 * @param bits
+	 * @return
+	 */
+	public static String extension(int bits) {
+		return "q" + bits;
+	}
+
+	/**
+	 * Write the quantized index to the given path
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void write(String path) throws IOException {
+		int maxValue = (1 << bits) - 1;
+
+		// Transpose the term -> document weights into document vectors and determine the scales
+		DocumentMajorWeights vectors = new DocumentMajorWeights(documents.size(), index);
+		float[] termScales = new float[index.size()];
+		float globalMax = 0;
+		for (int docId = 0; docId < documents.size(); docId++) {
+			for (int i = 0; i < vectors.size(docId); i++) {
+				int termId = vectors.getTermId(docId, i);
+				termScales[termId] = Math.max(termScales[termId], vectors.getWeight(docId, i));
+				globalMax = Math.max(globalMax, vectors.getWeight(docId, i));
+			}
+		}
+		float globalScale = (globalMax > 0) ? globalMax / maxValue : 1;
+		for (int termId = 0; termId < termScales.length; termId++) {
+			termScales[termId] = (termScales[termId] > 0) ? termScales[termId] / maxValue : 1;
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeByte(bits);
+			out.writeBoolean(perTermScale);
+			out.writeFloat(globalScale);
+
+			out.writeInt(documents.size());
+			for (Document document : documents) {
+				out.writeUTF(document.getClassAssignment());
+				out.writeUTF(document.getName());
+			}
+
+			out.writeInt(index.size());
+			for (int termId = 0; termId < index.size(); termId++) {
+				out.writeUTF(index.getTerm(termId));
+				if (perTermScale) {
+					out.writeFloat(termScales[termId]);
+				}
+			}
+
+			for (int docId = 0; docId < documents.size(); docId++) {
+				int size = vectors.size(docId);
+				VByte.write(out, size);
+
+				int lastTermId = 0;
+				for (int i = 0; i < size; i++) {
+					VByte.write(out, vectors.getTermId(docId, i) - lastTermId);
+					lastTermId = vectors.getTermId(docId, i);
+				}
+				for (int i = 0; i < size; i++) {
+					float scale = perTermScale ? termScales[vectors.getTermId(docId, i)] : globalScale;
+					int value = Math.min(maxValue, Math.max(1, Math.round(vectors.getWeight(docId, i) / scale)));
+					if (bits == 8) {
+						out.writeByte(value);
+					} else {
+						out.writeShort(value);
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
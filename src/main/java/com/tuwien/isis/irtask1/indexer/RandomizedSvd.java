@@ -0,0 +1,327 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Truncated singular value decomposition of the sparse term x document weight matrix A of an index
+ * with the randomized range finder of Halko, Martinsson and Tropp. A is multiplied with a random
+ * Gaussian matrix of rank + oversampling columns, which after a few power iterations spans nearly the
+ * same space as the leading left singular vectors. A is then projected onto that small basis Q, and
+ * the SVD of the small matrix Q^T A = W S V^T gives the leading singular values and the documents in
+ * latent semantic space, S V^T. A is only ever read through its postings.
+ *
+ * Dense matrices are stored as arrays of columns, so every column is a contiguous double[].
+ */
+public class RandomizedSvd {
+
+	private final int rank;
+
+	private final int oversampling;
+
+	private final int powerIterations;
+
+	private final long seed;
+
+	/**
+	 * Number of (term, document) entries before each term of A
+	 */
+	private int[] termStarts;
+
+	private int[] docIds;
+
+	private float[] weights;
+
+	private int numberOfDocuments;
+
+	private double[] singularValues;
+
+	private float[] documentVectors;
+
+	private double frobeniusNorm;
+
+	public RandomizedSvd(int rank, int oversampling, int powerIterations, long seed) {
+		this.rank = rank;
+		this.oversampling = oversampling;
+		this.powerIterations = powerIterations;
+		this.seed = seed;
+	}
+
+	/**
+	 * Decompose the weight matrix of the given finished index
+	 *
+	 * @param index
+	 * @param numberOfDocuments
+	 */
+	public void compute(InvertedIndexBuilder index, int numberOfDocuments) {
+		this.numberOfDocuments = numberOfDocuments;
+		readMatrix(index);
+
+		int terms = index.size();
+		int samples = Math.min(rank + oversampling, Math.min(terms, numberOfDocuments));
+		int dimensions = Math.min(rank, samples);
+
+		// range finder: Q = orth(A (A^T A)^q Omega)
+		Random random = new Random(seed);
+		double[][] omega = new double[samples][numberOfDocuments];
+		for (double[] column : omega) {
+			for (int d = 0; d < numberOfDocuments; d++) {
+				column[d] = random.nextGaussian();
+			}
+		}
+		double[][] q = orthonormalize(multiply(omega, terms));
+		for (int i = 0; i < powerIterations; i++) {
+			q = orthonormalize(multiply(orthonormalize(transposeMultiply(q)), terms));
+		}
+
+		// B = Q^T A (samples x documents) and its SVD via the eigenvectors of B B^T
+		double[][] b = transposeMultiply(q);
+		double[][] gram = new double[samples][samples];
+		for (int i = 0; i < samples; i++) {
+			for (int j = i; j < samples; j++) {
+				double sum = 0;
+				for (int d = 0; d < numberOfDocuments; d++) {
+					sum += b[i][d] * b[j][d];
+				}
+				gram[i][j] = sum;
+				gram[j][i] = sum;
+			}
+		}
+		double[][] eigenvectors = new double[samples][samples];
+		double[] eigenvalues = jacobiEigen(gram, eigenvectors);
+		Integer[] order = new Integer[samples];
+		for (int i = 0; i < samples; i++) {
+			order[i] = i;
+		}
+		final double[] values = eigenvalues;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer i, Integer j) {
+				return Double.compare(values[j], values[i]);
+			}
+		});
+
+		// documents in latent space: S V^T = W^T B, one row of `dimensions` values per document
+		singularValues = new double[dimensions];
+		documentVectors = new float[numberOfDocuments * dimensions];
+		for (int k = 0; k < dimensions; k++) {
+			int eigen = order[k];
+			singularValues[k] = Math.sqrt(Math.max(0, eigenvalues[eigen]));
+			for (int d = 0; d < numberOfDocuments; d++) {
+				double sum = 0;
+				for (int i = 0; i < samples; i++) {
+					sum += eigenvectors[i][eigen] * b[i][d];
+				}
+				documentVectors[d * dimensions + k] = (float) sum;
+			}
+		}
+		termStarts = null;
+		docIds = null;
+		weights = null;
+	}
+
+	/**
+	 * Return the singular values, largest first
+	 *
+	 * @return
+	 */
+	public double[] getSingularValues() {
+		return singularValues;
+	}
+
+	/**
+	 * Return the number of dimensions of the latent space, at most the requested rank
+	 *
+	 * @return
+	 */
+	public int getDimensions() {
+		return singularValues.length;
+	}
+
+	/**
+	 * Return the vectors of all documents in latent space, one row of getDimensions() values per
+	 * document in id order
+	 *
+	 * @return
+	 */
+	public float[] getDocumentVectors() {
+		return documentVectors;
+	}
+
+	/**
+	 * Return the fraction of the squared Frobenius norm of A captured by the singular values
+	 *
+	 * @return
+	 */
+	public double capturedEnergy() {
+		double captured = 0;
+		for (double value : singularValues) {
+			captured += value * value;
+		}
+		return (frobeniusNorm > 0) ? captured / (frobeniusNorm * frobeniusNorm) : 0;
+	}
+
+	/**
+	 * Copy the non-zero weights out of the posting lists
+	 */
+	private void readMatrix(InvertedIndexBuilder index) {
+		long entries = index.numberOfPostings();
+		termStarts = new int[index.size() + 1];
+		docIds = new int[(int) entries];
+		weights = new float[(int) entries];
+		int size = 0;
+		double squares = 0;
+		for (int termId = 0; termId < index.size(); termId++) {
+			termStarts[termId] = size;
+			PostingList postings = index.getPostings(termId);
+			for (int i = 0; i < postings.size(); i++) {
+				float weight = index.getWeight(termId, i);
+				if (weight != 0) {
+					docIds[size] = postings.getDocId(i);
+					weights[size++] = weight;
+					squares += (double) weight * weight;
+				}
+			}
+		}
+		termStarts[index.size()] = size;
+		frobeniusNorm = Math.sqrt(squares);
+	}
+
+	/**
+	 * Return A X for document-space columns X
+	 */
+	private double[][] multiply(double[][] x, int terms) {
+		double[][] y = new double[x.length][terms];
+		for (int c = 0; c < x.length; c++) {
+			double[] in = x[c];
+			double[] out = y[c];
+			for (int t = 0; t < terms; t++) {
+				double sum = 0;
+				for (int p = termStarts[t]; p < termStarts[t + 1]; p++) {
+					sum += weights[p] * in[docIds[p]];
+				}
+				out[t] = sum;
+			}
+		}
+		return y;
+	}
+
+	/**
+	 * Return A^T Y for term-space columns Y
+	 */
+	private double[][] transposeMultiply(double[][] y) {
+		double[][] x = new double[y.length][numberOfDocuments];
+		for (int c = 0; c < y.length; c++) {
+			double[] in = y[c];
+			double[] out = x[c];
+			for (int t = 0; t < in.length; t++) {
+				double value = in[t];
+				if (value != 0) {
+					for (int p = termStarts[t]; p < termStarts[t + 1]; p++) {
+						out[docIds[p]] += weights[p] * value;
+					}
+				}
+			}
+		}
+		return x;
+	}
+
+	/**
+	 * Orthonormalize the columns in place with modified Gram-Schmidt, run twice for numerical
+	 * stability. Columns which are (nearly) dependent on the previous ones become zero.
+	 */
+	private static double[][] orthonormalize(double[][] columns) {
+		for (int pass = 0; pass < 2; pass++) {
+			for (int c = 0; c < columns.length; c++) {
+				double[] column = columns[c];
+				double before = norm(column);
+				for (int previous = 0; previous < c; previous++) {
+					double[] other = columns[previous];
+					double dot = 0;
+					for (int i = 0; i < column.length; i++) {
+						dot += column[i] * other[i];
+					}
+					for (int i = 0; i < column.length; i++) {
+						column[i] -= dot * other[i];
+					}
+				}
+				double after = norm(column);
+				for (int i = 0; i < column.length; i++) {
+					column[i] = (after > 1e-8 * before) ? column[i] / after : 0;
+				}
+			}
+		}
+		return columns;
+	}
+
+	private static double norm(double[] column) {
+		double sum = 0;
+		for (double value : column) {
+			sum += value * value;
+		}
+		return Math.sqrt(sum);
+	}
+
+	/**
+	 * Diagonalize a symmetric matrix with cyclic Jacobi rotations. The matrix is overwritten; the
+	 * eigenvectors are written to the columns of the given matrix.
+	 *
+	 * @return the eigenvalues, in the order of the eigenvector columns
+	 */
+	private static double[] jacobiEigen(double[][] a, double[][] v) {
+		int n = a.length;
+		for (int i = 0; i < n; i++) {
+			v[i][i] = 1;
+		}
+		for (int sweep = 0; sweep < 100; sweep++) {
+			double off = 0;
+			double diagonal = 0;
+			for (int i = 0; i < n; i++) {
+				diagonal += a[i][i] * a[i][i];
+				for (int j = i + 1; j < n; j++) {
+					off += a[i][j] * a[i][j];
+				}
+			}
+			if (off <= 1e-24 * diagonal) {
+				break;
+			}
+			for (int p = 0; p < n; p++) {
+				for (int q = p + 1; q < n; q++) {
+					if (a[p][q] == 0) {
+						continue;
+					}
+					double theta = (a[q][q] - a[p][p]) / (2 * a[p][q]);
+					double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+					if (theta == 0) {
+						t = 1;
+					}
+					double c = 1 / Math.sqrt(t * t + 1);
+					double s = t * c;
+					for (int k = 0; k < n; k++) {
+						double kp = a[k][p];
+						double kq = a[k][q];
+						a[k][p] = c * kp - s * kq;
+						a[k][q] = s * kp + c * kq;
+					}
+					for (int k = 0; k < n; k++) {
+						double pk = a[p][k];
+						double qk = a[q][k];
+						a[p][k] = c * pk - s * qk;
+						a[q][k] = s * pk + c * qk;
+					}
+					for (int k = 0; k < n; k++) {
+						double kp = v[k][p];
+						double kq = v[k][q];
+						v[k][p] = c * kp - s * kq;
+						v[k][q] = s * kp + c * kq;
+					}
+				}
+			}
+		}
+		double[] eigenvalues = new double[n];
+		for (int i = 0; i < n; i++) {
+			eigenvalues[i] = a[i][i];
+		}
+		return eigenvalues;
+	}
+}
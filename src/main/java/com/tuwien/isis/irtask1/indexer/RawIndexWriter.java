@@ -0,0 +1,116 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the raw term frequencies and document frequencies of an index, without any weights, so that
+ * the weighting scheme and the document frequency thresholds can be chosen when the index is searched.
+ * Layout:
+ *
+ * <pre>
+ * int magic, boolean stemming, boolean stopwords
+ * int documentCount, documentCount * (UTF class, UTF name)          -- in document id order
+ * int termCount, termCount * (UTF term, vbyte df)                    -- in term id (sorted) order
+ * documentCount * (vbyte size, size * (vbyte termIdGap, vbyte tf))   -- in document id order
+ * </pre>
+ */
+public class RawIndexWriter {
+
+	/**
+	 * Extension of the raw term frequency file next to the index
+	 */
+	public static final String EXTENSION = "tf";
+
+	/**
+	 * Marker at the start of every raw term frequency file
+	 */
+	public static final int MAGIC = 0x52415731;
+
+	private final TokenAnalyzer analyzer;
+
+	private final List<Document> documents;
+
+	private final InvertedIndexBuilder index;
+
+	public RawIndexWriter(TokenAnalyzer analyzer, List<Document> documents, InvertedIndexBuilder index) {
+		this.analyzer = analyzer;
+		this.documents = documents;
+		this.index = index;
+	}
+
+	/**
+	 * Write the raw index to the given path
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void write(String path) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeBoolean(analyzer.isUseStemmer());
+			out.writeBoolean(analyzer.isRemoveStopwords());
+
+			out.writeInt(documents.size());
+			for (Document document : documents) {
+				out.writeUTF(document.getClassAssignment());
+				out.writeUTF(document.getName());
+			}
+
+			out.writeInt(index.size());
+			for (int termId = 0; termId < index.size(); termId++) {
+				out.writeUTF(index.getTerm(termId));
+				VByte.write(out, index.getDocumentFrequency(termId));
+			}
+
+			writeDocuments(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Transpose the posting lists into the term frequencies of every document, in term id order
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	private void writeDocuments(DataOutputStream out) throws IOException {
+		int[] docStarts = new int[documents.size() + 1];
+		for (int termId = 0; termId < index.size(); termId++) {
+			PostingList postings = index.getPostings(termId);
+			for (int i = 0; i < postings.size(); i++) {
+				docStarts[postings.getDocId(i) + 1]++;
+			}
+		}
+		for (int docId = 0; docId < documents.size(); docId++) {
+			docStarts[docId + 1] += docStarts[docId];
+		}
+
+		int[] termIds = new int[docStarts[documents.size()]];
+		int[] frequencies = new int[termIds.length];
+		int[] next = docStarts.clone();
+		for (int termId = 0; termId < index.size(); termId++) {
+			PostingList postings = index.getPostings(termId);
+			for (int i = 0; i < postings.size(); i++) {
+				int position = next[postings.getDocId(i)]++;
+				termIds[position] = termId;
+				frequencies[position] = postings.getFrequency(i);
+			}
+		}
+
+		for (int docId = 0; docId < documents.size(); docId++) {
+			VByte.write(out, docStarts[docId + 1] - docStarts[docId]);
+			int lastTermId = 0;
+			for (int position = docStarts[docId]; position < docStarts[docId + 1]; position++) {
+				VByte.write(out, termIds[position] - lastTermId);
+				VByte.write(out, frequencies[position]);
+				lastTermId = termIds[position];
+			}
+		}
+	}
+}
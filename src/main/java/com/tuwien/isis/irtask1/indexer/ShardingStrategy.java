@@ -0,0 +1,57 @@
+package com.tuwien.isis.irtask1.indexer;
+
+/**
+ * Strategies for partitioning the document collection into shards
+ */
+public enum ShardingStrategy {
+
+	/**
+	 * Spread documents evenly by hashing their full name (class and file name)
+	 */
+	HASH {
+		@Override
+		protected String shardKey(Document document) {
+			return document.getClassAssignment() + "/" + document.getName();
+		}
+	},
+
+	/**
+	 * Keep all documents of a class directory on the same shard
+	 */
+	CLASS {
+		@Override
+		protected String shardKey(Document document) {
+			return document.getClassAssignment();
+		}
+	};
+
+	/**
+	 * Return the shard (0 to numberOfShards - 1) a document is assigned to. String.hashCode is used so
+	 * that the assignment is stable across JVMs.
+	 *
+	 * @param document
+	 * @param numberOfShards
+	 * @return
+	 */
+	public int shardFor(Document document, int numberOfShards) {
+		return (shardKey(document).hashCode() & Integer.MAX_VALUE) % numberOfShards;
+	}
+
+	/**
+	 * Return the key a document is hashed by
+	 *
+	 * @param document
+	 * @return
+	 */
+	protected abstract String shardKey(Document document);
+
+	/**
+	 * Parse a strategy from its (case-insensitive) name
+	 *
+	 * @param name
+	 * @return
+	 */
+	public static ShardingStrategy fromName(String name) {
+		return valueOf(name.toUpperCase());
+	}
+}
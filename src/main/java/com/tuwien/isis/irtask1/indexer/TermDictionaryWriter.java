@@ -0,0 +1,138 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Writes the sorted vocabulary of an index as a front-coded term dictionary: terms are grouped into
+ * blocks of {@link #BLOCK_SIZE}, the first term of a block is stored in full and every following term
+ * only as the length of the prefix it shares with its predecessor plus the remaining suffix. Layout:
+ *
+ * <pre>
+ * int magic, int termCount, int blockSize, int blockCount
+ * int[blockCount] blockOffsets                                      -- relative to the block data
+ * blockCount * (vbyte length, bytes, (blockSize - 1) * (vbyte prefix, vbyte suffixLength, bytes))
+ * </pre>
+ *
+ * The id of a term is its position in the sorted vocabulary, so the order can not be changed here.
+ * The reader looks terms up by comparing their UTF-8 bytes, which is the order of
+ * {@link String#compareTo(String)} as long as no term has characters outside the Basic Multilingual
+ * Plane. The analyzer only produces ASCII terms; the order is checked while writing.
+ */
+public class TermDictionaryWriter {
+
+	/**
+	 * Extension of the term dictionary file next to the index
+	 */
+	public static final String EXTENSION = "terms";
+
+	/**
+	 * Marker at the start of every term dictionary file
+	 */
+	public static final int MAGIC = 0x5445524D;
+
+	/**
+	 * Number of terms per front-coded block
+	 */
+	public static final int BLOCK_SIZE = 16;
+
+	/**
+	 * Size of the fixed header in bytes
+	 */
+	public static final int HEADER_SIZE = 16;
+
+	/**
+	 * Charset of the stored terms
+	 */
+	public static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private final List<String> sortedTokenList;
+
+	public TermDictionaryWriter(List<String> sortedTokenList) {
+		this.sortedTokenList = sortedTokenList;
+	}
+
+	/**
+	 * Write the dictionary to the given path
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void write(String path) throws IOException {
+		int blockCount = (sortedTokenList.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int[] blockOffsets = new int[blockCount];
+
+		ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+		DataOutputStream blockOut = new DataOutputStream(blocks);
+		byte[] previous = null;
+		for (int termId = 0; termId < sortedTokenList.size(); termId++) {
+			byte[] term = sortedTokenList.get(termId).getBytes(CHARSET);
+			int prefix = (previous != null) ? commonPrefixLength(previous, term) : 0;
+			if (previous != null && !follows(previous, term, prefix)) {
+				throw new IllegalArgumentException("term \"" + sortedTokenList.get(termId) + "\" does not follow \""
+						+ sortedTokenList.get(termId - 1) + "\" in UTF-8 byte order");
+			}
+			if (termId % BLOCK_SIZE == 0) {
+				blockOffsets[termId / BLOCK_SIZE] = blockOut.size();
+				VByte.write(blockOut, term.length);
+				blockOut.write(term);
+			} else {
+				VByte.write(blockOut, prefix);
+				VByte.write(blockOut, term.length - prefix);
+				blockOut.write(term, prefix, term.length - prefix);
+			}
+			previous = term;
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(sortedTokenList.size());
+			out.writeInt(BLOCK_SIZE);
+			out.writeInt(blockCount);
+			for (int offset : blockOffsets) {
+				out.writeInt(offset);
+			}
+			blocks.writeTo(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Return the number of leading bytes two terms have in common
+	 *
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	private static int commonPrefixLength(byte[] a, byte[] b) {
+		int length = Math.min(a.length, b.length);
+		int prefix = 0;
+		while (prefix < length && a[prefix] == b[prefix]) {
+			prefix++;
+		}
+		return prefix;
+	}
+
+	/**
+	 * Check if a term comes strictly after its predecessor when compared as unsigned bytes
+	 *
+	 * @param previous
+	 * @param term
+	 * @param prefix
+	 *            the number of leading bytes both have in common
+	 * @return
+	 */
+	private static boolean follows(byte[] previous, byte[] term, int prefix) {
+		if (prefix == term.length) {
+			return false;
+		}
+		return prefix == previous.length || (previous[prefix] & 0xFF) < (term[prefix] & 0xFF);
+	}
+}
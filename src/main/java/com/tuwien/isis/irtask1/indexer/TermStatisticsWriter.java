@@ -0,0 +1,64 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes what is needed to weight a free-text query like the documents of an index: the analyzer
+ * settings, the number of documents and the document frequency of every term. Layout:
+ *
+ * <pre>
+ * int magic, boolean stemming, boolean stopwords, int documentCount
+ * int termCount, termCount * (UTF term, vbyte df)                    -- terms sorted
+ * </pre>
+ */
+public class TermStatisticsWriter {
+
+	/**
+	 * Extension of the term statistics file next to the index
+	 */
+	public static final String EXTENSION = "df";
+
+	/**
+	 * Marker at the start of every term statistics file
+	 */
+	public static final int MAGIC = 0x44465331;
+
+	private final TokenAnalyzer analyzer;
+
+	private final int numberOfDocuments;
+
+	private final InvertedIndexBuilder index;
+
+	public TermStatisticsWriter(TokenAnalyzer analyzer, int numberOfDocuments, InvertedIndexBuilder index) {
+		this.analyzer = analyzer;
+		this.numberOfDocuments = numberOfDocuments;
+		this.index = index;
+	}
+
+	/**
+	 * Write the term statistics to the given path
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void write(String path) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeBoolean(analyzer.isUseStemmer());
+			out.writeBoolean(analyzer.isRemoveStopwords());
+			out.writeInt(numberOfDocuments);
+
+			out.writeInt(index.size());
+			for (int termId = 0; termId < index.size(); termId++) {
+				out.writeUTF(index.getTerm(termId));
+				VByte.write(out, index.getPostings(termId).size());
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import org.tartarus.martin.Stemmer;
+
+import weka.core.Stopwords;
+
+/**
+ * Turns raw words into index terms, applying the same rules at index and at query time
+ */
+public class TokenAnalyzer {
+
+	/**
+	 * Minimum length in characters for a term to be indexed
+	 */
+	private static final int MIN_TERM_LENGTH = 2;
+
+	/**
+	 * Flag indicating if stemming should be applied to the terms
+	 */
+	private final boolean useStemmer;
+
+	/**
+	 * Flag indicating if stopwords should be removed
+	 */
+	private final boolean removeStopwords;
+
+	/**
+	 * Stemming object to transform words into their root form (not thread-safe)
+	 */
+	private final Stemmer stemmer = new Stemmer();
+
+	public TokenAnalyzer(boolean useStemmer, boolean removeStopwords) {
+		this.useStemmer = useStemmer;
+		this.removeStopwords = removeStopwords;
+	}
+
+	public boolean isUseStemmer() {
+		return useStemmer;
+	}
+
+	public boolean isRemoveStopwords() {
+		return removeStopwords;
+	}
+
+	/**
+	 * Split a text into raw words on all non-word characters. The result contains empty strings
+	 * wherever several separators follow each other.
+	 *
+	 * @param text
+	 * @return
+	 */
+	public static String[] split(String text) {
+		return text.split("\\W");
+	}
+
+	/**
+	 * Return the index term for a raw word, or null if the word does not meet the processing criteria
+	 *
+	 * @param word
+	 * @return
+	 */
+	public String analyze(String word) {
+		String token = word.toLowerCase();
+
+		// Check if the token is made up of word characters and meets minimum length requirements
+		if (token.matches("[a-zA-Z]+") && token.length() >= MIN_TERM_LENGTH) {
+
+			// Check for stopwords (if enabled)
+			if (removeStopwords && Stopwords.isStopword(token)) {
+				return null;
+			}
+
+			// Apply stemming (if enabled)
+			if (useStemmer) {
+				char[] wordChar = token.toCharArray();
+				stemmer.add(wordChar, wordChar.length);
+				stemmer.stem();
+				token = String.valueOf(stemmer.getResultBuffer(), 0, stemmer.getResultLength());
+			}
+
+			return token;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,101 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Variable-byte encoding of non-negative integers: seven bits per byte, the high bit marks that more
+ * bytes follow. Small values such as position or document id gaps take a single byte.
+ */
+public class VByte {
+
+	private VByte() {
+	}
+
+	/**
+	 * Return the number of bytes needed to encode a value
+	 *
+	 * @param value
+	 * @return
+	 */
+	public static int length(int value) {
+		int length = 1;
+		while ((value >>>= 7) != 0) {
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * Encode a value into a buffer at the given offset (the buffer must be large enough)
+	 *
+	 * @param buffer
+	 * @param offset
+	 * @param value
+	 * @return the offset behind the encoded value
+	 */
+	public static int encode(byte[] buffer, int offset, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[offset++] = (byte) value;
+		return offset;
+	}
+
+	/**
+	 * Decode the value starting at the offset stored in cursor[0] and advance the cursor behind it
+	 *
+	 * @param buffer
+	 * @param cursor
+	 * @return
+	 */
+	public static int decode(byte[] buffer, int[] cursor) {
+		int offset = cursor[0];
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer[offset++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		cursor[0] = offset;
+		return value;
+	}
+
+	/**
+	 * Write an encoded value to a stream
+	 *
+	 * @param out
+	 * @param value
+	 * @throws IOException
+	 */
+	public static void write(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Read an encoded value from a stream
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static int read(DataInput in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.readByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+}
@@ -0,0 +1,131 @@
+package com.tuwien.isis.irtask1.indexer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.collection.CollectionSource;
+import com.tuwien.isis.irtask1.indexer.collection.CollectionSources;
+import com.tuwien.isis.irtask1.util.HeapUsage;
+
+/**
+ * Creates the indexes of several variants in a single pass over the collection. Every document is
+ * read and split into words once and then added to the indexer of each variant. Variants with the same
+ * stemming and stopword settings share one caching analyzer, so every distinct word is analyzed once
+ * per setting rather than once per occurrence and variant. Near-duplicates are detected once per
+ * document, and the outcome is shared by all variants.
+ */
+public class VariantIndexer {
+
+	private final List<IndexVariant> variants;
+
+	private final List<Indexer> indexers = new ArrayList<Indexer>();
+
+	/**
+	 * Flag indicating if the peak and retained heap of the build should be measured, which forces
+	 * several garbage collections
+	 */
+	private boolean memoryReport = false;
+
+	/**
+	 * Detector of near-duplicate documents shared by all variants (null if detection is disabled)
+	 */
+	private NearDuplicateDetector duplicateDetector;
+
+	public VariantIndexer(List<IndexVariant> variants, boolean recordPositions) {
+		this.variants = variants;
+
+		Map<String, TokenAnalyzer> analyzers = new HashMap<String, TokenAnalyzer>();
+		for (IndexVariant variant : variants) {
+			String key = variant.isUseStemmer() + "/" + variant.isRemoveStopwords();
+			TokenAnalyzer analyzer = analyzers.get(key);
+			if (analyzer == null) {
+				analyzer = new CachingTokenAnalyzer(variant.isUseStemmer(), variant.isRemoveStopwords());
+				analyzers.put(key, analyzer);
+			}
+			indexers.add(new Indexer(analyzer, variant.getMinFreqThreshold(), variant.getMaxFreqThreshold(),
+					recordPositions));
+		}
+	}
+
+	public List<IndexVariant> getVariants() {
+		return variants;
+	}
+
+	/**
+	 * Return the indexers of the variants, in the order of the variants
+	 *
+	 * @return
+	 */
+	public List<Indexer> getIndexers() {
+		return indexers;
+	}
+
+	/**
+	 * Detect near-duplicate documents for all variants while the collection is read
+	 *
+	 * @param threshold
+	 *            estimated Jaccard similarity of the word shingles at which a document is a duplicate
+	 * @param mode
+	 *            mark the duplicates or leave them out of the indexes
+	 */
+	public void detectNearDuplicates(double threshold, DuplicateMode mode) {
+		duplicateDetector = new NearDuplicateDetector(threshold);
+		for (Indexer indexer : indexers) {
+			indexer.detectNearDuplicates(duplicateDetector, mode);
+		}
+	}
+
+	/**
+	 * Measure and print the peak and retained heap of the index build
+	 *
+	 * @param memoryReport
+	 */
+	public void setMemoryReport(boolean memoryReport) {
+		this.memoryReport = memoryReport;
+	}
+
+	/**
+	 * Create the indexes of all variants from the collection at the given path
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void createIndexes(String path) throws IOException {
+		long heapBefore = 0;
+		if (memoryReport) {
+			heapBefore = HeapUsage.usedHeap();
+			HeapUsage.resetPeakHeap();
+		}
+		long start = System.nanoTime();
+
+		CollectionSources.forPath(path).read(new CollectionSource.DocumentHandler() {
+			private String currentClassName;
+
+			public void document(String className, String name, String content) {
+				if (className == null ? currentClassName != null : !className.equals(currentClassName)) {
+					System.out.println("Indexing documents of class: " + className);
+					currentClassName = className;
+				}
+				String[] words = TokenAnalyzer.split(content);
+				String representative = null;
+				if (duplicateDetector != null) {
+					representative = duplicateDetector.check(className + "/" + name, words);
+				}
+				for (Indexer indexer : indexers) {
+					indexer.addDocument(className, name, words, representative);
+				}
+			}
+		});
+
+		for (int i = 0; i < variants.size(); i++) {
+			System.out.print("Variant " + variants.get(i).getName() + ": ");
+			indexers.get(i).finishIndex();
+		}
+		System.out.println("Indexing " + variants.size() + " variants took " + (System.nanoTime() - start) / 1000000
+				+ " ms" + (memoryReport ? ", peak heap: " + HeapUsage.format(HeapUsage.peakHeap()) + ", retained heap: "
+						+ HeapUsage.format(HeapUsage.usedHeap() - heapBefore) : ""));
+	}
+}
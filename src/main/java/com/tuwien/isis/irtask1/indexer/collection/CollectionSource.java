@@ -0,0 +1,36 @@
+package com.tuwien.isis.irtask1.indexer.collection;
+
+import java.io.IOException;
+
+/**
+ * A document collection which can be read in one pass, e.g. a directory tree or an archive. Every
+ * document belongs to the class named by the directory it is stored in.
+ */
+public interface CollectionSource {
+
+	/**
+	 * Receives the documents of a collection in the order they are read
+	 */
+	interface DocumentHandler {
+
+		/**
+		 * Process a document
+		 *
+		 * @param className
+		 *            name of the directory the document is stored in
+		 * @param name
+		 *            file name of the document
+		 * @param content
+		 * @throws IOException
+		 */
+		void document(String className, String name, String content) throws IOException;
+	}
+
+	/**
+	 * Read all documents of the collection and pass them to the handler
+	 *
+	 * @param handler
+	 * @throws IOException
+	 */
+	void read(DocumentHandler handler) throws IOException;
+}
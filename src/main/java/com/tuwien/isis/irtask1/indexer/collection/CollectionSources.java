@@ -0,0 +1,59 @@
+package com.tuwien.isis.irtask1.indexer.collection;
+
+import java.io.File;
+
+/**
+ * Chooses the collection source for a path by its type
+ */
+public class CollectionSources {
+
+	private CollectionSources() {
+	}
+
+	/**
+	 * Return the source reading the collection at the given path: a directory tree, a tar archive
+	 * (.tar, .tar.gz, .tgz) or a zip archive (.zip)
+	 *
+	 * @param path
+	 * @return
+	 */
+	public static CollectionSource forPath(String path) {
+		String lowerCasePath = path.toLowerCase();
+		if (new File(path).isDirectory()) {
+			return new DirectoryCollectionSource(path);
+		} else if (lowerCasePath.endsWith(".tar.gz") || lowerCasePath.endsWith(".tgz")) {
+			return new TarCollectionSource(path, true);
+		} else if (lowerCasePath.endsWith(".tar")) {
+			return new TarCollectionSource(path, false);
+		} else if (lowerCasePath.endsWith(".zip")) {
+			return new ZipCollectionSource(path);
+		}
+		throw new IllegalArgumentException("not a directory or a tar/zip archive: " + path);
+	}
+
+	/**
+	 * Return the class of an archive entry, which is the name of the directory it is stored in, e.g.
+	 * alt.atheism for 20news-bydate-train/alt.atheism/49960
+	 *
+	 * @param entryPath
+	 *            path of the entry with / as separator
+	 * @return
+	 */
+	static String classOfEntry(String entryPath) {
+		int nameStart = entryPath.lastIndexOf('/');
+		if (nameStart < 0) {
+			return null;
+		}
+		return entryPath.substring(entryPath.lastIndexOf('/', nameStart - 1) + 1, nameStart);
+	}
+
+	/**
+	 * Return the file name of an archive entry
+	 *
+	 * @param entryPath
+	 * @return
+	 */
+	static String nameOfEntry(String entryPath) {
+		return entryPath.substring(entryPath.lastIndexOf('/') + 1);
+	}
+}
@@ -0,0 +1,48 @@
+package com.tuwien.isis.irtask1.indexer.collection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+/**
+ * A collection stored as a directory tree with one directory per class
+ */
+public class DirectoryCollectionSource implements CollectionSource {
+
+	private final File root;
+
+	public DirectoryCollectionSource(String path) {
+		this.root = new File(path);
+	}
+
+	public void read(DocumentHandler handler) throws IOException {
+		readDirectory(root, null, handler);
+	}
+
+	/**
+	 * Pass all files in the given directory and its subdirectories to the handler. The class of a file
+	 * is the name of its directory (files directly in the root have none).
+	 *
+	 * @param directory
+	 * @param className
+	 * @param handler
+	 * @throws IOException
+	 */
+	private void readDirectory(File directory, String className, DocumentHandler handler) throws IOException {
+		File[] list = directory.listFiles();
+		if (list == null) {
+			throw new IOException("cannot list directory " + directory);
+		}
+
+		for (File file : list) {
+			if (file.isDirectory()) {
+				readDirectory(file, file.getName(), handler);
+			} else {
+				// small files are read in one call, which is cheaper than mapping them
+				String content = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+				handler.document(className, file.getName(), content);
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package com.tuwien.isis.irtask1.indexer.collection;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A collection stored in a (gzip compressed) tar archive, such as the 20 newsgroups distribution,
+ * read sequentially from a single stream. Supports ustar and GNU archives including long names.
+ */
+public class TarCollectionSource implements CollectionSource {
+
+	/**
+	 * Size of a header and of the blocks the entry contents are padded to
+	 */
+	private static final int BLOCK_SIZE = 512;
+
+	private static final Charset HEADER_CHARSET = Charset.forName("UTF-8");
+
+	private final String path;
+
+	private final boolean gzipped;
+
+	public TarCollectionSource(String path, boolean gzipped) {
+		this.path = path;
+		this.gzipped = gzipped;
+	}
+
+	public void read(DocumentHandler handler) throws IOException {
+		InputStream stream = new BufferedInputStream(new FileInputStream(path), 1 << 16);
+		if (gzipped) {
+			stream = new GZIPInputStream(stream, 1 << 16);
+		}
+		DataInputStream in = new DataInputStream(stream);
+		try {
+			byte[] header = new byte[BLOCK_SIZE];
+			String longName = null;
+			while (true) {
+				try {
+					in.readFully(header);
+				} catch (EOFException e) {
+					return;
+				}
+				if (isZero(header)) {
+					return;
+				}
+
+				byte type = header[156];
+				long size = parseSize(header);
+				if (size > Integer.MAX_VALUE) {
+					throw new IOException("tar entry too large: " + size + " bytes");
+				}
+				byte[] content = new byte[(int) size];
+				in.readFully(content);
+				skipFully(in, (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE);
+
+				if (type == 'L') {
+					// GNU long name of the following entry
+					longName = trim(content, 0, content.length);
+				} else if (type == 'x') {
+					// pax extended header, which may hold the name of the following entry
+					String paxName = paxPath(content);
+					if (paxName != null) {
+						longName = paxName;
+					}
+				} else if (type == '0' || type == 0) {
+					String entryPath = (longName != null) ? longName : entryName(header);
+					longName = null;
+					handler.document(CollectionSources.classOfEntry(entryPath), CollectionSources
+							.nameOfEntry(entryPath), new String(content, Charset.defaultCharset()));
+				} else {
+					// directories, links and other special entries
+					longName = null;
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Return the name of an entry from its header, including the ustar prefix
+	 *
+	 * @param header
+	 * @return
+	 */
+	private static String entryName(byte[] header) {
+		String name = trim(header, 0, 100);
+		if (header[257] == 'u' && header[258] == 's' && header[259] == 't' && header[260] == 'a'
+				&& header[261] == 'r' && header[345] != 0) {
+			return trim(header, 345, 155) + "/" + name;
+		}
+		return name;
+	}
+
+	/**
+	 * Return the size field of a header, which is octal or (for large entries) base-256
+	 *
+	 * @param header
+	 * @return
+	 */
+	private static long parseSize(byte[] header) {
+		long size = 0;
+		if ((header[124] & 0x80) != 0) {
+			for (int i = 125; i < 136; i++) {
+				size = (size << 8) | (header[i] & 0xFF);
+			}
+			return size;
+		}
+		for (int i = 124; i < 136; i++) {
+			if (header[i] >= '0' && header[i] <= '7') {
+				size = (size << 3) + (header[i] - '0');
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Return the path record of a pax extended header ("length path=value\n" records), or null
+	 *
+	 * @param content
+	 * @return
+	 */
+	private static String paxPath(byte[] content) {
+		int offset = 0;
+		while (offset < content.length) {
+			int space = offset;
+			while (space < content.length && content[space] != ' ') {
+				space++;
+			}
+			int length = Integer.parseInt(new String(content, offset, space - offset, HEADER_CHARSET));
+			if (length <= 0) {
+				return null;
+			}
+			String record = new String(content, space + 1, offset + length - space - 2, HEADER_CHARSET);
+			if (record.startsWith("path=")) {
+				return record.substring(5);
+			}
+			offset += length;
+		}
+		return null;
+	}
+
+	/**
+	 * Return a NUL-terminated string of a header field
+	 *
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	private static String trim(byte[] bytes, int offset, int length) {
+		int end = offset;
+		while (end < offset + length && bytes[end] != 0) {
+			end++;
+		}
+		return new String(bytes, offset, end - offset, HEADER_CHARSET);
+	}
+
+	private static boolean isZero(byte[] block) {
+		for (byte b : block) {
+			if (b != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void skipFully(InputStream in, long bytes) throws IOException {
+		while (bytes > 0) {
+			long skipped = in.skip(bytes);
+			if (skipped <= 0) {
+				if (in.read() < 0) {
+					throw new EOFException("truncated tar archive");
+				}
+				skipped = 1;
+			}
+			bytes -= skipped;
+		}
+	}
+}
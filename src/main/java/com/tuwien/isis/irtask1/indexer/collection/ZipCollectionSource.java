@@ -0,0 +1,44 @@
+package com.tuwien.isis.irtask1.indexer.collection;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * A collection stored in a zip archive, read sequentially from a single stream
+ */
+public class ZipCollectionSource implements CollectionSource {
+
+	private final String path;
+
+	public ZipCollectionSource(String path) {
+		this.path = path;
+	}
+
+	public void read(DocumentHandler handler) throws IOException {
+		ZipInputStream in = new ZipInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+		try {
+			byte[] buffer = new byte[1 << 14];
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				if (entry.isDirectory()) {
+					continue;
+				}
+				content.reset();
+				int read;
+				while ((read = in.read(buffer)) > 0) {
+					content.write(buffer, 0, read);
+				}
+				handler.document(CollectionSources.classOfEntry(entry.getName()), CollectionSources
+						.nameOfEntry(entry.getName()), new String(content.toByteArray(), Charset.defaultCharset()));
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -16,25 +16,53 @@ import java.util.Map.Entry;
 public class CosineSimilarityRetrieval {
 
 	/**
+	 * The returned vectors are copies carrying the cosine for this query, so the document vectors
+	 * themselves are never modified and may be searched by several queries at once.
+	 * 
 	 * @param queryDocVec
 	 * @return list with all documents with calculated cosines > 0
 	 */
 	public static List<DocumentVector> buildSearchResultsList(
 			DocumentVector queryDocVec, List<DocumentVector> documentVectors) {
+		return buildSearchResultsList(queryDocVec, documentVectors, null);
+	}
+
+	/**
+	 * Like {@link #buildSearchResultsList(DocumentVector, List)}, but stops scoring once the budget is
+	 * exhausted
+	 * 
+	 * @param queryDocVec
+	 * @param documentVectors
+	 * @param budget
+	 *            may be null for no limit
+	 * @return list with the documents scored within the budget with calculated cosines > 0
+	 */
+	public static List<DocumentVector> buildSearchResultsList(
+			DocumentVector queryDocVec, List<DocumentVector> documentVectors, QueryBudget budget) {
 		List<DocumentVector> resultList = new ArrayList<DocumentVector>();
+		int allowance = 0;
 		
 		for (DocumentVector currDocVec: documentVectors){
+			if (budget != null && --allowance < 0 && (allowance = budget.grant() - 1) < 0) {
+				break;
+			}
 			
 			double cosine = calculateCosine(queryDocVec,
 					currDocVec);
 			
 			if (cosine != 0
-					&& (currDocVec.getDocumentData().getId() != queryDocVec
-							.getDocumentData().getId())) {
-				currDocVec.setCosine(cosine);
-				resultList.add(currDocVec);
+					&& !currDocVec.getDocumentData().getId()
+							.equals(queryDocVec.getDocumentData().getId())) {
+				DocumentVector resultDocVec = new DocumentVector(
+						currDocVec.getDocumentData(),
+						currDocVec.getDocIdftfMap());
+				resultDocVec.setCosine(cosine);
+				resultList.add(resultDocVec);
 			}
 		}
+		if (budget != null) {
+			budget.giveBack(allowance);
+		}
 		return resultList;
 	}
 
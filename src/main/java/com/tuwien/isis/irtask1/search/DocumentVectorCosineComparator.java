@@ -3,7 +3,8 @@ package com.tuwien.isis.irtask1.search;
 import java.util.Comparator;
 
 /**
- * Comparator for sorting DocumentVectors by their Cosine values
+ * Comparator for sorting DocumentVectors by their Cosine values. Ties are broken by document id, so
+ * result lists merged from several shards are ordered exactly like those of a single index.
  * @author Wagi
  *
  */
@@ -15,6 +16,7 @@ public class DocumentVectorCosineComparator implements Comparator<DocumentVector
 		} else if (v1.getCosine() > v2.getCosine()) {
 			return -1;
 		} else
-			return 0;
+			return v1.getDocumentData().getId().compareTo(
+					v2.getDocumentData().getId());
 	}
 }
@@ -0,0 +1,101 @@
+package com.tuwien.isis.irtask1.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.DuplicateMode;
+import com.tuwien.isis.irtask1.indexer.IndexFiles;
+import com.tuwien.isis.irtask1.indexer.NearDuplicateDetector;
+
+/**
+ * The near-duplicates found while the index was built. Marked duplicates are left out of result
+ * lists; collapsed duplicates are not in the index at all, so a query for one of them is answered with
+ * its representative.
+ */
+public class DuplicateFilter {
+
+	private final DuplicateMode mode;
+
+	/**
+	 * Full names of the duplicates mapped to the full names of their representatives
+	 */
+	private final Map<String, String> representatives;
+
+	public DuplicateFilter(DuplicateMode mode, Map<String, String> representatives) {
+		this.mode = mode;
+		this.representatives = representatives;
+	}
+
+	/**
+	 * Load the near-duplicates stored next to the index at the given path, or return null if the index
+	 * was built without detection
+	 *
+	 * @param indexPath
+	 * @return
+	 * @throws IOException
+	 */
+	public static DuplicateFilter load(String indexPath) throws IOException {
+		File file = new File(IndexFiles.sidecarPath(indexPath, NearDuplicateDetector.EXTENSION));
+		if (!file.exists()) {
+			return null;
+		}
+
+		List<String> lines = Files.readAllLines(Paths.get(file.getPath()), Charset.defaultCharset());
+		Map<String, String> representatives = new HashMap<String, String>();
+		for (String line : lines.subList(1, lines.size())) {
+			int tab = line.indexOf('\t');
+			representatives.put(line.substring(0, tab), line.substring(tab + 1));
+		}
+		return new DuplicateFilter(DuplicateMode.fromName(lines.get(0)), representatives);
+	}
+
+	public DuplicateMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Return the number of near-duplicates
+	 *
+	 * @return
+	 */
+	public int size() {
+		return representatives.size();
+	}
+
+	/**
+	 * Return the representative of a near-duplicate, or null if the document is none
+	 *
+	 * @param fullDocName
+	 * @return
+	 */
+	public String getRepresentative(String fullDocName) {
+		return representatives.get(fullDocName);
+	}
+
+	/**
+	 * Return the first (at most) n results which are not near-duplicates
+	 *
+	 * @param results
+	 * @param n
+	 * @return
+	 */
+	public List<DocumentVector> filter(List<DocumentVector> results, int n) {
+		List<DocumentVector> filtered = new ArrayList<DocumentVector>(Math.min(n, results.size()));
+		for (DocumentVector result : results) {
+			if (filtered.size() == n) {
+				break;
+			}
+			if (!representatives.containsKey(result.getFullDocName())) {
+				filtered.add(result);
+			}
+		}
+		return filtered;
+	}
+}
@@ -0,0 +1,130 @@
+package com.tuwien.isis.irtask1.search;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+
+/**
+ * Compares searches with pruned query vectors with the unpruned search: the number of query terms
+ * scored, the search time and how far the rankings agree, for several prunings
+ */
+public class PruningReport {
+
+	/**
+	 * Number of measured runs per pruning, of which the fastest is reported
+	 */
+	private static final int ROUNDS = 3;
+
+	private final ShardSearcher searcher;
+
+	private final int numberOfSearchResults;
+
+	public PruningReport(ShardSearcher searcher, int numberOfSearchResults) {
+		this.searcher = searcher;
+		this.numberOfSearchResults = numberOfSearchResults;
+	}
+
+	/**
+	 * Search all topics without and with every pruning and print the comparison
+	 *
+	 * @param topicsPath
+	 * @param pruners
+	 * @throws IOException
+	 */
+	public void run(String topicsPath, List<QueryPruner> pruners) throws IOException {
+		List<DocumentVector> queries = new ArrayList<DocumentVector>();
+		for (String line : Files.readAllLines(Paths.get(topicsPath), Charset.defaultCharset())) {
+			DocumentVector query = searcher.findDocument(line);
+			if (query != null) {
+				queries.add(query);
+			} else {
+				System.out.println("doc " + line + " not in collection");
+			}
+		}
+		if (queries.isEmpty()) {
+			return;
+		}
+
+		List<List<DocumentVector>> expected = new ArrayList<List<DocumentVector>>();
+		long baseNanos = measure(queries, null, expected);
+
+		System.out.println(String.format(Locale.ROOT, "%-20s %12s %16s %8s %11s %12s", "pruning", "terms/query",
+				"search time", "speedup", "overlap@" + numberOfSearchResults, "Kendall tau"));
+		printRow("none", queries, null, baseNanos, baseNanos, expected, expected);
+
+		for (QueryPruner pruner : pruners) {
+			List<List<DocumentVector>> actual = new ArrayList<List<DocumentVector>>();
+			long nanos = measure(queries, pruner, actual);
+			printRow(pruner.toString(), queries, pruner, nanos, baseNanos, expected, actual);
+		}
+	}
+
+	/**
+	 * Search all queries once to warm up and then a few times more, and return the fastest time
+	 *
+	 * @param queries
+	 * @param pruner
+	 * @param results
+	 * @return
+	 * @throws IOException
+	 */
+	private long measure(List<DocumentVector> queries, QueryPruner pruner, List<List<DocumentVector>> results)
+			throws IOException {
+		search(queries, pruner, results);
+		long fastest = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			fastest = Math.min(fastest, search(queries, pruner, null));
+		}
+		return fastest;
+	}
+
+	/**
+	 * Search all queries and return the time it took
+	 *
+	 * @param queries
+	 * @param pruner
+	 * @param results
+	 *            receives the results of every query, may be null
+	 * @return
+	 * @throws IOException
+	 */
+	private long search(List<DocumentVector> queries, QueryPruner pruner, List<List<DocumentVector>> results)
+			throws IOException {
+		QueryContext context = new QueryContext(null, null, null, pruner);
+		long start = System.nanoTime();
+		for (DocumentVector query : queries) {
+			List<DocumentVector> resultList = searcher.search(query, numberOfSearchResults, context);
+			if (results != null) {
+				results.add(resultList);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	private void printRow(String name, List<DocumentVector> queries, QueryPruner pruner, long nanos, long baseNanos,
+			List<List<DocumentVector>> expected, List<List<DocumentVector>> actual) {
+		long terms = 0;
+		double overlapSum = 0;
+		double tauSum = 0;
+		int tauCount = 0;
+		for (int i = 0; i < queries.size(); i++) {
+			DocumentVector query = queries.get(i);
+			terms += (pruner != null) ? pruner.prune(query).getDocIdftfMap().size() : query.getDocIdftfMap().size();
+			overlapSum += RankingAgreement.overlap(expected.get(i), actual.get(i), numberOfSearchResults);
+			double tau = RankingAgreement.kendallTau(expected.get(i), actual.get(i));
+			if (!Double.isNaN(tau)) {
+				tauSum += tau;
+				tauCount++;
+			}
+		}
+		System.out.println(String.format(Locale.ROOT, "%-20s %12.1f %16s %8.2f %11.4f %12s", name, (double) terms
+				/ queries.size(), (nanos / queries.size() / 1000) + " us/query", (double) baseNanos / nanos, overlapSum
+				/ queries.size(), (tauCount > 0) ? String.format(Locale.ROOT, "%.4f", tauSum / tauCount) : "n/a"));
+	}
+}
@@ -0,0 +1,135 @@
+package com.tuwien.isis.irtask1.search;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the time and the number of documents a single query may spend on scoring. Scoring loops ask
+ * for an allowance of a few documents at a time with {@link #grant()}, so the clock is only read once
+ * per allowance, and give back what they did not use with {@link #giveBack(int)} when they are done.
+ * Once the budget is exhausted the loop stops and returns the best results found so far, which are
+ * then partial. The shards of a query share one budget, so all methods are thread-safe.
+ */
+public class QueryBudget {
+
+	/**
+	 * Largest number of documents granted at once, i.e. the time limit is checked every 16 documents
+	 */
+	private static final int ALLOWANCE = 16;
+
+	private final long deadline;
+
+	private final boolean timeLimited;
+
+	private final AtomicLong remainingDocuments;
+
+	private volatile boolean timeExceeded;
+
+	private volatile boolean documentsExceeded;
+
+	/**
+	 * Start the budget of a query
+	 *
+	 * @param maxMillis
+	 *            time limit, 0 for none
+	 * @param maxDocuments
+	 *            maximum number of documents scored, 0 for no limit
+	 */
+	public QueryBudget(long maxMillis, long maxDocuments) {
+		this.timeLimited = maxMillis > 0;
+		this.deadline = System.nanoTime() + maxMillis * 1000000;
+		this.remainingDocuments = new AtomicLong((maxDocuments > 0) ? maxDocuments : Long.MAX_VALUE);
+	}
+
+	/**
+	 * Return the number of documents the caller may score before asking again, 0 once the budget is
+	 * exhausted. The allowance shrinks with the remaining documents, so that shards which are still
+	 * scoring hold back little of what the others may need.
+	 *
+	 * @return
+	 */
+	public int grant() {
+		if (timeExceeded || documentsExceeded) {
+			return 0;
+		}
+		if (timeLimited && System.nanoTime() - deadline > 0) {
+			timeExceeded = true;
+			return 0;
+		}
+		while (true) {
+			long remaining = remainingDocuments.get();
+			if (remaining <= 0) {
+				documentsExceeded = true;
+				return 0;
+			}
+			int allowance = (int) Math.min(ALLOWANCE, Math.max(1, remaining / ALLOWANCE));
+			if (remainingDocuments.compareAndSet(remaining, remaining - allowance)) {
+				return allowance;
+			}
+		}
+	}
+
+	/**
+	 * Return the part of the last allowance a scoring loop did not use because it ran out of documents
+	 *
+	 * @param unused
+	 *            the number of documents which were granted but not scored, ignored if not positive
+	 */
+	public void giveBack(int unused) {
+		if (unused > 0) {
+			remainingDocuments.addAndGet(unused);
+		}
+	}
+
+	/**
+	 * Check if scoring was stopped before all documents were scored, i.e. the results are partial
+	 *
+	 * @return
+	 */
+	public boolean isExhausted() {
+		return timeExceeded || documentsExceeded;
+	}
+
+	public boolean isTimeExceeded() {
+		return timeExceeded;
+	}
+
+	public boolean isDocumentsExceeded() {
+		return documentsExceeded;
+	}
+
+	/**
+	 * Return the milliseconds left until the deadline (at least 1), or 0 if the time is not limited
+	 *
+	 * @return
+	 */
+	public long remainingMillis() {
+		return timeLimited ? Math.max(1, (deadline - System.nanoTime()) / 1000000) : 0;
+	}
+
+	/**
+	 * Return the number of documents which may still be scored, or 0 if they are not limited
+	 *
+	 * @return
+	 */
+	public long remainingDocuments() {
+		long remaining = remainingDocuments.get();
+		return (remaining > Long.MAX_VALUE / 2) ? 0 : Math.max(1, remaining);
+	}
+
+	/**
+	 * Take over the outcome of the budget a remote shard spent on behalf of this one
+	 *
+	 * @param time
+	 *            the time limit of the shard was exceeded
+	 * @param documents
+	 *            the document limit of the shard was exceeded
+	 */
+	public void markExceeded(boolean time, boolean documents) {
+		if (time) {
+			timeExceeded = true;
+		}
+		if (documents) {
+			documentsExceeded = true;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.tuwien.isis.irtask1.search;
+
+import com.tuwien.isis.irtask1.search.filter.ClassFilter;
+import com.tuwien.isis.irtask1.search.filter.FacetCounts;
+
+/**
+ * Everything a single query carries to the searchers besides its vector: the classes to search, the
+ * facet counts to fill, the budget to spend and how to prune the query vector. Every part is optional
+ * (null).
+ */
+public class QueryContext {
+
+	/**
+	 * Search all documents without facets and without limits
+	 */
+	public static final QueryContext NONE = new QueryContext(null, null, null, null);
+
+	private final ClassFilter filter;
+
+	private final FacetCounts facets;
+
+	private final QueryBudget budget;
+
+	private final QueryPruner pruner;
+
+	public QueryContext(ClassFilter filter, FacetCounts facets, QueryBudget budget, QueryPruner pruner) {
+		this.filter = filter;
+		this.facets = facets;
+		this.budget = budget;
+		this.pruner = pruner;
+	}
+
+	/**
+	 * @return the classes to search, null for all documents
+	 */
+	public ClassFilter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * @return the counts of matching documents per class to fill, or null
+	 */
+	public FacetCounts getFacets() {
+		return facets;
+	}
+
+	/**
+	 * @return the budget of the query, or null if it is not limited
+	 */
+	public QueryBudget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * @return the pruning of the query vector, or null to score all of its terms
+	 */
+	public QueryPruner getPruner() {
+		return pruner;
+	}
+
+	/**
+	 * Return a context with the same filter, budget and pruning but other facets
+	 *
+	 * @param otherFacets
+	 * @return
+	 */
+	public QueryContext withFacets(FacetCounts otherFacets) {
+		return new QueryContext(filter, otherFacets, budget, pruner);
+	}
+}
@@ -0,0 +1,170 @@
+package com.tuwien.isis.irtask1.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Reduces a long query vector to its heaviest terms before it is scored: either the top m terms by
+ * weight, or as many terms as are needed to cover a fraction of the squared norm of the vector. Light
+ * terms add little to any cosine but cost a lookup for every document.
+ */
+public class QueryPruner {
+
+	/**
+	 * Number of terms to keep, 0 if the vector is pruned by norm
+	 */
+	private final int maxTerms;
+
+	/**
+	 * Fraction of the squared norm to keep, 0 if the vector is pruned by number of terms
+	 */
+	private final double normFraction;
+
+	private QueryPruner(int maxTerms, double normFraction) {
+		this.maxTerms = maxTerms;
+		this.normFraction = normFraction;
+	}
+
+	/**
+	 * Keep the m terms with the largest weights
+	 *
+	 * @param m
+	 * @return
+	 */
+	public static QueryPruner topTerms(int m) {
+		if (m < 1) {
+			throw new IllegalArgumentException("at least one query term must be kept, not " + m);
+		}
+		return new QueryPruner(m, 0);
+	}
+
+	/**
+	 * Keep the heaviest terms until they cover the given fraction of the squared norm
+	 *
+	 * @param fraction
+	 * @return
+	 */
+	public static QueryPruner normFraction(double fraction) {
+		if (fraction <= 0 || fraction >= 1) {
+			throw new IllegalArgumentException("the fraction of the norm must be between 0 and 1, not " + fraction);
+		}
+		return new QueryPruner(0, fraction);
+	}
+
+	/**
+	 * Parse a pruning: a whole number m keeps the top m terms, a fraction such as 0.9 keeps 90% of the
+	 * squared norm
+	 *
+	 * @param spec
+	 * @return
+	 */
+	public static QueryPruner parse(String spec) {
+		double value = Double.parseDouble(spec.trim());
+		return (value >= 1) ? topTerms((int) value) : normFraction(value);
+	}
+
+	/**
+	 * Parse a comma-separated list of prunings
+	 *
+	 * @param list
+	 * @return
+	 */
+	public static List<QueryPruner> parseList(String list) {
+		List<QueryPruner> pruners = new ArrayList<QueryPruner>();
+		for (String spec : list.split(",")) {
+			if (!spec.trim().isEmpty()) {
+				pruners.add(parse(spec));
+			}
+		}
+		return pruners;
+	}
+
+	public int getMaxTerms() {
+		return maxTerms;
+	}
+
+	public double getNormFraction() {
+		return normFraction;
+	}
+
+	/**
+	 * Return the indexes of the weights to keep, in ascending order, so that a vector sorted by term id
+	 * stays sorted
+	 *
+	 * @param weights
+	 * @param size
+	 *            number of weights in use
+	 * @return
+	 */
+	public int[] select(final float[] weights, int size) {
+		Integer[] byWeight = new Integer[size];
+		double squaredNorm = 0;
+		for (int i = 0; i < size; i++) {
+			byWeight[i] = i;
+			squaredNorm += weights[i] * weights[i];
+		}
+		Arrays.sort(byWeight, new Comparator<Integer>() {
+			public int compare(Integer i, Integer j) {
+				int order = Float.compare(Math.abs(weights[j]), Math.abs(weights[i]));
+				return (order != 0) ? order : i.compareTo(j);
+			}
+		});
+
+		int kept = size;
+		if (maxTerms > 0) {
+			kept = Math.min(maxTerms, size);
+		} else {
+			double covered = 0;
+			for (int i = 0; i < size; i++) {
+				covered += weights[byWeight[i]] * weights[byWeight[i]];
+				if (covered >= normFraction * squaredNorm) {
+					kept = i + 1;
+					break;
+				}
+			}
+		}
+
+		int[] indexes = new int[kept];
+		for (int i = 0; i < kept; i++) {
+			indexes[i] = byWeight[i];
+		}
+		Arrays.sort(indexes);
+		return indexes;
+	}
+
+	/**
+	 * Return a copy of the query with only the kept terms
+	 *
+	 * @param queryDocVec
+	 * @return
+	 */
+	public DocumentVector prune(DocumentVector queryDocVec) {
+		// in term order, so that ties are broken as in the term id order of the forward index
+		List<Entry<String, Float>> entries = new ArrayList<Entry<String, Float>>(new TreeMap<String, Float>(
+				queryDocVec.getDocIdftfMap()).entrySet());
+		float[] weights = new float[entries.size()];
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = entries.get(i).getValue();
+		}
+
+		int[] kept = select(weights, weights.length);
+		Map<String, Float> docIdftfMap = new HashMap<String, Float>(kept.length * 2);
+		for (int index : kept) {
+			docIdftfMap.put(entries.get(index).getKey(), weights[index]);
+		}
+		return new DocumentVector(queryDocVec.getDocumentData(), docIdftfMap);
+	}
+
+	@Override
+	public String toString() {
+		return (maxTerms > 0) ? "top " + maxTerms + " terms" : String.format(Locale.ROOT, "%.0f%% of the norm",
+				100 * normFraction);
+	}
+}
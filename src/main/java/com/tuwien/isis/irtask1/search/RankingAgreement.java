@@ -0,0 +1,87 @@
+package com.tuwien.isis.irtask1.search;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Measures of how far two rankings of the same query agree, used to check that an optimization does
+ * not change the results
+ */
+public class RankingAgreement {
+
+	private RankingAgreement() {
+	}
+
+	/**
+	 * Return the fraction of the top n documents of the expected ranking that also appear in the top n
+	 * of the actual ranking
+	 *
+	 * @param expected
+	 * @param actual
+	 * @param n
+	 * @return
+	 */
+	public static double overlap(List<DocumentVector> expected, List<DocumentVector> actual, int n) {
+		int expectedSize = Math.min(n, expected.size());
+		if (expectedSize == 0) {
+			return actual.isEmpty() ? 1 : 0;
+		}
+
+		Set<Integer> expectedIds = new HashSet<Integer>();
+		for (int i = 0; i < expectedSize; i++) {
+			expectedIds.add(expected.get(i).getDocumentData().getId());
+		}
+
+		int common = 0;
+		for (int i = 0; i < Math.min(n, actual.size()); i++) {
+			if (expectedIds.contains(actual.get(i).getDocumentData().getId())) {
+				common++;
+			}
+		}
+		return common / (double) expectedSize;
+	}
+
+	/**
+	 * Return Kendall's tau between the orders in which two rankings list the documents they have in
+	 * common: 1 if all pairs are ordered the same way, -1 if all are reversed
+	 *
+	 * @param expected
+	 * @param actual
+	 * @return tau or NaN if fewer than two documents are in both rankings
+	 */
+	public static double kendallTau(List<DocumentVector> expected, List<DocumentVector> actual) {
+		Map<Integer, Integer> actualRanks = new HashMap<Integer, Integer>();
+		for (int i = 0; i < actual.size(); i++) {
+			actualRanks.put(actual.get(i).getDocumentData().getId(), i);
+		}
+
+		// ranks in the actual list of the common documents, in expected order
+		int[] ranks = new int[expected.size()];
+		int common = 0;
+		for (DocumentVector docVec : expected) {
+			Integer rank = actualRanks.get(docVec.getDocumentData().getId());
+			if (rank != null) {
+				ranks[common++] = rank;
+			}
+		}
+		if (common < 2) {
+			return Double.NaN;
+		}
+
+		long concordant = 0;
+		long discordant = 0;
+		for (int i = 0; i < common; i++) {
+			for (int j = i + 1; j < common; j++) {
+				if (ranks[i] < ranks[j]) {
+					concordant++;
+				} else {
+					discordant++;
+				}
+			}
+		}
+		return (concordant - discordant) / (double) (concordant + discordant);
+	}
+}
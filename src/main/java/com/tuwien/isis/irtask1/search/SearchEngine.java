@@ -1,15 +1,24 @@
 package com.tuwien.isis.irtask1.search;
 
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 
+import com.tuwien.isis.irtask1.indexer.DuplicateMode;
+import com.tuwien.isis.irtask1.indexer.IndexFiles;
+import com.tuwien.isis.irtask1.search.filter.ClassFilter;
+import com.tuwien.isis.irtask1.search.filter.FacetCounts;
+import com.tuwien.isis.irtask1.search.output.AsyncResultSink;
+import com.tuwien.isis.irtask1.search.output.PerTopicResultWriter;
+import com.tuwien.isis.irtask1.search.output.ResultSink;
+import com.tuwien.isis.irtask1.search.shard.LocalShardSearcher;
+import com.tuwien.isis.irtask1.search.shard.ShardCoordinator;
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+
 /**
  * SearchEngine which performs the search (currently with only VSM-Cosine similarity method)
  * 
@@ -17,11 +26,40 @@ import java.util.Scanner;
  * 
  */
 public class SearchEngine {
-	private List<DocumentVector> documentVectors;
+	private ShardSearcher searcher;
 	private int numberOfSearchResults;
+	private ResultSink resultSink;
+	private DuplicateFilter duplicateFilter;
+	private ClassFilter classFilter;
+	private boolean facets;
+	private long budgetMillis;
+	private long budgetDocuments;
+	private QueryPruner queryPruner;
+	private TermStatistics termStatistics;
+	private int partialQueries;
+	private int timeBudgetsExceeded;
+	private int documentBudgetsExceeded;
+	private long createdNanos = System.nanoTime();
 
+	/**
+	 * creates a search engine writing the results of every topic into its own file under output/
+	 * 
+	 * @param numberOfSearchResults
+	 */
 	public SearchEngine(int numberOfSearchResults) {
+		this(numberOfSearchResults, new PerTopicResultWriter("output"));
+	}
+
+	/**
+	 * creates a search engine writing the results into the given sink, which is fed from a background
+	 * thread and closed at the end of the search
+	 * 
+	 * @param numberOfSearchResults
+	 * @param resultSink
+	 */
+	public SearchEngine(int numberOfSearchResults, ResultSink resultSink) {
 		this.numberOfSearchResults = numberOfSearchResults;
+		this.resultSink = resultSink;
 	}
 
 	/**
@@ -33,9 +71,52 @@ public class SearchEngine {
 	 */
 	public void searchSimilarDocuments(String inputFilePath, String indexFilePath) {
 
-		documentVectors = DocumentVectorBuilder.buildDocumentVectors(indexFilePath);
+		List<DocumentVector> documentVectors = DocumentVectorBuilder.buildDocumentVectors(indexFilePath);
+
+		searchSimilarDocuments(inputFilePath, new LocalShardSearcher(documentVectors));
+	}
+
+	/**
+	 * searches similar documents in an index which was stored as a number of shards, all of which are
+	 * loaded into this JVM and searched in parallel
+	 * 
+	 * @param inputFilePath
+	 * @param indexFilePath
+	 * @param numberOfShards
+	 */
+	public void searchSimilarDocuments(String inputFilePath, String indexFilePath, int numberOfShards) {
+		List<ShardSearcher> shards = new ArrayList<ShardSearcher>();
+		for (int shard = 0; shard < numberOfShards; shard++) {
+			shards.add(new LocalShardSearcher(DocumentVectorBuilder.buildDocumentVectors(IndexFiles.shardPath(
+					indexFilePath, shard))));
+		}
+
+		searchSimilarDocuments(inputFilePath, new ShardCoordinator(shards));
+	}
 
-		processSimilarityRetrieval(inputFilePath);
+	/**
+	 * searches similar documents with the given searcher, e.g. a coordinator of remote shards
+	 * 
+	 * @param inputFilePath
+	 * @param searcher
+	 */
+	public void searchSimilarDocuments(String inputFilePath, ShardSearcher searcher) {
+		this.searcher = searcher;
+		ResultSink sink = new AsyncResultSink(resultSink);
+		try {
+			processSimilarityRetrieval(inputFilePath, sink);
+		} finally {
+			try {
+				sink.close();
+			} catch (IOException e) {
+				System.err.println("error writing results: " + e.getMessage());
+			}
+			try {
+				searcher.close();
+			} catch (IOException e) {
+				System.err.println("error closing searcher: " + e.getMessage());
+			}
+		}
 	}
 
 	/**
@@ -53,18 +134,123 @@ public class SearchEngine {
 		this.numberOfSearchResults = numberOfSearchResults;
 	}
 
+	/**
+	 * @param duplicateFilter
+	 *            the near-duplicates to leave out of the results (null to keep all results)
+	 */
+	public void setDuplicateFilter(DuplicateFilter duplicateFilter) {
+		this.duplicateFilter = duplicateFilter;
+	}
+
+	/**
+	 * @param classFilter
+	 *            the classes to search (null to search all documents)
+	 */
+	public void setClassFilter(ClassFilter classFilter) {
+		this.classFilter = classFilter;
+	}
+
+	/**
+	 * @param facets
+	 *            whether to print the number of matching documents per class for every query
+	 */
+	public void setFacets(boolean facets) {
+		this.facets = facets;
+	}
+
+	/**
+	 * limits the time and the number of documents every query may spend on scoring. A query which runs
+	 * out of its budget returns the best results found so far.
+	 * 
+	 * @param budgetMillis
+	 *            time limit per query, 0 for none
+	 * @param budgetDocuments
+	 *            maximum number of documents scored per query, 0 for no limit
+	 */
+	public void setQueryBudget(long budgetMillis, long budgetDocuments) {
+		this.budgetMillis = budgetMillis;
+		this.budgetDocuments = budgetDocuments;
+	}
+
+	/**
+	 * @param queryPruner
+	 *            the pruning of long query vectors (null to score all query terms)
+	 */
+	public void setQueryPruner(QueryPruner queryPruner) {
+		this.queryPruner = queryPruner;
+	}
+
+	/**
+	 * @param termStatistics
+	 *            the document frequencies for weighting free-text topics (null if only documents of the
+	 *            index can be topics)
+	 */
+	public void setTermStatistics(TermStatistics termStatistics) {
+		this.termStatistics = termStatistics;
+	}
+
+	/**
+	 * searches the documents most similar to a free text with the given searcher and prints them
+	 * 
+	 * @param text
+	 * @param searcher
+	 */
+	public void searchText(String text, ShardSearcher searcher) {
+		this.searcher = searcher;
+		try {
+			long start = System.nanoTime();
+			DocumentVector queryDocVec = buildTextQuery(text);
+			if (queryDocVec == null) {
+				return;
+			}
+			long searchStart = System.nanoTime();
+			QueryBudget budget = (budgetMillis > 0 || budgetDocuments > 0) ? new QueryBudget(budgetMillis,
+					budgetDocuments) : null;
+			QueryContext context = new QueryContext(classFilter, facets ? new FacetCounts() : null, budget,
+					queryPruner);
+			List<DocumentVector> resultList = searchTopResults(queryDocVec, context);
+			long end = System.nanoTime();
+
+			for (int rank = 0; rank < resultList.size(); rank++) {
+				DocumentVector result = resultList.get(rank);
+				System.out.println((rank + 1) + ". " + result.getFullDocName() + " "
+						+ String.format(Locale.ROOT, "%.4f", result.getCosine()));
+			}
+			if (context.getFacets() != null) {
+				System.out.println("matching documents per class: " + context.getFacets());
+			}
+			if (budget != null && budget.isExhausted()) {
+				System.out.println("the query ran out of its " + (budget.isTimeExceeded() ? "time" : "document")
+						+ " budget, the results are partial");
+			}
+			System.out.println(queryDocVec.getDocIdftfMap().size() + " query terms, analyzed in "
+					+ (searchStart - start) / 1000 + " us, searched in " + (end - searchStart) / 1000 + " us");
+		} catch (IOException e) {
+			System.err.println("error searching text: " + e.getMessage());
+		} finally {
+			try {
+				searcher.close();
+			} catch (IOException e) {
+				System.err.println("error closing searcher: " + e.getMessage());
+			}
+		}
+	}
+
 	/**
 	 * processing the search
 	 * 
 	 * @param inputFilePath
+	 * @param sink
 	 */
-	private void processSimilarityRetrieval(String inputFilePath) {
+	private void processSimilarityRetrieval(String inputFilePath, ResultSink sink) {
 		System.out.println("Processing topic file - " + inputFilePath);
 		Path path = Paths.get(inputFilePath);
 		try {
 			Scanner scanner = new Scanner(path);
 
 			int topicNr = 1;
+			int processedQueries = 0;
+			long searchNanos = 0;
 
 			while (scanner.hasNextLine()) {
 				String line = scanner.nextLine();
@@ -79,17 +265,29 @@ public class SearchEngine {
 					continue;
 				}
 
-				System.out.println(currQueryDocVec);
-
-				List<DocumentVector> resultList = CosineSimilarityRetrieval.buildSearchResultsList(currQueryDocVec,
-						documentVectors);
-
-				// sort result list
-				Collections.sort(resultList, new DocumentVectorCosineComparator());
-
-				String outputFilePath = "output/" + "topic_" + topicNr + "_results" + ".txt";
+				// retrieve the sorted top results
+				long searchStart = System.nanoTime();
+				QueryBudget budget = (budgetMillis > 0 || budgetDocuments > 0) ? new QueryBudget(budgetMillis,
+						budgetDocuments) : null;
+				QueryContext context = new QueryContext(classFilter, facets ? new FacetCounts() : null, budget,
+						queryPruner);
+				List<DocumentVector> resultList = searchTopResults(currQueryDocVec, context);
+				searchNanos += System.nanoTime() - searchStart;
+				if (context.getFacets() != null) {
+					System.out.println("matching documents per class: " + context.getFacets());
+				}
+				if (budget != null && budget.isExhausted()) {
+					countPartialQuery(budget);
+					System.out.println("query " + line + " ran out of its " + (budget.isTimeExceeded() ? "time"
+							: "document") + " budget, the results are partial");
+				}
+				if (processedQueries == 0) {
+					System.out.println("time to first result (including loading the index): "
+							+ (System.nanoTime() - createdNanos) / 1000000 + " ms");
+				}
+				processedQueries++;
 
-				writeSearchResultsIntoFile(outputFilePath, resultList, topicNr);
+				sink.write(topicNr, resultList);
 
 				System.out.println("finished processing query: " + line);
 
@@ -98,6 +296,12 @@ public class SearchEngine {
 
 			scanner.close();
 
+			printThroughput(processedQueries, searchNanos);
+			if (budgetMillis > 0 || budgetDocuments > 0) {
+				System.out.println(partialQueries + " of " + processedQueries + " queries returned partial results ("
+						+ timeBudgetsExceeded + " out of time, " + documentBudgetsExceeded + " out of documents)");
+			}
+
 		} catch (IOException e) {
 			System.err.println("error with InputFile Scanner: " + e.getMessage());
 
@@ -105,20 +309,93 @@ public class SearchEngine {
 		}
 	}
 
+	/**
+	 * retrieves the top results of a query. Near-duplicates are left out, so more results are requested
+	 * from the searcher until enough remain. A query with a budget is searched only once, for as many
+	 * more results as there are near-duplicates, since a second search could only spend what is left of
+	 * the budget.
+	 * 
+	 * @param queryDocVec
+	 * @param context
+	 *            the filter, facets and budget of the query
+	 * @return
+	 * @throws IOException
+	 */
+	private List<DocumentVector> searchTopResults(DocumentVector queryDocVec, QueryContext context)
+			throws IOException {
+		if (duplicateFilter == null || duplicateFilter.getMode() == DuplicateMode.COLLAPSE) {
+			return searcher.search(queryDocVec, numberOfSearchResults, context);
+		}
+		if (context.getBudget() != null) {
+			List<DocumentVector> results = searcher.search(queryDocVec,
+					numberOfSearchResults + duplicateFilter.size(), context);
+			return duplicateFilter.filter(results, numberOfSearchResults);
+		}
+		int requested = numberOfSearchResults;
+		while (true) {
+			// the matching documents do not depend on k, so they are only counted once
+			List<DocumentVector> results = searcher.search(queryDocVec, requested,
+					(requested == numberOfSearchResults) ? context : context.withFacets(null));
+			List<DocumentVector> filtered = duplicateFilter.filter(results, numberOfSearchResults);
+			if (filtered.size() == numberOfSearchResults || results.size() < requested) {
+				return filtered;
+			}
+			requested *= 2;
+		}
+	}
+
+	/**
+	 * counts a query which ran out of its budget
+	 * 
+	 * @param budget
+	 */
+	private void countPartialQuery(QueryBudget budget) {
+		partialQueries++;
+		if (budget.isTimeExceeded()) {
+			timeBudgetsExceeded++;
+		}
+		if (budget.isDocumentsExceeded()) {
+			documentBudgetsExceeded++;
+		}
+	}
+
+	/**
+	 * prints the number of queries answered per second by the searcher (excluding result output)
+	 * 
+	 * @param processedQueries
+	 * @param searchNanos
+	 */
+	private void printThroughput(int processedQueries, long searchNanos) {
+		double seconds = searchNanos / 1e9;
+		String shards = (searcher instanceof ShardCoordinator) ? ((ShardCoordinator) searcher)
+				.getNumberOfShards() + " shards" : "1 shard";
+		System.out.println("searched " + processedQueries + " queries on " + shards + " in "
+				+ Math.round(searchNanos / 1e6) + " ms ("
+				+ (seconds > 0 ? Math.round(processedQueries / seconds) : 0) + " queries/s)");
+	}
+
 	/**
 	 * parses the parameter String line to a DocumentVector
 	 * 
 	 * @param line
 	 * @return
+	 * @throws IOException
 	 */
-	private DocumentVector findQueryInDocumentList(String line) {
-		// search document in document list
-		for (DocumentVector currDocVec : documentVectors) {
-
-			// System.out.println("currDocVec fullname= " + currDocVec.getFullDocName());
-			if (line.equals(currDocVec.getFullDocName())) {
-				return currDocVec;
-			}
+	private DocumentVector findQueryInDocumentList(String line) throws IOException {
+		// free text is weighted with the document frequencies of the index
+		if (TermStatistics.isTextQuery(line)) {
+			return buildTextQuery(TermStatistics.getText(line));
+		}
+		// search document in the index
+		DocumentVector currDocVec = searcher.findDocument(line);
+		if (currDocVec != null) {
+			return currDocVec;
+		}
+		// a collapsed near-duplicate is answered with its representative
+		String representative = (duplicateFilter != null) ? duplicateFilter.getRepresentative(line) : null;
+		if (representative != null) {
+			System.out.println("doc " + line + " is a near-duplicate of " + representative);
+			return searcher.findDocument(representative);
 		}
 		// in case nothing found return null
 		System.out.println("doc " + line + " not in collection");
@@ -126,39 +403,21 @@ public class SearchEngine {
 	}
 
 	/**
-	 * writes the resultList into a file defined by outputFilePath
+	 * builds the query vector of a free text
 	 * 
-	 * @param outputFilePath
-	 * @param resultList
-	 * @param topicNr
+	 * @param text
+	 * @return the query, or null if the text has no term of the index
 	 */
-	private void writeSearchResultsIntoFile(String outputFilePath, List<DocumentVector> resultList, int topicNr) {
-		try {
-			File file = new File(outputFilePath);
-			file.getParentFile().mkdirs();
-			PrintWriter writer = new PrintWriter(file);
-			String runName = "bagOfWords";
-
-			if (this.numberOfSearchResults > resultList.size())
-				this.numberOfSearchResults = resultList.size();
-
-			for (int k = 0; k < this.numberOfSearchResults; k++) {
-				DocumentVector currVec = resultList.get(k);
-
-				// write output line
-				String line = "topic" + topicNr + " Q0 " + currVec.getFullDocName() + " " + k + " "
-						+ String.format("%.2f", currVec.getCosine() * 100) + " group3" + "-" + runName;// +
-
-				writer.write(line);
-				writer.write("\n");
-				System.out.println("Writing: " + line);
-			}
-			writer.close();
-
-		} catch (FileNotFoundException e) {
-			System.err.println("Couldn'T write into file: " + outputFilePath + " error: " + e.getMessage());
-			// e.printStackTrace();
+	private DocumentVector buildTextQuery(String text) {
+		if (termStatistics == null) {
+			System.out.println("free-text queries need the term statistics of the index, please rebuild it");
+			return null;
+		}
+		DocumentVector queryDocVec = termStatistics.buildQuery(text);
+		if (queryDocVec.getDocIdftfMap().isEmpty()) {
+			System.out.println("no word of \"" + text + "\" is a term of the index");
+			return null;
 		}
+		return queryDocVec;
 	}
-
 }
@@ -0,0 +1,188 @@
+package com.tuwien.isis.irtask1.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Immutable sparse matrix in compressed sparse row (CSR) layout. The document-term matrix has one row
+ * per document (in document id order) and one column per term (in sorted term order).
+ */
+public class SparseMatrix {
+
+	private final int numberOfRows;
+
+	private final int numberOfColumns;
+
+	/**
+	 * Offset of the first entry of each row; rowOffsets[numberOfRows] is the number of entries
+	 */
+	private final int[] rowOffsets;
+
+	/**
+	 * Column of each entry, ascending within a row
+	 */
+	private final int[] columns;
+
+	private final float[] values;
+
+	public SparseMatrix(int numberOfRows, int numberOfColumns, int[] rowOffsets, int[] columns, float[] values) {
+		this.numberOfRows = numberOfRows;
+		this.numberOfColumns = numberOfColumns;
+		this.rowOffsets = rowOffsets;
+		this.columns = columns;
+		this.values = values;
+	}
+
+	/**
+	 * Build the document-term matrix of the given vectors. The vectors must be sorted by document id
+	 * and the ids must be 0 to n - 1.
+	 *
+	 * @param documentVectors
+	 * @return
+	 */
+	public static SparseMatrix fromDocumentVectors(List<DocumentVector> documentVectors) {
+		Map<String, Integer> termIds = termIds(documentVectors);
+
+		int entries = 0;
+		for (DocumentVector docVec : documentVectors) {
+			entries += docVec.getDocIdftfMap().size();
+		}
+
+		int[] rowOffsets = new int[documentVectors.size() + 1];
+		int[] columns = new int[entries];
+		float[] values = new float[entries];
+		int offset = 0;
+
+		for (int row = 0; row < documentVectors.size(); row++) {
+			rowOffsets[row] = offset;
+			List<Entry<String, Float>> rowEntries = new ArrayList<Entry<String, Float>>(documentVectors.get(row)
+					.getDocIdftfMap().entrySet());
+			Collections.sort(rowEntries, new TermComparator());
+			for (Entry<String, Float> entry : rowEntries) {
+				columns[offset] = termIds.get(entry.getKey());
+				values[offset] = entry.getValue();
+				offset++;
+			}
+		}
+		rowOffsets[documentVectors.size()] = offset;
+
+		return new SparseMatrix(documentVectors.size(), termIds.size(), rowOffsets, columns, values);
+	}
+
+	/**
+	 * Assign ids to all terms of the vectors in sorted order
+	 *
+	 * @param documentVectors
+	 * @return
+	 */
+	private static Map<String, Integer> termIds(List<DocumentVector> documentVectors) {
+		Map<String, Integer> termIds = new HashMap<String, Integer>();
+		for (DocumentVector docVec : documentVectors) {
+			for (String term : docVec.getDocIdftfMap().keySet()) {
+				termIds.put(term, 0);
+			}
+		}
+		List<String> sortedTerms = new ArrayList<String>(termIds.keySet());
+		Collections.sort(sortedTerms);
+		for (int termId = 0; termId < sortedTerms.size(); termId++) {
+			termIds.put(sortedTerms.get(termId), termId);
+		}
+		return termIds;
+	}
+
+	/**
+	 * Orders map entries by their key
+	 */
+	private static class TermComparator implements Comparator<Entry<String, Float>> {
+		public int compare(Entry<String, Float> e1, Entry<String, Float> e2) {
+			return e1.getKey().compareTo(e2.getKey());
+		}
+	}
+
+	/**
+	 * Return the transpose of the matrix, e.g. the term-document matrix (an inverted index with weights)
+	 * for a document-term matrix
+	 *
+	 * @return
+	 */
+	public SparseMatrix transpose() {
+		int[] transposedOffsets = new int[numberOfColumns + 1];
+		for (int column : columns) {
+			transposedOffsets[column + 1]++;
+		}
+		for (int column = 0; column < numberOfColumns; column++) {
+			transposedOffsets[column + 1] += transposedOffsets[column];
+		}
+
+		int[] fill = transposedOffsets.clone();
+		int[] transposedColumns = new int[columns.length];
+		float[] transposedValues = new float[values.length];
+		for (int row = 0; row < numberOfRows; row++) {
+			for (int offset = rowOffsets[row]; offset < rowOffsets[row + 1]; offset++) {
+				int target = fill[columns[offset]]++;
+				transposedColumns[target] = row;
+				transposedValues[target] = values[offset];
+			}
+		}
+		return new SparseMatrix(numberOfColumns, numberOfRows, transposedOffsets, transposedColumns,
+				transposedValues);
+	}
+
+	/**
+	 * Return the euclidean length of every row
+	 *
+	 * @return
+	 */
+	public double[] rowLengths() {
+		double[] lengths = new double[numberOfRows];
+		for (int row = 0; row < numberOfRows; row++) {
+			double sum = 0;
+			for (int offset = rowOffsets[row]; offset < rowOffsets[row + 1]; offset++) {
+				sum += Math.pow(values[offset], 2);
+			}
+			lengths[row] = Math.sqrt(sum);
+		}
+		return lengths;
+	}
+
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	public int getNumberOfColumns() {
+		return numberOfColumns;
+	}
+
+	/**
+	 * Return the offset of the first entry of a row
+	 *
+	 * @param row
+	 * @return
+	 */
+	public int rowStart(int row) {
+		return rowOffsets[row];
+	}
+
+	/**
+	 * Return the offset behind the last entry of a row
+	 *
+	 * @param row
+	 * @return
+	 */
+	public int rowEnd(int row) {
+		return rowOffsets[row + 1];
+	}
+
+	public int getColumn(int offset) {
+		return columns[offset];
+	}
+
+	public float getValue(int offset) {
+		return values[offset];
+	}
+}
@@ -0,0 +1,168 @@
+package com.tuwien.isis.irtask1.search;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.indexer.IndexFiles;
+import com.tuwien.isis.irtask1.indexer.TermStatisticsWriter;
+import com.tuwien.isis.irtask1.indexer.TokenAnalyzer;
+import com.tuwien.isis.irtask1.indexer.VByte;
+
+/**
+ * Analyzer settings and document frequencies of an index, loaded from the file written by
+ * {@link TermStatisticsWriter}. Turns free text into a query vector weighted exactly like the
+ * documents of the index, without loading any document vector.
+ */
+public class TermStatistics {
+
+	/**
+	 * Topics starting with this prefix are free text rather than the name of a document
+	 */
+	public static final String TEXT_QUERY_PREFIX = "text:";
+
+	/**
+	 * Class assignment of the query documents made from free text
+	 */
+	private static final String TEXT_QUERY_CLASS = "text";
+
+	/**
+	 * Analyzer with the settings of the index (not thread-safe, so it is locked while in use)
+	 */
+	private final TokenAnalyzer analyzer;
+
+	private final int numberOfDocuments;
+
+	private final Map<String, Integer> documentFrequencies;
+
+	protected TermStatistics(TokenAnalyzer analyzer, int numberOfDocuments, Map<String, Integer> documentFrequencies) {
+		this.analyzer = analyzer;
+		this.numberOfDocuments = numberOfDocuments;
+		this.documentFrequencies = documentFrequencies;
+	}
+
+	/**
+	 * Load the term statistics stored next to the index at the given path, or return null if the index
+	 * was built without them
+	 *
+	 * @param indexPath
+	 * @return
+	 * @throws IOException
+	 */
+	public static TermStatistics load(String indexPath) throws IOException {
+		String path = IndexFiles.sidecarPath(indexPath, TermStatisticsWriter.EXTENSION);
+		if (!new File(path).exists()) {
+			return null;
+		}
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+		try {
+			if (in.readInt() != TermStatisticsWriter.MAGIC) {
+				throw new IOException("not a term statistics file: " + path);
+			}
+			TokenAnalyzer analyzer = new TokenAnalyzer(in.readBoolean(), in.readBoolean());
+			int numberOfDocuments = in.readInt();
+
+			int termCount = in.readInt();
+			Map<String, Integer> documentFrequencies = new HashMap<String, Integer>(termCount * 2);
+			for (int term = 0; term < termCount; term++) {
+				String token = in.readUTF();
+				documentFrequencies.put(token, VByte.read(in));
+			}
+			return new TermStatistics(analyzer, numberOfDocuments, documentFrequencies);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Check if a topic is free text rather than the name of a document
+	 *
+	 * @param topic
+	 * @return
+	 */
+	public static boolean isTextQuery(String topic) {
+		return topic.startsWith(TEXT_QUERY_PREFIX);
+	}
+
+	/**
+	 * Return the free text of a topic, without its prefix
+	 *
+	 * @param topic
+	 * @return
+	 */
+	public static String getText(String topic) {
+		return topic.substring(TEXT_QUERY_PREFIX.length()).trim();
+	}
+
+	public int getNumberOfDocuments() {
+		return numberOfDocuments;
+	}
+
+	public int getNumberOfTerms() {
+		return documentFrequencies.size();
+	}
+
+	/**
+	 * Return the number of documents containing a term, 0 if it is not in the index
+	 *
+	 * @param term
+	 * @return
+	 */
+	public int getDocumentFrequency(String term) {
+		Integer df = documentFrequencies.get(term);
+		return (df != null) ? df : 0;
+	}
+
+	/**
+	 * Build the query vector of a free text: its words are analyzed like those of the indexed documents,
+	 * and every term of the index gets the tf-idf weight it would have in a document with this text.
+	 * Words without a term in the index are left out.
+	 *
+	 * @param text
+	 * @return
+	 */
+	public DocumentVector buildQuery(String text) {
+		Map<String, Integer> termFrequencies = new HashMap<String, Integer>();
+		synchronized (analyzer) {
+			for (String word : TokenAnalyzer.split(text)) {
+				String term = word.isEmpty() ? null : analyzer.analyze(word);
+				if (term != null && documentFrequencies.containsKey(term)) {
+					Integer tf = termFrequencies.get(term);
+					termFrequencies.put(term, (tf != null) ? tf + 1 : 1);
+				}
+			}
+		}
+
+		return new DocumentVector(new Document(text, -1, TEXT_QUERY_CLASS), weight(termFrequencies));
+	}
+
+	/**
+	 * Return the weights of the terms of a free text with the given frequencies
+	 *
+	 * @param termFrequencies
+	 *            frequencies of the terms of the text which are in the index
+	 * @return
+	 */
+	protected Map<String, Float> weight(Map<String, Integer> termFrequencies) {
+		// the same weighting and rounding as the indexer
+		DecimalFormat formatter = new DecimalFormat("#.###");
+		Map<String, Float> docIdftfMap = new HashMap<String, Float>(termFrequencies.size() * 2);
+		for (Entry<String, Integer> entry : termFrequencies.entrySet()) {
+			float idfValue = (float) Math.log10(numberOfDocuments / (float) documentFrequencies.get(entry.getKey()));
+			float tfValue = (float) (1.0 + Math.log10(entry.getValue()));
+			float tfidfValue = idfValue * tfValue;
+			if (tfidfValue > 0) {
+				docIdftfMap.put(entry.getKey(), Float.parseFloat(formatter.format(tfidfValue)));
+			}
+		}
+		return docIdftfMap;
+	}
+}
@@ -0,0 +1,126 @@
+package com.tuwien.isis.irtask1.search;
+
+/**
+ * Collects the k best (document id, score) pairs offered to it in a bounded min-heap, so that a scan
+ * over n candidates costs O(n log k) instead of sorting all of them. Ties are ordered by document id,
+ * like {@link DocumentVectorCosineComparator}.
+ */
+public class TopKCollector {
+
+	private final int k;
+
+	private final int[] ids;
+
+	private final double[] scores;
+
+	private int size = 0;
+
+	public TopKCollector(int k) {
+		this.k = k;
+		this.ids = new int[k];
+		this.scores = new double[k];
+	}
+
+	/**
+	 * Offer a candidate, which is kept if it is better than the worst collected one
+	 *
+	 * @param id
+	 * @param score
+	 */
+	public void offer(int id, double score) {
+		if (size < k) {
+			ids[size] = id;
+			scores[size] = score;
+			siftUp(size++);
+		} else if (k > 0 && isBetter(score, id, scores[0], ids[0])) {
+			ids[0] = id;
+			scores[0] = score;
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * Return the number of collected candidates
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the score a candidate has to beat to be collected, or negative infinity while fewer than k
+	 * candidates have been collected
+	 *
+	 * @return
+	 */
+	public double threshold() {
+		return (size < k) ? Double.NEGATIVE_INFINITY : scores[0];
+	}
+
+	/**
+	 * Remove all collected candidates and return their ids, best first. The scores are written to the
+	 * given array, which must hold at least size() values.
+	 *
+	 * @param sortedScores
+	 * @return
+	 */
+	public int[] drainSorted(double[] sortedScores) {
+		int count = size;
+		int[] sortedIds = new int[count];
+		for (int i = count - 1; i >= 0; i--) {
+			sortedIds[i] = ids[0];
+			sortedScores[i] = scores[0];
+			size--;
+			if (size > 0) {
+				ids[0] = ids[size];
+				scores[0] = scores[size];
+				siftDown(0);
+			}
+		}
+		return sortedIds;
+	}
+
+	/**
+	 * Check if the first candidate ranks before the second one
+	 */
+	private static boolean isBetter(double score1, int id1, double score2, int id2) {
+		return score1 > score2 || (score1 == score2 && id1 < id2);
+	}
+
+	private void siftUp(int index) {
+		while (index > 0) {
+			int parent = (index - 1) / 2;
+			if (!isBetter(scores[parent], ids[parent], scores[index], ids[index])) {
+				break;
+			}
+			swap(index, parent);
+			index = parent;
+		}
+	}
+
+	private void siftDown(int index) {
+		while (true) {
+			int worst = index;
+			for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+				if (isBetter(scores[worst], ids[worst], scores[child], ids[child])) {
+					worst = child;
+				}
+			}
+			if (worst == index) {
+				return;
+			}
+			swap(index, worst);
+			index = worst;
+		}
+	}
+
+	private void swap(int i, int j) {
+		int id = ids[i];
+		ids[i] = ids[j];
+		ids[j] = id;
+		double score = scores[i];
+		scores[i] = scores[j];
+		scores[j] = score;
+	}
+}
@@ -0,0 +1,35 @@
+package com.tuwien.isis.irtask1.search.bool;
+
+/**
+ * All documents of the index, the base of a query which only excludes documents
+ */
+class AllDocumentsIterator extends DocIdIterator {
+
+	private final int numberOfDocuments;
+
+	private int docId = -1;
+
+	AllDocumentsIterator(int numberOfDocuments) {
+		this.numberOfDocuments = numberOfDocuments;
+	}
+
+	public int docId() {
+		return docId;
+	}
+
+	public int nextDoc() {
+		return (docId == NO_MORE_DOCS) ? docId : advance(docId + 1);
+	}
+
+	public int advance(int target) {
+		return docId = (target < numberOfDocuments) ? target : NO_MORE_DOCS;
+	}
+
+	public long cost() {
+		return numberOfDocuments;
+	}
+
+	public long decodedPostings() {
+		return 0;
+	}
+}
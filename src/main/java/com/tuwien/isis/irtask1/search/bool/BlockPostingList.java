@@ -0,0 +1,130 @@
+package com.tuwien.isis.irtask1.search.bool;
+
+import com.tuwien.isis.irtask1.indexer.BlockPostingsWriter;
+import com.tuwien.isis.irtask1.indexer.VByte;
+
+/**
+ * Document ids of a term in variable-byte encoded blocks as written by {@link BlockPostingsWriter},
+ * with the last id and the offset of every block as skip data
+ */
+public class BlockPostingList {
+
+	private final int size;
+
+	/**
+	 * Last document id of every block
+	 */
+	private final int[] lastDocIds;
+
+	/**
+	 * Offset of every block in the data, followed by the end of the data
+	 */
+	private final int[] blockOffsets;
+
+	private final byte[] data;
+
+	public BlockPostingList(int size, int[] lastDocIds, int[] blockOffsets, byte[] data) {
+		this.size = size;
+		this.lastDocIds = lastDocIds;
+		this.blockOffsets = blockOffsets;
+		this.data = data;
+	}
+
+	/**
+	 * Return the number of documents in the list
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getBlockCount() {
+		return lastDocIds.length;
+	}
+
+	/**
+	 * Return a new iterator over the document ids
+	 *
+	 * @return
+	 */
+	public DocIdIterator iterator() {
+		return new PostingIterator();
+	}
+
+	/**
+	 * Decodes one block at a time. advance() gallops over the skip data to the first block which can
+	 * contain the target, so blocks in between are never decoded, and then gallops within the block.
+	 */
+	private class PostingIterator extends DocIdIterator {
+
+		private final int[] buffer = new int[BlockPostingsWriter.BLOCK_SIZE];
+
+		private final int[] cursor = new int[1];
+
+		private int block = -1;
+
+		private int bufferSize = 0;
+
+		private int position = -1;
+
+		private int docId = -1;
+
+		private long decoded = 0;
+
+		public int docId() {
+			return docId;
+		}
+
+		public int nextDoc() {
+			if (docId == NO_MORE_DOCS) {
+				return docId;
+			}
+			if (++position < bufferSize) {
+				return docId = buffer[position];
+			}
+			if (block + 1 >= lastDocIds.length) {
+				return docId = NO_MORE_DOCS;
+			}
+			decode(block + 1);
+			position = 0;
+			return docId = buffer[0];
+		}
+
+		public int advance(int target) {
+			if (docId == NO_MORE_DOCS) {
+				return docId;
+			}
+			if (block < 0 || target > lastDocIds[block]) {
+				int next = gallop(lastDocIds, block + 1, lastDocIds.length, target);
+				if (next == lastDocIds.length) {
+					return docId = NO_MORE_DOCS;
+				}
+				decode(next);
+				position = 0;
+			}
+			position = gallop(buffer, position, bufferSize, target);
+			return docId = buffer[position];
+		}
+
+		public long cost() {
+			return size;
+		}
+
+		public long decodedPostings() {
+			return decoded;
+		}
+
+		private void decode(int next) {
+			block = next;
+			bufferSize = Math.min(BlockPostingsWriter.BLOCK_SIZE, size - block * BlockPostingsWriter.BLOCK_SIZE);
+			cursor[0] = blockOffsets[block];
+			int id = (block > 0) ? lastDocIds[block - 1] : 0;
+			for (int i = 0; i < bufferSize; i++) {
+				id += VByte.decode(data, cursor);
+				buffer[i] = id;
+			}
+			decoded += bufferSize;
+		}
+	}
+}
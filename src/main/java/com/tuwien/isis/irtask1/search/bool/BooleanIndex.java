@@ -0,0 +1,119 @@
+package com.tuwien.isis.irtask1.search.bool;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.BlockPostingsWriter;
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.indexer.TokenAnalyzer;
+import com.tuwien.isis.irtask1.indexer.VByte;
+
+/**
+ * Block posting lists of an index for Boolean queries, loaded from the file written by
+ * {@link BlockPostingsWriter}
+ */
+public class BooleanIndex {
+
+	private final TokenAnalyzer analyzer;
+
+	private final List<Document> documents;
+
+	private final Map<String, BlockPostingList> postingLists;
+
+	private BooleanIndex(TokenAnalyzer analyzer, List<Document> documents, Map<String, BlockPostingList> postingLists) {
+		this.analyzer = analyzer;
+		this.documents = documents;
+		this.postingLists = postingLists;
+	}
+
+	/**
+	 * Load the block postings file at the given path
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static BooleanIndex load(String path) throws IOException {
+		System.out.println("Loading block postings - " + path);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+		try {
+			if (in.readInt() != BlockPostingsWriter.MAGIC) {
+				throw new IOException("not a block postings file: " + path);
+			}
+			TokenAnalyzer analyzer = new TokenAnalyzer(in.readBoolean(), in.readBoolean());
+
+			int documentCount = in.readInt();
+			List<Document> documents = new ArrayList<Document>(documentCount);
+			for (int id = 0; id < documentCount; id++) {
+				String classAssignment = in.readUTF();
+				documents.add(new Document(in.readUTF(), id, classAssignment));
+			}
+
+			int termCount = in.readInt();
+			Map<String, BlockPostingList> postingLists = new HashMap<String, BlockPostingList>(termCount * 2);
+			for (int term = 0; term < termCount; term++) {
+				String token = in.readUTF();
+				postingLists.put(token, readPostingList(in));
+			}
+			return new BooleanIndex(analyzer, documents, postingLists);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Read the skip data and the encoded blocks of a single term
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	private static BlockPostingList readPostingList(DataInputStream in) throws IOException {
+		int size = VByte.read(in);
+		int blockCount = VByte.read(in);
+		int[] lastDocIds = new int[blockCount];
+		int[] blockOffsets = new int[blockCount + 1];
+		int lastDocId = 0;
+		for (int block = 0; block < blockCount; block++) {
+			lastDocId += VByte.read(in);
+			lastDocIds[block] = lastDocId;
+			blockOffsets[block + 1] = blockOffsets[block] + VByte.read(in);
+		}
+		byte[] data = new byte[blockOffsets[blockCount]];
+		in.readFully(data);
+		return new BlockPostingList(size, lastDocIds, blockOffsets, data);
+	}
+
+	/**
+	 * Return the analyzer with the settings the index was built with
+	 *
+	 * @return
+	 */
+	public TokenAnalyzer getAnalyzer() {
+		return analyzer;
+	}
+
+	public int getNumberOfDocuments() {
+		return documents.size();
+	}
+
+	public Document getDocument(int id) {
+		return documents.get(id);
+	}
+
+	/**
+	 * Return the posting list of a term or null if the term is not indexed
+	 *
+	 * @param term
+	 * @return
+	 */
+	public BlockPostingList getPostingList(String term) {
+		return postingLists.get(term);
+	}
+}
@@ -0,0 +1,320 @@
+package com.tuwien.isis.irtask1.search.bool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.tuwien.isis.irtask1.indexer.TokenAnalyzer;
+
+/**
+ * Operator tree of a Boolean query over the terms of an index. The query syntax has the operators
+ * AND, OR and NOT (in upper case) and parentheses; NOT binds tightest and OR loosest, and words without
+ * an operator in between are combined with AND, so "encryption clipper NOT nsa" finds the documents
+ * containing encryption and clipper but not nsa. Words are analyzed like the indexed documents; words
+ * without a term (e.g. stopwords) are left out of the query.
+ */
+public abstract class BooleanQuery {
+
+	private static final Pattern TOKEN = Pattern.compile("\\(|\\)|[^\\s()]+");
+
+	/**
+	 * Parse a query text
+	 *
+	 * @param analyzer
+	 *            the analyzer of the index
+	 * @param text
+	 * @return the query, or null if it has no term
+	 */
+	public static BooleanQuery parse(TokenAnalyzer analyzer, String text) {
+		List<String> tokens = new ArrayList<String>();
+		Matcher matcher = TOKEN.matcher(text);
+		while (matcher.find()) {
+			tokens.add(matcher.group());
+		}
+		Parser parser = new Parser(analyzer, tokens);
+		BooleanQuery query = parser.parseOr();
+		if (parser.position < tokens.size()) {
+			throw new IllegalArgumentException("unexpected '" + tokens.get(parser.position) + "' in query: " + text);
+		}
+		return query;
+	}
+
+	/**
+	 * Return an iterator over the documents matching the query
+	 *
+	 * @param index
+	 * @return
+	 */
+	public abstract DocIdIterator iterator(BooleanIndex index);
+
+	/**
+	 * Return the words whose occurrence contributes to a match, i.e. all words which are not negated
+	 *
+	 * @return
+	 */
+	public List<String> getPositiveWords() {
+		List<String> words = new ArrayList<String>();
+		collectPositiveWords(words);
+		return words;
+	}
+
+	/**
+	 * Return the terms of the query, negated or not
+	 *
+	 * @return
+	 */
+	public List<String> getTerms() {
+		List<String> terms = new ArrayList<String>();
+		collectTerms(terms);
+		return terms;
+	}
+
+	protected abstract void collectPositiveWords(List<String> words);
+
+	protected abstract void collectTerms(List<String> terms);
+
+	/**
+	 * A single term, matching the documents of its posting list
+	 */
+	private static class TermQuery extends BooleanQuery {
+
+		private final String word;
+
+		private final String term;
+
+		TermQuery(String word, String term) {
+			this.word = word;
+			this.term = term;
+		}
+
+		public DocIdIterator iterator(BooleanIndex index) {
+			BlockPostingList postings = index.getPostingList(term);
+			return (postings != null) ? postings.iterator() : DocIdIterator.empty();
+		}
+
+		protected void collectPositiveWords(List<String> words) {
+			words.add(word);
+		}
+
+		protected void collectTerms(List<String> terms) {
+			terms.add(term);
+		}
+
+		@Override
+		public String toString() {
+			return term;
+		}
+	}
+
+	/**
+	 * Documents matching all clauses. Negated clauses are subtracted from the intersection of the
+	 * others, or from all documents if every clause is negated.
+	 */
+	private static class AndQuery extends BooleanQuery {
+
+		private final List<BooleanQuery> clauses;
+
+		AndQuery(List<BooleanQuery> clauses) {
+			this.clauses = clauses;
+		}
+
+		public DocIdIterator iterator(BooleanIndex index) {
+			List<DocIdIterator> required = new ArrayList<DocIdIterator>();
+			List<DocIdIterator> excluded = new ArrayList<DocIdIterator>();
+			for (BooleanQuery clause : clauses) {
+				if (clause instanceof NotQuery) {
+					excluded.add(((NotQuery) clause).clause.iterator(index));
+				} else {
+					required.add(clause.iterator(index));
+				}
+			}
+
+			DocIdIterator iterator = required.isEmpty() ? new AllDocumentsIterator(index.getNumberOfDocuments())
+					: (required.size() == 1) ? required.get(0) : new ConjunctionIterator(required);
+			if (!excluded.isEmpty()) {
+				iterator = new ExclusionIterator(iterator, (excluded.size() == 1) ? excluded.get(0)
+						: new DisjunctionIterator(excluded));
+			}
+			return iterator;
+		}
+
+		protected void collectPositiveWords(List<String> words) {
+			for (BooleanQuery clause : clauses) {
+				clause.collectPositiveWords(words);
+			}
+		}
+
+		protected void collectTerms(List<String> terms) {
+			for (BooleanQuery clause : clauses) {
+				clause.collectTerms(terms);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return join(clauses, " AND ");
+		}
+	}
+
+	/**
+	 * Documents matching any of the clauses
+	 */
+	private static class OrQuery extends BooleanQuery {
+
+		private final List<BooleanQuery> clauses;
+
+		OrQuery(List<BooleanQuery> clauses) {
+			this.clauses = clauses;
+		}
+
+		public DocIdIterator iterator(BooleanIndex index) {
+			List<DocIdIterator> iterators = new ArrayList<DocIdIterator>();
+			for (BooleanQuery clause : clauses) {
+				iterators.add(clause.iterator(index));
+			}
+			return new DisjunctionIterator(iterators);
+		}
+
+		protected void collectPositiveWords(List<String> words) {
+			for (BooleanQuery clause : clauses) {
+				clause.collectPositiveWords(words);
+			}
+		}
+
+		protected void collectTerms(List<String> terms) {
+			for (BooleanQuery clause : clauses) {
+				clause.collectTerms(terms);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return join(clauses, " OR ");
+		}
+	}
+
+	/**
+	 * Documents not matching the clause
+	 */
+	private static class NotQuery extends BooleanQuery {
+
+		private final BooleanQuery clause;
+
+		NotQuery(BooleanQuery clause) {
+			this.clause = clause;
+		}
+
+		public DocIdIterator iterator(BooleanIndex index) {
+			return new ExclusionIterator(new AllDocumentsIterator(index.getNumberOfDocuments()), clause.iterator(index));
+		}
+
+		protected void collectPositiveWords(List<String> words) {
+			// negated words never contribute to a match
+		}
+
+		protected void collectTerms(List<String> terms) {
+			clause.collectTerms(terms);
+		}
+
+		@Override
+		public String toString() {
+			return "NOT " + clause;
+		}
+	}
+
+	private static String join(List<BooleanQuery> clauses, String operator) {
+		StringBuilder builder = new StringBuilder("(");
+		for (int i = 0; i < clauses.size(); i++) {
+			builder.append((i > 0) ? operator : "").append(clauses.get(i));
+		}
+		return builder.append(')').toString();
+	}
+
+	/**
+	 * Recursive descent parser over the tokens of a query, dropping the parts without terms
+	 */
+	private static class Parser {
+
+		private final TokenAnalyzer analyzer;
+
+		private final List<String> tokens;
+
+		private int position = 0;
+
+		Parser(TokenAnalyzer analyzer, List<String> tokens) {
+			this.analyzer = analyzer;
+			this.tokens = tokens;
+		}
+
+		BooleanQuery parseOr() {
+			List<BooleanQuery> clauses = new ArrayList<BooleanQuery>();
+			add(clauses, parseAnd());
+			while (accept("OR")) {
+				add(clauses, parseAnd());
+			}
+			return (clauses.size() > 1) ? new OrQuery(clauses) : clauses.isEmpty() ? null : clauses.get(0);
+		}
+
+		BooleanQuery parseAnd() {
+			List<BooleanQuery> clauses = new ArrayList<BooleanQuery>();
+			add(clauses, parseNot());
+			while (position < tokens.size() && !peek("OR") && !peek(")")) {
+				accept("AND");
+				add(clauses, parseNot());
+			}
+			return and(clauses);
+		}
+
+		BooleanQuery parseNot() {
+			if (accept("NOT")) {
+				BooleanQuery clause = parseNot();
+				return (clause != null) ? new NotQuery(clause) : null;
+			}
+			if (accept("(")) {
+				BooleanQuery query = parseOr();
+				if (!accept(")")) {
+					throw new IllegalArgumentException("missing ')' in query");
+				}
+				return query;
+			}
+			if (position == tokens.size() || peek(")") || peek("AND") || peek("OR")) {
+				throw new IllegalArgumentException("missing word in query at " + (position < tokens.size()
+						? "'" + tokens.get(position) + "'" : "the end"));
+			}
+
+			// a token such as e-mail may hold several words, all of which must occur
+			String token = tokens.get(position++);
+			List<BooleanQuery> terms = new ArrayList<BooleanQuery>();
+			for (String word : TokenAnalyzer.split(token)) {
+				String term = word.isEmpty() ? null : analyzer.analyze(word);
+				if (term != null) {
+					terms.add(new TermQuery(word, term));
+				}
+			}
+			return and(terms);
+		}
+
+		private static BooleanQuery and(List<BooleanQuery> clauses) {
+			return (clauses.size() > 1) ? new AndQuery(clauses) : clauses.isEmpty() ? null : clauses.get(0);
+		}
+
+		private static void add(List<BooleanQuery> clauses, BooleanQuery clause) {
+			if (clause != null) {
+				clauses.add(clause);
+			}
+		}
+
+		private boolean peek(String token) {
+			return position < tokens.size() && tokens.get(position).equals(token);
+		}
+
+		private boolean accept(String token) {
+			if (peek(token)) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package com.tuwien.isis.irtask1.search.bool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.TermStatistics;
+import com.tuwien.isis.irtask1.search.TopKCollector;
+import com.tuwien.isis.irtask1.search.filter.DocIdSet;
+import com.tuwien.isis.irtask1.search.forward.ForwardIndex;
+
+/**
+ * Ranks the documents matching a Boolean query by the cosine of their forward index vectors with the
+ * words of the query which are not negated, weighted like a free-text query. Only the matching
+ * documents are scored.
+ */
+public class BooleanRanker {
+
+	private final ForwardIndex index;
+
+	private final TermStatistics termStatistics;
+
+	public BooleanRanker(ForwardIndex index, TermStatistics termStatistics) {
+		this.index = index;
+		this.termStatistics = termStatistics;
+	}
+
+	/**
+	 * Return the k matching documents most similar to the query, best first
+	 *
+	 * @param query
+	 * @param matches
+	 * @param k
+	 * @return
+	 */
+	public List<DocumentVector> rank(BooleanQuery query, DocIdSet matches, int k) {
+		StringBuilder text = new StringBuilder();
+		for (String word : query.getPositiveWords()) {
+			text.append(word).append(' ');
+		}
+		DocumentVector queryDocVec = termStatistics.buildQuery(text.toString());
+
+		// sorted sparse representation of the query
+		TreeMap<Integer, Float> sorted = new TreeMap<Integer, Float>();
+		for (Entry<String, Float> entry : queryDocVec.getDocIdftfMap().entrySet()) {
+			int termId = index.findTermId(entry.getKey());
+			if (termId >= 0) {
+				sorted.put(termId, entry.getValue());
+			}
+		}
+		int[] queryTermIds = new int[sorted.size()];
+		float[] queryWeights = new float[sorted.size()];
+		double queryLength = 0;
+		int querySize = 0;
+		for (Entry<Integer, Float> entry : sorted.entrySet()) {
+			queryTermIds[querySize] = entry.getKey();
+			queryWeights[querySize++] = entry.getValue();
+			queryLength += Math.pow(entry.getValue(), 2);
+		}
+		queryLength = Math.sqrt(queryLength);
+
+		// matching documents without a weighted query term are ranked last with cosine 0
+		TopKCollector collector = new TopKCollector(k);
+		DocIdSet.Iterator docs = matches.iterator();
+		for (int docId = docs.next(); docId != DocIdSet.END; docId = docs.next()) {
+			double denominator = queryLength * index.getLength(docId);
+			collector.offer(docId, (denominator != 0) ? index.dotProduct(queryTermIds, queryWeights, querySize,
+					docId) / denominator : 0);
+		}
+
+		double[] cosines = new double[collector.size()];
+		int[] ids = collector.drainSorted(cosines);
+		List<DocumentVector> resultList = new ArrayList<DocumentVector>(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			DocumentVector docVec = index.getVector(ids[i]);
+			DocumentVector result = new DocumentVector(docVec.getDocumentData(), docVec.getDocIdftfMap());
+			result.setCosine(cosines[i]);
+			resultList.add(result);
+		}
+		return resultList;
+	}
+}
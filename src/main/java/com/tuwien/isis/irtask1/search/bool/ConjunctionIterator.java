@@ -0,0 +1,75 @@
+package com.tuwien.isis.irtask1.search.bool;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Documents matching all of a number of iterators. The cheapest iterator leads and proposes
+ * candidates; the others advance to each candidate and, if they overshoot, move the lead on to their
+ * own document. Since every step jumps over the documents in between, the cost stays close to the
+ * length of the shortest list.
+ */
+class ConjunctionIterator extends DocIdIterator {
+
+	private final DocIdIterator lead;
+
+	private final DocIdIterator[] others;
+
+	private int docId = -1;
+
+	ConjunctionIterator(List<DocIdIterator> iterators) {
+		DocIdIterator[] sorted = iterators.toArray(new DocIdIterator[iterators.size()]);
+		Arrays.sort(sorted, new Comparator<DocIdIterator>() {
+			public int compare(DocIdIterator a, DocIdIterator b) {
+				return Long.compare(a.cost(), b.cost());
+			}
+		});
+		this.lead = sorted[0];
+		this.others = Arrays.copyOfRange(sorted, 1, sorted.length);
+	}
+
+	public int docId() {
+		return docId;
+	}
+
+	public int nextDoc() {
+		return docId = align(lead.nextDoc());
+	}
+
+	public int advance(int target) {
+		return docId = align(lead.advance(target));
+	}
+
+	/**
+	 * Return the first candidate from the given one on which all iterators contain
+	 */
+	private int align(int candidate) {
+		outer: while (candidate != NO_MORE_DOCS) {
+			for (DocIdIterator other : others) {
+				int otherDocId = other.docId();
+				if (otherDocId < candidate) {
+					otherDocId = other.advance(candidate);
+				}
+				if (otherDocId > candidate) {
+					candidate = lead.advance(otherDocId);
+					continue outer;
+				}
+			}
+			return candidate;
+		}
+		return NO_MORE_DOCS;
+	}
+
+	public long cost() {
+		return lead.cost();
+	}
+
+	public long decodedPostings() {
+		long decoded = lead.decodedPostings();
+		for (DocIdIterator other : others) {
+			decoded += other.decodedPostings();
+		}
+		return decoded;
+	}
+}
@@ -0,0 +1,98 @@
+package com.tuwien.isis.irtask1.search.bool;
+
+import java.util.List;
+
+/**
+ * Documents matching any of a number of iterators, merged through a min-heap ordered by their current
+ * document ids
+ */
+class DisjunctionIterator extends DocIdIterator {
+
+	private final DocIdIterator[] heap;
+
+	private final DocIdIterator[] iterators;
+
+	private int docId = -1;
+
+	DisjunctionIterator(List<DocIdIterator> iterators) {
+		this.iterators = iterators.toArray(new DocIdIterator[iterators.size()]);
+		this.heap = this.iterators.clone();
+	}
+
+	public int docId() {
+		return docId;
+	}
+
+	public int nextDoc() {
+		if (docId == NO_MORE_DOCS) {
+			return docId;
+		} else if (docId == -1) {
+			for (DocIdIterator iterator : heap) {
+				iterator.nextDoc();
+			}
+			heapify();
+		} else {
+			while (heap[0].docId() == docId) {
+				heap[0].nextDoc();
+				siftDown(0);
+			}
+		}
+		return docId = heap[0].docId();
+	}
+
+	public int advance(int target) {
+		if (docId == -1) {
+			for (DocIdIterator iterator : heap) {
+				iterator.advance(target);
+			}
+			heapify();
+		} else {
+			while (heap[0].docId() < target) {
+				heap[0].advance(target);
+				siftDown(0);
+			}
+		}
+		return docId = heap[0].docId();
+	}
+
+	public long cost() {
+		long cost = 0;
+		for (DocIdIterator iterator : iterators) {
+			cost += iterator.cost();
+		}
+		return cost;
+	}
+
+	public long decodedPostings() {
+		long decoded = 0;
+		for (DocIdIterator iterator : iterators) {
+			decoded += iterator.decodedPostings();
+		}
+		return decoded;
+	}
+
+	private void heapify() {
+		for (int i = heap.length / 2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+
+	private void siftDown(int i) {
+		DocIdIterator iterator = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heap.length) {
+				break;
+			}
+			if (child + 1 < heap.length && heap[child + 1].docId() < heap[child].docId()) {
+				child++;
+			}
+			if (heap[child].docId() >= iterator.docId()) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = iterator;
+	}
+}
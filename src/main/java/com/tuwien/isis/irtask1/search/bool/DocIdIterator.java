@@ -0,0 +1,129 @@
+package com.tuwien.isis.irtask1.search.bool;
+
+import com.tuwien.isis.irtask1.search.filter.DocIdSet;
+
+/**
+ * Iterates the ids of the documents matching (part of) a Boolean query in ascending order. Before the
+ * first call of nextDoc() or advance() the iterator is not positioned and docId() returns -1; after
+ * the last document it returns NO_MORE_DOCS.
+ */
+public abstract class DocIdIterator {
+
+	/**
+	 * Returned after the last document; larger than every document id, so it can be used as a target
+	 */
+	public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+	/**
+	 * Return the current document id
+	 *
+	 * @return
+	 */
+	public abstract int docId();
+
+	/**
+	 * Move to the next document and return its id
+	 *
+	 * @return
+	 */
+	public abstract int nextDoc();
+
+	/**
+	 * Move to the first document whose id is at least target, which must be larger than the current
+	 * id, and return its id
+	 *
+	 * @param target
+	 * @return
+	 */
+	public abstract int advance(int target);
+
+	/**
+	 * Return an upper bound of the number of documents the iterator returns
+	 *
+	 * @return
+	 */
+	public abstract long cost();
+
+	/**
+	 * Return the number of postings decoded so far by this iterator and the iterators below it
+	 *
+	 * @return
+	 */
+	public abstract long decodedPostings();
+
+	/**
+	 * Collect the remaining documents into a set
+	 *
+	 * @return
+	 */
+	public DocIdSet toDocIdSet() {
+		DocIdSet.Builder builder = new DocIdSet.Builder();
+		for (int docId = nextDoc(); docId != NO_MORE_DOCS; docId = nextDoc()) {
+			builder.add(docId);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Return an iterator over no documents, e.g. for a term which is not in the index
+	 *
+	 * @return
+	 */
+	public static DocIdIterator empty() {
+		return new DocIdIterator() {
+			private int docId = -1;
+
+			public int docId() {
+				return docId;
+			}
+
+			public int nextDoc() {
+				return docId = NO_MORE_DOCS;
+			}
+
+			public int advance(int target) {
+				return docId = NO_MORE_DOCS;
+			}
+
+			public long cost() {
+				return 0;
+			}
+
+			public long decodedPostings() {
+				return 0;
+			}
+		};
+	}
+
+	/**
+	 * Return the first index in [from, to) whose value is at least target, or to if there is none. The
+	 * values must be ascending. The distance to the result is first bounded by doubling steps, then
+	 * narrowed down by binary search, so the cost grows with the logarithm of the distance.
+	 *
+	 * @param values
+	 * @param from
+	 * @param to
+	 * @param target
+	 * @return
+	 */
+	static int gallop(int[] values, int from, int to, int target) {
+		int low = from;
+		int high = from;
+		int step = 1;
+		while (high < to && values[high] < target) {
+			low = high + 1;
+			high += step;
+			step <<= 1;
+		}
+		high = Math.min(high, to);
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (values[middle] < target) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
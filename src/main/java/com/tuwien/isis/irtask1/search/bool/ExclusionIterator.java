@@ -0,0 +1,53 @@
+package com.tuwien.isis.irtask1.search.bool;
+
+/**
+ * Documents of one iterator which are not in another one (AND NOT). The excluded iterator is only
+ * advanced to the candidates of the included one.
+ */
+class ExclusionIterator extends DocIdIterator {
+
+	private final DocIdIterator included;
+
+	private final DocIdIterator excluded;
+
+	private int docId = -1;
+
+	ExclusionIterator(DocIdIterator included, DocIdIterator excluded) {
+		this.included = included;
+		this.excluded = excluded;
+	}
+
+	public int docId() {
+		return docId;
+	}
+
+	public int nextDoc() {
+		return docId = skipExcluded(included.nextDoc());
+	}
+
+	public int advance(int target) {
+		return docId = skipExcluded(included.advance(target));
+	}
+
+	private int skipExcluded(int candidate) {
+		while (candidate != NO_MORE_DOCS) {
+			int excludedDocId = excluded.docId();
+			if (excludedDocId < candidate) {
+				excludedDocId = excluded.advance(candidate);
+			}
+			if (excludedDocId != candidate) {
+				return candidate;
+			}
+			candidate = included.nextDoc();
+		}
+		return NO_MORE_DOCS;
+	}
+
+	public long cost() {
+		return included.cost();
+	}
+
+	public long decodedPostings() {
+		return included.decodedPostings() + excluded.decodedPostings();
+	}
+}
@@ -0,0 +1,222 @@
+package com.tuwien.isis.irtask1.search.dictionary;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import com.tuwien.isis.irtask1.indexer.TermDictionaryWriter;
+
+/**
+ * Immutable front-coded term dictionary written by {@link TermDictionaryWriter}, used straight from a
+ * memory-mapped file. A lookup binary-searches the first terms of the blocks and then decodes at most
+ * one block; nothing but the buffer itself is kept on the heap.
+ */
+public class TermDictionary {
+
+	private final ByteBuffer buffer;
+
+	private final int termCount;
+
+	private final int blockSize;
+
+	private final int blockCount;
+
+	/**
+	 * Offset of the block data in the buffer
+	 */
+	private final int dataStart;
+
+	public TermDictionary(ByteBuffer buffer) throws IOException {
+		if (buffer.getInt(0) != TermDictionaryWriter.MAGIC) {
+			throw new IOException("not a term dictionary");
+		}
+		this.buffer = buffer;
+		this.termCount = buffer.getInt(4);
+		this.blockSize = buffer.getInt(8);
+		this.blockCount = buffer.getInt(12);
+		this.dataStart = TermDictionaryWriter.HEADER_SIZE + 4 * blockCount;
+	}
+
+	/**
+	 * Map the dictionary file at the given path
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static TermDictionary open(String path) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		try {
+			return new TermDictionary(file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length()));
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Return the number of terms in the dictionary
+	 *
+	 * @return
+	 */
+	public int size() {
+		return termCount;
+	}
+
+	/**
+	 * Return the id of a term or -1 if it is not in the dictionary
+	 *
+	 * @param term
+	 * @return
+	 */
+	public int lookup(String term) {
+		byte[] key = term.getBytes(TermDictionaryWriter.CHARSET);
+		int id = lowerBound(key);
+		if (id < termCount && compare(decode(id), key) == 0) {
+			return id;
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the term with the given id
+	 *
+	 * @param id
+	 * @return
+	 */
+	public String term(int id) {
+		return new String(decode(id), TermDictionaryWriter.CHARSET);
+	}
+
+	/**
+	 * Return the ids of all terms starting with the given prefix as the range [from, to)
+	 *
+	 * @param prefix
+	 * @return two-element array {from, to}, empty if from == to
+	 */
+	public int[] prefixRange(String prefix) {
+		byte[] from = prefix.getBytes(TermDictionaryWriter.CHARSET);
+
+		// 0xFF never occurs in UTF-8, so it sorts behind every continuation of the prefix
+		byte[] to = Arrays.copyOf(from, from.length + 1);
+		to[from.length] = (byte) 0xFF;
+
+		return new int[] { lowerBound(from), lowerBound(to) };
+	}
+
+	/**
+	 * Return the id of the first term which is not smaller than the key (termCount if there is none)
+	 *
+	 * @param key
+	 * @return
+	 */
+	private int lowerBound(byte[] key) {
+		if (termCount == 0) {
+			return 0;
+		}
+
+		// find the last block whose first term is not greater than the key
+		int low = 0;
+		int high = blockCount - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (compare(decode(middle * blockSize), key) <= 0) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		// scan the terms of the block
+		int[] cursor = { blockOffset(low) };
+		byte[] term = new byte[32];
+		int[] length = { 0 };
+		int blockEnd = Math.min(termCount, (low + 1) * blockSize);
+		for (int id = low * blockSize; id < blockEnd; id++) {
+			term = next(term, length, cursor, id % blockSize == 0);
+			if (compare(term, length[0], key) >= 0) {
+				return id;
+			}
+		}
+		return blockEnd;
+	}
+
+	/**
+	 * Return the bytes of the term with the given id
+	 *
+	 * @param id
+	 * @return
+	 */
+	private byte[] decode(int id) {
+		int block = id / blockSize;
+		int[] cursor = { blockOffset(block) };
+		byte[] term = new byte[32];
+		int[] length = { 0 };
+		for (int i = block * blockSize; i <= id; i++) {
+			term = next(term, length, cursor, i == block * blockSize);
+		}
+		return Arrays.copyOf(term, length[0]);
+	}
+
+	/**
+	 * Decode the next term of a block into the term buffer, which holds the previous term
+	 *
+	 * @param term
+	 *            buffer holding the previous term, grown if necessary
+	 * @param length
+	 *            length of the previous term on entry, of the decoded term on return
+	 * @param cursor
+	 *            offset of the encoded term in the buffer, advanced behind it
+	 * @param first
+	 *            true if this is the first (fully stored) term of a block
+	 * @return the term buffer
+	 */
+	private byte[] next(byte[] term, int[] length, int[] cursor, boolean first) {
+		int prefix = first ? 0 : readVByte(cursor);
+		int suffix = readVByte(cursor);
+		if (prefix + suffix > term.length) {
+			term = Arrays.copyOf(term, (prefix + suffix) * 2);
+		}
+		for (int i = 0; i < suffix; i++) {
+			term[prefix + i] = buffer.get(cursor[0]++);
+		}
+		length[0] = prefix + suffix;
+		return term;
+	}
+
+	private int blockOffset(int block) {
+		return dataStart + buffer.getInt(TermDictionaryWriter.HEADER_SIZE + 4 * block);
+	}
+
+	private int readVByte(int[] cursor) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get(cursor[0]++);
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static int compare(byte[] term, byte[] key) {
+		return compare(term, term.length, key);
+	}
+
+	/**
+	 * Compare the first length bytes of a term with a key as unsigned bytes, which orders UTF-8 like
+	 * the code points it encodes
+	 */
+	private static int compare(byte[] term, int length, byte[] key) {
+		int common = Math.min(length, key.length);
+		for (int i = 0; i < common; i++) {
+			int difference = (term[i] & 0xFF) - (key[i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return length - key.length;
+	}
+}
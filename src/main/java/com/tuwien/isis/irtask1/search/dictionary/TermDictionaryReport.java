@@ -0,0 +1,88 @@
+package com.tuwien.isis.irtask1.search.dictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.util.HeapUsage;
+
+/**
+ * Compares the front-coded term dictionary with a HashMap from term to id: size on disk, heap and
+ * lookup time for every term of the vocabulary
+ */
+public class TermDictionaryReport {
+
+	private final String termsPath;
+
+	public TermDictionaryReport(String termsPath) {
+		this.termsPath = termsPath;
+	}
+
+	/**
+	 * Load the dictionary and the map, look up all terms with both and print the comparison
+	 *
+	 * @throws IOException
+	 */
+	public void run() throws IOException {
+		long heapBefore = HeapUsage.usedHeap();
+		TermDictionary dictionary = TermDictionary.open(termsPath);
+		long dictionaryHeap = HeapUsage.usedHeap() - heapBefore;
+
+		// the uncompressed size is that of the plain term list with one length per term
+		String[] terms = new String[dictionary.size()];
+		long rawSize = 0;
+		for (int termId = 0; termId < terms.length; termId++) {
+			terms[termId] = dictionary.term(termId);
+			rawSize += 1 + terms[termId].getBytes("UTF-8").length;
+		}
+
+		// copy the terms so that the map does not share its keys with the lookup list
+		heapBefore = HeapUsage.usedHeap();
+		Map<String, Integer> termIds = new HashMap<String, Integer>();
+		for (int termId = 0; termId < terms.length; termId++) {
+			termIds.put(new String(terms[termId].toCharArray()), termId);
+		}
+		long mapHeap = HeapUsage.usedHeap() - heapBefore;
+
+		long start = System.nanoTime();
+		for (int termId = 0; termId < terms.length; termId++) {
+			if (dictionary.lookup(terms[termId]) != termId) {
+				throw new IllegalStateException("term dictionary returns a wrong id for " + terms[termId]);
+			}
+		}
+		long dictionaryNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int termId = 0; termId < terms.length; termId++) {
+			if (termIds.get(terms[termId]) != termId) {
+				throw new IllegalStateException("term map returns a wrong id for " + terms[termId]);
+			}
+		}
+		long mapNanos = System.nanoTime() - start;
+
+		int count = Math.max(1, terms.length);
+		System.out.println("terms            " + terms.length);
+		System.out.println("                 HashMap         term dictionary");
+		System.out.println("size on disk     " + pad(HeapUsage.format(rawSize) + " (raw)")
+				+ HeapUsage.format(new File(termsPath).length()));
+		System.out.println("heap             " + pad(HeapUsage.format(mapHeap)) + HeapUsage.format(dictionaryHeap)
+				+ " (mapped)");
+		System.out.println("term -> id       " + pad((mapNanos / count) + " ns/term") + (dictionaryNanos / count)
+				+ " ns/term");
+	}
+
+	/**
+	 * Pad a column of the report to a fixed width
+	 *
+	 * @param value
+	 * @return
+	 */
+	private static String pad(String value) {
+		StringBuilder builder = new StringBuilder(value);
+		while (builder.length() < 16) {
+			builder.append(' ');
+		}
+		return builder.toString();
+	}
+}
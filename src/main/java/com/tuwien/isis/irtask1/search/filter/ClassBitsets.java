@@ -0,0 +1,109 @@
+package com.tuwien.isis.irtask1.search.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+
+/**
+ * One {@link DocIdSet} of the documents of every class of a searcher, built when the index is loaded.
+ * Document ids are the positions of the documents in the searcher, so a shard has its own bitsets.
+ */
+public class ClassBitsets {
+
+	private final List<String> classNames = new ArrayList<String>();
+
+	private final Map<String, Integer> ordinals = new HashMap<String, Integer>();
+
+	private final DocIdSet[] sets;
+
+	/**
+	 * Class ordinal of every document
+	 */
+	private final int[] classOrdinals;
+
+	private final DocIdSet all;
+
+	/**
+	 * Build the bitsets of the given documents, whose ids are their positions in the list
+	 *
+	 * @param documents
+	 */
+	public ClassBitsets(List<Document> documents) {
+		classOrdinals = new int[documents.size()];
+		List<DocIdSet.Builder> builders = new ArrayList<DocIdSet.Builder>();
+		for (int docId = 0; docId < documents.size(); docId++) {
+			String className = documents.get(docId).getClassAssignment();
+			Integer ordinal = ordinals.get(className);
+			if (ordinal == null) {
+				ordinal = classNames.size();
+				ordinals.put(className, ordinal);
+				classNames.add(className);
+				builders.add(new DocIdSet.Builder());
+			}
+			classOrdinals[docId] = ordinal;
+			builders.get(ordinal).add(docId);
+		}
+
+		sets = new DocIdSet[builders.size()];
+		for (int ordinal = 0; ordinal < sets.length; ordinal++) {
+			sets[ordinal] = builders.get(ordinal).build();
+		}
+		all = DocIdSet.range(documents.size());
+	}
+
+	/**
+	 * Return the ids of the documents of the classes selected by the filter. Classes unknown to this
+	 * searcher select nothing.
+	 *
+	 * @param filter
+	 *            the selected classes, or null for all documents
+	 * @return
+	 */
+	public DocIdSet select(ClassFilter filter) {
+		if (filter == null) {
+			return all;
+		}
+		DocIdSet selected = DocIdSet.empty();
+		for (String className : filter.getClasses()) {
+			Integer ordinal = ordinals.get(className);
+			if (ordinal != null) {
+				selected = selected.or(sets[ordinal]);
+			}
+		}
+		return selected;
+	}
+
+	public int getNumberOfClasses() {
+		return classNames.size();
+	}
+
+	public String getClassName(int ordinal) {
+		return classNames.get(ordinal);
+	}
+
+	/**
+	 * Return the class ordinal of a document
+	 *
+	 * @param docId
+	 * @return
+	 */
+	public int getClassOrdinal(int docId) {
+		return classOrdinals[docId];
+	}
+
+	/**
+	 * Return the approximate number of bytes of all bitsets
+	 *
+	 * @return
+	 */
+	public long sizeInBytes() {
+		long bytes = all.sizeInBytes();
+		for (DocIdSet set : sets) {
+			bytes += set.sizeInBytes();
+		}
+		return bytes;
+	}
+}
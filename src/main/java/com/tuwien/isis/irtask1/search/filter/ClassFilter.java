@@ -0,0 +1,46 @@
+package com.tuwien.isis.irtask1.search.filter;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Restricts a search to the documents of some classes (newsgroups)
+ */
+public class ClassFilter {
+
+	private final Set<String> classes;
+
+	public ClassFilter(Set<String> classes) {
+		this.classes = Collections.unmodifiableSet(new TreeSet<String>(classes));
+	}
+
+	/**
+	 * Parse a comma-separated list of class names
+	 *
+	 * @param list
+	 * @return
+	 */
+	public static ClassFilter parse(String list) {
+		Set<String> classes = new TreeSet<String>();
+		for (String className : list.split(",")) {
+			if (!className.trim().isEmpty()) {
+				classes.add(className.trim());
+			}
+		}
+		return new ClassFilter(classes);
+	}
+
+	public Set<String> getClasses() {
+		return classes;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (String className : classes) {
+			builder.append((builder.length() > 0) ? "," : "").append(className);
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,391 @@
+package com.tuwien.isis.irtask1.search.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable compressed set of document ids in the layout of a Roaring bitmap: the ids are grouped by
+ * their upper 16 bits, and every group of up to 65536 ids is stored either as a sorted array of the
+ * lower 16 bits (sparse groups) or as a 65536 bit bitmap (dense groups). Iterating the set costs time
+ * in proportion to the number of ids it holds rather than to the size of the collection.
+ */
+public final class DocIdSet {
+
+	/**
+	 * Returned by {@link Iterator#next()} after the last id
+	 */
+	public static final int END = -1;
+
+	/**
+	 * Groups with more ids than this are stored as bitmaps, which then take less space than arrays
+	 */
+	private static final int ARRAY_LIMIT = 4096;
+
+	private static final int BITMAP_WORDS = 1024;
+
+	private static final DocIdSet EMPTY = new DocIdSet(new char[0], new Container[0]);
+
+	/**
+	 * Upper 16 bits of the ids of every group, ascending
+	 */
+	private final char[] keys;
+
+	private final Container[] containers;
+
+	private final int cardinality;
+
+	private DocIdSet(char[] keys, Container[] containers) {
+		this.keys = keys;
+		this.containers = containers;
+		int count = 0;
+		for (Container container : containers) {
+			count += container.cardinality;
+		}
+		this.cardinality = count;
+	}
+
+	public static DocIdSet empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Return the set of all ids from 0 to size - 1
+	 *
+	 * @param size
+	 * @return
+	 */
+	public static DocIdSet range(int size) {
+		Builder builder = new Builder();
+		for (int id = 0; id < size; id++) {
+			builder.add(id);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Return the number of ids in the set
+	 *
+	 * @return
+	 */
+	public int cardinality() {
+		return cardinality;
+	}
+
+	public boolean contains(int id) {
+		int index = Arrays.binarySearch(keys, (char) (id >>> 16));
+		return index >= 0 && containers[index].contains((char) id);
+	}
+
+	/**
+	 * Return an iterator over the ids in ascending order
+	 *
+	 * @return
+	 */
+	public Iterator iterator() {
+		return new Iterator();
+	}
+
+	/**
+	 * Return the ids which are in this or in the other set
+	 *
+	 * @param other
+	 * @return
+	 */
+	public DocIdSet or(DocIdSet other) {
+		List<Character> resultKeys = new ArrayList<Character>();
+		List<Container> resultContainers = new ArrayList<Container>();
+		int i = 0;
+		int j = 0;
+		while (i < keys.length || j < other.keys.length) {
+			if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+				resultKeys.add(keys[i]);
+				resultContainers.add(containers[i++]);
+			} else if (i == keys.length || other.keys[j] < keys[i]) {
+				resultKeys.add(other.keys[j]);
+				resultContainers.add(other.containers[j++]);
+			} else {
+				resultKeys.add(keys[i]);
+				resultContainers.add(containers[i++].or(other.containers[j++]));
+			}
+		}
+		return create(resultKeys, resultContainers);
+	}
+
+	/**
+	 * Return the ids which are in both this and the other set
+	 *
+	 * @param other
+	 * @return
+	 */
+	public DocIdSet and(DocIdSet other) {
+		List<Character> resultKeys = new ArrayList<Character>();
+		List<Container> resultContainers = new ArrayList<Container>();
+		int i = 0;
+		int j = 0;
+		while (i < keys.length && j < other.keys.length) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (other.keys[j] < keys[i]) {
+				j++;
+			} else {
+				Container container = containers[i++].and(other.containers[j++]);
+				if (container.cardinality > 0) {
+					resultKeys.add(keys[i - 1]);
+					resultContainers.add(container);
+				}
+			}
+		}
+		return create(resultKeys, resultContainers);
+	}
+
+	/**
+	 * Return the approximate number of bytes the set occupies on the heap
+	 *
+	 * @return
+	 */
+	public long sizeInBytes() {
+		long bytes = 16 + 2L * keys.length;
+		for (Container container : containers) {
+			bytes += 16 + container.sizeInBytes();
+		}
+		return bytes;
+	}
+
+	private static DocIdSet create(List<Character> keyList, List<Container> containerList) {
+		char[] keys = new char[keyList.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = keyList.get(i);
+		}
+		return new DocIdSet(keys, containerList.toArray(new Container[containerList.size()]));
+	}
+
+	/**
+	 * Collects ids, which must be added in ascending order
+	 */
+	public static final class Builder {
+
+		private final List<Character> keys = new ArrayList<Character>();
+
+		private final List<Container> containers = new ArrayList<Container>();
+
+		private char[] values = new char[16];
+
+		private int size = 0;
+
+		private int currentKey = -1;
+
+		private int lastId = -1;
+
+		public void add(int id) {
+			if (id <= lastId) {
+				throw new IllegalArgumentException("ids must be added in ascending order: " + id + " after " + lastId);
+			}
+			lastId = id;
+			int key = id >>> 16;
+			if (key != currentKey) {
+				flush();
+				currentKey = key;
+			}
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = (char) id;
+		}
+
+		public DocIdSet build() {
+			flush();
+			return create(keys, containers);
+		}
+
+		private void flush() {
+			if (size > 0) {
+				keys.add((char) currentKey);
+				containers.add(Container.of(Arrays.copyOf(values, size)));
+				size = 0;
+			}
+		}
+	}
+
+	/**
+	 * Iterates the ids of the set in ascending order
+	 */
+	public final class Iterator {
+
+		private int containerIndex = 0;
+
+		/**
+		 * Index in the array, or next low bits to look at in the bitmap, of the current container
+		 */
+		private int position = 0;
+
+		/**
+		 * Return the next id, or END after the last one
+		 *
+		 * @return
+		 */
+		public int next() {
+			while (containerIndex < containers.length) {
+				Container container = containers[containerIndex];
+				int low = container.nextFrom(position);
+				if (low >= 0) {
+					position = container.isBitmap() ? low + 1 : position + 1;
+					return (keys[containerIndex] << 16) | low;
+				}
+				containerIndex++;
+				position = 0;
+			}
+			return END;
+		}
+	}
+
+	/**
+	 * The lower 16 bits of the ids of one group, held either as a sorted array or as a bitmap
+	 */
+	private static final class Container {
+
+		private final char[] array;
+
+		private final long[] bitmap;
+
+		private final int cardinality;
+
+		private Container(char[] array, long[] bitmap, int cardinality) {
+			this.array = array;
+			this.bitmap = bitmap;
+			this.cardinality = cardinality;
+		}
+
+		/**
+		 * Create the smaller representation of sorted values
+		 */
+		static Container of(char[] sortedValues) {
+			if (sortedValues.length <= ARRAY_LIMIT) {
+				return new Container(sortedValues, null, sortedValues.length);
+			}
+			long[] bitmap = new long[BITMAP_WORDS];
+			for (char value : sortedValues) {
+				bitmap[value >>> 6] |= 1L << value;
+			}
+			return new Container(null, bitmap, sortedValues.length);
+		}
+
+		/**
+		 * Create the smaller representation of a bitmap
+		 */
+		static Container of(long[] bitmap) {
+			int cardinality = 0;
+			for (long word : bitmap) {
+				cardinality += Long.bitCount(word);
+			}
+			if (cardinality > ARRAY_LIMIT) {
+				return new Container(null, bitmap, cardinality);
+			}
+			char[] values = new char[cardinality];
+			int size = 0;
+			for (int word = 0; word < BITMAP_WORDS; word++) {
+				for (long bits = bitmap[word]; bits != 0; bits &= bits - 1) {
+					values[size++] = (char) (word * 64 + Long.numberOfTrailingZeros(bits));
+				}
+			}
+			return new Container(values, null, cardinality);
+		}
+
+		boolean isBitmap() {
+			return bitmap != null;
+		}
+
+		boolean contains(char value) {
+			if (bitmap != null) {
+				return (bitmap[value >>> 6] & (1L << value)) != 0;
+			}
+			return Arrays.binarySearch(array, value) >= 0;
+		}
+
+		/**
+		 * Return the value at an array index, or the smallest value from the given one on in the bitmap,
+		 * or -1 if there is none
+		 */
+		int nextFrom(int position) {
+			if (bitmap == null) {
+				return (position < array.length) ? array[position] : -1;
+			}
+			int word = position >>> 6;
+			if (word >= BITMAP_WORDS) {
+				return -1;
+			}
+			long bits = bitmap[word] & (-1L << position);
+			while (bits == 0) {
+				if (++word == BITMAP_WORDS) {
+					return -1;
+				}
+				bits = bitmap[word];
+			}
+			return word * 64 + Long.numberOfTrailingZeros(bits);
+		}
+
+		Container or(Container other) {
+			if (bitmap == null && other.bitmap == null) {
+				char[] merged = new char[array.length + other.array.length];
+				int size = 0;
+				int i = 0;
+				int j = 0;
+				while (i < array.length || j < other.array.length) {
+					if (j == other.array.length || (i < array.length && array[i] < other.array[j])) {
+						merged[size++] = array[i++];
+					} else if (i == array.length || other.array[j] < array[i]) {
+						merged[size++] = other.array[j++];
+					} else {
+						merged[size++] = array[i++];
+						j++;
+					}
+				}
+				return of(Arrays.copyOf(merged, size));
+			}
+			long[] words = toBitmap();
+			long[] otherWords = other.toBitmap();
+			for (int word = 0; word < BITMAP_WORDS; word++) {
+				words[word] |= otherWords[word];
+			}
+			return of(words);
+		}
+
+		Container and(Container other) {
+			if (bitmap == null || other.bitmap == null) {
+				Container arrayContainer = (bitmap == null) ? this : other;
+				Container otherContainer = (bitmap == null) ? other : this;
+				char[] values = new char[arrayContainer.array.length];
+				int size = 0;
+				for (char value : arrayContainer.array) {
+					if (otherContainer.contains(value)) {
+						values[size++] = value;
+					}
+				}
+				return of(Arrays.copyOf(values, size));
+			}
+			long[] words = new long[BITMAP_WORDS];
+			for (int word = 0; word < BITMAP_WORDS; word++) {
+				words[word] = bitmap[word] & other.bitmap[word];
+			}
+			return of(words);
+		}
+
+		/**
+		 * Return a modifiable bitmap copy of the values
+		 */
+		private long[] toBitmap() {
+			if (bitmap != null) {
+				return bitmap.clone();
+			}
+			long[] words = new long[BITMAP_WORDS];
+			for (char value : array) {
+				words[value >>> 6] |= 1L << value;
+			}
+			return words;
+		}
+
+		long sizeInBytes() {
+			return (bitmap != null) ? 8L * BITMAP_WORDS : 2L * array.length;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.tuwien.isis.irtask1.search.filter;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Number of documents matching a query per class. Shards searched in parallel add their counts to the
+ * same instance, so all methods are synchronized.
+ */
+public class FacetCounts {
+
+	private final Map<String, Integer> counts = new TreeMap<String, Integer>();
+
+	/**
+	 * Add matching documents of a class
+	 *
+	 * @param className
+	 * @param count
+	 */
+	public synchronized void add(String className, int count) {
+		if (count > 0) {
+			Integer current = counts.get(className);
+			counts.put(className, (current != null) ? current + count : count);
+		}
+	}
+
+	/**
+	 * Add the counts of a searcher, given per class ordinal of its class bitsets
+	 *
+	 * @param bitsets
+	 * @param countsByOrdinal
+	 */
+	public synchronized void add(ClassBitsets bitsets, int[] countsByOrdinal) {
+		for (int ordinal = 0; ordinal < countsByOrdinal.length; ordinal++) {
+			add(bitsets.getClassName(ordinal), countsByOrdinal[ordinal]);
+		}
+	}
+
+	/**
+	 * Return the number of matching documents of a class
+	 *
+	 * @param className
+	 * @return
+	 */
+	public synchronized int get(String className) {
+		Integer count = counts.get(className);
+		return (count != null) ? count : 0;
+	}
+
+	/**
+	 * Return the counts of all classes with matching documents, sorted by class name
+	 *
+	 * @return
+	 */
+	public synchronized Map<String, Integer> getCounts() {
+		return new TreeMap<String, Integer>(counts);
+	}
+
+	public synchronized int total() {
+		int total = 0;
+		for (int count : counts.values()) {
+			total += count;
+		}
+		return total;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (Entry<String, Integer> entry : counts.entrySet()) {
+			builder.append((builder.length() > 0) ? ", " : "").append(entry.getKey()).append('=')
+					.append(entry.getValue());
+		}
+		return builder.toString();
+	}
+}
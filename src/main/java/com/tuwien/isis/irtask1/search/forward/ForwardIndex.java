@@ -0,0 +1,290 @@
+package com.tuwien.isis.irtask1.search.forward;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.indexer.ForwardIndexWriter;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.dictionary.TermDictionary;
+
+/**
+ * Memory-mapped forward index written by {@link ForwardIndexWriter}. Opening it only decodes the
+ * document table, terms are looked up in the mapped {@link TermDictionary}. A document vector is
+ * decoded when it is first requested and kept in a small LRU cache. Scoring reads the records
+ * straight from the mapped file without creating objects.
+ */
+public class ForwardIndex {
+
+	/**
+	 * Default number of decoded document vectors kept in the cache
+	 */
+	private static final int DEFAULT_CACHE_SIZE = 1024;
+
+	private final ByteBuffer buffer;
+
+	private final int documentCount;
+
+	private final Document[] documents;
+
+	private final TermDictionary dictionary;
+
+	/**
+	 * Terms decoded from the dictionary so far, shared by all decoded vectors
+	 */
+	private final String[] terms;
+
+	private final Map<String, Integer> documentIdsByName = new HashMap<String, Integer>();
+
+	private final Map<Integer, DocumentVector> cache;
+
+	private ForwardIndex(ByteBuffer buffer, Document[] documents, TermDictionary dictionary, final int cacheSize) {
+		this.buffer = buffer;
+		this.documentCount = documents.length;
+		this.documents = documents;
+		this.dictionary = dictionary;
+		this.terms = new String[dictionary.size()];
+		this.cache = new LinkedHashMap<Integer, DocumentVector>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<Integer, DocumentVector> eldest) {
+				return size() > cacheSize;
+			}
+		};
+		for (Document document : documents) {
+			documentIdsByName.put(document.getClassAssignment() + "/" + document.getName(), document.getId());
+		}
+	}
+
+	/**
+	 * Map the forward index and the term dictionary files at the given paths
+	 *
+	 * @param path
+	 * @param termsPath
+	 * @return
+	 * @throws IOException
+	 */
+	public static ForwardIndex open(String path, String termsPath) throws IOException {
+		return open(path, termsPath, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Map the forward index and the term dictionary files at the given paths, caching up to cacheSize
+	 * decoded vectors
+	 *
+	 * @param path
+	 * @param termsPath
+	 * @param cacheSize
+	 * @return
+	 * @throws IOException
+	 */
+	public static ForwardIndex open(String path, String termsPath, int cacheSize) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		try {
+			MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+			if (buffer.getInt(0) != ForwardIndexWriter.MAGIC) {
+				throw new IOException("not a forward index file: " + path);
+			}
+			int documentCount = buffer.getInt(4);
+			TermDictionary dictionary = TermDictionary.open(termsPath);
+			if (dictionary.size() != buffer.getInt(8)) {
+				throw new IOException("term dictionary " + termsPath + " does not belong to " + path);
+			}
+
+			ByteBuffer tables = buffer.duplicate();
+			// cast, as ByteBuffer.position(int) only exists from Java 9 on
+			((Buffer) tables).position((int) buffer.getLong(12));
+			Document[] documents = new Document[documentCount];
+			for (int id = 0; id < documentCount; id++) {
+				String classAssignment = readUTF(tables);
+				documents[id] = new Document(readUTF(tables), id, classAssignment);
+			}
+			return new ForwardIndex(buffer, documents, dictionary, cacheSize);
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Read a string written with DataOutput.writeUTF (the names are plain ASCII)
+	 *
+	 * @param buffer
+	 * @return
+	 */
+	private static String readUTF(ByteBuffer buffer) {
+		int length = buffer.getShort() & 0xFFFF;
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public int getNumberOfDocuments() {
+		return documentCount;
+	}
+
+	public Document getDocument(int id) {
+		return documents[id];
+	}
+
+	/**
+	 * Return the id of a document given by its full name (class/name) or -1 if it is not indexed
+	 *
+	 * @param fullDocName
+	 * @return
+	 */
+	public int findDocumentId(String fullDocName) {
+		Integer id = documentIdsByName.get(fullDocName);
+		return (id != null) ? id : -1;
+	}
+
+	/**
+	 * Return the id of a term or -1 if it is not indexed
+	 *
+	 * @param term
+	 * @return
+	 */
+	public int findTermId(String term) {
+		return dictionary.lookup(term);
+	}
+
+	/**
+	 * Return the term with the given id, decoding it from the dictionary only once
+	 *
+	 * @param termId
+	 * @return
+	 */
+	public String getTerm(int termId) {
+		synchronized (terms) {
+			if (terms[termId] == null) {
+				terms[termId] = dictionary.term(termId);
+			}
+			return terms[termId];
+		}
+	}
+
+	/**
+	 * Return the precomputed euclidean length of a document vector
+	 *
+	 * @param docId
+	 * @return
+	 */
+	public double getLength(int docId) {
+		return buffer.getDouble(ForwardIndexWriter.HEADER_SIZE + 8 * (documentCount + 1) + 8 * docId);
+	}
+
+	/**
+	 * Return the offset of the record of a document in the file
+	 *
+	 * @param docId
+	 * @return
+	 */
+	private int recordOffset(int docId) {
+		return (int) buffer.getLong(ForwardIndexWriter.HEADER_SIZE + 8 * docId);
+	}
+
+	/**
+	 * Return the number of terms with a weight in a document
+	 *
+	 * @param docId
+	 * @return
+	 */
+	public int size(int docId) {
+		return buffer.getInt(recordOffset(docId));
+	}
+
+	/**
+	 * Copy the sorted term ids and the weights of a document into the given arrays, which must hold at
+	 * least size(docId) values
+	 *
+	 * @param docId
+	 * @param termIds
+	 * @param weights
+	 */
+	public void read(int docId, int[] termIds, float[] weights) {
+		int offset = recordOffset(docId);
+		int size = buffer.getInt(offset);
+		int termOffset = offset + 4;
+		int weightOffset = termOffset + 4 * size;
+		for (int i = 0; i < size; i++) {
+			termIds[i] = buffer.getInt(termOffset + 4 * i);
+			weights[i] = buffer.getFloat(weightOffset + 4 * i);
+		}
+	}
+
+	/**
+	 * Return the dot product of a sparse query (sorted term ids) with a document, merging the query
+	 * with the record in the mapped file
+	 *
+	 * @param queryTermIds
+	 * @param queryWeights
+	 * @param querySize
+	 * @param docId
+	 * @return
+	 */
+	public double dotProduct(int[] queryTermIds, float[] queryWeights, int querySize, int docId) {
+		int offset = recordOffset(docId);
+		int size = buffer.getInt(offset);
+		int termOffset = offset + 4;
+		int weightOffset = termOffset + 4 * size;
+
+		double sum = 0;
+		int i = 0;
+		int j = 0;
+		while (i < querySize && j < size) {
+			int docTermId = buffer.getInt(termOffset + 4 * j);
+			if (queryTermIds[i] == docTermId) {
+				sum += queryWeights[i++] * buffer.getFloat(weightOffset + 4 * j++);
+			} else if (queryTermIds[i] < docTermId) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Return the decoded vector of a document, from the cache if it was requested recently
+	 *
+	 * @param docId
+	 * @return
+	 */
+	public DocumentVector getVector(int docId) {
+		synchronized (cache) {
+			DocumentVector docVec = cache.get(docId);
+			if (docVec != null) {
+				return docVec;
+			}
+		}
+
+		int size = size(docId);
+		int[] vectorTermIds = new int[size];
+		float[] weights = new float[size];
+		read(docId, vectorTermIds, weights);
+
+		Map<String, Float> docIdftfMap = new HashMap<String, Float>(size * 2);
+		for (int i = 0; i < size; i++) {
+			docIdftfMap.put(getTerm(vectorTermIds[i]), weights[i]);
+		}
+		DocumentVector docVec = new DocumentVector(documents[docId], docIdftfMap);
+
+		synchronized (cache) {
+			cache.put(docId, docVec);
+		}
+		return docVec;
+	}
+}
@@ -0,0 +1,145 @@
+package com.tuwien.isis.irtask1.search.forward;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.QueryBudget;
+import com.tuwien.isis.irtask1.search.QueryContext;
+import com.tuwien.isis.irtask1.search.TopKCollector;
+import com.tuwien.isis.irtask1.search.filter.ClassBitsets;
+import com.tuwien.isis.irtask1.search.filter.DocIdSet;
+import com.tuwien.isis.irtask1.search.shard.DocumentListing;
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+
+/**
+ * Searcher over a memory-mapped {@link ForwardIndex}. Documents are scored straight from the mapped
+ * records; only the query and the top results are decoded into document vectors.
+ */
+public class ForwardIndexSearcher implements ShardSearcher, DocumentListing {
+
+	private final ForwardIndex index;
+
+	private final List<Document> documents;
+
+	private final ClassBitsets classBitsets;
+
+	public ForwardIndexSearcher(ForwardIndex index) {
+		this.index = index;
+		List<Document> documents = new ArrayList<Document>(index.getNumberOfDocuments());
+		for (int id = 0; id < index.getNumberOfDocuments(); id++) {
+			documents.add(index.getDocument(id));
+		}
+		this.classBitsets = new ClassBitsets(documents);
+		this.documents = Collections.unmodifiableList(documents);
+	}
+
+	public List<Document> getDocuments() {
+		return documents;
+	}
+
+	public DocumentVector findDocument(String fullDocName) {
+		int id = index.findDocumentId(fullDocName);
+		return (id >= 0) ? index.getVector(id) : null;
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k) {
+		return search(queryDocVec, k, QueryContext.NONE);
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k, QueryContext context) {
+		int queryId = index.findDocumentId(queryDocVec.getFullDocName());
+
+		// Sorted sparse representation of the query
+		int[] queryTermIds;
+		float[] queryWeights;
+		int querySize;
+		if (queryId >= 0) {
+			querySize = index.size(queryId);
+			queryTermIds = new int[querySize];
+			queryWeights = new float[querySize];
+			index.read(queryId, queryTermIds, queryWeights);
+		} else {
+			Map<String, Float> docIdftfMap = queryDocVec.getDocIdftfMap();
+			long[] entries = new long[docIdftfMap.size()];
+			querySize = 0;
+			for (Entry<String, Float> entry : docIdftfMap.entrySet()) {
+				int termId = index.findTermId(entry.getKey());
+				if (termId >= 0) {
+					entries[querySize++] = ((long) termId << 32) | (Float.floatToIntBits(entry.getValue()) & 0xFFFFFFFFL);
+				}
+			}
+			Arrays.sort(entries, 0, querySize);
+			queryTermIds = new int[querySize];
+			queryWeights = new float[querySize];
+			for (int i = 0; i < querySize; i++) {
+				queryTermIds[i] = (int) (entries[i] >>> 32);
+				queryWeights[i] = Float.intBitsToFloat((int) entries[i]);
+			}
+		}
+
+		if (context.getPruner() != null) {
+			int[] kept = context.getPruner().select(queryWeights, querySize);
+			for (int i = 0; i < kept.length; i++) {
+				queryTermIds[i] = queryTermIds[kept[i]];
+				queryWeights[i] = queryWeights[kept[i]];
+			}
+			querySize = kept.length;
+		}
+
+		double queryLength = 0;
+		for (int i = 0; i < querySize; i++) {
+			queryLength += Math.pow(queryWeights[i], 2);
+		}
+		queryLength = Math.sqrt(queryLength);
+
+		TopKCollector collector = new TopKCollector(k);
+		int[] classCounts = new int[classBitsets.getNumberOfClasses()];
+		if (queryLength > 0) {
+			QueryBudget budget = context.getBudget();
+			int allowance = 0;
+			DocIdSet.Iterator docs = classBitsets.select(context.getFilter()).iterator();
+			for (int docId = docs.next(); docId != DocIdSet.END; docId = docs.next()) {
+				if (budget != null && --allowance < 0 && (allowance = budget.grant() - 1) < 0) {
+					break;
+				}
+				double denominator = queryLength * index.getLength(docId);
+				if (docId == queryId || denominator == 0) {
+					continue;
+				}
+				double cosine = index.dotProduct(queryTermIds, queryWeights, querySize, docId) / denominator;
+				if (cosine != 0) {
+					collector.offer(docId, cosine);
+					classCounts[classBitsets.getClassOrdinal(docId)]++;
+				}
+			}
+			if (budget != null) {
+				budget.giveBack(allowance);
+			}
+		}
+		if (context.getFacets() != null) {
+			context.getFacets().add(classBitsets, classCounts);
+		}
+
+		// decode only the vectors of the returned documents
+		double[] cosines = new double[collector.size()];
+		int[] ids = collector.drainSorted(cosines);
+		List<DocumentVector> resultList = new ArrayList<DocumentVector>(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			DocumentVector docVec = index.getVector(ids[i]);
+			DocumentVector result = new DocumentVector(docVec.getDocumentData(), docVec.getDocIdftfMap());
+			result.setCosine(cosines[i]);
+			resultList.add(result);
+		}
+		return resultList;
+	}
+
+	public void close() {
+		// the mapped file is released when the index is garbage collected
+	}
+}
@@ -0,0 +1,181 @@
+package com.tuwien.isis.irtask1.search.knn;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+
+/**
+ * Precomputed k nearest neighbours of the documents of an index. The file has fixed-size records, so
+ * the neighbours of any document are read straight from the memory-mapped file. Layout:
+ *
+ * <pre>
+ * int magic, int documentCount, int k
+ * documentCount * (int count, k * (int neighbourId, float cosine))  -- count -1: not computed
+ * documentCount * (UTF class, UTF name)                             -- in document id order
+ * </pre>
+ */
+public class KnnGraph {
+
+	/**
+	 * Extension of the k-NN graph file next to the index
+	 */
+	public static final String EXTENSION = "knn";
+
+	private static final int MAGIC = 0x4B4E4E31;
+
+	private static final int HEADER_SIZE = 12;
+
+	private final MappedByteBuffer buffer;
+
+	private final int k;
+
+	private final Document[] documents;
+
+	private final Map<String, Integer> documentIdsByName = new HashMap<String, Integer>();
+
+	private KnnGraph(MappedByteBuffer buffer, int k, Document[] documents) {
+		this.buffer = buffer;
+		this.k = k;
+		this.documents = documents;
+		for (Document document : documents) {
+			documentIdsByName.put(document.getClassAssignment() + "/" + document.getName(), document.getId());
+		}
+	}
+
+	/**
+	 * Write a graph to disk
+	 *
+	 * @param path
+	 * @param documents
+	 *            all documents of the index, in id order
+	 * @param k
+	 * @param neighbourIds
+	 *            sorted neighbours of each document, null for documents which were not computed
+	 * @param cosines
+	 * @throws IOException
+	 */
+	public static void write(String path, List<Document> documents, int k, int[][] neighbourIds, double[][] cosines)
+			throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(documents.size());
+			out.writeInt(k);
+
+			for (int docId = 0; docId < documents.size(); docId++) {
+				int count = (neighbourIds[docId] == null) ? -1 : neighbourIds[docId].length;
+				out.writeInt(count);
+				for (int i = 0; i < k; i++) {
+					out.writeInt(i < count ? neighbourIds[docId][i] : -1);
+					out.writeFloat(i < count ? (float) cosines[docId][i] : 0);
+				}
+			}
+
+			for (Document document : documents) {
+				out.writeUTF(document.getClassAssignment());
+				out.writeUTF(document.getName());
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Map a graph file into memory. Only the document table is decoded, neighbour lists are read on
+	 * demand.
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static KnnGraph open(String path) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		try {
+			MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+			if (buffer.getInt(0) != MAGIC) {
+				throw new IOException("not a k-NN graph file: " + path);
+			}
+			int documentCount = buffer.getInt(4);
+			int k = buffer.getInt(8);
+
+			// decode the document table behind the records
+			int tableStart = HEADER_SIZE + documentCount * recordSize(k);
+			byte[] table = new byte[(int) file.length() - tableStart];
+			// cast, as ByteBuffer.position(int) only exists from Java 9 on
+			((Buffer) buffer).position(tableStart);
+			buffer.get(table);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(table));
+
+			Document[] documents = new Document[documentCount];
+			for (int id = 0; id < documentCount; id++) {
+				String classAssignment = in.readUTF();
+				documents[id] = new Document(in.readUTF(), id, classAssignment);
+			}
+			return new KnnGraph(buffer, k, documents);
+		} finally {
+			file.close();
+		}
+	}
+
+	private static int recordSize(int k) {
+		return 4 + k * 8;
+	}
+
+	/**
+	 * Return the number of neighbours stored per document
+	 *
+	 * @return
+	 */
+	public int getK() {
+		return k;
+	}
+
+	public int getNumberOfDocuments() {
+		return documents.length;
+	}
+
+	public Document getDocument(int id) {
+		return documents[id];
+	}
+
+	/**
+	 * Return the id of a document given by its full name (class/name) or -1 if it is not in the graph
+	 *
+	 * @param fullDocName
+	 * @return
+	 */
+	public int findDocumentId(String fullDocName) {
+		Integer id = documentIdsByName.get(fullDocName);
+		return (id != null) ? id : -1;
+	}
+
+	/**
+	 * Return the number of neighbours stored for a document, or -1 if they were not computed
+	 *
+	 * @param docId
+	 * @return
+	 */
+	public int getNumberOfNeighbours(int docId) {
+		return buffer.getInt(HEADER_SIZE + docId * recordSize(k));
+	}
+
+	public int getNeighbourId(int docId, int index) {
+		return buffer.getInt(HEADER_SIZE + docId * recordSize(k) + 4 + index * 8);
+	}
+
+	public float getNeighbourCosine(int docId, int index) {
+		return buffer.getFloat(HEADER_SIZE + docId * recordSize(k) + 8 + index * 8);
+	}
+}
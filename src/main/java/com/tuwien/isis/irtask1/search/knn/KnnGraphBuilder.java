@@ -0,0 +1,168 @@
+package com.tuwien.isis.irtask1.search.knn;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.SparseMatrix;
+import com.tuwien.isis.irtask1.search.TopKCollector;
+
+/**
+ * Computes the k nearest neighbours (by cosine) of all documents, or of a given list of documents, in
+ * one pass. The index is treated as a sparse document-term matrix A and the similarities as rows of
+ * A x A^T: every row is multiplied with the transposed matrix (i.e. with the posting lists of its
+ * terms) into a dense accumulator. Rows are processed in blocks, each block by one worker thread
+ * with its own accumulator.
+ */
+public class KnnGraphBuilder {
+
+	/**
+	 * Number of rows handed to a worker at a time
+	 */
+	private static final int BLOCK_SIZE = 64;
+
+	private final int k;
+
+	private final double threshold;
+
+	private final int threads;
+
+	/**
+	 * @param k
+	 *            number of neighbours to keep per document
+	 * @param threshold
+	 *            minimum cosine of a neighbour, lower similarities are pruned
+	 * @param threads
+	 */
+	public KnnGraphBuilder(int k, double threshold, int threads) {
+		this.k = k;
+		this.threshold = threshold;
+		this.threads = threads;
+	}
+
+	/**
+	 * Compute the graph and write it to the given path
+	 *
+	 * @param documentVectors
+	 *            all document vectors of the index, in id order
+	 * @param rows
+	 *            ids of the documents to compute the neighbours of, or null for all documents
+	 * @param path
+	 * @throws IOException
+	 */
+	public void build(List<DocumentVector> documentVectors, int[] rows, String path) throws IOException {
+		long start = System.currentTimeMillis();
+
+		final SparseMatrix matrix = SparseMatrix.fromDocumentVectors(documentVectors);
+		final SparseMatrix transposed = matrix.transpose();
+		final double[] lengths = matrix.rowLengths();
+
+		if (rows == null) {
+			rows = new int[matrix.getNumberOfRows()];
+			for (int row = 0; row < rows.length; row++) {
+				rows[row] = row;
+			}
+		}
+		System.out.println("Computing " + k + " nearest neighbours of " + rows.length + " documents ("
+				+ matrix.getNumberOfRows() + " x " + matrix.getNumberOfColumns() + " matrix) on " + threads
+				+ " threads");
+
+		final int[][] neighbourIds = new int[matrix.getNumberOfRows()][];
+		final double[][] cosines = new double[matrix.getNumberOfRows()][];
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final ThreadLocal<double[]> accumulators = new ThreadLocal<double[]>() {
+			@Override
+			protected double[] initialValue() {
+				return new double[matrix.getNumberOfRows()];
+			}
+		};
+
+		try {
+			List<Future<Void>> blocks = new ArrayList<Future<Void>>();
+			for (int blockStart = 0; blockStart < rows.length; blockStart += BLOCK_SIZE) {
+				final int[] blockRows = Arrays.copyOfRange(rows, blockStart, Math.min(rows.length,
+						blockStart + BLOCK_SIZE));
+				blocks.add(executor.submit(new Callable<Void>() {
+					public Void call() {
+						for (int row : blockRows) {
+							computeRow(row, matrix, transposed, lengths, accumulators.get(), neighbourIds, cosines);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> block : blocks) {
+				block.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while computing the k-NN graph", e);
+		} catch (ExecutionException e) {
+			throw new IOException("computing the k-NN graph failed", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+
+		List<Document> documents = new ArrayList<Document>(documentVectors.size());
+		for (DocumentVector docVec : documentVectors) {
+			documents.add(docVec.getDocumentData());
+		}
+		KnnGraph.write(path, documents, k, neighbourIds, cosines);
+
+		System.out.println("k-NN graph written to " + path + " in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Compute the neighbours of one row: accumulate the dot products with all rows sharing a term, then
+	 * keep the k best cosines above the threshold
+	 */
+	private void computeRow(int row, SparseMatrix matrix, SparseMatrix transposed, double[] lengths,
+			double[] accumulator, int[][] neighbourIds, double[][] cosines) {
+		int[] touched = new int[16];
+		int touchedCount = 0;
+
+		for (int offset = matrix.rowStart(row); offset < matrix.rowEnd(row); offset++) {
+			int term = matrix.getColumn(offset);
+			float weight = matrix.getValue(offset);
+			for (int posting = transposed.rowStart(term); posting < transposed.rowEnd(term); posting++) {
+				int other = transposed.getColumn(posting);
+				if (accumulator[other] == 0) {
+					if (touchedCount == touched.length) {
+						touched = Arrays.copyOf(touched, touchedCount * 2);
+					}
+					touched[touchedCount++] = other;
+				}
+				accumulator[other] += weight * transposed.getValue(posting);
+			}
+		}
+
+		TopKCollector collector = new TopKCollector(k);
+		for (int i = 0; i < touchedCount; i++) {
+			int other = touched[i];
+			double dotProduct = accumulator[other];
+			accumulator[other] = 0;
+
+			double denominator = lengths[row] * lengths[other];
+			if (other == row || denominator == 0) {
+				continue;
+			}
+			double cosine = dotProduct / denominator;
+			if (cosine > 0 && cosine >= threshold) {
+				collector.offer(other, cosine);
+			}
+		}
+
+		double[] rowCosines = new double[collector.size()];
+		neighbourIds[row] = collector.drainSorted(rowCosines);
+		cosines[row] = rowCosines;
+	}
+}
@@ -0,0 +1,93 @@
+package com.tuwien.isis.irtask1.search.knn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.QueryContext;
+import com.tuwien.isis.irtask1.search.filter.ClassBitsets;
+import com.tuwien.isis.irtask1.search.filter.DocIdSet;
+import com.tuwien.isis.irtask1.search.shard.DocumentListing;
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+
+/**
+ * Searcher answering queries for documents of the collection straight from a precomputed
+ * {@link KnnGraph}, without loading or scoring any document vectors. As only the k nearest neighbours
+ * are stored, a class filter can only drop neighbours, and the facets count the stored neighbours.
+ * Nothing is scored at query time, so the budget of a query is never spent. Queries which are not
+ * documents of the graph get no results, and at most {@link KnnGraph#getK()} results are returned.
+ */
+public class KnnGraphSearcher implements ShardSearcher, DocumentListing {
+
+	private final KnnGraph graph;
+
+	private final Map<String, Float> noWeights = Collections.emptyMap();
+
+	private final List<Document> documents;
+
+	private final ClassBitsets classBitsets;
+
+	public KnnGraphSearcher(KnnGraph graph) {
+		this.graph = graph;
+		this.documents = Collections.unmodifiableList(Arrays.asList(documents(graph)));
+		this.classBitsets = new ClassBitsets(documents);
+	}
+
+	private static Document[] documents(KnnGraph graph) {
+		Document[] documents = new Document[graph.getNumberOfDocuments()];
+		for (int id = 0; id < documents.length; id++) {
+			documents[id] = graph.getDocument(id);
+		}
+		return documents;
+	}
+
+	public List<Document> getDocuments() {
+		return documents;
+	}
+
+	public DocumentVector findDocument(String fullDocName) {
+		int id = graph.findDocumentId(fullDocName);
+		return (id >= 0) ? new DocumentVector(graph.getDocument(id), noWeights) : null;
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k) {
+		return search(queryDocVec, k, QueryContext.NONE);
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k, QueryContext context) {
+		List<DocumentVector> resultList = new ArrayList<DocumentVector>();
+		int queryId = graph.findDocumentId(queryDocVec.getFullDocName());
+		int count = (queryId >= 0) ? graph.getNumberOfNeighbours(queryId) : -1;
+
+		if (count < 0) {
+			return resultList;
+		}
+
+		DocIdSet selected = classBitsets.select(context.getFilter());
+		int[] classCounts = new int[classBitsets.getNumberOfClasses()];
+		for (int i = 0; i < count; i++) {
+			int neighbourId = graph.getNeighbourId(queryId, i);
+			if (!selected.contains(neighbourId)) {
+				continue;
+			}
+			classCounts[classBitsets.getClassOrdinal(neighbourId)]++;
+			if (resultList.size() < k) {
+				DocumentVector result = new DocumentVector(graph.getDocument(neighbourId), noWeights);
+				result.setCosine(graph.getNeighbourCosine(queryId, i));
+				resultList.add(result);
+			}
+		}
+		if (context.getFacets() != null) {
+			context.getFacets().add(classBitsets, classCounts);
+		}
+		return resultList;
+	}
+
+	public void close() {
+		// the mapped file is released when the graph is garbage collected
+	}
+}
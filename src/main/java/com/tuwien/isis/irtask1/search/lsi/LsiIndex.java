@@ -0,0 +1,146 @@
+package com.tuwien.isis.irtask1.search.lsi;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.indexer.LsiIndexWriter;
+
+/**
+ * Unit length document vectors in latent semantic space, written by {@link LsiIndexWriter}. All vectors
+ * are held back to back in one float array, so a scan over the documents reads memory sequentially.
+ */
+public class LsiIndex {
+
+	private final int dimensions;
+
+	private final float[] singularValues;
+
+	private final Document[] documents;
+
+	private final float[] vectors;
+
+	private final Map<String, Integer> documentIdsByName = new HashMap<String, Integer>();
+
+	private LsiIndex(int dimensions, float[] singularValues, Document[] documents, float[] vectors) {
+		this.dimensions = dimensions;
+		this.singularValues = singularValues;
+		this.documents = documents;
+		this.vectors = vectors;
+		for (Document document : documents) {
+			documentIdsByName.put(document.getClassAssignment() + "/" + document.getName(), document.getId());
+		}
+	}
+
+	/**
+	 * Load the LSI vectors from the given path
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static LsiIndex load(String path) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		try {
+			ByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+			if (buffer.getInt() != LsiIndexWriter.MAGIC) {
+				throw new IOException(path + " is not an LSI index");
+			}
+			int documentCount = buffer.getInt();
+			int dimensions = buffer.getInt();
+			float[] singularValues = new float[dimensions];
+			buffer.asFloatBuffer().get(singularValues);
+			// cast, as ByteBuffer.position(int) only exists from Java 9 on
+			((Buffer) buffer).position(buffer.position() + 4 * dimensions);
+
+			Document[] documents = new Document[documentCount];
+			for (int id = 0; id < documentCount; id++) {
+				String classAssignment = readUTF(buffer);
+				documents[id] = new Document(readUTF(buffer), id, classAssignment);
+			}
+
+			float[] vectors = new float[documentCount * dimensions];
+			buffer.asFloatBuffer().get(vectors);
+			return new LsiIndex(dimensions, singularValues, documents, vectors);
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Read a string written by DataOutput.writeUTF (no supplementary characters occur in the names)
+	 */
+	private static String readUTF(ByteBuffer buffer) {
+		int length = buffer.getShort() & 0xFFFF;
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public int getNumberOfDocuments() {
+		return documents.length;
+	}
+
+	public int getDimensions() {
+		return dimensions;
+	}
+
+	public float[] getSingularValues() {
+		return singularValues;
+	}
+
+	public Document getDocument(int id) {
+		return documents[id];
+	}
+
+	/**
+	 * Return the id of a document given by its full name (class/name) or -1 if it is not indexed
+	 *
+	 * @param fullDocName
+	 * @return
+	 */
+	public int findDocumentId(String fullDocName) {
+		Integer id = documentIdsByName.get(fullDocName);
+		return (id != null) ? id : -1;
+	}
+
+	/**
+	 * Return the cosine of two documents, the dot product of their unit length vectors. The loop keeps
+	 * four independent sums, so the additions do not wait for each other and the JIT can unroll and
+	 * vectorize it.
+	 *
+	 * @param docId1
+	 * @param docId2
+	 * @return
+	 */
+	public float cosine(int docId1, int docId2) {
+		float[] v = vectors;
+		int a = docId1 * dimensions;
+		int b = docId2 * dimensions;
+		float sum0 = 0;
+		float sum1 = 0;
+		float sum2 = 0;
+		float sum3 = 0;
+		int i = 0;
+		for (; i + 3 < dimensions; i += 4) {
+			sum0 += v[a + i] * v[b + i];
+			sum1 += v[a + i + 1] * v[b + i + 1];
+			sum2 += v[a + i + 2] * v[b + i + 2];
+			sum3 += v[a + i + 3] * v[b + i + 3];
+		}
+		for (; i < dimensions; i++) {
+			sum0 += v[a + i] * v[b + i];
+		}
+		return (sum0 + sum1) + (sum2 + sum3);
+	}
+}
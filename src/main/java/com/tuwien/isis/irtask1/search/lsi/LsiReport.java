@@ -0,0 +1,125 @@
+package com.tuwien.isis.irtask1.search.lsi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.DocumentVectorBuilder;
+import com.tuwien.isis.irtask1.search.RankingAgreement;
+import com.tuwien.isis.irtask1.search.shard.LocalShardSearcher;
+import com.tuwien.isis.irtask1.util.HeapUsage;
+
+/**
+ * Compares the dense LSI vectors with the sparse index they were computed from: size on disk, load
+ * time, heap, search latency and how many of the sparse top results the LSI ranking finds
+ */
+public class LsiReport {
+
+	private final String indexPath;
+
+	private final String lsiPath;
+
+	private final int numberOfSearchResults;
+
+	public LsiReport(String indexPath, String lsiPath, int numberOfSearchResults) {
+		this.indexPath = indexPath;
+		this.lsiPath = lsiPath;
+		this.numberOfSearchResults = numberOfSearchResults;
+	}
+
+	/**
+	 * Load both indexes, search all topics with both and print the comparison
+	 *
+	 * @param topicsPath
+	 * @throws IOException
+	 */
+	public void run(String topicsPath) throws IOException {
+		long heapBefore = HeapUsage.usedHeap();
+		long start = System.nanoTime();
+		LocalShardSearcher sparseSearcher = new LocalShardSearcher(DocumentVectorBuilder.buildDocumentVectors(indexPath));
+		long sparseLoadMillis = (System.nanoTime() - start) / 1000000;
+		long sparseHeap = HeapUsage.usedHeap() - heapBefore;
+
+		heapBefore = HeapUsage.usedHeap();
+		start = System.nanoTime();
+		LsiIndex lsiIndex = LsiIndex.load(lsiPath);
+		LsiSearcher lsiSearcher = new LsiSearcher(lsiIndex);
+		long lsiLoadMillis = (System.nanoTime() - start) / 1000000;
+		long lsiHeap = HeapUsage.usedHeap() - heapBefore;
+
+		List<String> lines = Files.readAllLines(Paths.get(topicsPath), Charset.defaultCharset());
+
+		// the first pass only warms up the JIT, the second one is measured
+		int topics = 0;
+		double overlapSum = 0;
+		double tauSum = 0;
+		int tauCount = 0;
+		long sparseNanos = 0;
+		long lsiNanos = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			topics = 0;
+			overlapSum = 0;
+			tauSum = 0;
+			tauCount = 0;
+			sparseNanos = 0;
+			lsiNanos = 0;
+			for (String line : lines) {
+				DocumentVector query = sparseSearcher.findDocument(line);
+				if (query == null) {
+					if (pass == 1) {
+						System.out.println("doc " + line + " not in collection");
+					}
+					continue;
+				}
+
+				start = System.nanoTime();
+				List<DocumentVector> expected = sparseSearcher.search(query, numberOfSearchResults);
+				sparseNanos += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				List<DocumentVector> actual = lsiSearcher.search(query, numberOfSearchResults);
+				lsiNanos += System.nanoTime() - start;
+
+				overlapSum += RankingAgreement.overlap(expected, actual, numberOfSearchResults);
+				double tau = RankingAgreement.kendallTau(expected, actual);
+				if (!Double.isNaN(tau)) {
+					tauSum += tau;
+					tauCount++;
+				}
+				topics++;
+			}
+		}
+
+		System.out.println("                 sparse index    LSI (" + lsiIndex.getDimensions() + " dimensions)");
+		System.out.println("size on disk     " + pad(HeapUsage.format(new File(indexPath).length()))
+				+ HeapUsage.format(new File(lsiPath).length()));
+		System.out.println("load time        " + pad(sparseLoadMillis + " ms") + lsiLoadMillis + " ms");
+		System.out.println("heap             " + pad(HeapUsage.format(sparseHeap)) + HeapUsage.format(lsiHeap));
+		if (topics > 0) {
+			System.out.println("search time      " + pad((sparseNanos / topics / 1000) + " us/query")
+					+ (lsiNanos / topics / 1000) + " us/query");
+			System.out.println("overlap@" + numberOfSearchResults + " over " + topics + " topics: "
+					+ (overlapSum / topics));
+			System.out.println("Kendall tau of the common results: "
+					+ (tauCount > 0 ? String.valueOf(tauSum / tauCount) : "n/a"));
+		}
+	}
+
+	/**
+	 * Pad a column of the report to a fixed width
+	 *
+	 * @param value
+	 * @return
+	 */
+	private static String pad(String value) {
+		StringBuilder builder = new StringBuilder(value);
+		while (builder.length() < 16) {
+			builder.append(' ');
+		}
+		return builder.toString();
+	}
+}
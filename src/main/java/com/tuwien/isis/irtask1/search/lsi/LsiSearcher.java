@@ -0,0 +1,98 @@
+package com.tuwien.isis.irtask1.search.lsi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.QueryBudget;
+import com.tuwien.isis.irtask1.search.QueryContext;
+import com.tuwien.isis.irtask1.search.TopKCollector;
+import com.tuwien.isis.irtask1.search.filter.ClassBitsets;
+import com.tuwien.isis.irtask1.search.filter.DocIdSet;
+import com.tuwien.isis.irtask1.search.shard.DocumentListing;
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+
+/**
+ * Searcher ranking the documents of the collection by the cosine of their dense {@link LsiIndex}
+ * vectors. Only documents of the index can be queried, as the term vectors are not stored; other
+ * queries get no results. Every document has a latent cosine, so all documents of the selected classes
+ * match. The dense vectors have no terms, so queries are never pruned.
+ */
+public class LsiSearcher implements ShardSearcher, DocumentListing {
+
+	private final LsiIndex index;
+
+	private final List<Document> documents;
+
+	private final ClassBitsets classBitsets;
+
+	private final Map<String, Float> noWeights = Collections.emptyMap();
+
+	public LsiSearcher(LsiIndex index) {
+		this.index = index;
+		List<Document> documents = new ArrayList<Document>(index.getNumberOfDocuments());
+		for (int id = 0; id < index.getNumberOfDocuments(); id++) {
+			documents.add(index.getDocument(id));
+		}
+		this.classBitsets = new ClassBitsets(documents);
+		this.documents = Collections.unmodifiableList(documents);
+	}
+
+	public List<Document> getDocuments() {
+		return documents;
+	}
+
+	public DocumentVector findDocument(String fullDocName) {
+		int id = index.findDocumentId(fullDocName);
+		return (id >= 0) ? new DocumentVector(index.getDocument(id), noWeights) : null;
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k) {
+		return search(queryDocVec, k, QueryContext.NONE);
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k, QueryContext context) {
+		List<DocumentVector> resultList = new ArrayList<DocumentVector>();
+		int queryId = index.findDocumentId(queryDocVec.getFullDocName());
+		if (queryId < 0) {
+			return resultList;
+		}
+
+		TopKCollector collector = new TopKCollector(k);
+		int[] classCounts = new int[classBitsets.getNumberOfClasses()];
+		QueryBudget budget = context.getBudget();
+		int allowance = 0;
+		DocIdSet.Iterator docs = classBitsets.select(context.getFilter()).iterator();
+		for (int docId = docs.next(); docId != DocIdSet.END; docId = docs.next()) {
+			if (budget != null && --allowance < 0 && (allowance = budget.grant() - 1) < 0) {
+				break;
+			}
+			if (docId != queryId) {
+				collector.offer(docId, index.cosine(queryId, docId));
+				classCounts[classBitsets.getClassOrdinal(docId)]++;
+			}
+		}
+		if (budget != null) {
+			budget.giveBack(allowance);
+		}
+		if (context.getFacets() != null) {
+			context.getFacets().add(classBitsets, classCounts);
+		}
+
+		double[] cosines = new double[collector.size()];
+		int[] ids = collector.drainSorted(cosines);
+		for (int i = 0; i < ids.length; i++) {
+			DocumentVector result = new DocumentVector(index.getDocument(ids[i]), noWeights);
+			result.setCosine(cosines[i]);
+			resultList.add(result);
+		}
+		return resultList;
+	}
+
+	public void close() {
+		// nothing to release
+	}
+}
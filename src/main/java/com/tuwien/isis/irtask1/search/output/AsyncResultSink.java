@@ -0,0 +1,112 @@
+package com.tuwien.isis.irtask1.search.output;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+
+/**
+ * Hands results over to a background thread which formats and writes them with the wrapped sink, so
+ * the searching thread never waits for the disk. Errors of the background thread are reported by the
+ * next call to write or by close.
+ */
+public class AsyncResultSink implements ResultSink {
+
+	/**
+	 * Marker telling the background thread that no more results follow
+	 */
+	private static final Batch END = new Batch(0, null);
+
+	private final ResultSink sink;
+
+	private final BlockingQueue<Batch> queue = new LinkedBlockingQueue<Batch>(1024);
+
+	private final Thread writerThread;
+
+	private volatile IOException failure;
+
+	public AsyncResultSink(ResultSink sink) {
+		this.sink = sink;
+		this.writerThread = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "result-writer");
+		this.writerThread.start();
+	}
+
+	public void write(int topicNr, List<DocumentVector> resultList) throws IOException {
+		checkFailure();
+		put(new Batch(topicNr, resultList));
+	}
+
+	public void close() throws IOException {
+		put(END);
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting for the result writer", e);
+		}
+		try {
+			checkFailure();
+		} finally {
+			sink.close();
+		}
+	}
+
+	/**
+	 * Write queued results until the end marker arrives
+	 */
+	private void drain() {
+		try {
+			while (true) {
+				Batch batch = queue.take();
+				if (batch == END) {
+					return;
+				}
+				if (failure == null) {
+					try {
+						sink.write(batch.topicNr, batch.resultList);
+					} catch (IOException e) {
+						failure = e;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void put(Batch batch) throws IOException {
+		try {
+			queue.put(batch);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while queueing results", e);
+		}
+	}
+
+	private void checkFailure() throws IOException {
+		if (failure != null) {
+			throw new IOException("writing results failed: " + failure.getMessage(), failure);
+		}
+	}
+
+	/**
+	 * Results of one topic waiting to be written
+	 */
+	private static class Batch {
+
+		private final int topicNr;
+
+		private final List<DocumentVector> resultList;
+
+		Batch(int topicNr, List<DocumentVector> resultList) {
+			this.topicNr = topicNr;
+			this.resultList = resultList;
+		}
+	}
+}
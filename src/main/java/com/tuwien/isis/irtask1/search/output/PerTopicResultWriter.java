@@ -0,0 +1,43 @@
+package com.tuwien.isis.irtask1.search.output;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+
+/**
+ * Writes the results of every topic into its own file, output/topic_N_results.txt
+ */
+public class PerTopicResultWriter implements ResultSink {
+
+	private final File outputDirectory;
+
+	private final StringBuilder builder = new StringBuilder(4096);
+
+	public PerTopicResultWriter(String outputDirectory) {
+		this.outputDirectory = new File(outputDirectory);
+		this.outputDirectory.mkdirs();
+	}
+
+	public void write(int topicNr, List<DocumentVector> resultList) throws IOException {
+		builder.setLength(0);
+		TrecFormat.appendTopic(builder, topicNr, resultList);
+
+		File file = new File(outputDirectory, "topic_" + topicNr + "_results" + ".txt");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.defaultCharset());
+		try {
+			writer.append(builder);
+		} finally {
+			writer.close();
+		}
+	}
+
+	public void close() {
+		// every topic file is closed right after it was written
+	}
+}
@@ -0,0 +1,28 @@
+package com.tuwien.isis.irtask1.search.output;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+
+/**
+ * Destination for the ranked results of a topic run
+ */
+public interface ResultSink {
+
+	/**
+	 * Write the sorted results of a topic
+	 *
+	 * @param topicNr
+	 * @param resultList
+	 * @throws IOException
+	 */
+	void write(int topicNr, List<DocumentVector> resultList) throws IOException;
+
+	/**
+	 * Flush all pending results and release the sink
+	 *
+	 * @throws IOException
+	 */
+	void close() throws IOException;
+}
@@ -0,0 +1,58 @@
+package com.tuwien.isis.irtask1.search.output;
+
+import java.util.List;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+
+/**
+ * Formats results as TREC run lines ("topicN Q0 class/name rank score tag"), appending directly to a
+ * StringBuilder instead of concatenating strings and calling String.format for every line
+ */
+public class TrecFormat {
+
+	/**
+	 * Tag identifying our runs in the last column
+	 */
+	public static final String RUN_TAG = "group3-bagOfWords";
+
+	private TrecFormat() {
+	}
+
+	/**
+	 * Append the lines of all results of a topic
+	 *
+	 * @param builder
+	 * @param topicNr
+	 * @param resultList
+	 */
+	public static void appendTopic(StringBuilder builder, int topicNr, List<DocumentVector> resultList) {
+		for (int rank = 0; rank < resultList.size(); rank++) {
+			DocumentVector result = resultList.get(rank);
+			builder.append("topic").append(topicNr).append(" Q0 ");
+			builder.append(result.getDocumentData().getClassAssignment()).append('/');
+			builder.append(result.getDocumentData().getName()).append(' ');
+			builder.append(rank).append(' ');
+			appendFixed2(builder, result.getCosine() * 100);
+			builder.append(' ').append(RUN_TAG).append('\n');
+		}
+	}
+
+	/**
+	 * Append a number rounded half-up to two decimals, like String.format("%.2f", value)
+	 *
+	 * @param builder
+	 * @param value
+	 */
+	static void appendFixed2(StringBuilder builder, double value) {
+		long hundredths = Math.round(Math.abs(value) * 100);
+		if (value < 0 && hundredths != 0) {
+			builder.append('-');
+		}
+		builder.append(hundredths / 100).append('.');
+		long fraction = hundredths % 100;
+		if (fraction < 10) {
+			builder.append('0');
+		}
+		builder.append(fraction);
+	}
+}
@@ -0,0 +1,41 @@
+package com.tuwien.isis.irtask1.search.output;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+
+/**
+ * Writes the results of all topics into a single buffered TREC run file
+ */
+public class TrecRunWriter implements ResultSink {
+
+	private final Writer writer;
+
+	private final StringBuilder builder = new StringBuilder(4096);
+
+	public TrecRunWriter(String outputFilePath) throws IOException {
+		File file = new File(outputFilePath);
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), Charset.defaultCharset()),
+				1 << 16);
+	}
+
+	public void write(int topicNr, List<DocumentVector> resultList) throws IOException {
+		builder.setLength(0);
+		TrecFormat.appendTopic(builder, topicNr, resultList);
+		writer.append(builder);
+	}
+
+	public void close() throws IOException {
+		writer.close();
+	}
+}
@@ -0,0 +1,46 @@
+package com.tuwien.isis.irtask1.search.positional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.tuwien.isis.irtask1.indexer.TokenAnalyzer;
+
+/**
+ * Query matching documents which contain the terms of a text at the same relative positions
+ */
+public class PhraseQuery extends PositionalQuery {
+
+	public PhraseQuery(String[] terms, int[] offsets) {
+		super(terms, offsets);
+	}
+
+	/**
+	 * Create a phrase query from a text, analyzed the same way as the indexed documents
+	 *
+	 * @param analyzer
+	 * @param text
+	 * @return
+	 */
+	public static PhraseQuery parse(TokenAnalyzer analyzer, String text) {
+		List<String> terms = new ArrayList<String>();
+		List<Integer> offsets = new ArrayList<Integer>();
+		analyze(analyzer, text, terms, offsets);
+		return new PhraseQuery(terms.toArray(new String[terms.size()]), toArray(offsets));
+	}
+
+	@Override
+	protected int match(int[][] positions) {
+		for (int position : positions[0]) {
+			int start = position - offsets[0];
+			boolean matches = true;
+			for (int i = 1; i < terms.length && matches; i++) {
+				matches = Arrays.binarySearch(positions[i], start + offsets[i]) >= 0;
+			}
+			if (matches) {
+				return start;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,127 @@
+package com.tuwien.isis.irtask1.search.positional;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.indexer.PositionalIndexWriter;
+import com.tuwien.isis.irtask1.indexer.TokenAnalyzer;
+import com.tuwien.isis.irtask1.indexer.VByte;
+
+/**
+ * Positional postings of an index, loaded from the file written by {@link PositionalIndexWriter}
+ */
+public class PositionalIndex {
+
+	private final TokenAnalyzer analyzer;
+
+	private final List<Document> documents;
+
+	private final Map<String, PositionalPostingList> postingLists;
+
+	private PositionalIndex(TokenAnalyzer analyzer, List<Document> documents,
+			Map<String, PositionalPostingList> postingLists) {
+		this.analyzer = analyzer;
+		this.documents = documents;
+		this.postingLists = postingLists;
+	}
+
+	/**
+	 * Load the positional postings file at the given path
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static PositionalIndex load(String path) throws IOException {
+		System.out.println("Loading positional postings - " + path);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+		try {
+			if (in.readInt() != PositionalIndexWriter.MAGIC) {
+				throw new IOException("not a positional postings file: " + path);
+			}
+			TokenAnalyzer analyzer = new TokenAnalyzer(in.readBoolean(), in.readBoolean());
+
+			int documentCount = in.readInt();
+			List<Document> documents = new ArrayList<Document>(documentCount);
+			for (int id = 0; id < documentCount; id++) {
+				String classAssignment = in.readUTF();
+				documents.add(new Document(in.readUTF(), id, classAssignment));
+			}
+
+			int termCount = in.readInt();
+			Map<String, PositionalPostingList> postingLists = new HashMap<String, PositionalPostingList>(termCount * 2);
+			for (int term = 0; term < termCount; term++) {
+				String token = in.readUTF();
+				postingLists.put(token, readPostingList(in));
+			}
+			return new PositionalIndex(analyzer, documents, postingLists);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Read the postings of a single term, keeping the positions encoded
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	private static PositionalPostingList readPostingList(DataInputStream in) throws IOException {
+		int size = VByte.read(in);
+		int[] docIds = new int[size];
+		int[] frequencies = new int[size];
+		int[] positionOffsets = new int[size];
+		byte[] positions = new byte[16];
+		int positionsLength = 0;
+
+		int docId = 0;
+		for (int index = 0; index < size; index++) {
+			docId += VByte.read(in);
+			docIds[index] = docId;
+			frequencies[index] = VByte.read(in);
+
+			int byteLength = VByte.read(in);
+			if (positionsLength + byteLength > positions.length) {
+				positions = Arrays.copyOf(positions, Math.max(positions.length * 2, positionsLength
+						+ byteLength));
+			}
+			positionOffsets[index] = positionsLength;
+			in.readFully(positions, positionsLength, byteLength);
+			positionsLength += byteLength;
+		}
+		return new PositionalPostingList(docIds, frequencies, positionOffsets, Arrays.copyOf(positions,
+				positionsLength));
+	}
+
+	/**
+	 * Return the analyzer with the settings the index was built with
+	 *
+	 * @return
+	 */
+	public TokenAnalyzer getAnalyzer() {
+		return analyzer;
+	}
+
+	public Document getDocument(int id) {
+		return documents.get(id);
+	}
+
+	/**
+	 * Return the posting list of a term or null if the term is not indexed
+	 *
+	 * @param term
+	 * @return
+	 */
+	public PositionalPostingList getPostingList(String term) {
+		return postingLists.get(term);
+	}
+}
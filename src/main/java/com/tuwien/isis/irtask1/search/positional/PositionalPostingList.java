@@ -0,0 +1,87 @@
+package com.tuwien.isis.irtask1.search.positional;
+
+import com.tuwien.isis.irtask1.indexer.VByte;
+
+/**
+ * Read-only positional posting list of a term. Document ids are decoded into an array which is
+ * traversed with skip pointers every sqrt(df) entries; positions stay variable-byte encoded until the
+ * positions of a document are actually needed.
+ */
+public class PositionalPostingList {
+
+	private final int[] docIds;
+
+	private final int[] frequencies;
+
+	private final int[] positionOffsets;
+
+	private final byte[] positions;
+
+	/**
+	 * Distance between two skip pointers
+	 */
+	private final int skipInterval;
+
+	public PositionalPostingList(int[] docIds, int[] frequencies, int[] positionOffsets, byte[] positions) {
+		this.docIds = docIds;
+		this.frequencies = frequencies;
+		this.positionOffsets = positionOffsets;
+		this.positions = positions;
+		this.skipInterval = Math.max(1, (int) Math.sqrt(docIds.length));
+	}
+
+	/**
+	 * Return the number of documents in the list
+	 *
+	 * @return
+	 */
+	public int size() {
+		return docIds.length;
+	}
+
+	public int getDocId(int index) {
+		return docIds[index];
+	}
+
+	public int getFrequency(int index) {
+		return frequencies[index];
+	}
+
+	/**
+	 * Return the index of the first entry at or after the given index whose document id is at least
+	 * target (or size() if there is none). Skip pointers are followed as long as they do not overshoot
+	 * the target, the remaining entries are scanned.
+	 *
+	 * @param index
+	 * @param target
+	 * @return
+	 */
+	public int advance(int index, int target) {
+		while (index < docIds.length && docIds[index] < target) {
+			if (index % skipInterval == 0 && index + skipInterval < docIds.length
+					&& docIds[index + skipInterval] <= target) {
+				index += skipInterval;
+			} else {
+				index++;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Decode the positions of the term in the document at the given index
+	 *
+	 * @param index
+	 * @return positions in ascending order
+	 */
+	public int[] getPositions(int index) {
+		int[] result = new int[frequencies[index]];
+		int[] cursor = { positionOffsets[index] };
+		int position = 0;
+		for (int i = 0; i < result.length; i++) {
+			position += VByte.decode(positions, cursor);
+			result[i] = position;
+		}
+		return result;
+	}
+}
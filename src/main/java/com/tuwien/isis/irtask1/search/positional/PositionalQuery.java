@@ -0,0 +1,141 @@
+package com.tuwien.isis.irtask1.search.positional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.tuwien.isis.irtask1.indexer.Posting;
+import com.tuwien.isis.irtask1.indexer.TokenAnalyzer;
+
+/**
+ * Query over the positional postings which requires all of its terms to occur in a document, with an
+ * additional condition on their positions. Documents containing all terms are found by intersecting
+ * the posting lists rarest first with skips; positions are only decoded for those documents.
+ */
+public abstract class PositionalQuery {
+
+	/**
+	 * Terms of the query
+	 */
+	protected final String[] terms;
+
+	/**
+	 * Position of each term relative to the first word of the query text
+	 */
+	protected final int[] offsets;
+
+	protected PositionalQuery(String[] terms, int[] offsets) {
+		this.terms = terms;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Find all documents matching the query
+	 *
+	 * @param index
+	 * @return one posting per matching document with the position of its first match
+	 */
+	public List<Posting> evaluate(PositionalIndex index) {
+		List<Posting> matches = new ArrayList<Posting>();
+		if (terms.length == 0) {
+			return matches;
+		}
+
+		final PositionalPostingList[] lists = new PositionalPostingList[terms.length];
+		for (int i = 0; i < terms.length; i++) {
+			lists[i] = index.getPostingList(terms[i]);
+			if (lists[i] == null) {
+				return matches;
+			}
+		}
+
+		// intersect the shortest lists first, so that the candidates jump as far as possible
+		Integer[] order = new Integer[terms.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return lists[a].size() - lists[b].size();
+			}
+		});
+
+		int[] cursors = new int[terms.length];
+		int[][] positions = new int[terms.length][];
+		int candidate = lists[order[0]].getDocId(0);
+
+		while (true) {
+			boolean allContainCandidate = true;
+			for (int i : order) {
+				cursors[i] = lists[i].advance(cursors[i], candidate);
+				if (cursors[i] == lists[i].size()) {
+					return matches;
+				}
+				int docId = lists[i].getDocId(cursors[i]);
+				if (docId > candidate) {
+					candidate = docId;
+					allContainCandidate = false;
+					break;
+				}
+			}
+
+			if (allContainCandidate) {
+				for (int i = 0; i < terms.length; i++) {
+					positions[i] = lists[i].getPositions(cursors[i]);
+				}
+				int position = match(positions);
+				if (position >= 0) {
+					matches.add(new Posting(candidate, position));
+				}
+				candidate++;
+			}
+		}
+	}
+
+	/**
+	 * Check the positions of the terms in a document which contains all of them
+	 *
+	 * @param positions
+	 *            ascending positions of each term, in the order of the query terms
+	 * @return the position of the first match or -1 if the document does not match
+	 */
+	protected abstract int match(int[][] positions);
+
+	/**
+	 * Analyze a query text with the analyzer of the index, collecting the resulting terms and their
+	 * positions relative to the first word
+	 *
+	 * @param analyzer
+	 * @param text
+	 * @param terms
+	 * @param offsets
+	 */
+	protected static void analyze(TokenAnalyzer analyzer, String text, List<String> terms, List<Integer> offsets) {
+		int position = 0;
+		for (String word : TokenAnalyzer.split(text)) {
+			if (!word.isEmpty()) {
+				String term = analyzer.analyze(word);
+				if (term != null) {
+					terms.add(term);
+					offsets.add(position);
+				}
+				position++;
+			}
+		}
+	}
+
+	/**
+	 * Convert a list of integers into an array
+	 *
+	 * @param values
+	 * @return
+	 */
+	protected static int[] toArray(List<Integer> values) {
+		int[] result = new int[values.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = values.get(i);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,109 @@
+package com.tuwien.isis.irtask1.search.positional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.TokenAnalyzer;
+
+/**
+ * Query matching documents in which all terms of a text occur, in any order, within a window of a
+ * given number of consecutive words. A term which is repeated in the text has to occur as often in the
+ * window, each time at another position.
+ */
+public class ProximityQuery extends PositionalQuery {
+
+	/**
+	 * Number of times each (distinct) term occurs in the query text
+	 */
+	private final int[] counts;
+
+	private final int window;
+
+	/**
+	 * Create a proximity query
+	 *
+	 * @param terms
+	 *            the distinct terms of the query
+	 * @param offsets
+	 *            position of the first occurrence of each term in the query text
+	 * @param counts
+	 *            number of occurrences of each term in the query text
+	 * @param window
+	 *            number of consecutive words, at least the number of occurrences of all terms
+	 */
+	public ProximityQuery(String[] terms, int[] offsets, int[] counts, int window) {
+		super(terms, offsets);
+		int occurrences = 0;
+		for (int count : counts) {
+			occurrences += count;
+		}
+		if (window < Math.max(1, occurrences)) {
+			throw new IllegalArgumentException("a window of " + window + " words can not hold the " + occurrences
+					+ " words of the query");
+		}
+		this.counts = counts;
+		this.window = window;
+	}
+
+	/**
+	 * Create a proximity query from a text, analyzed the same way as the indexed documents
+	 *
+	 * @param analyzer
+	 * @param text
+	 * @param window
+	 * @return
+	 */
+	public static ProximityQuery parse(TokenAnalyzer analyzer, String text, int window) {
+		List<String> terms = new ArrayList<String>();
+		List<Integer> offsets = new ArrayList<Integer>();
+		analyze(analyzer, text, terms, offsets);
+
+		// every posting list is read once, a repeated term needs as many occurrences instead
+		Map<String, Integer> slots = new LinkedHashMap<String, Integer>();
+		List<Integer> firstOffsets = new ArrayList<Integer>();
+		List<Integer> counts = new ArrayList<Integer>();
+		for (int i = 0; i < terms.size(); i++) {
+			Integer slot = slots.get(terms.get(i));
+			if (slot == null) {
+				slots.put(terms.get(i), slots.size());
+				firstOffsets.add(offsets.get(i));
+				counts.add(1);
+			} else {
+				counts.set(slot, counts.get(slot) + 1);
+			}
+		}
+		return new ProximityQuery(slots.keySet().toArray(new String[slots.size()]), toArray(firstOffsets),
+				toArray(counts), window);
+	}
+
+	/**
+	 * Find the first window containing the required number of occurrences of every term by repeatedly
+	 * advancing the term whose current first occurrence is leftmost. The occurrences of a term are taken
+	 * consecutively, which gives the narrowest window for the leftmost one.
+	 */
+	@Override
+	protected int match(int[][] positions) {
+		int[] cursors = new int[positions.length];
+		while (true) {
+			int min = 0;
+			int end = Integer.MIN_VALUE;
+			for (int i = 0; i < positions.length; i++) {
+				if (cursors[i] + counts[i] > positions[i].length) {
+					return -1;
+				}
+				if (positions[i][cursors[i]] < positions[min][cursors[min]]) {
+					min = i;
+				}
+				end = Math.max(end, positions[i][cursors[i] + counts[i] - 1]);
+			}
+
+			int start = positions[min][cursors[min]];
+			if (end - start < window) {
+				return start;
+			}
+			cursors[min]++;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.tuwien.isis.irtask1.search.quantized;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.DocumentVectorBuilder;
+import com.tuwien.isis.irtask1.search.RankingAgreement;
+import com.tuwien.isis.irtask1.search.shard.LocalShardSearcher;
+import com.tuwien.isis.irtask1.util.HeapUsage;
+
+/**
+ * Compares a quantized index with the float index it was built from: size on disk, load time, heap
+ * and the agreement of the rankings for a list of topics
+ */
+public class QuantizationReport {
+
+	private final String indexPath;
+
+	private final String quantizedPath;
+
+	private final int numberOfSearchResults;
+
+	public QuantizationReport(String indexPath, String quantizedPath, int numberOfSearchResults) {
+		this.indexPath = indexPath;
+		this.quantizedPath = quantizedPath;
+		this.numberOfSearchResults = numberOfSearchResults;
+	}
+
+	/**
+	 * Load both indexes, search all topics with both and print the comparison
+	 *
+	 * @param topicsPath
+	 * @throws IOException
+	 */
+	public void run(String topicsPath) throws IOException {
+		long heapBefore = HeapUsage.usedHeap();
+		long start = System.nanoTime();
+		LocalShardSearcher floatSearcher = new LocalShardSearcher(DocumentVectorBuilder.buildDocumentVectors(indexPath));
+		long floatLoadMillis = (System.nanoTime() - start) / 1000000;
+		long floatHeap = HeapUsage.usedHeap() - heapBefore;
+
+		heapBefore = HeapUsage.usedHeap();
+		start = System.nanoTime();
+		QuantizedSearcher quantizedSearcher = new QuantizedSearcher(QuantizedIndex.load(quantizedPath));
+		long quantizedLoadMillis = (System.nanoTime() - start) / 1000000;
+		long quantizedHeap = HeapUsage.usedHeap() - heapBefore;
+
+		int topics = 0;
+		double overlapSum = 0;
+		double tauSum = 0;
+		int tauCount = 0;
+		long floatNanos = 0;
+		long quantizedNanos = 0;
+
+		for (String line : Files.readAllLines(Paths.get(topicsPath), Charset.defaultCharset())) {
+			DocumentVector query = floatSearcher.findDocument(line);
+			if (query == null) {
+				System.out.println("doc " + line + " not in collection");
+				continue;
+			}
+
+			start = System.nanoTime();
+			List<DocumentVector> expected = floatSearcher.search(query, numberOfSearchResults);
+			floatNanos += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			List<DocumentVector> actual = quantizedSearcher.search(query, numberOfSearchResults);
+			quantizedNanos += System.nanoTime() - start;
+
+			overlapSum += RankingAgreement.overlap(expected, actual, numberOfSearchResults);
+			double tau = RankingAgreement.kendallTau(expected, actual);
+			if (!Double.isNaN(tau)) {
+				tauSum += tau;
+				tauCount++;
+			}
+			topics++;
+		}
+
+		System.out.println("                 float index     quantized index");
+		System.out.println("size on disk     " + pad(HeapUsage.format(new File(indexPath).length()))
+				+ HeapUsage.format(new File(quantizedPath).length()));
+		System.out.println("load time        " + pad(floatLoadMillis + " ms") + quantizedLoadMillis + " ms");
+		System.out.println("heap             " + pad(HeapUsage.format(floatHeap)) + HeapUsage.format(quantizedHeap));
+		if (topics > 0) {
+			System.out.println("search time      " + pad((floatNanos / topics / 1000) + " us/query")
+					+ (quantizedNanos / topics / 1000) + " us/query");
+			System.out.println("overlap@" + numberOfSearchResults + " over " + topics + " topics: "
+					+ (overlapSum / topics));
+			System.out.println("Kendall tau of the common results: "
+					+ (tauCount > 0 ? String.valueOf(tauSum / tauCount) : "n/a"));
+		}
+	}
+
+	/**
+	 * Pad a column of the report to a fixed width
+	 *
+	 * @param value
+	 * @return
+	 */
+	private static String pad(String value) {
+		StringBuilder builder = new StringBuilder(value);
+		while (builder.length() < 16) {
+			builder.append(' ');
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,57 @@
+package com.tuwien.isis.irtask1.search.quantized;
+
+/**
+ * Sparse document vector with quantized weights: sorted term ids and one 8 or 16 bit unsigned value
+ * per term
+ */
+public class QuantizedDocumentVector {
+
+	private final int[] termIds;
+
+	/**
+	 * Values of an 8 bit index (null for 16 bit)
+	 */
+	private final byte[] bytes;
+
+	/**
+	 * Values of a 16 bit index (null for 8 bit)
+	 */
+	private final char[] chars;
+
+	/**
+	 * Euclidean length of the vector in the index's scoring space
+	 */
+	private double length;
+
+	public QuantizedDocumentVector(int[] termIds, byte[] bytes, char[] chars) {
+		this.termIds = termIds;
+		this.bytes = bytes;
+		this.chars = chars;
+	}
+
+	public int size() {
+		return termIds.length;
+	}
+
+	public int getTermId(int index) {
+		return termIds[index];
+	}
+
+	/**
+	 * Return the quantized value of the term at the given index
+	 *
+	 * @param index
+	 * @return
+	 */
+	public int getValue(int index) {
+		return (bytes != null) ? bytes[index] & 0xFF : chars[index];
+	}
+
+	public double getLength() {
+		return length;
+	}
+
+	public void setLength(double length) {
+		this.length = length;
+	}
+}
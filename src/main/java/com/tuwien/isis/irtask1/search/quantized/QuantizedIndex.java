@@ -0,0 +1,299 @@
+package com.tuwien.isis.irtask1.search.quantized;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.indexer.QuantizedIndexWriter;
+import com.tuwien.isis.irtask1.indexer.VByte;
+import com.tuwien.isis.irtask1.search.QueryPruner;
+
+/**
+ * Document vectors with quantized weights, loaded from the file written by {@link QuantizedIndexWriter}
+ */
+public class QuantizedIndex {
+
+	private final int bits;
+
+	private final boolean perTermScale;
+
+	private final float globalScale;
+
+	private final String[] terms;
+
+	/**
+	 * Squared scale of each term (only used with per-term scales)
+	 */
+	private final float[] squaredTermScales;
+
+	private final Document[] documents;
+
+	private final QuantizedDocumentVector[] vectors;
+
+	private final Map<String, Integer> documentIdsByName = new HashMap<String, Integer>();
+
+	private Map<String, Integer> termIds;
+
+	private QuantizedIndex(int bits, boolean perTermScale, float globalScale, String[] terms,
+			float[] squaredTermScales, Document[] documents, QuantizedDocumentVector[] vectors) {
+		this.bits = bits;
+		this.perTermScale = perTermScale;
+		this.globalScale = globalScale;
+		this.terms = terms;
+		this.squaredTermScales = squaredTermScales;
+		this.documents = documents;
+		this.vectors = vectors;
+
+		for (Document document : documents) {
+			documentIdsByName.put(document.getClassAssignment() + "/" + document.getName(), document.getId());
+		}
+		for (QuantizedDocumentVector vector : vectors) {
+			vector.setLength(Math.sqrt(dotProduct(vector, vector)));
+		}
+	}
+
+	/**
+	 * Load the quantized index file at the given path
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static QuantizedIndex load(String path) throws IOException {
+		System.out.println("Loading quantized index - " + path);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+		try {
+			if (in.readInt() != QuantizedIndexWriter.MAGIC) {
+				throw new IOException("not a quantized index file: " + path);
+			}
+			int bits = in.readByte();
+			boolean perTermScale = in.readBoolean();
+			float globalScale = in.readFloat();
+
+			Document[] documents = new Document[in.readInt()];
+			for (int id = 0; id < documents.length; id++) {
+				String classAssignment = in.readUTF();
+				documents[id] = new Document(in.readUTF(), id, classAssignment);
+			}
+
+			String[] terms = new String[in.readInt()];
+			float[] squaredTermScales = perTermScale ? new float[terms.length] : null;
+			for (int termId = 0; termId < terms.length; termId++) {
+				terms[termId] = in.readUTF();
+				if (perTermScale) {
+					float scale = in.readFloat();
+					squaredTermScales[termId] = scale * scale;
+				}
+			}
+
+			QuantizedDocumentVector[] vectors = new QuantizedDocumentVector[documents.length];
+			for (int docId = 0; docId < documents.length; docId++) {
+				int size = VByte.read(in);
+				int[] termIds = new int[size];
+				int termId = 0;
+				for (int i = 0; i < size; i++) {
+					termId += VByte.read(in);
+					termIds[i] = termId;
+				}
+				if (bits == 8) {
+					byte[] bytes = new byte[size];
+					in.readFully(bytes);
+					vectors[docId] = new QuantizedDocumentVector(termIds, bytes, null);
+				} else {
+					char[] chars = new char[size];
+					for (int i = 0; i < size; i++) {
+						chars[i] = in.readChar();
+					}
+					vectors[docId] = new QuantizedDocumentVector(termIds, null, chars);
+				}
+			}
+			return new QuantizedIndex(bits, perTermScale, globalScale, terms, squaredTermScales, documents, vectors);
+		} finally {
+			in.close();
+		}
+	}
+
+	public int getBits() {
+		return bits;
+	}
+
+	public int getNumberOfDocuments() {
+		return documents.length;
+	}
+
+	public Document getDocument(int id) {
+		return documents[id];
+	}
+
+	public QuantizedDocumentVector getVector(int id) {
+		return vectors[id];
+	}
+
+	/**
+	 * Return the id of a document given by its full name (class/name) or -1 if it is not indexed
+	 *
+	 * @param fullDocName
+	 * @return
+	 */
+	public int findDocumentId(String fullDocName) {
+		Integer id = documentIdsByName.get(fullDocName);
+		return (id != null) ? id : -1;
+	}
+
+	/**
+	 * Return the dot product of two vectors. With a global scale both the products and the sum are
+	 * computed in integer arithmetic; the scale cancels out of the cosine and is not applied. With
+	 * per-term scales every product is multiplied by the squared scale of its term.
+	 *
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public double dotProduct(QuantizedDocumentVector a, QuantizedDocumentVector b) {
+		int i = 0;
+		int j = 0;
+		if (perTermScale) {
+			double sum = 0;
+			while (i < a.size() && j < b.size()) {
+				int termA = a.getTermId(i);
+				int termB = b.getTermId(j);
+				if (termA == termB) {
+					sum += squaredTermScales[termA] * ((long) a.getValue(i++) * b.getValue(j++));
+				} else if (termA < termB) {
+					i++;
+				} else {
+					j++;
+				}
+			}
+			return sum;
+		} else {
+			long sum = 0;
+			while (i < a.size() && j < b.size()) {
+				int termA = a.getTermId(i);
+				int termB = b.getTermId(j);
+				if (termA == termB) {
+					sum += (long) a.getValue(i++) * b.getValue(j++);
+				} else if (termA < termB) {
+					i++;
+				} else {
+					j++;
+				}
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * Return the scale which turns a quantized value of a term back into its weight
+	 *
+	 * @param termId
+	 * @return
+	 */
+	private float scale(int termId) {
+		return perTermScale ? (float) Math.sqrt(squaredTermScales[termId]) : globalScale;
+	}
+
+	/**
+	 * Decode a quantized vector back into a term -> weight map
+	 *
+	 * @param vector
+	 * @return
+	 */
+	public Map<String, Float> dequantize(QuantizedDocumentVector vector) {
+		Map<String, Float> docIdftfMap = new HashMap<String, Float>(vector.size() * 2);
+		for (int i = 0; i < vector.size(); i++) {
+			int termId = vector.getTermId(i);
+			docIdftfMap.put(terms[termId], vector.getValue(i) * scale(termId));
+		}
+		return docIdftfMap;
+	}
+
+	/**
+	 * Quantize a term -> weight map which is not part of the index, ignoring unknown terms
+	 *
+	 * @param docIdftfMap
+	 * @return
+	 */
+	public QuantizedDocumentVector quantize(Map<String, Float> docIdftfMap) {
+		Map<String, Integer> termIds = getTermIds();
+		int maxValue = (1 << bits) - 1;
+
+		int[] vectorTermIds = new int[docIdftfMap.size()];
+		int size = 0;
+		for (String term : docIdftfMap.keySet()) {
+			Integer termId = termIds.get(term);
+			if (termId != null) {
+				vectorTermIds[size++] = termId;
+			}
+		}
+		vectorTermIds = Arrays.copyOf(vectorTermIds, size);
+		Arrays.sort(vectorTermIds);
+
+		byte[] bytes = (bits == 8) ? new byte[size] : null;
+		char[] chars = (bits == 8) ? null : new char[size];
+		for (int i = 0; i < size; i++) {
+			int termId = vectorTermIds[i];
+			int value = Math.min(maxValue, Math.max(1, Math.round(docIdftfMap.get(terms[termId]) / scale(termId))));
+			if (bytes != null) {
+				bytes[i] = (byte) value;
+			} else {
+				chars[i] = (char) value;
+			}
+		}
+
+		QuantizedDocumentVector vector = new QuantizedDocumentVector(vectorTermIds, bytes, chars);
+		vector.setLength(Math.sqrt(dotProduct(vector, vector)));
+		return vector;
+	}
+
+	/**
+	 * Return a copy of a vector with only the terms kept by the pruner, judged by their decoded weights
+	 *
+	 * @param vector
+	 * @param pruner
+	 * @return
+	 */
+	public QuantizedDocumentVector prune(QuantizedDocumentVector vector, QueryPruner pruner) {
+		float[] weights = new float[vector.size()];
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = vector.getValue(i) * scale(vector.getTermId(i));
+		}
+		int[] kept = pruner.select(weights, weights.length);
+
+		int[] termIds = new int[kept.length];
+		byte[] bytes = (bits == 8) ? new byte[kept.length] : null;
+		char[] chars = (bits == 8) ? null : new char[kept.length];
+		for (int i = 0; i < kept.length; i++) {
+			termIds[i] = vector.getTermId(kept[i]);
+			if (bytes != null) {
+				bytes[i] = (byte) vector.getValue(kept[i]);
+			} else {
+				chars[i] = (char) vector.getValue(kept[i]);
+			}
+		}
+
+		QuantizedDocumentVector pruned = new QuantizedDocumentVector(termIds, bytes, chars);
+		pruned.setLength(Math.sqrt(dotProduct(pruned, pruned)));
+		return pruned;
+	}
+
+	/**
+	 * Return the term -> id map, which is only built when a query from outside the index is quantized
+	 *
+	 * @return
+	 */
+	private synchronized Map<String, Integer> getTermIds() {
+		if (termIds == null) {
+			termIds = new HashMap<String, Integer>(terms.length * 2);
+			for (int termId = 0; termId < terms.length; termId++) {
+				termIds.put(terms[termId], termId);
+			}
+		}
+		return termIds;
+	}
+}
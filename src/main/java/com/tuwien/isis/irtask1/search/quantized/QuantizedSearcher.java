@@ -0,0 +1,111 @@
+package com.tuwien.isis.irtask1.search.quantized;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.QueryBudget;
+import com.tuwien.isis.irtask1.search.QueryContext;
+import com.tuwien.isis.irtask1.search.TopKCollector;
+import com.tuwien.isis.irtask1.search.filter.ClassBitsets;
+import com.tuwien.isis.irtask1.search.filter.DocIdSet;
+import com.tuwien.isis.irtask1.search.shard.DocumentListing;
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+
+/**
+ * Searcher scoring directly on the quantized weights of a {@link QuantizedIndex}. Only the vectors of
+ * the query and of the returned top documents are decoded into term -> weight maps.
+ */
+public class QuantizedSearcher implements ShardSearcher, DocumentListing {
+
+	private final QuantizedIndex index;
+
+	private final List<Document> documents;
+
+	private final ClassBitsets classBitsets;
+
+	public QuantizedSearcher(QuantizedIndex index) {
+		this.index = index;
+		List<Document> documents = new ArrayList<Document>(index.getNumberOfDocuments());
+		for (int id = 0; id < index.getNumberOfDocuments(); id++) {
+			documents.add(index.getDocument(id));
+		}
+		this.classBitsets = new ClassBitsets(documents);
+		this.documents = Collections.unmodifiableList(documents);
+	}
+
+	public List<Document> getDocuments() {
+		return documents;
+	}
+
+	public DocumentVector findDocument(String fullDocName) {
+		int id = index.findDocumentId(fullDocName);
+		if (id < 0) {
+			return null;
+		}
+		return new DocumentVector(index.getDocument(id), index.dequantize(index.getVector(id)));
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k) {
+		return search(queryDocVec, k, QueryContext.NONE);
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k, QueryContext context) {
+		int queryId = index.findDocumentId(queryDocVec.getFullDocName());
+
+		// documents of the index are scored with their stored quantized vector
+		QuantizedDocumentVector query = (queryId >= 0) ? index.getVector(queryId) : index.quantize(queryDocVec
+				.getDocIdftfMap());
+		if (context.getPruner() != null) {
+			query = index.prune(query, context.getPruner());
+		}
+
+		if (query.getLength() == 0) {
+			return new ArrayList<DocumentVector>();
+		}
+
+		TopKCollector collector = new TopKCollector(k);
+		int[] classCounts = new int[classBitsets.getNumberOfClasses()];
+		QueryBudget budget = context.getBudget();
+		int allowance = 0;
+		DocIdSet.Iterator docs = classBitsets.select(context.getFilter()).iterator();
+		for (int id = docs.next(); id != DocIdSet.END; id = docs.next()) {
+			if (budget != null && --allowance < 0 && (allowance = budget.grant() - 1) < 0) {
+				break;
+			}
+			QuantizedDocumentVector vector = index.getVector(id);
+			if (id == queryId || vector.getLength() == 0) {
+				continue;
+			}
+			double dotProduct = index.dotProduct(query, vector);
+			if (dotProduct != 0) {
+				collector.offer(id, dotProduct / (query.getLength() * vector.getLength()));
+				classCounts[classBitsets.getClassOrdinal(id)]++;
+			}
+		}
+		if (budget != null) {
+			budget.giveBack(allowance);
+		}
+		if (context.getFacets() != null) {
+			context.getFacets().add(classBitsets, classCounts);
+		}
+
+		// decode only the vectors of the returned documents
+		double[] cosines = new double[collector.size()];
+		int[] ids = collector.drainSorted(cosines);
+		List<DocumentVector> resultList = new ArrayList<DocumentVector>(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			DocumentVector result = new DocumentVector(index.getDocument(ids[i]), index.dequantize(index
+					.getVector(ids[i])));
+			result.setCosine(cosines[i]);
+			resultList.add(result);
+		}
+		return resultList;
+	}
+
+	public void close() {
+		// nothing to release
+	}
+}
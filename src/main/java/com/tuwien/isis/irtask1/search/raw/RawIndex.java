@@ -0,0 +1,226 @@
+package com.tuwien.isis.irtask1.search.raw;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.indexer.RawIndexWriter;
+import com.tuwien.isis.irtask1.indexer.TokenAnalyzer;
+import com.tuwien.isis.irtask1.indexer.VByte;
+
+/**
+ * Raw term frequencies and document frequencies of an index, loaded from the file written by
+ * {@link RawIndexWriter}. The term frequencies of all documents are held in two primitive arrays in
+ * document id order, so that a {@link WeightingScheme} can turn them into weights in a single pass.
+ */
+public class RawIndex {
+
+	private final TokenAnalyzer analyzer;
+
+	private final Document[] documents;
+
+	private final Map<String, Integer> documentIds;
+
+	private final String[] terms;
+
+	private final Map<String, Integer> termIds;
+
+	private final int[] documentFrequencies;
+
+	/**
+	 * Index of the first entry of every document in termIdArray and frequencies, plus the total size
+	 */
+	private final int[] docStarts;
+
+	private final int[] termIdArray;
+
+	private final int[] frequencies;
+
+	/**
+	 * Number of indexed tokens (sum of the term frequencies) of every document
+	 */
+	private final int[] documentLengths;
+
+	private RawIndex(TokenAnalyzer analyzer, Document[] documents, String[] terms, int[] documentFrequencies,
+			int[] docStarts, int[] termIdArray, int[] frequencies) {
+		this.analyzer = analyzer;
+		this.documents = documents;
+		this.terms = terms;
+		this.documentFrequencies = documentFrequencies;
+		this.docStarts = docStarts;
+		this.termIdArray = termIdArray;
+		this.frequencies = frequencies;
+
+		this.documentIds = new HashMap<String, Integer>(documents.length * 2);
+		for (Document document : documents) {
+			documentIds.put(document.getClassAssignment() + "/" + document.getName(), document.getId());
+		}
+		this.termIds = new HashMap<String, Integer>(terms.length * 2);
+		for (int termId = 0; termId < terms.length; termId++) {
+			termIds.put(terms[termId], termId);
+		}
+		this.documentLengths = new int[documents.length];
+		for (int docId = 0; docId < documents.length; docId++) {
+			for (int i = docStarts[docId]; i < docStarts[docId + 1]; i++) {
+				documentLengths[docId] += frequencies[i];
+			}
+		}
+	}
+
+	/**
+	 * Load the raw term frequency file at the given path
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static RawIndex load(String path) throws IOException {
+		System.out.println("Loading raw term frequencies - " + path);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+		try {
+			if (in.readInt() != RawIndexWriter.MAGIC) {
+				throw new IOException("not a raw term frequency file: " + path);
+			}
+			TokenAnalyzer analyzer = new TokenAnalyzer(in.readBoolean(), in.readBoolean());
+
+			Document[] documents = new Document[in.readInt()];
+			for (int id = 0; id < documents.length; id++) {
+				String classAssignment = in.readUTF();
+				documents[id] = new Document(in.readUTF(), id, classAssignment);
+			}
+
+			String[] terms = new String[in.readInt()];
+			int[] documentFrequencies = new int[terms.length];
+			long postings = 0;
+			for (int termId = 0; termId < terms.length; termId++) {
+				terms[termId] = in.readUTF();
+				documentFrequencies[termId] = VByte.read(in);
+				postings += documentFrequencies[termId];
+			}
+
+			int[] docStarts = new int[documents.length + 1];
+			int[] termIdArray = new int[(int) postings];
+			int[] frequencies = new int[(int) postings];
+			int size = 0;
+			for (int docId = 0; docId < documents.length; docId++) {
+				docStarts[docId] = size;
+				int entries = VByte.read(in);
+				int termId = 0;
+				for (int i = 0; i < entries; i++) {
+					termId += VByte.read(in);
+					termIdArray[size] = termId;
+					frequencies[size++] = VByte.read(in);
+				}
+			}
+			docStarts[documents.length] = size;
+			return new RawIndex(analyzer, documents, terms, documentFrequencies, docStarts, termIdArray, frequencies);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Return the analyzer the index was created with
+	 *
+	 * @return
+	 */
+	public TokenAnalyzer getAnalyzer() {
+		return analyzer;
+	}
+
+	public int getNumberOfDocuments() {
+		return documents.length;
+	}
+
+	public int getNumberOfTerms() {
+		return terms.length;
+	}
+
+	/**
+	 * Return the number of (term, document) entries of the index
+	 *
+	 * @return
+	 */
+	public int getNumberOfPostings() {
+		return docStarts[documents.length];
+	}
+
+	public Document getDocument(int docId) {
+		return documents[docId];
+	}
+
+	/**
+	 * Return the id of the document with the given full name (class/name), or -1 if it is not indexed
+	 *
+	 * @param fullDocName
+	 * @return
+	 */
+	public int findDocumentId(String fullDocName) {
+		Integer id = documentIds.get(fullDocName);
+		return (id != null) ? id : -1;
+	}
+
+	/**
+	 * Return the id of a term, or -1 if it is not indexed
+	 *
+	 * @param term
+	 * @return
+	 */
+	public int findTermId(String term) {
+		Integer id = termIds.get(term);
+		return (id != null) ? id : -1;
+	}
+
+	public String getTerm(int termId) {
+		return terms[termId];
+	}
+
+	public int getDocumentFrequency(int termId) {
+		return documentFrequencies[termId];
+	}
+
+	/**
+	 * Return the number of indexed tokens of a document
+	 *
+	 * @param docId
+	 * @return
+	 */
+	public int getDocumentLength(int docId) {
+		return documentLengths[docId];
+	}
+
+	/**
+	 * Return the index of the first entry of a document; its entries end where those of the next
+	 * document start
+	 *
+	 * @param docId
+	 * @return
+	 */
+	public int getStart(int docId) {
+		return docStarts[docId];
+	}
+
+	/**
+	 * Return the term id of an entry
+	 *
+	 * @param entry
+	 * @return
+	 */
+	public int getTermId(int entry) {
+		return termIdArray[entry];
+	}
+
+	/**
+	 * Return the term frequency of an entry
+	 *
+	 * @param entry
+	 * @return
+	 */
+	public int getFrequency(int entry) {
+		return frequencies[entry];
+	}
+}
@@ -0,0 +1,328 @@
+package com.tuwien.isis.irtask1.search.raw;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.QueryBudget;
+import com.tuwien.isis.irtask1.search.QueryContext;
+import com.tuwien.isis.irtask1.search.TermStatistics;
+import com.tuwien.isis.irtask1.search.TopKCollector;
+import com.tuwien.isis.irtask1.search.filter.ClassBitsets;
+import com.tuwien.isis.irtask1.search.filter.DocIdSet;
+import com.tuwien.isis.irtask1.search.shard.DocumentListing;
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+
+/**
+ * Searcher over a {@link RawIndex} which weights the raw term frequencies with a {@link WeightingScheme}
+ * and leaves out the terms whose document frequency is outside a range. The term weights (idf) are
+ * cached in one float per term and the document weights and lengths in primitive arrays, all of which
+ * are replaced at once by {@link #reweight(WeightingScheme, int, int)}, so that another scheme or range
+ * can be tried without creating the index again. Queries which are running keep the weights they
+ * started with.
+ *
+ * Free-text queries built by {@link #getTermStatistics()} are weighted with the same scheme. Other
+ * queries which are not documents of the index are scored with the weights they come with.
+ */
+public class RawIndexSearcher implements ShardSearcher, DocumentListing {
+
+	private final RawIndex index;
+
+	private final List<Document> documents;
+
+	private final ClassBitsets classBitsets;
+
+	private final RawTermStatistics termStatistics;
+
+	private volatile Weights weights;
+
+	/**
+	 * Create a searcher weighting the index with the given scheme
+	 *
+	 * @param index
+	 * @param scheme
+	 * @param minDocumentFrequency
+	 *            terms in fewer documents are left out
+	 * @param maxDocumentFrequency
+	 *            terms in more documents are left out, 0 for no limit
+	 */
+	public RawIndexSearcher(RawIndex index, WeightingScheme scheme, int minDocumentFrequency,
+			int maxDocumentFrequency) {
+		this.index = index;
+		List<Document> documents = new ArrayList<Document>(index.getNumberOfDocuments());
+		for (int id = 0; id < index.getNumberOfDocuments(); id++) {
+			documents.add(index.getDocument(id));
+		}
+		this.classBitsets = new ClassBitsets(documents);
+		this.documents = Collections.unmodifiableList(documents);
+		this.termStatistics = new RawTermStatistics(index, this);
+		reweight(scheme, minDocumentFrequency, maxDocumentFrequency);
+	}
+
+	/**
+	 * Weight the index with another scheme and document frequency range
+	 *
+	 * @param scheme
+	 * @param minDocumentFrequency
+	 * @param maxDocumentFrequency
+	 *            0 for no limit
+	 */
+	public void reweight(WeightingScheme scheme, int minDocumentFrequency, int maxDocumentFrequency) {
+		weights = new Weights(index, scheme, minDocumentFrequency, (maxDocumentFrequency <= 0) ? Integer.MAX_VALUE
+				: maxDocumentFrequency);
+	}
+
+	/**
+	 * Return the scheme the index is currently weighted with
+	 *
+	 * @return
+	 */
+	public WeightingScheme getScheme() {
+		return weights.scheme;
+	}
+
+	/**
+	 * Return the number of terms within the document frequency range
+	 *
+	 * @return
+	 */
+	public int getNumberOfWeightedTerms() {
+		return weights.weightedTerms;
+	}
+
+	/**
+	 * Return the term statistics of the raw index, which build free-text queries weighted like the
+	 * documents
+	 *
+	 * @return
+	 */
+	public TermStatistics getTermStatistics() {
+		return termStatistics;
+	}
+
+	/**
+	 * Return the weights of the terms of a free text with the given frequencies, leaving out the terms
+	 * outside the document frequency range
+	 *
+	 * @param termFrequencies
+	 * @return
+	 */
+	Map<String, Float> weightQuery(Map<String, Integer> termFrequencies) {
+		Weights current = weights;
+		int length = 0;
+		for (int termFrequency : termFrequencies.values()) {
+			length += termFrequency;
+		}
+		Map<String, Float> vector = new HashMap<String, Float>(termFrequencies.size() * 2);
+		for (Entry<String, Integer> entry : termFrequencies.entrySet()) {
+			int termId = index.findTermId(entry.getKey());
+			if (termId >= 0 && current.termWeights[termId] != 0) {
+				float weight = current.scheme.weight(entry.getValue(), current.termWeights[termId], length,
+						current.averageDocumentLength);
+				if (weight > 0) {
+					vector.put(entry.getKey(), weight);
+				}
+			}
+		}
+		return vector;
+	}
+
+	public List<Document> getDocuments() {
+		return documents;
+	}
+
+	public DocumentVector findDocument(String fullDocName) {
+		int id = index.findDocumentId(fullDocName);
+		return (id >= 0) ? getVector(weights, id) : null;
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k) {
+		return search(queryDocVec, k, QueryContext.NONE);
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k, QueryContext context) {
+		Weights current = weights;
+		int queryId = index.findDocumentId(queryDocVec.getFullDocName());
+
+		// Sparse representation of the query
+		int[] queryTermIds;
+		float[] queryWeights;
+		int querySize = 0;
+		if (queryId >= 0) {
+			int start = index.getStart(queryId);
+			int end = index.getStart(queryId + 1);
+			queryTermIds = new int[end - start];
+			queryWeights = new float[end - start];
+			for (int entry = start; entry < end; entry++) {
+				if (current.weights[entry] != 0) {
+					queryTermIds[querySize] = index.getTermId(entry);
+					queryWeights[querySize++] = current.weights[entry];
+				}
+			}
+		} else {
+			Map<String, Float> docIdftfMap = queryDocVec.getDocIdftfMap();
+			queryTermIds = new int[docIdftfMap.size()];
+			queryWeights = new float[docIdftfMap.size()];
+			for (Entry<String, Float> entry : docIdftfMap.entrySet()) {
+				int termId = index.findTermId(entry.getKey());
+				if (termId >= 0 && current.termWeights[termId] != 0) {
+					queryTermIds[querySize] = termId;
+					queryWeights[querySize++] = entry.getValue();
+				}
+			}
+		}
+
+		if (context.getPruner() != null) {
+			int[] kept = context.getPruner().select(queryWeights, querySize);
+			for (int i = 0; i < kept.length; i++) {
+				queryTermIds[i] = queryTermIds[kept[i]];
+				queryWeights[i] = queryWeights[kept[i]];
+			}
+			querySize = kept.length;
+		}
+
+		// dense query, so that every entry of a document is scored with a single array access
+		float[] dense = new float[index.getNumberOfTerms()];
+		double queryLength = 0;
+		for (int i = 0; i < querySize; i++) {
+			dense[queryTermIds[i]] = queryWeights[i];
+			queryLength += Math.pow(queryWeights[i], 2);
+		}
+		queryLength = Math.sqrt(queryLength);
+
+		TopKCollector collector = new TopKCollector(k);
+		int[] classCounts = new int[classBitsets.getNumberOfClasses()];
+		if (queryLength > 0) {
+			QueryBudget budget = context.getBudget();
+			int allowance = 0;
+			DocIdSet.Iterator docs = classBitsets.select(context.getFilter()).iterator();
+			for (int docId = docs.next(); docId != DocIdSet.END; docId = docs.next()) {
+				if (budget != null && --allowance < 0 && (allowance = budget.grant() - 1) < 0) {
+					break;
+				}
+				double denominator = queryLength * current.lengths[docId];
+				if (docId == queryId || denominator == 0) {
+					continue;
+				}
+				double dotProduct = 0;
+				for (int entry = index.getStart(docId), end = index.getStart(docId + 1); entry < end; entry++) {
+					dotProduct += dense[index.getTermId(entry)] * current.weights[entry];
+				}
+				double cosine = dotProduct / denominator;
+				if (cosine != 0) {
+					collector.offer(docId, cosine);
+					classCounts[classBitsets.getClassOrdinal(docId)]++;
+				}
+			}
+			if (budget != null) {
+				budget.giveBack(allowance);
+			}
+		}
+		if (context.getFacets() != null) {
+			context.getFacets().add(classBitsets, classCounts);
+		}
+
+		// build only the vectors of the returned documents
+		double[] cosines = new double[collector.size()];
+		int[] ids = collector.drainSorted(cosines);
+		List<DocumentVector> resultList = new ArrayList<DocumentVector>(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			DocumentVector result = getVector(current, ids[i]);
+			result.setCosine(cosines[i]);
+			resultList.add(result);
+		}
+		return resultList;
+	}
+
+	public void close() {
+		// nothing to release
+	}
+
+	/**
+	 * Return the weighted vector of a document, without the terms outside the document frequency range
+	 *
+	 * @param current
+	 * @param docId
+	 * @return
+	 */
+	private DocumentVector getVector(Weights current, int docId) {
+		Map<String, Float> vector = new HashMap<String, Float>();
+		for (int entry = index.getStart(docId); entry < index.getStart(docId + 1); entry++) {
+			if (current.weights[entry] != 0) {
+				vector.put(index.getTerm(index.getTermId(entry)), current.weights[entry]);
+			}
+		}
+		return new DocumentVector(index.getDocument(docId), vector);
+	}
+
+	/**
+	 * The weights of the whole index under one scheme and document frequency range, which are never
+	 * changed once computed
+	 */
+	private static final class Weights {
+
+		private final WeightingScheme scheme;
+
+		/**
+		 * Weight of every term which is the same in all documents, 0 for the terms outside the range
+		 */
+		private final float[] termWeights;
+
+		/**
+		 * Weight of every entry of the raw index
+		 */
+		private final float[] weights;
+
+		/**
+		 * Euclidean length of every document vector
+		 */
+		private final double[] lengths;
+
+		private final int weightedTerms;
+
+		private final float averageDocumentLength;
+
+		Weights(RawIndex index, WeightingScheme scheme, int minDocumentFrequency, int maxDocumentFrequency) {
+			this.scheme = scheme;
+			int numberOfDocuments = index.getNumberOfDocuments();
+			termWeights = new float[index.getNumberOfTerms()];
+			int inRange = 0;
+			for (int termId = 0; termId < termWeights.length; termId++) {
+				int documentFrequency = index.getDocumentFrequency(termId);
+				if (documentFrequency >= minDocumentFrequency && documentFrequency <= maxDocumentFrequency) {
+					termWeights[termId] = scheme.termWeight(documentFrequency, numberOfDocuments);
+					inRange++;
+				}
+			}
+			weightedTerms = inRange;
+
+			long tokens = 0;
+			for (int docId = 0; docId < numberOfDocuments; docId++) {
+				tokens += index.getDocumentLength(docId);
+			}
+			averageDocumentLength = (numberOfDocuments > 0) ? tokens / (float) numberOfDocuments : 0;
+
+			weights = new float[index.getNumberOfPostings()];
+			lengths = new double[numberOfDocuments];
+			for (int docId = 0; docId < numberOfDocuments; docId++) {
+				int documentLength = index.getDocumentLength(docId);
+				double squares = 0;
+				for (int entry = index.getStart(docId); entry < index.getStart(docId + 1); entry++) {
+					float termWeight = termWeights[index.getTermId(entry)];
+					if (termWeight != 0) {
+						float weight = scheme.weight(index.getFrequency(entry), termWeight, documentLength,
+								averageDocumentLength);
+						weights[entry] = weight;
+						squares += Math.pow(weight, 2);
+					}
+				}
+				lengths[docId] = Math.sqrt(squares);
+			}
+		}
+	}
+}
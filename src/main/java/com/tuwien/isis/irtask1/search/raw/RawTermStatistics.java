@@ -0,0 +1,34 @@
+package com.tuwien.isis.irtask1.search.raw;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.search.TermStatistics;
+
+/**
+ * Term statistics of a {@link RawIndex}, which need no separate file: the document frequencies are
+ * those of the raw index, and free-text queries are weighted with the scheme and document frequency
+ * range the index is currently searched with
+ */
+public class RawTermStatistics extends TermStatistics {
+
+	private final RawIndexSearcher searcher;
+
+	RawTermStatistics(RawIndex index, RawIndexSearcher searcher) {
+		super(index.getAnalyzer(), index.getNumberOfDocuments(), documentFrequencies(index));
+		this.searcher = searcher;
+	}
+
+	@Override
+	protected Map<String, Float> weight(Map<String, Integer> termFrequencies) {
+		return searcher.weightQuery(termFrequencies);
+	}
+
+	private static Map<String, Integer> documentFrequencies(RawIndex index) {
+		Map<String, Integer> documentFrequencies = new HashMap<String, Integer>(index.getNumberOfTerms() * 2);
+		for (int termId = 0; termId < index.getNumberOfTerms(); termId++) {
+			documentFrequencies.put(index.getTerm(termId), index.getDocumentFrequency(termId));
+		}
+		return documentFrequencies;
+	}
+}
@@ -0,0 +1,146 @@
+package com.tuwien.isis.irtask1.search.raw;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.RankingAgreement;
+import com.tuwien.isis.irtask1.search.shard.ShardSearcher;
+
+/**
+ * Compares weighting schemes applied to the raw index at search time with the index whose weights were
+ * computed by the indexer: the time to reweight the raw index, the search time and how far the
+ * rankings agree with those of the weighted index
+ */
+public class WeightingReport {
+
+	/**
+	 * Number of measured runs per scheme, of which the fastest is reported
+	 */
+	private static final int ROUNDS = 3;
+
+	private final ShardSearcher weightedSearcher;
+
+	private final RawIndexSearcher rawSearcher;
+
+	private final int numberOfSearchResults;
+
+	public WeightingReport(ShardSearcher weightedSearcher, RawIndexSearcher rawSearcher, int numberOfSearchResults) {
+		this.weightedSearcher = weightedSearcher;
+		this.rawSearcher = rawSearcher;
+		this.numberOfSearchResults = numberOfSearchResults;
+	}
+
+	/**
+	 * Search all topics on the weighted index and on the raw index with every scheme, and print the
+	 * comparison
+	 *
+	 * @param topicsPath
+	 * @param schemes
+	 * @param minDocumentFrequency
+	 * @param maxDocumentFrequency
+	 *            0 for no limit
+	 * @throws IOException
+	 */
+	public void run(String topicsPath, List<WeightingScheme> schemes, int minDocumentFrequency,
+			int maxDocumentFrequency) throws IOException {
+		List<DocumentVector> queries = new ArrayList<DocumentVector>();
+		for (String line : Files.readAllLines(Paths.get(topicsPath), Charset.defaultCharset())) {
+			DocumentVector query = weightedSearcher.findDocument(line);
+			if (query != null) {
+				queries.add(query);
+			} else {
+				System.out.println("doc " + line + " not in collection");
+			}
+		}
+		if (queries.isEmpty()) {
+			return;
+		}
+
+		List<List<DocumentVector>> expected = new ArrayList<List<DocumentVector>>();
+		long baseNanos = measure(weightedSearcher, queries, expected);
+
+		System.out.println(String.format(Locale.ROOT, "%-20s %8s %12s %16s %8s %11s %12s", "weighting", "terms",
+				"reweighting", "search time", "slowdown", "overlap@" + numberOfSearchResults, "Kendall tau"));
+		printRow("weighted index", -1, -1, queries, baseNanos, baseNanos, expected, expected);
+
+		for (WeightingScheme scheme : schemes) {
+			long reweightNanos = Long.MAX_VALUE;
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				rawSearcher.reweight(scheme, minDocumentFrequency, maxDocumentFrequency);
+				reweightNanos = Math.min(reweightNanos, System.nanoTime() - start);
+			}
+			List<List<DocumentVector>> actual = new ArrayList<List<DocumentVector>>();
+			long nanos = measure(rawSearcher, queries, actual);
+			printRow(scheme.toString(), rawSearcher.getNumberOfWeightedTerms(), reweightNanos, queries, nanos,
+					baseNanos, expected, actual);
+		}
+	}
+
+	/**
+	 * Search all queries once to warm up and then a few times more, and return the fastest time
+	 *
+	 * @param searcher
+	 * @param queries
+	 * @param results
+	 * @return
+	 * @throws IOException
+	 */
+	private long measure(ShardSearcher searcher, List<DocumentVector> queries, List<List<DocumentVector>> results)
+			throws IOException {
+		search(searcher, queries, results);
+		long fastest = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			fastest = Math.min(fastest, search(searcher, queries, null));
+		}
+		return fastest;
+	}
+
+	/**
+	 * Search all queries and return the time it took
+	 *
+	 * @param searcher
+	 * @param queries
+	 * @param results
+	 *            receives the results of every query, may be null
+	 * @return
+	 * @throws IOException
+	 */
+	private long search(ShardSearcher searcher, List<DocumentVector> queries, List<List<DocumentVector>> results)
+			throws IOException {
+		long start = System.nanoTime();
+		for (DocumentVector query : queries) {
+			List<DocumentVector> resultList = searcher.search(query, numberOfSearchResults);
+			if (results != null) {
+				results.add(resultList);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	private void printRow(String name, int terms, long reweightNanos, List<DocumentVector> queries, long nanos,
+			long baseNanos, List<List<DocumentVector>> expected, List<List<DocumentVector>> actual) {
+		double overlapSum = 0;
+		double tauSum = 0;
+		int tauCount = 0;
+		for (int i = 0; i < queries.size(); i++) {
+			overlapSum += RankingAgreement.overlap(expected.get(i), actual.get(i), numberOfSearchResults);
+			double tau = RankingAgreement.kendallTau(expected.get(i), actual.get(i));
+			if (!Double.isNaN(tau)) {
+				tauSum += tau;
+				tauCount++;
+			}
+		}
+		System.out.println(String.format(Locale.ROOT, "%-20s %8s %12s %16s %8.2f %11.4f %12s", name,
+				(terms >= 0) ? String.valueOf(terms) : "-", (reweightNanos >= 0) ? String.format(Locale.ROOT,
+						"%.1f ms", reweightNanos / 1e6) : "-", (nanos / queries.size() / 1000) + " us/query",
+				(double) nanos / baseNanos, overlapSum / queries.size(), (tauCount > 0) ? String.format(Locale.ROOT,
+						"%.4f", tauSum / tauCount) : "n/a"));
+	}
+}
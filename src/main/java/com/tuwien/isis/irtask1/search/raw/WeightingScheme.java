@@ -0,0 +1,32 @@
+package com.tuwien.isis.irtask1.search.raw;
+
+/**
+ * Turns the raw term and document frequencies of a {@link RawIndex} into the weights of the document
+ * vectors. The vectors are always compared by cosine, so a scheme only decides the weight of a term
+ * in a document before length normalization.
+ */
+public interface WeightingScheme {
+
+	/**
+	 * Return the weight of a term which is the same in every document (such as its idf). It is computed
+	 * once per term when the index is weighted.
+	 *
+	 * @param documentFrequency
+	 * @param numberOfDocuments
+	 * @return
+	 */
+	float termWeight(int documentFrequency, int numberOfDocuments);
+
+	/**
+	 * Return the weight of a term in a document
+	 *
+	 * @param termFrequency
+	 * @param termWeight
+	 *            the weight returned by {@link #termWeight(int, int)}
+	 * @param documentLength
+	 *            number of indexed tokens of the document
+	 * @param averageDocumentLength
+	 * @return
+	 */
+	float weight(int termFrequency, float termWeight, int documentLength, float averageDocumentLength);
+}
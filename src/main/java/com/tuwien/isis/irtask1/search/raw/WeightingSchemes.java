@@ -0,0 +1,155 @@
+package com.tuwien.isis.irtask1.search.raw;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The weighting schemes which can be applied to a {@link RawIndex}, named by the SMART notation for
+ * the term frequency and document frequency components (the cosine normalization is always applied):
+ *
+ * <pre>
+ * ltc            (1 + log10 tf) * log10(N / df), the weights of the ARFF index
+ * lnc            1 + log10 tf, without idf
+ * ntc            tf * log10(N / df)
+ * bm25[:k1:b]    BM25 saturation of tf with length normalization (default k1 = 1.2, b = 0.75) and the
+ *                BM25 idf ln(1 + (N - df + 0.5) / (df + 0.5))
+ * </pre>
+ */
+public class WeightingSchemes {
+
+	/**
+	 * Weights of the ARFF index, which the other schemes are compared with
+	 */
+	public static final WeightingScheme LTC = new LogTfIdf();
+
+	private WeightingSchemes() {
+	}
+
+	/**
+	 * Parse a scheme from its name, such as ltc or bm25:1.5:0.5
+	 *
+	 * @param spec
+	 * @return
+	 */
+	public static WeightingScheme parse(String spec) {
+		String[] parts = spec.trim().toLowerCase().split(":");
+		if (parts[0].equals("ltc") && parts.length == 1) {
+			return LTC;
+		} else if (parts[0].equals("lnc") && parts.length == 1) {
+			return new LogTf();
+		} else if (parts[0].equals("ntc") && parts.length == 1) {
+			return new RawTfIdf();
+		} else if (parts[0].equals("bm25") && parts.length == 1) {
+			return new Bm25(1.2f, 0.75f);
+		} else if (parts[0].equals("bm25") && parts.length == 3) {
+			try {
+				return new Bm25(Float.parseFloat(parts[1]), Float.parseFloat(parts[2]));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("invalid BM25 parameters: " + spec);
+			}
+		}
+		throw new IllegalArgumentException("unknown weighting scheme: " + spec);
+	}
+
+	/**
+	 * Parse a comma-separated list of schemes
+	 *
+	 * @param specs
+	 * @return
+	 */
+	public static List<WeightingScheme> parseList(String specs) {
+		List<WeightingScheme> schemes = new ArrayList<WeightingScheme>();
+		for (String spec : specs.split(",")) {
+			schemes.add(parse(spec));
+		}
+		return schemes;
+	}
+
+	/**
+	 * Return the log10 idf exactly as the indexer computes it
+	 */
+	private static float logIdf(int documentFrequency, int numberOfDocuments) {
+		return (float) Math.log10(numberOfDocuments / (float) documentFrequency);
+	}
+
+	/**
+	 * Return the logarithmic tf exactly as the indexer computes it
+	 */
+	private static float logTf(int termFrequency) {
+		return (float) (1.0 + Math.log10(termFrequency));
+	}
+
+	private static final class LogTfIdf implements WeightingScheme {
+
+		public float termWeight(int documentFrequency, int numberOfDocuments) {
+			return logIdf(documentFrequency, numberOfDocuments);
+		}
+
+		public float weight(int termFrequency, float termWeight, int documentLength, float averageDocumentLength) {
+			return logTf(termFrequency) * termWeight;
+		}
+
+		@Override
+		public String toString() {
+			return "ltc";
+		}
+	}
+
+	private static final class LogTf implements WeightingScheme {
+
+		public float termWeight(int documentFrequency, int numberOfDocuments) {
+			return 1;
+		}
+
+		public float weight(int termFrequency, float termWeight, int documentLength, float averageDocumentLength) {
+			return logTf(termFrequency);
+		}
+
+		@Override
+		public String toString() {
+			return "lnc";
+		}
+	}
+
+	private static final class RawTfIdf implements WeightingScheme {
+
+		public float termWeight(int documentFrequency, int numberOfDocuments) {
+			return logIdf(documentFrequency, numberOfDocuments);
+		}
+
+		public float weight(int termFrequency, float termWeight, int documentLength, float averageDocumentLength) {
+			return termFrequency * termWeight;
+		}
+
+		@Override
+		public String toString() {
+			return "ntc";
+		}
+	}
+
+	private static final class Bm25 implements WeightingScheme {
+
+		private final float k1;
+
+		private final float b;
+
+		Bm25(float k1, float b) {
+			this.k1 = k1;
+			this.b = b;
+		}
+
+		public float termWeight(int documentFrequency, int numberOfDocuments) {
+			return (float) Math.log(1 + (numberOfDocuments - documentFrequency + 0.5) / (documentFrequency + 0.5));
+		}
+
+		public float weight(int termFrequency, float termWeight, int documentLength, float averageDocumentLength) {
+			float norm = k1 * (1 - b + b * documentLength / averageDocumentLength);
+			return termWeight * termFrequency * (k1 + 1) / (termFrequency + norm);
+		}
+
+		@Override
+		public String toString() {
+			return "bm25:" + k1 + ":" + b;
+		}
+	}
+}
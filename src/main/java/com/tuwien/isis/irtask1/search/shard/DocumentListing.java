@@ -0,0 +1,19 @@
+package com.tuwien.isis.irtask1.search.shard;
+
+import java.util.List;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+
+/**
+ * A searcher which holds the documents of its index in the current JVM and can list them, e.g. to
+ * sample topics or to count the relevant documents of every class
+ */
+public interface DocumentListing {
+
+	/**
+	 * Return the documents held by the searcher, in the order of their ids
+	 *
+	 * @return the documents, or null if some of them are held elsewhere
+	 */
+	List<Document> getDocuments();
+}
@@ -0,0 +1,75 @@
+package com.tuwien.isis.irtask1.search.shard;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One loaded version of the index, which is never changed once it is published. Queries hold a
+ * reference to the snapshot while they run. The snapshot is closed when it has been replaced and the
+ * last of its queries has released it.
+ */
+public final class IndexSnapshot {
+
+	private final long version;
+
+	private final ShardSearcher searcher;
+
+	private final long loadMillis;
+
+	/**
+	 * Number of running queries, plus one while the snapshot is the published one. Once it drops to 0 it
+	 * can not be acquired any more.
+	 */
+	private final AtomicInteger references = new AtomicInteger(1);
+
+	IndexSnapshot(long version, ShardSearcher searcher, long loadMillis) {
+		this.version = version;
+		this.searcher = searcher;
+		this.loadMillis = loadMillis;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public ShardSearcher getSearcher() {
+		return searcher;
+	}
+
+	/**
+	 * Return the time it took to load the snapshot in milliseconds
+	 *
+	 * @return
+	 */
+	public long getLoadMillis() {
+		return loadMillis;
+	}
+
+	/**
+	 * Take a reference for a query, unless the snapshot has already been released by everyone
+	 *
+	 * @return false if the snapshot is closed and the published one has to be read again
+	 */
+	boolean acquire() {
+		for (int count = references.get(); count > 0; count = references.get()) {
+			if (references.compareAndSet(count, count + 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Give back a reference taken by {@link #acquire()}, or the reference of the publisher when the
+	 * snapshot is replaced. The searcher is closed with the last reference.
+	 */
+	void release() {
+		if (references.decrementAndGet() == 0) {
+			try {
+				searcher.close();
+			} catch (IOException e) {
+				System.err.println("error closing index version " + version + ": " + e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.tuwien.isis.irtask1.search.shard;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Reloads a {@link SwappableSearcher} whenever one of its index files is written again, e.g. by an
+ * indexer in another process. The watched files are all those the loader reads, the ARFF or the sidecars
+ * of the index type. A change is only picked up once the sizes and modification times of the files have
+ * stayed the same for a whole polling interval, so that a file which is still being written is not
+ * loaded. A reload which fails is tried again at the next poll, until the files can be loaded.
+ */
+public class IndexWatcher implements Runnable {
+
+	private final SwappableSearcher searcher;
+
+	private final List<File> indexFiles = new ArrayList<File>();
+
+	private final long intervalMillis;
+
+	public IndexWatcher(SwappableSearcher searcher, List<String> indexPaths, long intervalMillis) {
+		this.searcher = searcher;
+		for (String indexPath : indexPaths) {
+			indexFiles.add(new File(indexPath));
+		}
+		this.intervalMillis = intervalMillis;
+	}
+
+	/**
+	 * Watch the index files on a daemon thread
+	 */
+	public void start() {
+		Thread thread = new Thread(this, "index-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public void run() {
+		String loaded = fileState();
+		String previous = loaded;
+		try {
+			while (true) {
+				Thread.sleep(intervalMillis);
+				String state = fileState();
+				if (!state.equals(loaded) && state.equals(previous)) {
+					System.out.println("Index files " + indexFiles + " changed, reloading...");
+					try {
+						IndexSnapshot snapshot = searcher.reload().get();
+						System.out.println("Published index version " + snapshot.getVersion() + " (loaded in "
+								+ snapshot.getLoadMillis() + " ms)");
+						loaded = state;
+					} catch (ExecutionException e) {
+						System.err.println("reloading " + indexFiles + " failed, keeping version "
+								+ searcher.getCurrent().getVersion() + ": " + e.getCause());
+					}
+				}
+				previous = state;
+			}
+		} catch (InterruptedException e) {
+			// stop watching
+		} catch (RejectedExecutionException e) {
+			// the searcher has been closed
+		}
+	}
+
+	private String fileState() {
+		StringBuilder state = new StringBuilder();
+		for (File indexFile : indexFiles) {
+			state.append(indexFile.length()).append('@').append(indexFile.lastModified()).append(' ');
+		}
+		return state.toString();
+	}
+}
@@ -0,0 +1,87 @@
+package com.tuwien.isis.irtask1.search.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.search.CosineSimilarityRetrieval;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.DocumentVectorCosineComparator;
+import com.tuwien.isis.irtask1.search.QueryContext;
+import com.tuwien.isis.irtask1.search.filter.ClassBitsets;
+import com.tuwien.isis.irtask1.search.filter.DocIdSet;
+import com.tuwien.isis.irtask1.search.filter.FacetCounts;
+
+/**
+ * Searcher over document vectors held in the heap of the current JVM
+ */
+public class LocalShardSearcher implements ShardSearcher, DocumentListing {
+
+	private final List<DocumentVector> documentVectors;
+
+	private final Map<String, DocumentVector> documentsByName = new HashMap<String, DocumentVector>();
+
+	private final List<Document> documents;
+
+	private final ClassBitsets classBitsets;
+
+	public LocalShardSearcher(List<DocumentVector> documentVectors) {
+		this.documentVectors = documentVectors;
+		List<Document> documents = new ArrayList<Document>(documentVectors.size());
+		for (DocumentVector docVec : documentVectors) {
+			documentsByName.put(docVec.getFullDocName(), docVec);
+			documents.add(docVec.getDocumentData());
+		}
+		classBitsets = new ClassBitsets(documents);
+		this.documents = Collections.unmodifiableList(documents);
+	}
+
+	public List<DocumentVector> getDocumentVectors() {
+		return documentVectors;
+	}
+
+	public List<Document> getDocuments() {
+		return documents;
+	}
+
+	public DocumentVector findDocument(String fullDocName) {
+		return documentsByName.get(fullDocName);
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k) {
+		return search(queryDocVec, k, QueryContext.NONE);
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k, QueryContext context) {
+		if (context.getPruner() != null) {
+			queryDocVec = context.getPruner().prune(queryDocVec);
+		}
+		List<DocumentVector> candidates = documentVectors;
+		if (context.getFilter() != null) {
+			DocIdSet selected = classBitsets.select(context.getFilter());
+			candidates = new ArrayList<DocumentVector>(selected.cardinality());
+			DocIdSet.Iterator docs = selected.iterator();
+			for (int docId = docs.next(); docId != DocIdSet.END; docId = docs.next()) {
+				candidates.add(documentVectors.get(docId));
+			}
+		}
+
+		List<DocumentVector> resultList = CosineSimilarityRetrieval.buildSearchResultsList(queryDocVec, candidates,
+				context.getBudget());
+		FacetCounts facets = context.getFacets();
+		if (facets != null) {
+			for (DocumentVector result : resultList) {
+				facets.add(result.getDocumentData().getClassAssignment(), 1);
+			}
+		}
+		Collections.sort(resultList, new DocumentVectorCosineComparator());
+		return (resultList.size() > k) ? resultList.subList(0, k) : resultList;
+	}
+
+	public void close() {
+		// nothing to release, the vectors are garbage collected with the searcher
+	}
+}
@@ -0,0 +1,115 @@
+package com.tuwien.isis.irtask1.search.shard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.QueryBudget;
+import com.tuwien.isis.irtask1.search.QueryContext;
+import com.tuwien.isis.irtask1.search.QueryPruner;
+
+/**
+ * Searcher for a shard served by a {@link ShardServer} in another JVM. Requests on one connection
+ * are strictly sequential, so all methods are synchronized.
+ */
+public class RemoteShardSearcher implements ShardSearcher {
+
+	private final Socket socket;
+
+	private final DataInputStream in;
+
+	private final DataOutputStream out;
+
+	public RemoteShardSearcher(String host, int port) throws IOException {
+		socket = new Socket(host, port);
+		socket.setTcpNoDelay(true);
+		in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	}
+
+	/**
+	 * Connect to a shard given as host:port
+	 *
+	 * @param address
+	 * @return
+	 * @throws IOException
+	 */
+	public static RemoteShardSearcher connect(String address) throws IOException {
+		int separator = address.lastIndexOf(':');
+		if (separator < 0) {
+			throw new IOException("shard address must be given as host:port - " + address);
+		}
+		return new RemoteShardSearcher(address.substring(0, separator),
+				Integer.parseInt(address.substring(separator + 1)));
+	}
+
+	public synchronized DocumentVector findDocument(String fullDocName) throws IOException {
+		out.writeByte(ShardProtocol.FIND);
+		out.writeUTF(fullDocName);
+		out.flush();
+		return in.readBoolean() ? ShardProtocol.readDocumentVector(in) : null;
+	}
+
+	public synchronized List<DocumentVector> search(DocumentVector queryDocVec, int k) throws IOException {
+		out.writeByte(ShardProtocol.SEARCH);
+		ShardProtocol.writeDocumentVector(out, queryDocVec);
+		out.writeInt(k);
+		out.flush();
+
+		return readResultList();
+	}
+
+	/**
+	 * The server gets the part of the budget which is left when the request is sent
+	 */
+	public synchronized List<DocumentVector> search(DocumentVector queryDocVec, int k, QueryContext context)
+			throws IOException {
+		QueryBudget budget = context.getBudget();
+		out.writeByte(ShardProtocol.SEARCH_CONTEXT);
+		ShardProtocol.writeDocumentVector(out, queryDocVec);
+		out.writeInt(k);
+		ShardProtocol.writeClassFilter(out, context.getFilter());
+		out.writeBoolean(context.getFacets() != null);
+		out.writeLong((budget != null) ? budget.remainingMillis() : 0);
+		out.writeLong((budget != null) ? budget.remainingDocuments() : 0);
+		QueryPruner pruner = context.getPruner();
+		out.writeInt((pruner != null) ? pruner.getMaxTerms() : 0);
+		out.writeDouble((pruner != null) ? pruner.getNormFraction() : 0);
+		out.flush();
+
+		List<DocumentVector> resultList = readResultList();
+		if (context.getFacets() != null) {
+			ShardProtocol.readFacetCounts(in, context.getFacets());
+		}
+		boolean timeExceeded = in.readBoolean();
+		boolean documentsExceeded = in.readBoolean();
+		if (budget != null) {
+			budget.markExceeded(timeExceeded, documentsExceeded);
+		}
+		return resultList;
+	}
+
+	private List<DocumentVector> readResultList() throws IOException {
+		int count = in.readInt();
+		List<DocumentVector> resultList = new ArrayList<DocumentVector>(count);
+		for (int i = 0; i < count; i++) {
+			resultList.add(ShardProtocol.readDocumentVector(in));
+		}
+		return resultList;
+	}
+
+	public synchronized void close() throws IOException {
+		try {
+			out.writeByte(ShardProtocol.CLOSE);
+			out.flush();
+		} finally {
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.tuwien.isis.irtask1.search.shard;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.DocumentVectorCosineComparator;
+import com.tuwien.isis.irtask1.search.QueryContext;
+
+/**
+ * Scatter-gather searcher which fans every request out to all shards in parallel and merges their
+ * answers. Because every shard returns its own top-k and the shards were weighted with global
+ * statistics, the merged top-k is identical to the one of the unsharded index.
+ */
+public class ShardCoordinator implements ShardSearcher, DocumentListing {
+
+	private final List<ShardSearcher> shards;
+
+	private final ExecutorService executor;
+
+	public ShardCoordinator(List<ShardSearcher> shards) {
+		this.shards = shards;
+		this.executor = Executors.newFixedThreadPool(shards.size());
+	}
+
+	public int getNumberOfShards() {
+		return shards.size();
+	}
+
+	/**
+	 * Return the documents of all shards, shard after shard, or null if a shard does not list them
+	 * (e.g. a remote shard)
+	 *
+	 * @return
+	 */
+	public List<Document> getDocuments() {
+		List<Document> documents = new ArrayList<Document>();
+		for (ShardSearcher shard : shards) {
+			List<Document> shardDocuments = (shard instanceof DocumentListing) ? ((DocumentListing) shard)
+					.getDocuments() : null;
+			if (shardDocuments == null) {
+				return null;
+			}
+			documents.addAll(shardDocuments);
+		}
+		return documents;
+	}
+
+	public DocumentVector findDocument(final String fullDocName) throws IOException {
+		List<Callable<DocumentVector>> tasks = new ArrayList<Callable<DocumentVector>>();
+		for (final ShardSearcher shard : shards) {
+			tasks.add(new Callable<DocumentVector>() {
+				public DocumentVector call() throws IOException {
+					return shard.findDocument(fullDocName);
+				}
+			});
+		}
+
+		for (DocumentVector docVec : invokeAll(tasks)) {
+			if (docVec != null) {
+				return docVec;
+			}
+		}
+		return null;
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k) throws IOException {
+		return search(queryDocVec, k, QueryContext.NONE);
+	}
+
+	/**
+	 * Every shard applies the filter to its own documents, adds its facet counts to the shared ones and
+	 * spends the shared budget
+	 */
+	public List<DocumentVector> search(final DocumentVector queryDocVec, final int k, final QueryContext context)
+			throws IOException {
+		List<Callable<List<DocumentVector>>> tasks = new ArrayList<Callable<List<DocumentVector>>>();
+		for (final ShardSearcher shard : shards) {
+			tasks.add(new Callable<List<DocumentVector>>() {
+				public List<DocumentVector> call() throws IOException {
+					return shard.search(queryDocVec, k, context);
+				}
+			});
+		}
+
+		// merge the per-shard top-k lists
+		List<DocumentVector> resultList = new ArrayList<DocumentVector>();
+		for (List<DocumentVector> shardResultList : invokeAll(tasks)) {
+			resultList.addAll(shardResultList);
+		}
+		Collections.sort(resultList, new DocumentVectorCosineComparator());
+		return (resultList.size() > k) ? resultList.subList(0, k) : resultList;
+	}
+
+	public void close() throws IOException {
+		executor.shutdown();
+		for (ShardSearcher shard : shards) {
+			shard.close();
+		}
+	}
+
+	/**
+	 * Run the tasks on all shards and collect their results in shard order
+	 *
+	 * @param tasks
+	 * @return
+	 * @throws IOException
+	 */
+	private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+		List<T> results = new ArrayList<T>(tasks.size());
+		try {
+			for (Future<T> future : executor.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting for shards", e);
+		} catch (ExecutionException e) {
+			throw new IOException("shard request failed: " + e.getCause().getMessage(), e.getCause());
+		}
+		return results;
+	}
+}
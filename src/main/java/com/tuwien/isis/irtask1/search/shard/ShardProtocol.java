@@ -0,0 +1,154 @@
+package com.tuwien.isis.irtask1.search.shard;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.tuwien.isis.irtask1.indexer.Document;
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.filter.ClassFilter;
+import com.tuwien.isis.irtask1.search.filter.FacetCounts;
+
+/**
+ * Wire format spoken between the shard coordinator and shard servers running in separate JVMs.
+ * Every request starts with an operation byte and is answered before the next request is read.
+ */
+final class ShardProtocol {
+
+	/**
+	 * Look up a document by name: UTF name -> boolean found [, vector]
+	 */
+	static final byte FIND = 1;
+
+	/**
+	 * Search the shard: vector, int k -> int count, count * vector
+	 */
+	static final byte SEARCH = 2;
+
+	/**
+	 * End the session, no answer is sent
+	 */
+	static final byte CLOSE = 3;
+
+	/**
+	 * Search with a query context: vector, int k, int classCount (-1: all), classCount * UTF class,
+	 * boolean facets, long budgetMillis, long budgetDocuments (0: unlimited), int pruneTerms, double
+	 * pruneNorm (0: not pruned) -> int count, count * vector
+	 * [, int facetCount, facetCount * (UTF class, int)], boolean timeExceeded, boolean documentsExceeded
+	 */
+	static final byte SEARCH_CONTEXT = 4;
+
+	private ShardProtocol() {
+	}
+
+	/**
+	 * Serialize a document vector including its cosine
+	 *
+	 * @param out
+	 * @param docVec
+	 * @throws IOException
+	 */
+	static void writeDocumentVector(DataOutputStream out, DocumentVector docVec) throws IOException {
+		Document document = docVec.getDocumentData();
+		out.writeUTF(document.getName());
+		out.writeInt(document.getId());
+		out.writeUTF(document.getClassAssignment());
+		out.writeDouble(docVec.getCosine());
+
+		Map<String, Float> docIdftfMap = docVec.getDocIdftfMap();
+		out.writeInt(docIdftfMap.size());
+		for (Entry<String, Float> entry : docIdftfMap.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeFloat(entry.getValue());
+		}
+	}
+
+	/**
+	 * Deserialize a document vector written by {@link #writeDocumentVector}
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	static DocumentVector readDocumentVector(DataInputStream in) throws IOException {
+		String name = in.readUTF();
+		int id = in.readInt();
+		String classAssignment = in.readUTF();
+		double cosine = in.readDouble();
+
+		int size = in.readInt();
+		Map<String, Float> docIdftfMap = new HashMap<String, Float>(size * 2);
+		for (int i = 0; i < size; i++) {
+			docIdftfMap.put(in.readUTF(), in.readFloat());
+		}
+
+		DocumentVector docVec = new DocumentVector(new Document(name, id, classAssignment), docIdftfMap);
+		docVec.setCosine(cosine);
+		return docVec;
+	}
+
+	/**
+	 * Serialize a class filter, which may be null
+	 *
+	 * @param out
+	 * @param filter
+	 * @throws IOException
+	 */
+	static void writeClassFilter(DataOutputStream out, ClassFilter filter) throws IOException {
+		if (filter == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(filter.getClasses().size());
+		for (String className : filter.getClasses()) {
+			out.writeUTF(className);
+		}
+	}
+
+	/**
+	 * Deserialize a class filter written by {@link #writeClassFilter}
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	static ClassFilter readClassFilter(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			return null;
+		}
+		Set<String> classes = new TreeSet<String>();
+		for (int i = 0; i < size; i++) {
+			classes.add(in.readUTF());
+		}
+		return new ClassFilter(classes);
+	}
+
+	static void writeFacetCounts(DataOutputStream out, FacetCounts facets) throws IOException {
+		Map<String, Integer> counts = facets.getCounts();
+		out.writeInt(counts.size());
+		for (Entry<String, Integer> entry : counts.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeInt(entry.getValue());
+		}
+	}
+
+	/**
+	 * Add the facet counts written by {@link #writeFacetCounts} to the given ones
+	 *
+	 * @param in
+	 * @param facets
+	 * @throws IOException
+	 */
+	static void readFacetCounts(DataInputStream in, FacetCounts facets) throws IOException {
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			facets.add(in.readUTF(), in.readInt());
+		}
+	}
+}
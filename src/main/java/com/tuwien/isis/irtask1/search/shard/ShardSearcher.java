@@ -0,0 +1,54 @@
+package com.tuwien.isis.irtask1.search.shard;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.QueryContext;
+
+/**
+ * A searchable partition of the index. The whole index is simply a searcher with a single shard.
+ */
+public interface ShardSearcher {
+
+	/**
+	 * Look up the vector of a document by its full name (class/name)
+	 *
+	 * @param fullDocName
+	 * @return the document vector or null if the document is not held by this searcher
+	 * @throws IOException
+	 */
+	DocumentVector findDocument(String fullDocName) throws IOException;
+
+	/**
+	 * Return the k documents most similar to the query, sorted by descending cosine
+	 *
+	 * @param queryDocVec
+	 * @param k
+	 * @return
+	 * @throws IOException
+	 */
+	List<DocumentVector> search(DocumentVector queryDocVec, int k) throws IOException;
+
+	/**
+	 * Return the k documents most similar to the query among the documents of the classes selected by
+	 * the filter of the context. Documents of other classes are skipped before they are scored. The
+	 * number of matching (cosine > 0) documents per class is added to the facets of the context. If
+	 * the budget of the context runs out, the best documents scored so far are returned and the budget
+	 * is marked as exhausted.
+	 *
+	 * @param queryDocVec
+	 * @param k
+	 * @param context
+	 * @return
+	 * @throws IOException
+	 */
+	List<DocumentVector> search(DocumentVector queryDocVec, int k, QueryContext context) throws IOException;
+
+	/**
+	 * Release all resources held by the searcher
+	 *
+	 * @throws IOException
+	 */
+	void close() throws IOException;
+}
@@ -0,0 +1,127 @@
+package com.tuwien.isis.irtask1.search.shard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.QueryBudget;
+import com.tuwien.isis.irtask1.search.QueryContext;
+import com.tuwien.isis.irtask1.search.QueryPruner;
+import com.tuwien.isis.irtask1.search.filter.ClassFilter;
+import com.tuwien.isis.irtask1.search.filter.FacetCounts;
+
+/**
+ * Serves a single shard to coordinators in other JVMs. Every connection is handled by its own thread,
+ * so several coordinators may query the shard at the same time.
+ */
+public class ShardServer {
+
+	private final ShardSearcher searcher;
+
+	private final int port;
+
+	public ShardServer(ShardSearcher searcher, int port) {
+		this.searcher = searcher;
+		this.port = port;
+	}
+
+	/**
+	 * Accept connections until the process is terminated
+	 *
+	 * @throws IOException
+	 */
+	public void serve() throws IOException {
+		ServerSocket serverSocket = new ServerSocket(port);
+		System.out.println("Shard server listening on port " + port);
+		try {
+			while (true) {
+				final Socket socket = serverSocket.accept();
+				Thread handler = new Thread(new Runnable() {
+					public void run() {
+						handleConnection(socket);
+					}
+				}, "shard-connection-" + socket.getPort());
+				handler.setDaemon(true);
+				handler.start();
+			}
+		} finally {
+			serverSocket.close();
+		}
+	}
+
+	/**
+	 * Answer the requests of a single coordinator until it closes the session
+	 *
+	 * @param socket
+	 */
+	private void handleConnection(Socket socket) {
+		try {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+			while (true) {
+				byte operation = in.readByte();
+				if (operation == ShardProtocol.FIND) {
+					DocumentVector docVec = searcher.findDocument(in.readUTF());
+					out.writeBoolean(docVec != null);
+					if (docVec != null) {
+						ShardProtocol.writeDocumentVector(out, docVec);
+					}
+				} else if (operation == ShardProtocol.SEARCH) {
+					DocumentVector queryDocVec = ShardProtocol.readDocumentVector(in);
+					writeResultList(out, searcher.search(queryDocVec, in.readInt()));
+				} else if (operation == ShardProtocol.SEARCH_CONTEXT) {
+					DocumentVector queryDocVec = ShardProtocol.readDocumentVector(in);
+					int k = in.readInt();
+					ClassFilter filter = ShardProtocol.readClassFilter(in);
+					FacetCounts facets = in.readBoolean() ? new FacetCounts() : null;
+					long budgetMillis = in.readLong();
+					long budgetDocuments = in.readLong();
+					QueryBudget budget = (budgetMillis > 0 || budgetDocuments > 0) ? new QueryBudget(budgetMillis,
+							budgetDocuments) : null;
+					int pruneTerms = in.readInt();
+					double pruneNorm = in.readDouble();
+					QueryPruner pruner = (pruneTerms > 0) ? QueryPruner.topTerms(pruneTerms)
+							: (pruneNorm > 0) ? QueryPruner.normFraction(pruneNorm) : null;
+					writeResultList(out, searcher.search(queryDocVec, k, new QueryContext(filter, facets, budget,
+							pruner)));
+					if (facets != null) {
+						ShardProtocol.writeFacetCounts(out, facets);
+					}
+					out.writeBoolean(budget != null && budget.isTimeExceeded());
+					out.writeBoolean(budget != null && budget.isDocumentsExceeded());
+				} else if (operation == ShardProtocol.CLOSE) {
+					break;
+				} else {
+					throw new IOException("unknown operation " + operation);
+				}
+				out.flush();
+			}
+		} catch (EOFException e) {
+			// coordinator went away without closing the session
+		} catch (IOException e) {
+			System.err.println("error serving shard connection: " + e.getMessage());
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// ignore, the connection is finished anyway
+			}
+		}
+	}
+
+	private static void writeResultList(DataOutputStream out, List<DocumentVector> resultList) throws IOException {
+		out.writeInt(resultList.size());
+		for (DocumentVector docVec : resultList) {
+			ShardProtocol.writeDocumentVector(out, docVec);
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package com.tuwien.isis.irtask1.search.shard;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.tuwien.isis.irtask1.search.DocumentVector;
+import com.tuwien.isis.irtask1.search.QueryContext;
+
+/**
+ * Searcher whose index can be replaced while it is being queried. Every query runs on the
+ * {@link IndexSnapshot} which was published when it started. A reload loads the new index on a
+ * background thread and then publishes it with a single atomic swap, so queries never see a partly
+ * loaded index and never wait for a lock. The replaced snapshot is closed once its last query is done.
+ */
+public class SwappableSearcher implements ShardSearcher {
+
+	/**
+	 * Loads a new version of the index
+	 */
+	public interface Loader {
+
+		/**
+		 * Open a searcher over the current index files
+		 *
+		 * @return
+		 * @throws IOException
+		 */
+		ShardSearcher load() throws IOException;
+	}
+
+	/**
+	 * Work done on a single snapshot, which is not closed before the work is finished
+	 *
+	 * @param <T>
+	 */
+	public interface SnapshotTask<T> {
+
+		/**
+		 * Run the task on the searcher of the snapshot
+		 *
+		 * @param searcher
+		 * @return
+		 * @throws IOException
+		 */
+		T run(ShardSearcher searcher) throws IOException;
+	}
+
+	private final Loader loader;
+
+	private final AtomicReference<IndexSnapshot> current = new AtomicReference<IndexSnapshot>();
+
+	private final ExecutorService reloader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "index-reloader");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/**
+	 * Number of reloads which have been requested but not yet published
+	 */
+	private final AtomicInteger pendingReloads = new AtomicInteger();
+
+	private volatile boolean closed = false;
+
+	/**
+	 * Load the first version of the index
+	 *
+	 * @param loader
+	 * @throws IOException
+	 */
+	public SwappableSearcher(Loader loader) throws IOException {
+		this.loader = loader;
+		current.set(load(1));
+	}
+
+	/**
+	 * Load the index again in the background and publish it when it is complete. Queries keep running on
+	 * the current snapshot in the meantime.
+	 *
+	 * @return the published snapshot, once it is available
+	 * @throws RejectedExecutionException
+	 *             if the searcher has been closed
+	 */
+	public Future<IndexSnapshot> reload() {
+		// counted before the task is submitted, since it may finish before submit returns
+		pendingReloads.incrementAndGet();
+		try {
+			return reloader.submit(new Callable<IndexSnapshot>() {
+				public IndexSnapshot call() throws IOException {
+					try {
+						IndexSnapshot next = load(current.get().getVersion() + 1);
+						current.getAndSet(next).release();
+						return next;
+					} finally {
+						pendingReloads.decrementAndGet();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			pendingReloads.decrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * Return true while a reload is loading or publishing a new snapshot
+	 *
+	 * @return
+	 */
+	public boolean isReloading() {
+		return pendingReloads.get() > 0;
+	}
+
+	/**
+	 * Return the snapshot new queries run on
+	 *
+	 * @return
+	 */
+	public IndexSnapshot getCurrent() {
+		return current.get();
+	}
+
+	/**
+	 * Run a task on the published snapshot, e.g. to build a query with the term statistics of the index
+	 * version it is then searched on
+	 *
+	 * @param task
+	 * @return the result of the task
+	 * @throws IOException
+	 */
+	public <T> T execute(SnapshotTask<T> task) throws IOException {
+		IndexSnapshot snapshot = acquire();
+		try {
+			return task.run(snapshot.getSearcher());
+		} finally {
+			snapshot.release();
+		}
+	}
+
+	public DocumentVector findDocument(String fullDocName) throws IOException {
+		IndexSnapshot snapshot = acquire();
+		try {
+			return snapshot.getSearcher().findDocument(fullDocName);
+		} finally {
+			snapshot.release();
+		}
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k) throws IOException {
+		return search(queryDocVec, k, QueryContext.NONE);
+	}
+
+	public List<DocumentVector> search(DocumentVector queryDocVec, int k, QueryContext context) throws IOException {
+		IndexSnapshot snapshot = acquire();
+		try {
+			return snapshot.getSearcher().search(queryDocVec, k, context);
+		} finally {
+			snapshot.release();
+		}
+	}
+
+	/**
+	 * Wait for a running reload and close the published snapshot once its queries are done
+	 */
+	public void close() throws IOException {
+		closed = true;
+		reloader.shutdown();
+		try {
+			reloader.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		current.get().release();
+	}
+
+	/**
+	 * Take a reference to the published snapshot. If it is replaced and released in between, the newly
+	 * published one is read again.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private IndexSnapshot acquire() throws IOException {
+		while (!closed) {
+			IndexSnapshot snapshot = current.get();
+			if (snapshot.acquire()) {
+				return snapshot;
+			}
+		}
+		throw new IOException("searcher is closed");
+	}
+
+	private IndexSnapshot load(long version) throws IOException {
+		long start = System.nanoTime();
+		ShardSearcher searcher = loader.load();
+		return new IndexSnapshot(version, searcher, (System.nanoTime() - start) / 1000000);
+	}
+}
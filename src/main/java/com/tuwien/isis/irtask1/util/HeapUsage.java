@@ -0,0 +1,69 @@
+package com.tuwien.isis.irtask1.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Rough measurement of the heap occupied by live objects, for comparing data structures
+ */
+public class HeapUsage {
+
+	private HeapUsage() {
+	}
+
+	/**
+	 * Return the number of bytes used on the heap after asking the JVM to collect garbage
+	 *
+	 * @return
+	 */
+	public static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Reset the peak usage of all heap memory pools, so that peakHeap() covers what follows
+	 */
+	public static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/**
+	 * Return the sum of the peak usages of all heap memory pools since the JVM started or the last
+	 * resetPeakHeap(). The pools can peak at different times, so this is an upper bound.
+	 *
+	 * @return
+	 */
+	public static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * Format a number of bytes in kilobytes
+	 *
+	 * @param bytes
+	 * @return
+	 */
+	public static String format(long bytes) {
+		return (bytes / 1024) + " KB";
+	}
+}